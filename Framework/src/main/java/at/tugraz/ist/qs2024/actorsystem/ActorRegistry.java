@@ -0,0 +1,214 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Registry of the actors of a system, which supports adding, removing and looking up
+ * actors by their IDs in constant time and iterates the actors in the order they
+ * have been added, i.e. ordered by their IDs.
+ * <p>
+ * Actors are stored in an array in the order they have been added, removing an actor
+ * leaves a gap, which is closed when the array is compacted. The array is compacted
+ * when half of it are gaps. The position of an actor in the array is looked up in an
+ * open-addressing hash table with linear probing, which maps the IDs to the positions
+ * without boxing them.
+ */
+public class ActorRegistry {
+
+    /**
+     * Key of empty buckets of the hash table, actor IDs are never negative.
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Actors in the order they have been added, null for removed actors.
+     */
+    private SimulatedActor[] actors = new SimulatedActor[INITIAL_CAPACITY];
+
+    /**
+     * Number of used positions of <c>actors</c>, including removed actors.
+     */
+    private int end = 0;
+
+    /**
+     * Number of actors in the registry.
+     */
+    private int size = 0;
+
+    /**
+     * IDs of the actors, the hash table has a power-of-two number of buckets.
+     */
+    private long[] keys = newKeys(INITIAL_CAPACITY * 2);
+
+    /**
+     * Positions in <c>actors</c> of the actors with the IDs in the same buckets of <c>keys</c>.
+     */
+    private int[] positions = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Adds an actor, whose ID must be higher than the IDs of all actors added so far,
+     * so that the actors are iterated ordered by their IDs.
+     *
+     * @param actor the actor to be added
+     * @throws IllegalArgumentException if an actor with the same ID has already been added
+     */
+    public void add(SimulatedActor actor) {
+        if (find(actor.getId()) >= 0) {
+            throw new IllegalArgumentException("Actor " + actor.getId() + " has already been added");
+        }
+        if (end == actors.length) {
+            if (size <= actors.length / 2) {
+                compact();
+            } else {
+                actors = Arrays.copyOf(actors, actors.length * 2);
+            }
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        actors[end] = actor;
+        insert(actor.getId(), end);
+        end++;
+        size++;
+    }
+
+    /**
+     * Removes an actor.
+     *
+     * @param actor the actor to be removed
+     * @return true if the actor has been in the registry
+     */
+    public boolean remove(SimulatedActor actor) {
+        int bucket = find(actor.getId());
+        if (bucket < 0 || actors[positions[bucket]] != actor) {
+            return false;
+        }
+        actors[positions[bucket]] = null;
+        delete(bucket);
+        size--;
+        if (end > INITIAL_CAPACITY && size <= end / 2) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * @param id the ID of an actor
+     * @return The actor with the given ID, null if there is no such actor in the registry.
+     */
+    public SimulatedActor get(long id) {
+        int bucket = find(id);
+        return bucket < 0 ? null : actors[positions[bucket]];
+    }
+
+    /**
+     * @return The number of actors in the registry.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return A list of the actors ordered by their IDs, which does not reflect later changes.
+     */
+    public List<SimulatedActor> toList() {
+        List<SimulatedActor> list = new ArrayList<>(size);
+        for (int i = 0; i < end; i++) {
+            if (actors[i] != null) {
+                list.add(actors[i]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Closes the gaps of removed actors and updates their positions in the hash table.
+     */
+    private void compact() {
+        int to = 0;
+        for (int from = 0; from < end; from++) {
+            SimulatedActor actor = actors[from];
+            if (actor != null) {
+                if (from != to) {
+                    actors[to] = actor;
+                    positions[find(actor.getId())] = to;
+                }
+                to++;
+            }
+        }
+        Arrays.fill(actors, to, end, null);
+        end = to;
+    }
+
+    /**
+     * @return The bucket containing the given ID, -1 if the ID is not in the hash table.
+     */
+    private int find(long id) {
+        int mask = keys.length - 1;
+        for (int bucket = hash(id) & mask; keys[bucket] != EMPTY; bucket = (bucket + 1) & mask) {
+            if (keys[bucket] == id) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long id, int position) {
+        int mask = keys.length - 1;
+        int bucket = hash(id) & mask;
+        while (keys[bucket] != EMPTY) {
+            bucket = (bucket + 1) & mask;
+        }
+        keys[bucket] = id;
+        positions[bucket] = position;
+    }
+
+    /**
+     * Empties a bucket and moves following entries back, so that no entry
+     * is separated from its home bucket by an empty bucket.
+     */
+    private void delete(int bucket) {
+        int mask = keys.length - 1;
+        int gap = bucket;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // the entry can be moved into the gap if its home is not between the gap and its bucket
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                positions[gap] = positions[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldPositions = positions;
+        keys = newKeys(capacity);
+        positions = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(oldKeys[i], oldPositions[i]);
+            }
+        }
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    /**
+     * Spreads consecutive IDs over the hash table.
+     */
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
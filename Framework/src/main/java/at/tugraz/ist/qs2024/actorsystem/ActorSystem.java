@@ -0,0 +1,60 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.function.Supplier;
+
+/**
+ * Abstract ActorSystem class declaring the methods, which are used by
+ * actors to notify the system they have been spawned in. It is common to
+ * all concrete implementations of actor systems.
+ */
+public abstract class ActorSystem implements ISimulatedActorSystem {
+
+    /**
+     * Creates the message logs of spawned actors, null if actors keep their own message logs.
+     */
+    private Supplier<MessageLog> messageLogFactory = null;
+
+    /**
+     * Sets the message log policy of this system, all actors spawned afterwards
+     * get a new message log created by the given factory. The factory may also
+     * return the same log for all actors, e.g. a {@link BinaryFileMessageLog}.
+     *
+     * @param messageLogFactory creates the message logs, null if actors keep their own message logs
+     */
+    public void setMessageLogFactory(Supplier<MessageLog> messageLogFactory) {
+        this.messageLogFactory = messageLogFactory;
+    }
+
+    /**
+     * Applies the message log policy of this system to an actor being spawned.
+     *
+     * @param actor the actor being spawned
+     */
+    void applyMessageLogPolicy(SimulatedActor actor) {
+        if (messageLogFactory != null) {
+            actor.setMessageLog(messageLogFactory.get());
+        }
+    }
+
+    /**
+     * Sends a message to an actor of this system, see {@link ISimulatedActor#tell(Message)}.
+     *
+     * @param actor   the receiving actor
+     * @param message the message to be sent
+     */
+    abstract void deliver(SimulatedActor actor, Message message);
+
+    /**
+     * Schedules an idle actor again, see {@link SimulatedActor#wakeUp()}.
+     *
+     * @param actor the actor to be scheduled
+     */
+    abstract void wake(SimulatedActor actor);
+
+    /**
+     * @param actor an actor of this system
+     * @return The number of time units in which the actor would have been ticked,
+     * if it was not idle.
+     */
+    abstract int getMissedTicks(SimulatedActor actor);
+}
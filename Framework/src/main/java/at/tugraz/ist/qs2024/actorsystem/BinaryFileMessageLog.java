@@ -0,0 +1,400 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Message log writing all messages to a compact binary file instead of retaining them in memory.
+ * One log may be shared by all actors of a system, every entry contains the ID of the receiver.
+ * <p>
+ * A message is encoded when it is logged, i.e. its public fields are written, actors are
+ * written as their IDs, collections as their sizes and other objects as their string
+ * representations. The encoded messages are written to the file by a background thread.
+ * The file can be read back using {@link BinaryFileMessageLog#read(Path)} after the
+ * log has been closed.
+ * <p>
+ * The file starts with a header, followed by records. The first message of a type is
+ * preceded by a record defining the type, i.e. its name and the names of its fields.
+ * Integral numbers are written as variable-length integers.
+ */
+public class BinaryFileMessageLog implements MessageLog, Closeable {
+
+    private static final int MAGIC = 0x4D4C4F47;
+    private static final int VERSION = 1;
+
+    private static final int TYPE_RECORD = 0;
+    private static final int MESSAGE_RECORD = 1;
+
+    private static final int NULL_VALUE = 0;
+    private static final int INTEGER_VALUE = 1;
+    private static final int DECIMAL_VALUE = 2;
+    private static final int FALSE_VALUE = 3;
+    private static final int TRUE_VALUE = 4;
+    private static final int STRING_VALUE = 5;
+    private static final int ACTOR_VALUE = 6;
+    private static final int COLLECTION_VALUE = 7;
+
+    /**
+     * Marks the end of the queue of encoded records.
+     */
+    private static final byte[] END = new byte[0];
+
+    /**
+     * Types logged so far, the value is the index of the type in the file.
+     */
+    private final Map<Class<?>, Integer> types = new HashMap<>();
+
+    /**
+     * Public fields of the logged types, in the order they are written.
+     */
+    private final List<Field[]> fields = new ArrayList<>();
+
+    /**
+     * Buffer used to encode records, only used while holding the lock of this log.
+     */
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    /**
+     * Encoded records, which have not been written yet.
+     */
+    private final BlockingQueue<byte[]> pending = new LinkedBlockingQueue<>();
+
+    private final Thread writer;
+    private final OutputStream out;
+    private volatile IOException failure = null;
+    private boolean closed = false;
+
+    /**
+     * Constructs a new BinaryFileMessageLog object, which creates or truncates the file.
+     *
+     * @param file the file the messages are written to
+     * @throws IOException if the file cannot be opened
+     */
+    public BinaryFileMessageLog(Path file) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(file));
+        writeInt(buffer, MAGIC);
+        buffer.write(VERSION);
+        pending.add(takeBuffer());
+        this.writer = new Thread(this::write, "message-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public synchronized void append(ISimulatedActor receiver, Message message) {
+        if (closed) {
+            throw new IllegalStateException("Message log has been closed");
+        }
+        Integer type = types.get(message.getClass());
+        if (type == null) {
+            type = defineType(message.getClass());
+        }
+        buffer.write(MESSAGE_RECORD);
+        writeVarLong(buffer, receiver.getId());
+        writeVarLong(buffer, type);
+        for (Field field : fields.get(type)) {
+            try {
+                writeValue(field.get(message));
+            } catch (IllegalAccessException e) {
+                writeValue(null);
+            }
+        }
+        pending.add(takeBuffer());
+    }
+
+    /**
+     * @return An empty list, the messages are only retained in the file.
+     */
+    @Override
+    public List<Message> getMessages() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Writes all messages logged so far and closes the file.
+     *
+     * @throws IOException if writing the file failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.add(END);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the message log", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads a file written by a BinaryFileMessageLog.
+     *
+     * @param file the file to be read
+     * @return The logged messages in the order they have been logged.
+     * @throws IOException if the file cannot be read or is not a message log
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        List<String> typeNames = new ArrayList<>();
+        List<String[]> fieldNames = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.read() != VERSION) {
+                throw new IOException("Not a message log: " + file);
+            }
+            int record;
+            while ((record = in.read()) != -1) {
+                if (record == TYPE_RECORD) {
+                    typeNames.add(readString(in));
+                    String[] names = new String[(int) readVarLong(in)];
+                    for (int i = 0; i < names.length; i++) {
+                        names[i] = readString(in);
+                    }
+                    fieldNames.add(names);
+                } else if (record == MESSAGE_RECORD) {
+                    long receiverId = readVarLong(in);
+                    int type = (int) readVarLong(in);
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    for (String name : fieldNames.get(type)) {
+                        values.put(name, readValue(in));
+                    }
+                    entries.add(new Entry(receiverId, typeNames.get(type), values));
+                } else {
+                    throw new IOException("Corrupt message log: " + file);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Assigns the next index to a type and encodes the record defining it.
+     */
+    private int defineType(Class<?> type) {
+        List<Field> publicFields = new ArrayList<>();
+        for (Field field : type.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                publicFields.add(field);
+            }
+        }
+        int index = fields.size();
+        types.put(type, index);
+        fields.add(publicFields.toArray(new Field[0]));
+
+        buffer.write(TYPE_RECORD);
+        writeString(buffer, type.getName());
+        writeVarLong(buffer, publicFields.size());
+        for (Field field : publicFields) {
+            writeString(buffer, field.getName());
+        }
+        return index;
+    }
+
+    private void writeValue(Object value) {
+        if (value == null) {
+            buffer.write(NULL_VALUE);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            buffer.write(INTEGER_VALUE);
+            writeVarLong(buffer, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            buffer.write(DECIMAL_VALUE);
+            writeLong(buffer, Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Boolean) {
+            buffer.write((Boolean) value ? TRUE_VALUE : FALSE_VALUE);
+        } else if (value instanceof ISimulatedActor) {
+            buffer.write(ACTOR_VALUE);
+            writeVarLong(buffer, ((ISimulatedActor) value).getId());
+        } else if (value instanceof Collection) {
+            buffer.write(COLLECTION_VALUE);
+            writeVarLong(buffer, ((Collection<?>) value).size());
+        } else {
+            buffer.write(STRING_VALUE);
+            writeString(buffer, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int tag = in.read();
+        switch (tag) {
+            case NULL_VALUE:
+                return null;
+            case INTEGER_VALUE:
+                return readVarLong(in);
+            case DECIMAL_VALUE:
+                return Double.longBitsToDouble(in.readLong());
+            case FALSE_VALUE:
+                return false;
+            case TRUE_VALUE:
+                return true;
+            case STRING_VALUE:
+                return readString(in);
+            case ACTOR_VALUE:
+                return "actor " + readVarLong(in);
+            case COLLECTION_VALUE:
+                return "collection of " + readVarLong(in) + " elements";
+            case -1:
+                throw new EOFException();
+            default:
+                throw new IOException("Corrupt message log, unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Writes the pending records to the file, flushing whenever no more records are pending.
+     * Runs on the writer thread.
+     */
+    private void write() {
+        try {
+            while (true) {
+                byte[] record = pending.poll();
+                if (record == null) {
+                    out.flush();
+                    record = pending.take();
+                }
+                if (record == END) {
+                    break;
+                }
+                out.write(record);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new IOException("Message log writer interrupted", e);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    private byte[] takeBuffer() {
+        byte[] record = buffer.toByteArray();
+        buffer.reset();
+        return record;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+
+    /**
+     * Writes a zigzag-encoded integer in groups of 7 bits, so that small numbers take a single byte.
+     */
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Message read back from a file written by a BinaryFileMessageLog.
+     */
+    public static class Entry {
+        private final long receiverId;
+        private final String type;
+        private final Map<String, Object> fields;
+
+        Entry(long receiverId, String type, Map<String, Object> fields) {
+            this.receiverId = receiverId;
+            this.type = type;
+            this.fields = fields;
+        }
+
+        /**
+         * @return The ID of the actor to which the message has been sent.
+         */
+        public long getReceiverId() {
+            return receiverId;
+        }
+
+        /**
+         * @return The fully qualified class name of the message.
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return The public fields of the message, in the order they have been written.
+         */
+        public Map<String, Object> getFields() {
+            return fields;
+        }
+
+        @Override
+        public String toString() {
+            return "actor " + receiverId + " <- " + type + fields;
+        }
+    }
+}
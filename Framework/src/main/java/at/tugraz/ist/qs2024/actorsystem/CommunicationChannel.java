@@ -38,4 +38,25 @@ public abstract class CommunicationChannel implements ICommunicationChannel {
         this.messagesInDelivery = newMessagesInDelivery;
         return messagesDelivered;
     }
+
+    @Override
+    public int getMessagesInTransit() {
+        return messagesInDelivery.size();
+    }
+
+    @Override
+    public int getIdleTicks() {
+        int idleTicks = Integer.MAX_VALUE;
+        for (MessageInDelivery messageInDelivery : messagesInDelivery) {
+            idleTicks = Math.min(idleTicks, messageInDelivery.getRemainingTicks());
+        }
+        return idleTicks;
+    }
+
+    @Override
+    public void skipTicks(int ticks) {
+        for (MessageInDelivery messageInDelivery : messagesInDelivery) {
+            messageInDelivery.skipTicks(ticks);
+        }
+    }
 }
@@ -0,0 +1,385 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Actor system, which runs actors concurrently in real time instead of simulating time.
+ * <p>
+ * Every actor has a lock-free mailbox (see {@link MpscMailbox}) with the capacity of the mailbox
+ * of the actor, {@link ISimulatedActor#tell(Message)} enqueues the
+ * message and schedules the actor on the executor if it is not scheduled already. A scheduled
+ * actor drains its mailbox by calling {@link ISimulatedActor#receive(Message)} for each message,
+ * so an actor never processes two messages at the same time. Channels and message durations
+ * are not simulated. Optionally, processing a message is delayed by its duration (see
+ * {@link Message#getDuration()}) times the real duration of a time unit.
+ * <p>
+ * Actors are ticked by a scheduler thread once per time unit, so that timers like resend
+ * timeouts work, but only if they are not idle (see {@link ISimulatedActor#getIdleTicks()}).
+ * A tick is run by the executor like a message, so it never overlaps with processing a message,
+ * the time units in which an actor was not ticked are skipped (see {@link ISimulatedActor#skipTicks(int)}).
+ * <p>
+ * The executor can be any executor, e.g. a virtual-thread-per-task executor on Java 21, by
+ * default a shared work-stealing pool is used. Messages are logged when they are processed
+ * (see {@link ISimulatedActor#getMessageLog()}), so that the log is only written by the actor's
+ * own thread. Message logs shared by several actors must be thread-safe.
+ */
+public class ConcurrentActorSystem extends ActorSystem {
+
+    /**
+     * Maximum number of messages processed by an actor before it gives other actors a chance to run.
+     */
+    private static final int MESSAGES_PER_RUN = 64;
+
+    /**
+     * Actors, which have been started but not stopped, the key is the actor ID.
+     */
+    private final ConcurrentHashMap<Long, Cell> cells = new ConcurrentHashMap<>();
+
+    /**
+     * Integral number used for creating actor IDs, which is incremented every time an actor is started.
+     */
+    private final AtomicLong currentActorId = new AtomicLong(0);
+
+    /**
+     * Executor running the actors.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Real duration of one time unit in nanoseconds.
+     */
+    private final long nanosPerTick;
+
+    /**
+     * If set, processing a message is delayed by its duration times the real duration of a time unit.
+     */
+    private final boolean delayByDuration;
+
+    /**
+     * Real time at which the system was started.
+     */
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Scheduler ticking the actors once per time unit.
+     */
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "actor-system-ticker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Exceptions thrown by actors while processing messages or ticks, recorded by the default failure handler.
+     */
+    private final ConcurrentLinkedQueue<Exception> failures = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Called if an actor throws an exception while processing a message or a tick,
+     * the message is dropped and the actor continues with the next one.
+     */
+    private volatile BiConsumer<SimulatedActor, Exception> failureHandler = (actor, e) -> failures.add(e);
+
+    /**
+     * Constructs a new ConcurrentActorSystem object, which runs actors on a shared
+     * work-stealing pool, a time unit lasts ten milliseconds and durations are ignored.
+     */
+    public ConcurrentActorSystem() {
+        this(ForkJoinPool.commonPool(), TimeUnit.MILLISECONDS.toNanos(10), false);
+    }
+
+    /**
+     * Constructs a new ConcurrentActorSystem object.
+     *
+     * @param executor        executor running the actors
+     * @param nanosPerTick    real duration of one time unit in nanoseconds, it must be long enough for
+     *                        requests to be answered before timeouts counted in time units elapse
+     * @param delayByDuration true if processing a message should be delayed by its duration
+     */
+    public ConcurrentActorSystem(ExecutorService executor, long nanosPerTick, boolean delayByDuration) {
+        this.executor = executor;
+        this.nanosPerTick = nanosPerTick;
+        this.delayByDuration = delayByDuration;
+        this.ticker.scheduleAtFixedRate(this::tickActors, nanosPerTick, nanosPerTick, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param failureHandler called with the actor and the exception if an actor fails to process a message
+     *                       or a tick, by default the exception is recorded (see {@link ConcurrentActorSystem#getFailures()})
+     */
+    public void setFailureHandler(BiConsumer<SimulatedActor, Exception> failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * @return The exceptions thrown by actors while processing messages or ticks in the order they were
+     * thrown, unless another failure handler has been set (see {@link ConcurrentActorSystem#setFailureHandler(BiConsumer)}).
+     */
+    public List<Exception> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    @Override
+    public List<SimulatedActor> getActors() {
+        List<SimulatedActor> actors = new ArrayList<>();
+        for (Cell cell : cells.values()) {
+            actors.add(cell.actor);
+        }
+        actors.sort(Comparator.comparingLong(SimulatedActor::getId));
+        return actors;
+    }
+
+    @Override
+    public SimulatedActor getActor(long id) {
+        Cell cell = cells.get(id);
+        return cell == null ? null : cell.actor;
+    }
+
+    /**
+     * @return The number of time units passed since this object was created.
+     */
+    @Override
+    public int getCurrentTime() {
+        return (int) ((System.nanoTime() - startNanos) / nanosPerTick);
+    }
+
+    @Override
+    public void spawn(SimulatedActor actor) {
+        actor.setId(currentActorId.getAndIncrement());
+        actor.system = this;
+        applyMessageLogPolicy(actor);
+        Cell cell = new Cell(actor);
+        cells.put(actor.getId(), cell);
+        actor.atStartUp();
+        actor.setTimeSinceSystemStart(getCurrentTime());
+        cell.scheduleTick(getCurrentTime());
+    }
+
+    /**
+     * Lets the actors run for the real duration of the given number of time units.
+     *
+     * @param numberOfTicks defines how long the system should be run
+     */
+    @Override
+    public void runFor(int numberOfTicks) {
+        runUntil(getCurrentTime() + numberOfTicks - 1);
+    }
+
+    /**
+     * Lets the actors run until the given time unit has passed.
+     *
+     * @param endTime the target time until which the system should be run
+     */
+    @Override
+    public void runUntil(int endTime) {
+        long endNanos = startNanos + (endTime + 1L) * nanosPerTick;
+        long remaining;
+        while ((remaining = endNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Actors are stopped immediately, the message currently processed by the actor
+     * is finished, messages in its mailbox are dropped.
+     *
+     * @param actor The actor to be stopped.
+     */
+    @Override
+    public void stop(SimulatedActor actor) {
+        cells.remove(actor.getId());
+    }
+
+    /**
+     * Lets the actors run for the real duration of one time unit, the actors are ticked by the scheduler.
+     */
+    @Override
+    public void tick() {
+        runFor(1);
+    }
+
+    /**
+     * Gracefully shuts down the system by sending a stop message to an actor, which is
+     * expected to stop all other actors it is responsible for and itself, e.g.
+     * a dispatcher receiving a stop message. After that actor has been stopped
+     * or the timeout has elapsed, the scheduler ticking the actors and the executor are shut down.
+     *
+     * @param actor         the actor, which stops the system
+     * @param stopMessage   the message which is sent to the actor to stop the system
+     * @param timeoutMillis the maximum time to wait for the actor to stop in milliseconds
+     * @return true if the actor has been stopped before the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(SimulatedActor actor, Message stopMessage, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        actor.tell(stopMessage);
+        while (cells.containsKey(actor.getId()) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        boolean stopped = !cells.containsKey(actor.getId());
+        ticker.shutdownNow();
+        if (executor != ForkJoinPool.commonPool()) {
+            executor.shutdown();
+            executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        return stopped;
+    }
+
+    @Override
+    void deliver(SimulatedActor actor, Message message) {
+        Cell cell = cells.get(actor.getId());
+        if (cell == null) {
+            // the actor has been stopped, so the message is never processed
+            return;
+        }
+        Message dropped = cell.mailbox.offer(message);
+        if (dropped != null) {
+            actor.onMailboxOverflow(dropped);
+        }
+        cell.schedule();
+    }
+
+    /**
+     * Actors run whenever messages are sent to them, an actor woken up is ticked in the next time unit.
+     */
+    @Override
+    void wake(SimulatedActor actor) {
+        Cell cell = cells.get(actor.getId());
+        if (cell != null) {
+            cell.nextTick = Math.min(cell.nextTick, getCurrentTime() + 1);
+        }
+    }
+
+    /**
+     * Time is not simulated, so actors do not miss ticks.
+     */
+    @Override
+    int getMissedTicks(SimulatedActor actor) {
+        return 0;
+    }
+
+    /**
+     * Schedules the actors, which have to be ticked in the current time unit, called by the scheduler.
+     */
+    private void tickActors() {
+        int currentTime = getCurrentTime();
+        for (Cell cell : cells.values()) {
+            if (cell.nextTick <= currentTime) {
+                cell.tickDue = true;
+                cell.schedule();
+            }
+        }
+    }
+
+    /**
+     * Runtime state of a spawned actor.
+     */
+    private class Cell implements Runnable {
+        private final SimulatedActor actor;
+        private final Mailbox mailbox;
+
+        /**
+         * Set while the actor is submitted to the executor or running,
+         * ensures that it processes only one message at a time.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        /**
+         * Time unit in which the actor has to be ticked next, <c>Integer.MAX_VALUE</c> if it is idle.
+         */
+        private volatile int nextTick = Integer.MAX_VALUE;
+
+        /**
+         * Set by the scheduler if the actor has to be ticked when it runs the next time.
+         */
+        private volatile boolean tickDue = false;
+
+        /**
+         * Time unit in which the actor has been ticked the last time, only accessed when it runs.
+         */
+        private int lastTick;
+
+        Cell(SimulatedActor actor) {
+            this.actor = actor;
+            Mailbox configured = actor.getMessageBox();
+            // producers cannot remove the oldest message, so the new one is dropped instead
+            OverflowPolicy policy = configured.getOverflowPolicy() == OverflowPolicy.DROP_OLDEST
+                    ? OverflowPolicy.REJECT : configured.getOverflowPolicy();
+            this.mailbox = new MpscMailbox(configured.getCapacity(), policy);
+        }
+
+        boolean isAlive() {
+            return cells.get(actor.getId()) == this;
+        }
+
+        void schedule() {
+            if ((tickDue || !mailbox.isEmpty()) && isAlive() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Computes the time unit in which the actor has to be ticked next, only called when it runs.
+         *
+         * @param lastTick the time unit in which the actor has been ticked the last time
+         */
+        void scheduleTick(int lastTick) {
+            this.lastTick = lastTick;
+            int idleTicks = actor.getIdleTicks();
+            nextTick = idleTicks == Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE, lastTick + 1L + idleTicks);
+        }
+
+        @Override
+        public void run() {
+            if (tickDue && isAlive()) {
+                tickDue = false;
+                int currentTime = getCurrentTime();
+                if (currentTime - lastTick > 1) {
+                    actor.skipTicks(currentTime - lastTick - 1);
+                }
+                // tick() increments the time of the actor
+                actor.timeSinceSystemStart = currentTime - 1;
+                try {
+                    actor.tick();
+                } catch (Exception e) {
+                    failureHandler.accept(actor, e);
+                }
+                lastTick = currentTime;
+            }
+            for (int i = 0; i < MESSAGES_PER_RUN && isAlive(); i++) {
+                Message message = mailbox.poll();
+                if (message == null) {
+                    break;
+                }
+                if (delayByDuration && message.getDuration() > 0) {
+                    LockSupport.parkNanos(message.getDuration() * nanosPerTick);
+                }
+                actor.messageLog.append(actor, message);
+                actor.timeSinceSystemStart = getCurrentTime();
+                try {
+                    actor.receive(message);
+                } catch (Exception e) {
+                    failureHandler.accept(actor, e);
+                }
+            }
+            actor.afterTick();
+            scheduleTick(lastTick);
+            scheduled.set(false);
+            // messages might have been enqueued after the last poll
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Message log retaining no messages at all.
+ */
+public class DisabledMessageLog implements MessageLog {
+
+    @Override
+    public void append(ISimulatedActor receiver, Message message) {
+    }
+
+    @Override
+    public List<Message> getMessages() {
+        return Collections.emptyList();
+    }
+}
@@ -30,4 +30,27 @@ public interface ICommunicationChannel {
      * @return All messages having zero ticks left (upon entering the method).
      */
     List<Message> tick();
+
+    /**
+     * @return Number of messages sent via this channel, which have not been delivered yet.
+     */
+    int getMessagesInTransit();
+
+    /**
+     * Returns the number of upcoming calls to {@link ICommunicationChannel#tick()}, which
+     * will not deliver any message, assuming that no further messages are sent.
+     *
+     * @return Number of ticks until the next message is delivered,
+     * <c>Integer.MAX_VALUE</c> if no message is in transit.
+     */
+    int getIdleTicks();
+
+    /**
+     * Lets the given number of time units pass at once. It has the same effect as
+     * calling {@link ICommunicationChannel#tick()} <c>ticks</c> times, and must only be
+     * used if none of these calls would deliver a message.
+     *
+     * @param ticks Number of ticks to skip, at most {@link ICommunicationChannel#getIdleTicks()}.
+     */
+    void skipTicks(int ticks);
 }
@@ -36,9 +36,9 @@ public interface ISimulatedActor {
     void setId(long id);
 
     /**
-     * @return All messages sent to this actor, this includes messages in transit,
-     * already processed messages and messages in the <c>messageBox</c>.
-     * It is used to alleviate debugging and testing.
+     * @return All messages sent to this actor and retained by its message log,
+     * this includes messages in transit, already processed messages and messages
+     * in the <c>messageBox</c>. It is used to alleviate debugging and testing.
      */
     List<Message> getMessageLog();
 
@@ -91,6 +91,27 @@ public interface ISimulatedActor {
      */
     void tick() throws UnknownClientException, UnknownMessageException;
 
+    /**
+     * Returns the number of upcoming calls to {@link ISimulatedActor#tick()}, which would
+     * do nothing except for counting time, i.e. which neither deliver a message nor
+     * start or finish processing one, assuming no further messages are sent to the actor.
+     * Actors overriding {@link ISimulatedActor#tick()} with time-dependent behaviour
+     * must take it into account here.
+     *
+     * @return Number of ticks until the actor has something to do,
+     * <c>Integer.MAX_VALUE</c> if it is idle until it receives a message.
+     */
+    int getIdleTicks();
+
+    /**
+     * Lets the given number of time units pass at once. It has the same effect as
+     * calling {@link ISimulatedActor#tick()} <c>ticks</c> times, and must only be
+     * used if none of these calls would do anything except for counting time.
+     *
+     * @param ticks Number of ticks to skip, at most {@link ISimulatedActor#getIdleTicks()}.
+     */
+    void skipTicks(int ticks);
+
     /**
      * Method which is called when the actor is spawned.
      */
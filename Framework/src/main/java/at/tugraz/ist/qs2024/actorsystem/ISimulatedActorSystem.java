@@ -21,6 +21,12 @@ public interface ISimulatedActorSystem {
      */
     List<SimulatedActor> getActors();
 
+    /**
+     * @param id the ID of an actor
+     * @return The actor with the given ID, null if it has not been started or has been stopped.
+     */
+    SimulatedActor getActor(long id);
+
     /**
      * @return The number of ticks passed since this object was created.
      */
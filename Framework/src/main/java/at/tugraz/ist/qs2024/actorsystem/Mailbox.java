@@ -0,0 +1,52 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+/**
+ * Interface for the mailboxes of actors, which hold all messages that have been
+ * delivered to an actor but have not been processed yet.
+ * <p>
+ * A mailbox may be bounded, in this case its {@link OverflowPolicy} defines which
+ * message is dropped if a message is added to the full mailbox.
+ */
+public interface Mailbox {
+
+    /**
+     * Capacity of unbounded mailboxes.
+     */
+    int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * Adds a message to the mailbox.
+     *
+     * @param message Non-null message to be added.
+     * @return The message dropped because the mailbox is full,
+     * which is either the given or the oldest message, null if no message was dropped.
+     */
+    Message offer(Message message);
+
+    /**
+     * Removes the oldest message from the mailbox.
+     *
+     * @return The oldest message, null if the mailbox is empty.
+     */
+    Message poll();
+
+    /**
+     * @return True if the mailbox does not contain any messages.
+     */
+    boolean isEmpty();
+
+    /**
+     * @return Number of messages in the mailbox.
+     */
+    int size();
+
+    /**
+     * @return Maximum number of messages in the mailbox, {@link Mailbox#UNBOUNDED} if unbounded.
+     */
+    int getCapacity();
+
+    /**
+     * @return The policy applied if a message is added to the full mailbox.
+     */
+    OverflowPolicy getOverflowPolicy();
+}
@@ -19,6 +19,22 @@ public class MessageInDelivery {
         return message;
     }
 
+    /**
+     * @return Number of calls to {@link MessageInDelivery#tick()} before the message arrives.
+     */
+    int getRemainingTicks() {
+        return remainingTicks;
+    }
+
+    /**
+     * Reduce number of remaining ticks without the message arriving.
+     *
+     * @param ticks Number of ticks to skip, at most the remaining ticks.
+     */
+    void skipTicks(int ticks) {
+        this.remainingTicks -= ticks;
+    }
+
     /**
      * Check if message already arrived at its destination.
      * If not, reduce number of remaining ticks.
@@ -0,0 +1,23 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.List;
+
+/**
+ * Interface for message logs, which define which of the messages sent to
+ * an actor are retained for debugging and testing, see {@link ISimulatedActor#getMessageLog()}.
+ */
+public interface MessageLog {
+
+    /**
+     * Logs a message sent to an actor.
+     *
+     * @param receiver the actor to which the message has been sent
+     * @param message  Non-null message sent
+     */
+    void append(ISimulatedActor receiver, Message message);
+
+    /**
+     * @return The logged messages retained in memory, ordered by the time they have been logged.
+     */
+    List<Message> getMessages();
+}
@@ -0,0 +1,119 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free mailbox, to which many threads may add messages, but only a single
+ * thread may remove them. The messages are stored in a linked list, producers
+ * append by swapping the tail, the consumer removes from the head.
+ * <p>
+ * Producers cannot remove messages, so {@link OverflowPolicy#DROP_OLDEST}
+ * is not supported by this mailbox.
+ */
+public class MpscMailbox implements Mailbox {
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * Number of messages in the mailbox, incremented before a message is appended
+     * and decremented after a message has been removed.
+     */
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    /**
+     * Last node of the list, the node, which has been appended last.
+     */
+    private final AtomicReference<Node> tail;
+
+    /**
+     * Node before the oldest message, only modified by the consumer.
+     */
+    private volatile Node head;
+
+    /**
+     * Constructs a new unbounded MpscMailbox object.
+     */
+    public MpscMailbox() {
+        this(UNBOUNDED, OverflowPolicy.REJECT);
+    }
+
+    /**
+     * Constructs a new MpscMailbox object.
+     *
+     * @param capacity       maximum number of messages, {@link Mailbox#UNBOUNDED} for unbounded mailboxes
+     * @param overflowPolicy policy applied if a message is added to the full mailbox,
+     *                       must not be {@link OverflowPolicy#DROP_OLDEST}
+     */
+    public MpscMailbox(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Mailbox capacity must be positive");
+        }
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            throw new IllegalArgumentException("Only the consumer may remove messages from an MPSC mailbox");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.head = new Node(null);
+        this.tail = new AtomicReference<>(head);
+    }
+
+    @Override
+    public Message offer(Message message) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return message;
+        }
+        Node node = new Node(message);
+        Node previous = tail.getAndSet(node);
+        // the consumer does not see the node before the link is set
+        previous.next = node;
+        return null;
+    }
+
+    @Override
+    public Message poll() {
+        Node next = head.next;
+        if (next == null) {
+            return null;
+        }
+        Message message = next.message;
+        next.message = null;
+        head = next;
+        size.decrementAndGet();
+        return message;
+    }
+
+    /**
+     * Also returns true if a message is just being appended but not linked yet.
+     */
+    @Override
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    private static class Node {
+        private Message message;
+        private volatile Node next;
+
+        Node(Message message) {
+            this.message = message;
+        }
+    }
+}
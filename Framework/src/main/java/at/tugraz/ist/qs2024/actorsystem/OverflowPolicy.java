@@ -0,0 +1,21 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+/**
+ * Policy defining what happens if a message is added to a full {@link Mailbox}.
+ * In all cases the dropped message is passed to {@link SimulatedActor#onMailboxOverflow(Message)},
+ * the policies differ in which message is dropped and how the actor is expected to react.
+ */
+public enum OverflowPolicy {
+    /**
+     * The new message is dropped and the request is rejected, e.g. by replying with a failure.
+     */
+    REJECT,
+    /**
+     * The oldest message in the mailbox is dropped to make room for the new message.
+     */
+    DROP_OLDEST,
+    /**
+     * The new message is dropped and the sender is signalled to back off and send it again later.
+     */
+    SIGNAL_SENDER
+}
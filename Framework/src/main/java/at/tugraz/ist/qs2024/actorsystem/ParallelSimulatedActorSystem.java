@@ -0,0 +1,253 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import at.tugraz.ist.qs2024.messageboard.UnknownClientException;
+import at.tugraz.ist.qs2024.messageboard.UnknownMessageException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Actor system, which ticks actors in parallel on a fork-join pool and produces exactly
+ * the same runs as {@link SimulatedActorSystem}, independent of the parallelism.
+ * <p>
+ * Each tick consists of two phases. First, the ready actors, which can be ticked in parallel,
+ * are ticked on the pool, all messages sent, actors spawned and actors stopped by an actor
+ * during its tick are buffered. Then, all ready actors are visited one after the other
+ * ordered by their IDs as by {@link SimulatedActorSystem}: the buffered operations of the
+ * actors ticked in the first phase are committed, all other actors are ticked.
+ * <p>
+ * An actor can be ticked in parallel if it is isolated (see {@link SimulatedActor#isIsolated()})
+ * and it receives its messages via a {@link TimingWheelChannel} with a positive delay, because
+ * then messages sent to it in the same tick do not change its tick. If such a message is
+ * sent by an actor with a smaller ID, the sequential system sends it before the actor is
+ * ticked, so it is sent as if the actor had not been ticked yet (see
+ * {@link TimingWheelChannel#sendBeforeLastTick(Message)}). Actors with a channel without delay
+ * or sharing state, e.g. message stores, are ticked in the second phase.
+ * <p>
+ * If an actor throws an exception, the tick ends after committing the operations of this
+ * actor, but actors with higher IDs may have been ticked in the first phase nevertheless.
+ * The pool must be shut down using {@link ParallelSimulatedActorSystem#shutdown()}.
+ */
+public class ParallelSimulatedActorSystem extends SimulatedActorSystem {
+
+    /**
+     * Maximum number of actors ticked by a single task of the fork-join pool.
+     */
+    private static final int ACTORS_PER_TASK = 64;
+
+    /**
+     * Pool used to tick the actors.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Operations buffered by the actor ticked by the current thread,
+     * null if the current thread is not ticking an actor.
+     */
+    private final ThreadLocal<List<Runnable>> currentOutbox = new ThreadLocal<>();
+
+    /**
+     * Actors ticked in the first phase of the current tick ordered by their IDs, empty between ticks.
+     */
+    private ParallelTick[] parallelTicks = new ParallelTick[0];
+
+    /**
+     * Index in <c>parallelTicks</c> of the next actor visited in the second phase.
+     */
+    private int nextParallelTick = 0;
+
+    /**
+     * Constructs a new ParallelSimulatedActorSystem object, which ticks all actors in every time unit.
+     *
+     * @param parallelism number of threads used to tick actors
+     */
+    public ParallelSimulatedActorSystem(int parallelism) {
+        this(parallelism, false);
+    }
+
+    /**
+     * Constructs a new ParallelSimulatedActorSystem object.
+     *
+     * @param parallelism number of threads used to tick actors
+     * @param eventDriven true if idle time units should be skipped when running the system,
+     *                    see {@link SimulatedActorSystem#SimulatedActorSystem(boolean)}
+     */
+    public ParallelSimulatedActorSystem(int parallelism, boolean eventDriven) {
+        super(eventDriven);
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Shuts down the pool ticking the actors, the system must not be ticked afterwards.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public void spawn(SimulatedActor actor) {
+        if (!buffer(() -> super.spawn(actor))) {
+            super.spawn(actor);
+        }
+    }
+
+    @Override
+    public void stop(SimulatedActor actor) {
+        if (!buffer(() -> super.stop(actor))) {
+            super.stop(actor);
+        }
+    }
+
+    @Override
+    void deliver(SimulatedActor actor, Message message) {
+        if (buffer(() -> deliver(actor, message))) {
+            return;
+        }
+        if (actor.getId() > getTickingActorId() && findParallelTick(actor) >= 0) {
+            // the actor has been ticked in the first phase, but the sequential system ticks it later
+            actor.deliverBeforeLastTick(message);
+        } else {
+            super.deliver(actor, message);
+        }
+    }
+
+    @Override
+    void wake(SimulatedActor actor) {
+        if (!buffer(() -> super.wake(actor))) {
+            super.wake(actor);
+        }
+    }
+
+    @Override
+    public void tick() throws UnknownClientException, UnknownMessageException {
+        List<ParallelTick> ticks = new ArrayList<>();
+        for (SimulatedActor actor : getReadyActors()) {
+            if (isTickedInParallel(actor)) {
+                ticks.add(new ParallelTick(actor));
+            }
+        }
+        parallelTicks = ticks.toArray(new ParallelTick[0]);
+        nextParallelTick = 0;
+        try {
+            pool.invoke(new TickTask(parallelTicks, 0, parallelTicks.length));
+            super.tick();
+        } finally {
+            parallelTicks = new ParallelTick[0];
+        }
+    }
+
+    @Override
+    void tick(SimulatedActor actor) throws UnknownClientException, UnknownMessageException {
+        if (nextParallelTick == parallelTicks.length || parallelTicks[nextParallelTick].actor != actor) {
+            super.tick(actor);
+            return;
+        }
+        ParallelTick tick = parallelTicks[nextParallelTick++];
+        for (Runnable operation : tick.operations) {
+            operation.run();
+        }
+        if (tick.failure instanceof UnknownClientException) {
+            throw (UnknownClientException) tick.failure;
+        } else if (tick.failure instanceof UnknownMessageException) {
+            throw (UnknownMessageException) tick.failure;
+        } else if (tick.failure != null) {
+            throw (RuntimeException) tick.failure;
+        }
+    }
+
+    /**
+     * @param actor a ready actor
+     * @return true if the actor can be ticked in the first phase, see {@link ParallelSimulatedActorSystem}
+     */
+    private static boolean isTickedInParallel(SimulatedActor actor) {
+        return actor.isIsolated() && actor.channel instanceof TimingWheelChannel
+                && ((TimingWheelChannel) actor.channel).getDelay() > 0;
+    }
+
+    /**
+     * @param actor an actor
+     * @return The index of the actor in <c>parallelTicks</c>, a negative number if it has not been ticked in the first phase.
+     */
+    private int findParallelTick(SimulatedActor actor) {
+        int low = 0;
+        int high = parallelTicks.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long id = parallelTicks[middle].actor.getId();
+            if (id < actor.getId()) {
+                low = middle + 1;
+            } else if (id > actor.getId()) {
+                high = middle - 1;
+            } else {
+                return parallelTicks[middle].actor == actor ? middle : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Buffers an operation if the current thread is ticking an actor.
+     *
+     * @param operation the operation to be committed when the actor is visited in the second phase
+     * @return true if the operation has been buffered, false if it must be performed immediately
+     */
+    private boolean buffer(Runnable operation) {
+        List<Runnable> outbox = currentOutbox.get();
+        if (outbox == null) {
+            return false;
+        }
+        outbox.add(operation);
+        return true;
+    }
+
+    /**
+     * Tick of an actor in the first phase, the operations buffered by the actor and the exception thrown by it.
+     */
+    private static class ParallelTick {
+        private final SimulatedActor actor;
+        private final List<Runnable> operations = new ArrayList<>();
+        private Exception failure = null;
+
+        ParallelTick(SimulatedActor actor) {
+            this.actor = actor;
+        }
+    }
+
+    /**
+     * Task ticking a range of actors, which is split into subtasks if it is too large.
+     */
+    private class TickTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelTick[] ticks;
+        private final int from;
+        private final int to;
+
+        TickTask(ParallelTick[] ticks, int from, int to) {
+            this.ticks = ticks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ACTORS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TickTask(ticks, from, middle), new TickTask(ticks, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                currentOutbox.set(ticks[i].operations);
+                try {
+                    ticks[i].actor.tick();
+                } catch (UnknownClientException | UnknownMessageException | RuntimeException e) {
+                    ticks[i].failure = e;
+                } finally {
+                    currentOutbox.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+/**
+ * Mailbox storing the messages in an array used as ring buffer, which is
+ * allocated once for bounded mailboxes and grows by doubling for unbounded ones.
+ * It must only be used by a single thread.
+ */
+public class RingBufferMailbox implements Mailbox {
+
+    /**
+     * Initial length of the array of unbounded mailboxes.
+     */
+    private static final int INITIAL_LENGTH = 16;
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * Messages in the mailbox, the oldest one at <c>head</c>, the following ones
+     * (wrapping around) at the following indices.
+     */
+    private Message[] messages;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Constructs a new unbounded RingBufferMailbox object.
+     */
+    public RingBufferMailbox() {
+        this(UNBOUNDED, OverflowPolicy.REJECT);
+    }
+
+    /**
+     * Constructs a new RingBufferMailbox object.
+     *
+     * @param capacity       maximum number of messages, {@link Mailbox#UNBOUNDED} for unbounded mailboxes
+     * @param overflowPolicy policy applied if a message is added to the full mailbox
+     */
+    public RingBufferMailbox(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Mailbox capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.messages = new Message[capacity == UNBOUNDED ? INITIAL_LENGTH : capacity];
+    }
+
+    @Override
+    public Message offer(Message message) {
+        Message dropped = null;
+        if (size == capacity) {
+            if (overflowPolicy != OverflowPolicy.DROP_OLDEST) {
+                return message;
+            }
+            dropped = poll();
+        } else if (size == messages.length) {
+            grow();
+        }
+        messages[(head + size) % messages.length] = message;
+        size++;
+        return dropped;
+    }
+
+    @Override
+    public Message poll() {
+        if (size == 0) {
+            return null;
+        }
+        Message message = messages[head];
+        messages[head] = null;
+        head = (head + 1) % messages.length;
+        size--;
+        return message;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Doubles the length of the array, moving the oldest message to index zero.
+     */
+    private void grow() {
+        Message[] grown = new Message[messages.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = messages[(head + i) % messages.length];
+        }
+        messages = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,45 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message log retaining only the most recent messages, which are stored in an array used as ring buffer.
+ */
+public class RingBufferMessageLog implements MessageLog {
+
+    private final Message[] messages;
+
+    /**
+     * Total number of messages logged, the next message is stored at this number modulo the capacity.
+     */
+    private long appended = 0;
+
+    /**
+     * Constructs a new RingBufferMessageLog object.
+     *
+     * @param capacity the number of most recent messages retained
+     */
+    public RingBufferMessageLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Message log capacity must be positive");
+        }
+        this.messages = new Message[capacity];
+    }
+
+    @Override
+    public void append(ISimulatedActor receiver, Message message) {
+        messages[(int) (appended % messages.length)] = message;
+        appended++;
+    }
+
+    @Override
+    public List<Message> getMessages() {
+        int size = (int) Math.min(appended, messages.length);
+        List<Message> retained = new ArrayList<>(size);
+        for (long i = appended - size; i < appended; i++) {
+            retained.add(messages[(int) (i % messages.length)]);
+        }
+        return retained;
+    }
+}
@@ -0,0 +1,43 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message log retaining only every n-th message sent to an actor, starting with the first one.
+ * Sampling is deterministic, so simulations logging samples are reproducible.
+ */
+public class SamplingMessageLog implements MessageLog {
+
+    private final List<Message> messages = new ArrayList<>();
+    private final int interval;
+
+    /**
+     * Number of messages sent to the actor so far.
+     */
+    private long appended = 0;
+
+    /**
+     * Constructs a new SamplingMessageLog object.
+     *
+     * @param interval one of this number of messages is retained
+     */
+    public SamplingMessageLog(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive");
+        }
+        this.interval = interval;
+    }
+
+    @Override
+    public void append(ISimulatedActor receiver, Message message) {
+        if (appended++ % interval == 0) {
+            messages.add(message);
+        }
+    }
+
+    @Override
+    public List<Message> getMessages() {
+        return messages;
+    }
+}
@@ -3,10 +3,7 @@ package at.tugraz.ist.qs2024.actorsystem;
 import at.tugraz.ist.qs2024.messageboard.UnknownClientException;
 import at.tugraz.ist.qs2024.messageboard.UnknownMessageException;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 
 public abstract class SimulatedActor implements ISimulatedActor {
 
@@ -16,7 +13,7 @@ public abstract class SimulatedActor implements ISimulatedActor {
      * of the real world would include one channel per communication/pair
      * of actors, but for the sake of simplicity we use only one per actor.
      */
-    protected CommunicationChannel channel = new DeterministicChannel(1);
+    protected ICommunicationChannel channel = new TimingWheelChannel(1);
 
     /**
      * Unique id assigned to each actor
@@ -36,16 +33,19 @@ public abstract class SimulatedActor implements ISimulatedActor {
 
     /**
      * All messages, that have already been sent via <c>channel</c>,
-     * but have not been processed yet.
+     * but have not been processed yet. It is unbounded by default, actors
+     * with a bounded mailbox handle dropped messages in
+     * {@link SimulatedActor#onMailboxOverflow(Message)}.
      */
-    private final Queue<Message> messageBox = new LinkedList<>();
+    protected Mailbox messageBox = new RingBufferMailbox();
 
     /**
-     * All messages sent to this actor, this includes messages in transit,
+     * Log of the messages sent to this actor, this includes messages in transit,
      * already processed messages and messages in the <c>messageBox</c>.
-     * It is used to alleviate debugging and testing.
+     * It is used to alleviate debugging and testing. By default all messages
+     * are retained, see {@link MessageLog} for other policies.
      */
-    private final List<Message> messageLog = new ArrayList<>();
+    protected MessageLog messageLog = new UnboundedMessageLog();
 
     /**
      * Time since the system was started.
@@ -57,6 +57,18 @@ public abstract class SimulatedActor implements ISimulatedActor {
      */
     int timeSinceSystemStart = -1;
 
+    /**
+     * The system this actor was spawned in, it is notified about messages sent to this actor
+     * to schedule it. It is null if the actor has not been spawned yet or has been stopped.
+     */
+    ActorSystem system = null;
+
+    /**
+     * First time unit in which this actor was not ticked by the system, because it was idle.
+     * Only meaningful while the actor is idle, see {@link SimulatedActorSystem#tick()}.
+     */
+    int idleSince = 0;
+
     @Override
     public long getId() {
         return this.id;
@@ -69,11 +81,31 @@ public abstract class SimulatedActor implements ISimulatedActor {
 
     @Override
     public List<Message> getMessageLog() {
-        return this.messageLog;
+        return this.messageLog.getMessages();
+    }
+
+    /**
+     * Replaces the log of the messages sent to this actor, messages logged so far are discarded.
+     *
+     * @param messageLog the new message log
+     */
+    public void setMessageLog(MessageLog messageLog) {
+        this.messageLog = messageLog;
+    }
+
+    /**
+     * @return The mailbox holding the messages which have been delivered but not processed yet.
+     */
+    public Mailbox getMessageBox() {
+        return this.messageBox;
     }
 
     @Override
     public int getTimeSinceSystemStart() {
+        if (system != null) {
+            // idle actors are not ticked, but their time passes nevertheless
+            return this.timeSinceSystemStart + system.getMissedTicks(this);
+        }
         return this.timeSinceSystemStart;
     }
 
@@ -84,15 +116,44 @@ public abstract class SimulatedActor implements ISimulatedActor {
 
     @Override
     public void tell(Message message) {
+        if (system != null) {
+            system.deliver(this, message);
+        } else {
+            deliver(message);
+        }
+    }
+
+    /**
+     * Sends the message via the channel of this actor and logs it.
+     *
+     * @param message Non-null message to be sent.
+     */
+    void deliver(Message message) {
         channel.send(message);
-        messageLog.add(message);
+        messageLog.append(this, message);
+    }
+
+    /**
+     * Sends the message via the channel of this actor as if it had been sent before the last tick
+     * of this actor and logs it, see {@link TimingWheelChannel#sendBeforeLastTick(Message)}.
+     *
+     * @param message Non-null message to be sent.
+     */
+    void deliverBeforeLastTick(Message message) {
+        ((TimingWheelChannel) channel).sendBeforeLastTick(message);
+        messageLog.append(this, message);
     }
 
     @Override
     public void tick() throws UnknownClientException, UnknownMessageException {
         timeSinceSystemStart++;
         List<Message> newlyDelivered = channel.tick();
-        messageBox.addAll(newlyDelivered);
+        for (Message message : newlyDelivered) {
+            Message dropped = messageBox.offer(message);
+            if (dropped != null) {
+                onMailboxOverflow(dropped);
+            }
+        }
 
         if (busyFor > 0) {
             busyFor--;
@@ -108,7 +169,7 @@ public abstract class SimulatedActor implements ISimulatedActor {
             messageToProcess = activeMessage;
             activeMessage = null;
         } else if (!messageBox.isEmpty()) {
-            activeMessage = messageBox.remove();
+            activeMessage = messageBox.poll();
             busyFor = activeMessage.getDuration();
         }
         // might throw an exception, but all the other code should still be executed,
@@ -119,6 +180,84 @@ public abstract class SimulatedActor implements ISimulatedActor {
         }
     }
 
+    @Override
+    public int getIdleTicks() {
+        if (busyFor == 0 && (activeMessage != null || !messageBox.isEmpty())) {
+            // the next tick starts or finishes processing a message
+            return 0;
+        }
+        int idleTicks = channel.getIdleTicks();
+        if (busyFor > 0) {
+            idleTicks = Math.min(idleTicks, busyFor);
+        }
+        return idleTicks;
+    }
+
+    @Override
+    public void skipTicks(int ticks) {
+        timeSinceSystemStart += ticks;
+        channel.skipTicks(ticks);
+        busyFor = Math.max(0, busyFor - ticks);
+    }
+
+    /**
+     * @return true if this actor has taken a message from its mailbox, which it has not processed yet,
+     * because processing it takes time (see {@link Message#getDuration()}).
+     */
+    protected boolean isProcessingMessage() {
+        return activeMessage != null;
+    }
+
+    /**
+     * Signals to the system that this actor has something to do, so that it is ticked again.
+     * The system only ticks actors, which are not idle (see {@link ISimulatedActor#getIdleTicks()}),
+     * and reschedules actors when messages are sent to them. Actors must call this method if
+     * their idle ticks change for other reasons, e.g. if they start a timer.
+     */
+    protected void wakeUp() {
+        if (system != null) {
+            system.wake(this);
+        }
+    }
+
+    /**
+     * Tells whether this actor only reads and modifies its own state and state published in earlier
+     * time units while it is ticked, except for sending messages, spawning and stopping actors, and
+     * whether other actors only read the state it published in earlier time units (see
+     * {@link SimulatedActor#afterTick()}), so that its ticks do not depend on the order of the ticks
+     * of other actors. Only such actors may be ticked in parallel by {@link ParallelSimulatedActorSystem}, all other
+     * actors are ticked one after the other. The default implementation returns true.
+     *
+     * @return true if this actor does not share any state with other actors
+     */
+    protected boolean isIsolated() {
+        return true;
+    }
+
+    /**
+     * Called right after every tick of this actor, and after an event-driven system let time units
+     * pass, in which it would have ticked the actor (see {@link SimulatedActorSystem#SimulatedActorSystem(boolean)}).
+     * A {@link ParallelSimulatedActorSystem} calls it when it visits the actor in the second phase,
+     * i.e. after the messages sent to the actor by actors with smaller IDs in the same tick, so the
+     * actor is in the same state as in {@link SimulatedActorSystem}. Isolated actors (see {@link SimulatedActor#isIsolated()}) publish
+     * the state read by other actors here. The default implementation does nothing.
+     */
+    protected void afterTick() {
+
+    }
+
+    /**
+     * Called if a message has been dropped because the mailbox of this actor is full,
+     * see {@link OverflowPolicy}. The default implementation silently drops the message.
+     * In {@link ConcurrentActorSystem} it is called by the thread of the sender, so it
+     * must not modify the state of this actor, but may send messages.
+     *
+     * @param dropped the message, which is never processed
+     */
+    protected void onMailboxOverflow(Message dropped) {
+
+    }
+
     /**
      * Default implementation of {@link ISimulatedActor#atStartUp()} doing nothing.
      */
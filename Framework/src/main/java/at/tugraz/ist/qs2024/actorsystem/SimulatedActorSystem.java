@@ -4,20 +4,99 @@ import at.tugraz.ist.qs2024.messageboard.UnknownClientException;
 import at.tugraz.ist.qs2024.messageboard.UnknownMessageException;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class SimulatedActorSystem implements ISimulatedActorSystem {
-    private final List<SimulatedActor> actors = new ArrayList<>();
+public class SimulatedActorSystem extends ActorSystem {
+    private final ActorRegistry actors = new ActorRegistry();
     private int currentTime = 0;
 
+    /**
+     * IDs of the actors, which are not idle (see {@link ISimulatedActor#getIdleTicks()}).
+     * Only these actors are ticked, all other actors are added again as soon as a message
+     * is sent to them, and their time is advanced by the time units they have missed.
+     * The bit set allows checking and changing whether an actor is ready in constant
+     * time and iterates the ready actors ordered by their IDs.
+     */
+    private final BitSet readyActors = new BitSet();
+
+    /**
+     * Actors stopped during the current tick by their IDs, they are removed from the ready
+     * actors after the tick, because the actors alive at the beginning of the tick are ticked.
+     */
+    private final Map<Long, SimulatedActor> stoppedDuringTick = new HashMap<>();
+
+    /**
+     * Set while {@link ISimulatedActorSystem#tick()} is iterating the ready actors.
+     */
+    private boolean ticking = false;
+
+    /**
+     * ID of the actor currently ticked, all actors with smaller IDs have already been ticked.
+     */
+    private long tickingActorId = NEW_ACTOR;
+
     /**
      * Integral number used for creating actor IDs, which is incremented every time an actor is started.
      */
     private long currentActorId = 0;
 
+    /**
+     * If set, {@link ISimulatedActorSystem#runFor(int)} and {@link ISimulatedActorSystem#runUntil(int)}
+     * do not tick the actors in time units in which no actor has anything to do, but
+     * advance the time of all actors at once to the next time unit in which a message is
+     * delivered or an actor starts or finishes processing a message.
+     */
+    private final boolean eventDriven;
+
+    /**
+     * If set, idle actors are not retired from the ready actors, so every actor is ticked
+     * in every time unit. Both ways of scheduling yield the same behaviour, this one is
+     * kept as a reference for checking that.
+     */
+    private final boolean tickingAllActors;
+
+    /**
+     * Constructs a new SimulatedActorSystem object, which ticks all actors in every time unit.
+     */
+    public SimulatedActorSystem() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new SimulatedActorSystem object.
+     *
+     * @param eventDriven true if idle time units should be skipped when running the system,
+     *                    this is only correct if all actors report their idle ticks
+     *                    (see {@link ISimulatedActor#getIdleTicks()}).
+     */
+    public SimulatedActorSystem(boolean eventDriven) {
+        this(eventDriven, false);
+    }
+
+    /**
+     * Constructs a new SimulatedActorSystem object.
+     *
+     * @param eventDriven      true if idle time units should be skipped when running the system,
+     *                         see {@link SimulatedActorSystem#SimulatedActorSystem(boolean)}
+     * @param tickingAllActors true if idle actors should be ticked as well instead of being
+     *                         ticked again only when a message is sent to them
+     */
+    public SimulatedActorSystem(boolean eventDriven, boolean tickingAllActors) {
+        this.eventDriven = eventDriven;
+        this.tickingAllActors = tickingAllActors;
+    }
+
     @Override
     public List<SimulatedActor> getActors() {
-        return this.actors;
+        return this.actors.toList();
+    }
+
+    @Override
+    public SimulatedActor getActor(long id) {
+        return this.actors.get(id);
     }
 
     @Override
@@ -27,14 +106,27 @@ public class SimulatedActorSystem implements ISimulatedActorSystem {
 
     @Override
     public void spawn(SimulatedActor actor) {
-        actors.add(actor);
         actor.setId(currentActorId++);
+        actors.add(actor);
+        actor.system = this;
+        applyMessageLogPolicy(actor);
+        // actors spawned during a tick are ticked the first time in the next one
+        actor.idleSince = ticking ? currentTime + 1 : currentTime;
         actor.atStartUp();
         actor.setTimeSinceSystemStart(currentTime);
+        if (tickingAllActors || actor.getIdleTicks() != Integer.MAX_VALUE) {
+            readyActors.set(index(actor));
+        }
     }
 
     @Override
     public void runFor(int numberOfTicks) throws UnknownClientException, UnknownMessageException {
+        if (eventDriven) {
+            if (numberOfTicks > 0) {
+                runUntil(currentTime + numberOfTicks - 1);
+            }
+            return;
+        }
         for (int i = 0; i < numberOfTicks; i++) {
             tick();
         }
@@ -43,23 +135,183 @@ public class SimulatedActorSystem implements ISimulatedActorSystem {
     @Override
     public void runUntil(int endTime) throws UnknownClientException, UnknownMessageException {
         while (currentTime <= endTime) {
+            if (eventDriven) {
+                // skip all time units up to the next one in which some actor has something to do
+                int ticksToSkip = (int) Math.min(getIdleTicks(), endTime + 1L - currentTime);
+                if (ticksToSkip > 0) {
+                    skipTicks(ticksToSkip);
+                    continue;
+                }
+            }
             tick();
         }
     }
 
     @Override
     public void stop(SimulatedActor actor) {
-        actors.remove(actor);
+        if (actors.remove(actor)) {
+            if (ticking) {
+                stoppedDuringTick.put(actor.getId(), actor);
+            } else {
+                detach(actor);
+            }
+        }
     }
 
     @Override
     public void tick() throws UnknownClientException, UnknownMessageException {
-        // need to copy list, because actors might be spawned or stopped
-        // during tick which modifies the actors-list
-        List<SimulatedActor> currentlyAliveActors = new ArrayList<>(actors);
-        for (SimulatedActor actor : currentlyAliveActors) {
-            actor.tick();
+        // actors spawned during the tick are not ticked, actors stopped during
+        // the tick are still ticked, as if iterating a copy of the actors-list
+        long firstSpawnedId = currentActorId;
+        ticking = true;
+        try {
+            int id = readyActors.nextSetBit(0);
+            while (id >= 0 && id < firstSpawnedId) {
+                SimulatedActor actor = getReadyActor(id);
+                tickingActorId = id;
+                tick(actor);
+                actor.afterTick();
+                retireIfIdle(actor, currentTime + 1);
+                // actors woken up by this actor are ticked in this tick if their ID is higher
+                id = readyActors.nextSetBit(id + 1);
+            }
+        } finally {
+            ticking = false;
+            tickingActorId = NEW_ACTOR;
+            for (SimulatedActor stopped : stoppedDuringTick.values()) {
+                detach(stopped);
+            }
+            stoppedDuringTick.clear();
         }
         currentTime++;
     }
+
+    /**
+     * Ticks a ready actor in the current time unit, all actors with smaller IDs have already been ticked.
+     *
+     * @param actor the actor to be ticked
+     */
+    void tick(SimulatedActor actor) throws UnknownClientException, UnknownMessageException {
+        actor.tick();
+    }
+
+    /**
+     * @return The ID of the actor currently ticked, {@link ISimulatedActorSystem#NEW_ACTOR} between ticks.
+     */
+    long getTickingActorId() {
+        return tickingActorId;
+    }
+
+    /**
+     * @return The ready actors (see {@link SimulatedActorSystem#readyActors}) ordered by their IDs.
+     */
+    List<SimulatedActor> getReadyActors() {
+        List<SimulatedActor> ready = new ArrayList<>(readyActors.cardinality());
+        for (int id = readyActors.nextSetBit(0); id >= 0; id = readyActors.nextSetBit(id + 1)) {
+            ready.add(getReadyActor(id));
+        }
+        return ready;
+    }
+
+    /**
+     * Removes an actor, which has just been ticked, from the ready actors if it is idle now.
+     *
+     * @param actor     the actor ticked
+     * @param idleSince the first time unit in which the actor is not ticked anymore
+     */
+    void retireIfIdle(SimulatedActor actor, int idleSince) {
+        if (!tickingAllActors && actor.getIdleTicks() == Integer.MAX_VALUE && readyActors.get(index(actor))) {
+            readyActors.clear(index(actor));
+            actor.idleSince = idleSince;
+        }
+    }
+
+    /**
+     * Increments the current time without ticking any actor.
+     */
+    void advanceTime() {
+        currentTime++;
+    }
+
+    @Override
+    void deliver(SimulatedActor actor, Message message) {
+        // the actor has to catch up with the system time before the message is in transit
+        wake(actor);
+        actor.deliver(message);
+    }
+
+    @Override
+    void wake(SimulatedActor actor) {
+        if (actor.system != this || readyActors.get(index(actor))) {
+            return;
+        }
+        actor.skipTicks(getMissedTicks(actor));
+        readyActors.set(index(actor));
+    }
+
+    @Override
+    int getMissedTicks(SimulatedActor actor) {
+        if (readyActors.get(index(actor))) {
+            return 0;
+        }
+        int missedTicks = currentTime - actor.idleSince;
+        if (ticking && actor.getId() < tickingActorId) {
+            // the actor has already been passed in the current tick
+            missedTicks++;
+        }
+        return Math.max(0, missedTicks);
+    }
+
+    /**
+     * Removes a stopped actor from the ready actors, messages sent to it are not processed anymore.
+     *
+     * @param actor the stopped actor
+     */
+    private void detach(SimulatedActor actor) {
+        actor.timeSinceSystemStart = actor.getTimeSinceSystemStart();
+        actor.system = null;
+        readyActors.clear(index(actor));
+    }
+
+    /**
+     * @param id the ID of a ready actor
+     * @return The ready actor, which may have been stopped during the current tick.
+     */
+    private SimulatedActor getReadyActor(int id) {
+        SimulatedActor actor = actors.get(id);
+        return actor != null ? actor : stoppedDuringTick.get((long) id);
+    }
+
+    /**
+     * @return The index of the actor in the ready actors, i.e. its ID.
+     */
+    private static int index(SimulatedActor actor) {
+        return Math.toIntExact(actor.getId());
+    }
+
+    /**
+     * @return The number of upcoming time units in which no actor has anything to do.
+     */
+    private int getIdleTicks() {
+        int idleTicks = Integer.MAX_VALUE;
+        for (int id = readyActors.nextSetBit(0); id >= 0; id = readyActors.nextSetBit(id + 1)) {
+            idleTicks = Math.min(idleTicks, getReadyActor(id).getIdleTicks());
+        }
+        return idleTicks;
+    }
+
+    /**
+     * Lets the given number of idle time units pass for all actors at once.
+     *
+     * @param ticks number of time units, in which no actor has anything to do
+     */
+    private void skipTicks(int ticks) {
+        for (int id = readyActors.nextSetBit(0); id >= 0; id = readyActors.nextSetBit(id + 1)) {
+            SimulatedActor actor = getReadyActor(id);
+            actor.skipTicks(ticks);
+            // the ready actors would have been ticked in these time units
+            actor.afterTick();
+        }
+        currentTime += ticks;
+    }
 }
@@ -0,0 +1,127 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Communication channel with a fixed delay, which keeps the messages in transit
+ * in a timing wheel instead of a single list.
+ * <p>
+ * The wheel has one slot per tick a message can be in transit, each slot holds the
+ * messages arriving at the same tick in the order they were sent. Sending appends
+ * to one slot and {@link ICommunicationChannel#tick()} hands over exactly one slot,
+ * so the cost of both operations does not depend on the number of messages in transit.
+ * <p>
+ * Messages are delivered at the same ticks and in the same order as by a
+ * {@link DeterministicChannel} with the same delay.
+ */
+public class TimingWheelChannel implements ICommunicationChannel {
+
+    /**
+     * Slots of the wheel, the slot at <c>currentSlot</c> is delivered at the next tick,
+     * the following slots (wrapping around) one tick later each.
+     * Slots without messages are null.
+     */
+    private final List<Message>[] slots;
+
+    /**
+     * Index of the slot delivered at the next call of {@link ICommunicationChannel#tick()}.
+     */
+    private int currentSlot = 0;
+
+    /**
+     * Number of messages in all slots.
+     */
+    private int messagesInTransit = 0;
+
+    /**
+     * Fixed delay for this channel. All messages transmitted via this
+     * channel take (delay + 1) calls to {@link ICommunicationChannel#tick()} to send.
+     */
+    private final int delay;
+
+    /**
+     * Constructs a new TimingWheelChannel object.
+     *
+     * @param delay Fixed delay for each message.
+     *              Set it to zero for instant transmission of messages
+     *              (arrive at next call of {@link ICommunicationChannel#tick()})
+     */
+    public TimingWheelChannel(int delay) {
+        this.delay = delay;
+        this.slots = newSlots(delay + 1);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Message>[] newSlots(int length) {
+        return (List<Message>[]) new List[length];
+    }
+
+    @Override
+    public void send(Message message) {
+        int slot = (currentSlot + delay) % slots.length;
+        if (slots[slot] == null) {
+            slots[slot] = new ArrayList<>();
+        }
+        slots[slot].add(message);
+        messagesInTransit++;
+    }
+
+    /**
+     * Sends a message as if it had been sent before the last call of {@link ICommunicationChannel#tick()},
+     * so that it arrives one tick earlier than if it was sent now. The delay must be positive, because
+     * a message without delay would have been delivered by the last tick.
+     *
+     * @param message The message to send.
+     */
+    void sendBeforeLastTick(Message message) {
+        int slot = (currentSlot + delay - 1) % slots.length;
+        if (slots[slot] == null) {
+            slots[slot] = new ArrayList<>();
+        }
+        slots[slot].add(message);
+        messagesInTransit++;
+    }
+
+    /**
+     * @return The fixed delay of this channel.
+     */
+    public int getDelay() {
+        return delay;
+    }
+
+    @Override
+    public List<Message> tick() {
+        List<Message> messagesDelivered = slots[currentSlot];
+        // the slot is handed over to the caller, a new list is created when it is used again
+        slots[currentSlot] = null;
+        currentSlot = (currentSlot + 1) % slots.length;
+        if (messagesDelivered == null) {
+            return Collections.emptyList();
+        }
+        messagesInTransit -= messagesDelivered.size();
+        return messagesDelivered;
+    }
+
+    @Override
+    public int getMessagesInTransit() {
+        return messagesInTransit;
+    }
+
+    @Override
+    public int getIdleTicks() {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[(currentSlot + i) % slots.length] != null) {
+                return i;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void skipTicks(int ticks) {
+        // all skipped slots are empty, so only the position in the wheel changes
+        currentSlot = (int) ((currentSlot + (long) ticks) % slots.length);
+    }
+}
@@ -0,0 +1,22 @@
+package at.tugraz.ist.qs2024.actorsystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message log retaining all messages in memory, which is the default message log of actors.
+ */
+public class UnboundedMessageLog implements MessageLog {
+
+    private final List<Message> messages = new ArrayList<>();
+
+    @Override
+    public void append(ISimulatedActor receiver, Message message) {
+        messages.add(message);
+    }
+
+    @Override
+    public List<Message> getMessages() {
+        return messages;
+    }
+}
@@ -0,0 +1,96 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+/**
+ * Settings of a dispatcher, which grows and shrinks its pool of workers at runtime.
+ * <p>
+ * Every <c>evaluationInterval</c> time units the dispatcher computes the average load of
+ * its workers (see {@link Worker#getLoad()}) and the average number of time units worker
+ * helpers needed to get a response from the message store since the last evaluation.
+ * If the load exceeds <c>scaleUpLoad</c> or the latency exceeds <c>scaleUpLatency</c>, a
+ * worker is added. If the load is below <c>scaleDownLoad</c> and the latency does not exceed
+ * <c>scaleUpLatency</c>, an idle worker is removed.
+ * The gap between both load thresholds and the <c>cooldown</c>, i.e. the minimum number
+ * of time units between two scaling decisions, keep the pool from oscillating.
+ */
+public class AutoscalingPolicy {
+
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final double scaleUpLoad;
+    private final double scaleDownLoad;
+    private final double scaleUpLatency;
+    private final int evaluationInterval;
+    private final int cooldown;
+
+    /**
+     * Constructs a new AutoscalingPolicy object, which adds workers if a worker has more than
+     * four messages or communications on average or helpers wait longer than eight time units,
+     * and removes workers if a worker has less than one on average. The load is evaluated
+     * every ten time units and the pool is changed at most every fifty time units.
+     *
+     * @param minWorkers the minimum number of workers, which are spawned at start-up
+     * @param maxWorkers the maximum number of workers
+     */
+    public AutoscalingPolicy(int minWorkers, int maxWorkers) {
+        this(minWorkers, maxWorkers, 4.0, 1.0, 8.0, 10, 50);
+    }
+
+    /**
+     * Constructs a new AutoscalingPolicy object.
+     *
+     * @param minWorkers         the minimum number of workers, which are spawned at start-up
+     * @param maxWorkers         the maximum number of workers
+     * @param scaleUpLoad        average load per worker above which a worker is added
+     * @param scaleDownLoad      average load per worker below which a worker is removed
+     * @param scaleUpLatency     average helper latency in time units above which a worker is added
+     * @param evaluationInterval number of time units between two evaluations
+     * @param cooldown           minimum number of time units between two scaling decisions
+     */
+    public AutoscalingPolicy(int minWorkers, int maxWorkers, double scaleUpLoad, double scaleDownLoad,
+                             double scaleUpLatency, int evaluationInterval, int cooldown) {
+        if (minWorkers <= 0 || maxWorkers < minWorkers) {
+            throw new IllegalArgumentException("Invalid number of workers: " + minWorkers + " to " + maxWorkers);
+        }
+        if (scaleDownLoad < 0 || scaleDownLoad >= scaleUpLoad) {
+            throw new IllegalArgumentException("Load to scale down must be non-negative and below the load to scale up");
+        }
+        if (evaluationInterval <= 0 || cooldown < 0) {
+            throw new IllegalArgumentException("Evaluation interval must be positive and cooldown non-negative");
+        }
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.scaleUpLoad = scaleUpLoad;
+        this.scaleDownLoad = scaleDownLoad;
+        this.scaleUpLatency = scaleUpLatency;
+        this.evaluationInterval = evaluationInterval;
+        this.cooldown = cooldown;
+    }
+
+    public int getMinWorkers() {
+        return minWorkers;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public double getScaleUpLoad() {
+        return scaleUpLoad;
+    }
+
+    public double getScaleDownLoad() {
+        return scaleDownLoad;
+    }
+
+    public double getScaleUpLatency() {
+        return scaleUpLatency;
+    }
+
+    public int getEvaluationInterval() {
+        return evaluationInterval;
+    }
+
+    public int getCooldown() {
+        return cooldown;
+    }
+}
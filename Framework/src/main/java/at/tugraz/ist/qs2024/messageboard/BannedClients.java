@@ -0,0 +1,118 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of banned clients published by a {@link ReportRegistry}, stored as a bitset
+ * over the IDs of the client names in the dictionary of the registry. Every ban publishes
+ * a new set with the next version, so readers, e.g. workers, can use a set without locking
+ * and compare versions to detect new bans.
+ */
+public final class BannedClients {
+
+    /**
+     * The set without banned clients
+     */
+    static final BannedClients NONE = new BannedClients(new long[0], 0, 0, Integer.MIN_VALUE, null, null);
+
+    /**
+     * Bits of the banned client IDs, the bit <c>id % 64</c> of the word <c>id / 64</c>
+     */
+    private final long[] bits;
+
+    private final int size;
+
+    private final long version;
+
+    /**
+     * Time unit in which the set has been published
+     */
+    private final int publishedAt;
+
+    /**
+     * The latest set published in an earlier time unit, null if there is none or if this set
+     * is itself the previous set of another set
+     */
+    private final BannedClients previous;
+
+    /**
+     * The dictionary of the registry, which the IDs refer to, null if the set is empty
+     */
+    private final ClientNameDictionary clientNames;
+
+    private BannedClients(long[] bits, int size, long version, int publishedAt, BannedClients previous,
+                          ClientNameDictionary clientNames) {
+        this.bits = bits;
+        this.size = size;
+        this.version = version;
+        this.publishedAt = publishedAt;
+        this.previous = previous;
+        this.clientNames = clientNames;
+    }
+
+    /**
+     * @param clientNames the dictionary of the registry, which the ID refers to
+     * @param id          the ID of the name of a client, who is not contained in this set
+     * @param publishedAt the time unit in which the new set is published, the time unit of this
+     *                    set if it is earlier, as time units of different actors may differ slightly
+     *                    in a {@link at.tugraz.ist.qs2024.actorsystem.ConcurrentActorSystem}
+     * @return A new set containing the banned clients of this set and the given client.
+     */
+    BannedClients with(ClientNameDictionary clientNames, int id, int publishedAt) {
+        publishedAt = Math.max(publishedAt, this.publishedAt);
+        long[] newBits = Arrays.copyOf(bits, Math.max(bits.length, (id >>> 6) + 1));
+        newBits[id >>> 6] |= 1L << id;
+        BannedClients earlier = this.publishedAt < publishedAt ? this.withoutPrevious() : previous;
+        return new BannedClients(newBits, size + 1, version + 1, publishedAt, earlier, clientNames);
+    }
+
+    /**
+     * @return This set without the reference to the previous set, so that at most two sets are kept.
+     */
+    private BannedClients withoutPrevious() {
+        return previous == null ? this : new BannedClients(bits, size, version, publishedAt, null, clientNames);
+    }
+
+    /**
+     * @param time a time unit
+     * @return The latest set published before the given time unit, i.e. without the bans
+     * applied during the time unit, which might not have been applied by all actors yet.
+     */
+    BannedClients publishedBefore(int time) {
+        BannedClients clients = this;
+        while (clients != null && clients.publishedAt >= time) {
+            clients = clients.previous;
+        }
+        return clients == null ? NONE : clients;
+    }
+
+    /**
+     * @param id the ID of the name of a client
+     * @return true if the client is banned.
+     */
+    public boolean contains(int id) {
+        return id >= 0 && (id >>> 6) < bits.length && (bits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * @param clientName the name of a client
+     * @return true if the client is banned.
+     */
+    public boolean contains(String clientName) {
+        return clientNames != null && contains(clientNames.lookup(clientName));
+    }
+
+    /**
+     * @return The number of banned clients.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of bans published up to this set, which increases with every ban.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
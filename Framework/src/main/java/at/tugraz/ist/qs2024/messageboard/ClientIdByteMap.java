@@ -0,0 +1,80 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+/**
+ * Map from client IDs (see {@link ClientNameDictionary}) to non-zero bytes, e.g. the bitmasks
+ * of the reactions of clients to a user message, stored in a {@link ClientIdTable} with an
+ * array of values parallel to the keys. Zero is the value of all IDs, which are not contained
+ * in the map, so putting zero removes an ID.
+ */
+final class ClientIdByteMap extends ClientIdTable {
+
+    /**
+     * Values of the hash table, the value of a key is stored at the index of the key
+     */
+    private byte[] values;
+
+    /**
+     * @param id a client ID
+     * @return The value of the ID, zero if the map does not contain it.
+     */
+    byte get(int id) {
+        int index = indexOf(id);
+        return index < 0 ? 0 : values[index];
+    }
+
+    /**
+     * @param id    a non-negative client ID
+     * @param value the value of the ID, zero removes the ID
+     * @return The previous value of the ID, zero if the map did not contain it.
+     */
+    byte put(int id, byte value) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Client IDs must not be negative");
+        }
+        int index = indexOf(id);
+        if (index >= 0) {
+            byte previous = values[index];
+            if (value == 0) {
+                removeAt(index);
+            } else if (value != previous) {
+                values[index] = value;
+                modifications++;
+            }
+            return previous;
+        }
+        if (value != 0) {
+            // the table may grow, so the values are indexed after inserting the ID
+            int inserted = insert(id);
+            values[inserted] = value;
+        }
+        return 0;
+    }
+
+    /**
+     * @return The IDs contained in the map.
+     */
+    int[] keys() {
+        return keyArray();
+    }
+
+    @Override
+    void resizeValues(int capacity, int[] newIndexes) {
+        byte[] newValues = new byte[capacity];
+        for (int i = 0; i < newIndexes.length; i++) {
+            if (newIndexes[i] >= 0) {
+                newValues[newIndexes[i]] = values[i];
+            }
+        }
+        values = newValues;
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    void clearValue(int index) {
+        values[index] = 0;
+    }
+}
@@ -0,0 +1,110 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import java.util.function.IntFunction;
+
+/**
+ * Map from client IDs (see {@link ClientNameDictionary}) to values, e.g. the reports of
+ * clients, stored in a {@link ClientIdTable} with an array of values parallel to the keys.
+ * Null values are not allowed.
+ *
+ * @param <V> the type of the values
+ */
+final class ClientIdMap<V> extends ClientIdTable {
+
+    /**
+     * Values of the hash table, the value of a key is stored at the index of the key
+     */
+    private Object[] values;
+
+    /**
+     * @param id a client ID
+     * @return The value of the ID, null if the map does not contain it.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int id) {
+        int index = indexOf(id);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * @param id    a non-negative client ID
+     * @param value the non-null value of the ID
+     * @return The previous value of the ID, null if the map did not contain it.
+     */
+    V put(int id, V value) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Client IDs must not be negative");
+        }
+        if (value == null) {
+            throw new NullPointerException("Values must not be null");
+        }
+        int index = indexOf(id);
+        if (index >= 0) {
+            @SuppressWarnings("unchecked")
+            V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        // the table may grow, so the values are indexed after inserting the ID
+        int inserted = insert(id);
+        values[inserted] = value;
+        return null;
+    }
+
+    /**
+     * @param id       a non-negative client ID
+     * @param function function creating the value of the ID if the map does not contain it
+     * @return The value of the ID.
+     */
+    V computeIfAbsent(int id, IntFunction<V> function) {
+        V value = get(id);
+        if (value == null) {
+            value = function.apply(id);
+            put(id, value);
+        }
+        return value;
+    }
+
+    /**
+     * @param id a client ID
+     * @return The removed value of the ID, null if the map did not contain it.
+     */
+    V remove(int id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        V previous = (V) values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    /**
+     * @return The IDs contained in the map.
+     */
+    int[] keys() {
+        return keyArray();
+    }
+
+    @Override
+    void resizeValues(int capacity, int[] newIndexes) {
+        Object[] newValues = new Object[capacity];
+        for (int i = 0; i < newIndexes.length; i++) {
+            if (newIndexes[i] >= 0) {
+                newValues[newIndexes[i]] = values[i];
+            }
+        }
+        values = newValues;
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    void clearValue(int index) {
+        values[index] = null;
+    }
+}
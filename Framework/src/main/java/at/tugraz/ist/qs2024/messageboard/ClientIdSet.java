@@ -0,0 +1,146 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import java.util.Arrays;
+
+/**
+ * Set of client IDs (see {@link ClientNameDictionary}), e.g. the clients who like a user message.
+ * <p>
+ * Small sets are stored in a {@link ClientIdTable}, which is allocated when the first ID is
+ * added, as most messages are liked by few clients. Once a
+ * set contains more than {@link #BITMAP_THRESHOLD} IDs, it is converted into a bitmap split
+ * into chunks of 2^16 IDs, which are only allocated for chunks containing IDs, similar to a
+ * roaring bitmap. All operations take constant time, except for <c>toArray</c>.
+ */
+final class ClientIdSet extends ClientIdTable {
+
+    /**
+     * the number of IDs above which the set is stored as a bitmap
+     */
+    static final int BITMAP_THRESHOLD = 4096;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int WORDS_PER_CHUNK = (1 << CHUNK_BITS) / Long.SIZE;
+
+    /**
+     * Chunks of the bitmap indexed by the upper bits of the IDs, null if the set is stored in the table
+     */
+    private long[][] chunks;
+
+    /**
+     * @param id a client ID, negative IDs are never contained
+     * @return true if the set contains the ID.
+     */
+    boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        if (chunks != null) {
+            int chunk = id >>> CHUNK_BITS;
+            return chunk < chunks.length && chunks[chunk] != null
+                    && (chunks[chunk][(id & 0xFFFF) >>> 6] & (1L << id)) != 0;
+        }
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * @param id a non-negative client ID
+     * @return true if the ID has been added, false if the set already contained it.
+     */
+    boolean add(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Client IDs must not be negative");
+        }
+        if (contains(id)) {
+            return false;
+        }
+        if (chunks == null && size + 1 > BITMAP_THRESHOLD) {
+            convertToBitmap();
+        }
+        if (chunks != null) {
+            setBit(id);
+            size++;
+            modifications++;
+        } else {
+            insert(id);
+        }
+        return true;
+    }
+
+    /**
+     * @param id a client ID
+     * @return true if the ID has been removed, false if the set did not contain it.
+     */
+    boolean remove(int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        if (chunks != null) {
+            chunks[id >>> CHUNK_BITS][(id & 0xFFFF) >>> 6] &= ~(1L << id);
+            size--;
+            modifications++;
+        } else {
+            removeAt(indexOf(id));
+        }
+        return true;
+    }
+
+    /**
+     * @return The IDs of the set, in ascending order if the set is stored as a bitmap.
+     */
+    int[] toArray() {
+        if (chunks == null) {
+            return keyArray();
+        }
+        int[] ids = new int[size];
+        int n = 0;
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (chunks[chunk] == null) {
+                continue;
+            }
+            for (int word = 0; word < WORDS_PER_CHUNK; word++) {
+                long bits = chunks[chunk][word];
+                while (bits != 0) {
+                    ids[n++] = (chunk << CHUNK_BITS) | (word << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * The set has no values.
+     */
+    @Override
+    void resizeValues(int capacity, int[] newIndexes) {
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+    }
+
+    @Override
+    void clearValue(int index) {
+    }
+
+    private void convertToBitmap() {
+        chunks = new long[0][];
+        for (int id : keys) {
+            if (id != EMPTY) {
+                setBit(id);
+            }
+        }
+        keys = null;
+    }
+
+    private void setBit(int id) {
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk + 1);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new long[WORDS_PER_CHUNK];
+        }
+        chunks[chunk][(id & 0xFFFF) >>> 6] |= 1L << id;
+    }
+}
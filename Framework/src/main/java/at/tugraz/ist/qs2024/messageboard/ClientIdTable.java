@@ -0,0 +1,174 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table of client IDs (see {@link ClientNameDictionary}) with linear
+ * probing, which is allocated when the first ID is added. Subclasses may store a value per
+ * ID in arrays parallel to the keys, which are resized and rearranged via
+ * {@link #resizeValues(int, int[])}, {@link #moveValue(int, int)} and {@link #clearValue(int)},
+ * so that looking up, adding and removing IDs is implemented once for all of them.
+ * <p>
+ * Subclasses may also store other non-negative keys, which are not hashed by their value,
+ * by overriding {@link #hashOf(int)}, e.g. the rows of {@link MessageColumns}.
+ */
+abstract class ClientIdTable {
+
+    static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Keys of the hash table, EMPTY marks free slots, the length is a power of two,
+     * null if the table has never contained an ID
+     */
+    int[] keys;
+
+    int size;
+
+    /**
+     * Number of modifications, used to detect changes of the table
+     */
+    int modifications;
+
+    int size() {
+        return size;
+    }
+
+    int getModifications() {
+        return modifications;
+    }
+
+    /**
+     * Resizes the values when the table is allocated or grows.
+     *
+     * @param capacity   the new capacity of the table
+     * @param newIndexes the new index of the ID at each index of the previous table, -1 for free slots
+     */
+    abstract void resizeValues(int capacity, int[] newIndexes);
+
+    /**
+     * Moves the value of an ID, which is moved to another slot when an ID is removed.
+     */
+    abstract void moveValue(int from, int to);
+
+    /**
+     * Clears the value of a slot, which has been freed.
+     */
+    abstract void clearValue(int index);
+
+    /**
+     * @param key a key of the table
+     * @return The hash code of the key, which must not change while the table contains the key.
+     */
+    int hashOf(int key) {
+        return key;
+    }
+
+    static int slotOf(int id, int mask) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * @param id a client ID
+     * @return The index of the ID in the table, -1 if the table does not contain it.
+     */
+    final int indexOf(int id) {
+        if (keys == null || id < 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int i = slotOf(hashOf(id), mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an ID, which is not contained in the table, the table grows if it is three quarters full.
+     *
+     * @param id a non-negative client ID
+     * @return The index of the ID in the table.
+     */
+    final int insert(int id) {
+        if (keys == null) {
+            keys = newKeys(INITIAL_CAPACITY);
+            resizeValues(INITIAL_CAPACITY, new int[0]);
+        } else if ((size + 1) * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+        }
+        size++;
+        modifications++;
+        return place(keys, id);
+    }
+
+    /**
+     * Frees a slot of the table, later IDs of the probe sequence are shifted back,
+     * so that no IDs become unreachable.
+     *
+     * @param free the index of the ID to be removed
+     */
+    final void removeAt(int free) {
+        int mask = keys.length - 1;
+        int i = (free + 1) & mask;
+        while (keys[i] != EMPTY) {
+            int slot = slotOf(hashOf(keys[i]), mask);
+            // the ID at i can be moved to the free slot, unless its slot lies cyclically in (free, i]
+            boolean reachable = free <= i ? free < slot && slot <= i : free < slot || slot <= i;
+            if (!reachable) {
+                keys[free] = keys[i];
+                moveValue(i, free);
+                free = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[free] = EMPTY;
+        clearValue(free);
+        size--;
+        modifications++;
+    }
+
+    /**
+     * @return The IDs contained in the table.
+     */
+    final int[] keyArray() {
+        int[] ids = new int[size];
+        int n = 0;
+        if (keys != null) {
+            for (int id : keys) {
+                if (id != EMPTY) {
+                    ids[n++] = id;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static int[] newKeys(int capacity) {
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    private int place(int[] keys, int id) {
+        int mask = keys.length - 1;
+        int i = slotOf(hashOf(id), mask);
+        while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        return i;
+    }
+
+    private void rehash(int capacity) {
+        int[] newKeys = newKeys(capacity);
+        int[] newIndexes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            newIndexes[i] = keys[i] == EMPTY ? -1 : place(newKeys, keys[i]);
+        }
+        keys = newKeys;
+        resizeValues(capacity, newIndexes);
+    }
+}
@@ -0,0 +1,89 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary assigning a small non-negative integer ID to every client name, so that
+ * user messages, reports and the indexes of message stores can refer to clients by
+ * their IDs instead of separate copies of their names, e.g. the likes of a user message
+ * are stored as sets of integers. Names are only looked up when they are returned.
+ * <p>
+ * IDs are assigned in the order in which names are interned and never reused, names are
+ * never removed. Every message store has its own dictionary, the IDs of the likes, dislikes
+ * and reactions of its messages refer to (see {@link UserMessage#useClientNames(ClientNameDictionary)}),
+ * and a {@link ReportRegistry} has a dictionary shared by the shards using it. A dictionary
+ * may be used by several threads at the same time, e.g. by a
+ * {@link at.tugraz.ist.qs2024.actorsystem.ConcurrentActorSystem}, so the IDs of names
+ * interned concurrently depend on the scheduling of threads and must not influence results.
+ */
+public final class ClientNameDictionary {
+
+    /**
+     * ID returned for names, which have not been interned
+     */
+    public final static int UNKNOWN = -1;
+
+    /**
+     * IDs of the interned names
+     */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Interned names indexed by their IDs, an ID is published in <c>ids</c>
+     * only after its name has been stored here
+     */
+    private volatile String[] names = new String[64];
+
+    /**
+     * Number of interned names, guarded by the dictionary
+     */
+    private int size = 0;
+
+    /**
+     * @param name a client name
+     * @return The ID of the name, a new ID is assigned if the name has not been interned yet.
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = name;
+            ids.put(name, size);
+            return size++;
+        }
+    }
+
+    /**
+     * @param name a client name
+     * @return The ID of the name, UNKNOWN if it has not been interned.
+     */
+    public int lookup(String name) {
+        Integer id = ids.get(name);
+        return id == null ? UNKNOWN : id;
+    }
+
+    /**
+     * @return The number of names interned so far, which have the IDs 0 to <c>size() - 1</c>.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param id an ID returned by {@link #intern(String)}
+     * @return The name with the given ID.
+     */
+    public String nameOf(int id) {
+        return names[id];
+    }
+}
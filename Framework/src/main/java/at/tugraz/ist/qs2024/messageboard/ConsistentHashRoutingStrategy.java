@@ -0,0 +1,108 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.InitCommunication;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Routing strategy for sticky sessions, which sends all communications of a client
+ * to the same worker, regardless of the load of the workers.
+ * <p>
+ * Workers are placed on a hash ring at several points determined by their IDs, a
+ * communication is routed to the worker at the first point following the hash of
+ * the client name, or of the communication ID if the name is not known. If workers
+ * are added or removed, only the clients of the affected ring segments are moved
+ * to other workers.
+ */
+public class ConsistentHashRoutingStrategy implements WorkerRoutingStrategy {
+
+    /**
+     * Default number of points per worker on the ring.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 64;
+
+    private final int virtualNodes;
+
+    /**
+     * List of workers the ring has been built for, the ring is rebuilt if the dispatcher
+     * passes another list, as it replaces the list whenever the workers change.
+     */
+    private List<Worker> ringWorkers = null;
+
+    /**
+     * Sorted hashes of the points on the ring.
+     */
+    private int[] points = new int[0];
+
+    /**
+     * Workers at the points with the same index.
+     */
+    private Worker[] owners = new Worker[0];
+
+    /**
+     * Constructs a new ConsistentHashRoutingStrategy object with
+     * {@link ConsistentHashRoutingStrategy#DEFAULT_VIRTUAL_NODES} points per worker.
+     */
+    public ConsistentHashRoutingStrategy() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Constructs a new ConsistentHashRoutingStrategy object.
+     *
+     * @param virtualNodes number of points per worker on the ring, more points balance the clients better
+     */
+    public ConsistentHashRoutingStrategy(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Number of virtual nodes must be positive");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    @Override
+    public Worker selectWorker(InitCommunication initCommunication, List<Worker> workers) {
+        if (workers != ringWorkers) {
+            buildRing(workers);
+        }
+        int hash = initCommunication.clientName != null
+                ? mix(initCommunication.clientName.hashCode())
+                : mix(Long.hashCode(initCommunication.communicationId));
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    private void buildRing(List<Worker> workers) {
+        long[] entries = new long[workers.size() * virtualNodes];
+        for (int w = 0; w < workers.size(); w++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                int point = mix(Long.hashCode(workers.get(w).getId()) * 31 + v);
+                // sort by point, ties are broken by the position of the worker
+                entries[w * virtualNodes + v] = ((long) point << 32) | w;
+            }
+        }
+        Arrays.sort(entries);
+        points = new int[entries.length];
+        owners = new Worker[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = (int) (entries[i] >> 32);
+            owners[i] = workers.get((int) entries[i]);
+        }
+        ringWorkers = workers;
+    }
+
+    /**
+     * Spreads the bits of a hash code, see the finalizer of MurmurHash3.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
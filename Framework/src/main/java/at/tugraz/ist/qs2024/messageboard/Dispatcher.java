@@ -2,15 +2,20 @@ package at.tugraz.ist.qs2024.messageboard;
 
 import at.tugraz.ist.qs2024.actorsystem.Message;
 import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
-import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem;
+import at.tugraz.ist.qs2024.actorsystem.ISimulatedActorSystem;
+import at.tugraz.ist.qs2024.messageboard.ScalingMetrics.Action;
 import at.tugraz.ist.qs2024.messageboard.clientmessages.InitCommunication;
 import at.tugraz.ist.qs2024.messageboard.clientmessages.OperationFailed;
 import at.tugraz.ist.qs2024.messageboard.dispatchermessages.Stop;
 import at.tugraz.ist.qs2024.messageboard.dispatchermessages.StopAck;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Dispatcher mode which can either be normal or stopping,
@@ -23,6 +28,10 @@ enum Mode {NORMAL, STOPPING}
  * Upon communication initialization it selects a worker and forwards
  * the communication request to it. It is also responsible for stopping
  * the system.
+ * <p>
+ * If an {@link AutoscalingPolicy} is given, the dispatcher adds workers if they are
+ * overloaded and drains idle workers, i.e. workers without ongoing communications,
+ * using the Stop/StopAck handshake. Drained workers no longer receive new communications.
  */
 public class Dispatcher extends SimulatedActor {
 
@@ -32,9 +41,10 @@ public class Dispatcher extends SimulatedActor {
     private Mode mode;
 
     /**
-     * Worker actors, which are managed by this actor
+     * Worker actors, which are managed by this actor. The list is never modified, but replaced
+     * whenever workers are added or drained, so routing strategies can cache data derived from it.
      */
-    private final List<Worker> workers;
+    private List<Worker> workers = Collections.emptyList();
 
     /**
      * Number of workers
@@ -44,26 +54,171 @@ public class Dispatcher extends SimulatedActor {
     /**
      * The system, which is used to spawn actors.
      */
-    private final SimulatedActorSystem system;
+    private final ISimulatedActorSystem system;
 
     /**
-     * List of acknowledgement messages to collect, which is only non-empty
-     * in stopping mode. The list elements correspond to the actor-IDs of workers,
+     * Set of acknowledgement messages to collect, which is only non-empty
+     * in stopping mode. The set elements correspond to the actor-IDs of workers,
      * which have not yet acknowledged the stop messages sent to them.
      */
-    private final List<Long> acksToCollect;
+    private final Set<Long> acksToCollect;
 
     /**
-     * Message store, which is used by workers to persist application data.
+     * Shards of the message store, which are used by workers to persist application data.
      */
-    protected MessageStore messageStore;
+    protected final MessageStoreRouter messageStores;
 
-    public Dispatcher(SimulatedActorSystem system, int numberOfWorkers) {
+    /**
+     * Strategy selecting the worker for new communications.
+     */
+    private final WorkerRoutingStrategy routingStrategy;
+
+    /**
+     * Settings for growing and shrinking the pool of workers, null if the number of workers is fixed.
+     */
+    private final AutoscalingPolicy autoscaling;
+
+    /**
+     * Evaluations and scaling decisions made so far.
+     */
+    private final ScalingMetrics scalingMetrics = new ScalingMetrics();
+
+    /**
+     * IDs of workers, which have been removed from the pool and sent a stop message,
+     * but have not acknowledged it yet.
+     */
+    private final Set<Long> drainingWorkers = new HashSet<>();
+
+    /**
+     * Time units in which communications have been routed to the workers the last time, the key of the
+     * dictionary corresponds to the ID of a worker. Only maintained if autoscaling is enabled.
+     */
+    private final Map<Long, Integer> lastRoutedAt = new HashMap<>();
+
+    /**
+     * Time units passed since the load has been evaluated the last time.
+     */
+    private int ticksSinceEvaluation = 0;
+
+    /**
+     * Earliest time unit in which the next scaling decision may be made.
+     */
+    private int nextScalingTime = 0;
+
+    /**
+     * Requests completed by the helpers of the workers and their total latency at the last evaluation.
+     */
+    private long lastCompletedRequests = 0;
+    private long lastTotalLatency = 0;
+
+    public Dispatcher(ISimulatedActorSystem system, int numberOfWorkers) {
+        this(system, numberOfWorkers, new MessageStore());
+    }
+
+    /**
+     * Constructs a new Dispatcher object selecting workers using the given strategy.
+     *
+     * @param system          the system, which is used to spawn actors
+     * @param numberOfWorkers the number of workers
+     * @param routingStrategy the strategy selecting the worker for new communications
+     */
+    public Dispatcher(ISimulatedActorSystem system, int numberOfWorkers, WorkerRoutingStrategy routingStrategy) {
+        this(system, numberOfWorkers, new MessageStore(), routingStrategy);
+    }
+
+    /**
+     * Constructs a new Dispatcher object using the given message store, e.g. a
+     * store with a bounded mailbox, which is spawned at start-up.
+     *
+     * @param system          the system, which is used to spawn actors
+     * @param numberOfWorkers the number of workers
+     * @param messageStore    the message store used by the workers
+     */
+    public Dispatcher(ISimulatedActorSystem system, int numberOfWorkers, MessageStore messageStore) {
+        this(system, numberOfWorkers, messageStore, new RandomRoutingStrategy());
+    }
+
+    /**
+     * Constructs a new Dispatcher object using the given message store and
+     * selecting workers using the given strategy.
+     *
+     * @param system          the system, which is used to spawn actors
+     * @param numberOfWorkers the number of workers
+     * @param messageStore    the message store used by the workers
+     * @param routingStrategy the strategy selecting the worker for new communications
+     */
+    public Dispatcher(ISimulatedActorSystem system, int numberOfWorkers, MessageStore messageStore,
+                      WorkerRoutingStrategy routingStrategy) {
+        this(system, numberOfWorkers, new MessageStoreRouter(messageStore), routingStrategy);
+    }
+
+    /**
+     * Constructs a new Dispatcher object using a message store partitioned into shards,
+     * e.g. created by {@link MessageStoreRouter#createShards(int)}, which are spawned at start-up.
+     *
+     * @param system          the system, which is used to spawn actors
+     * @param numberOfWorkers the number of workers
+     * @param messageStores   the shards of the message store used by the workers
+     * @param routingStrategy the strategy selecting the worker for new communications
+     */
+    public Dispatcher(ISimulatedActorSystem system, int numberOfWorkers, MessageStoreRouter messageStores,
+                      WorkerRoutingStrategy routingStrategy) {
+        this(system, numberOfWorkers, messageStores, routingStrategy, null);
+    }
+
+    /**
+     * Constructs a new Dispatcher object, which starts with the minimum number of
+     * workers and grows and shrinks the pool of workers as defined by the policy.
+     *
+     * @param system          the system, which is used to spawn actors
+     * @param messageStore    the message store used by the workers
+     * @param routingStrategy the strategy selecting the worker for new communications
+     * @param autoscaling     the settings for growing and shrinking the pool of workers
+     */
+    public Dispatcher(ISimulatedActorSystem system, MessageStore messageStore, WorkerRoutingStrategy routingStrategy,
+                      AutoscalingPolicy autoscaling) {
+        this(system, new MessageStoreRouter(messageStore), routingStrategy, autoscaling);
+    }
+
+    /**
+     * Constructs a new Dispatcher object using a message store partitioned into shards, which
+     * starts with the minimum number of workers and grows and shrinks the pool of workers as
+     * defined by the policy.
+     *
+     * @param system          the system, which is used to spawn actors
+     * @param messageStores   the shards of the message store used by the workers
+     * @param routingStrategy the strategy selecting the worker for new communications
+     * @param autoscaling     the settings for growing and shrinking the pool of workers
+     */
+    public Dispatcher(ISimulatedActorSystem system, MessageStoreRouter messageStores, WorkerRoutingStrategy routingStrategy,
+                      AutoscalingPolicy autoscaling) {
+        this(system, autoscaling.getMinWorkers(), messageStores, routingStrategy, autoscaling);
+    }
+
+    private Dispatcher(ISimulatedActorSystem system, int numberOfWorkers, MessageStoreRouter messageStores,
+                       WorkerRoutingStrategy routingStrategy, AutoscalingPolicy autoscaling) {
         this.system = system;
-        this.workers = new ArrayList<>(numberOfWorkers);
+        this.autoscaling = autoscaling;
+        this.routingStrategy = routingStrategy;
+        this.messageStores = messageStores;
         this.numberOfWorkers = numberOfWorkers;
         this.mode = Mode.NORMAL;
-        this.acksToCollect = new ArrayList<>();
+        this.acksToCollect = new HashSet<>();
+    }
+
+    /**
+     * @return The number of workers new communications are routed to.
+     */
+    public int getNumberOfWorkers() {
+        return workers.size();
+    }
+
+    /**
+     * @return The evaluations and scaling decisions made so far, which are
+     * empty if the number of workers is fixed.
+     */
+    public ScalingMetrics getScalingMetrics() {
+        return scalingMetrics;
     }
 
     /**
@@ -82,17 +237,150 @@ public class Dispatcher extends SimulatedActor {
     }
 
     /**
-     * Creates all Workers and the message store
+     * Creates all Workers and spawns the shards of the message store and their followers
      */
     @Override
     public void atStartUp() {
-        messageStore = new MessageStore();
         for (int i = 0; i < numberOfWorkers; i++) {
-            Worker w = new Worker(this, messageStore, system);
-            system.spawn(w);
-            workers.add(w);
+            spawnWorker();
+        }
+        for (SimulatedActor store : messageStores.getStores()) {
+            system.spawn(store);
         }
-        system.spawn(messageStore);
+    }
+
+    /**
+     * Overridden tick()-method, which evaluates the load of the workers
+     * periodically if autoscaling is enabled.
+     */
+    @Override
+    public void tick() throws UnknownClientException, UnknownMessageException {
+        super.tick();
+        if (isAutoscaling() && ++ticksSinceEvaluation >= autoscaling.getEvaluationInterval()) {
+            ticksSinceEvaluation = 0;
+            evaluate();
+        }
+    }
+
+    /**
+     * Overridden getIdleTicks()-method, which takes into account
+     * that the load is evaluated periodically if autoscaling is enabled.
+     */
+    @Override
+    public int getIdleTicks() {
+        int idleTicks = super.getIdleTicks();
+        if (isAutoscaling()) {
+            idleTicks = Math.min(idleTicks, autoscaling.getEvaluationInterval() - ticksSinceEvaluation - 1);
+        }
+        return idleTicks;
+    }
+
+    @Override
+    public void skipTicks(int ticks) {
+        super.skipTicks(ticks);
+        if (isAutoscaling()) {
+            ticksSinceEvaluation += ticks;
+        }
+    }
+
+    private boolean isAutoscaling() {
+        return autoscaling != null && mode == Mode.NORMAL;
+    }
+
+    /**
+     * The dispatcher records the IDs of the workers it spawns, which a
+     * {@link at.tugraz.ist.qs2024.actorsystem.ParallelSimulatedActorSystem} only assigns
+     * when it commits the spawn.
+     */
+    @Override
+    protected boolean isIsolated() {
+        return false;
+    }
+
+    private Worker spawnWorker() {
+        Worker w = new Worker(this, messageStores, system);
+        system.spawn(w);
+        List<Worker> grown = new ArrayList<>(workers);
+        grown.add(w);
+        workers = Collections.unmodifiableList(grown);
+        return w;
+    }
+
+    /**
+     * Computes the average load of the workers and the average helper latency
+     * since the last evaluation and adds or drains a worker if necessary.
+     * The loads and latencies are the ones published before the current time
+     * unit (see {@link Worker#getLoad()}), so the decisions only depend on the
+     * scheduling of threads under a concurrent actor system.
+     */
+    private void evaluate() {
+        int load = 0;
+        long completedRequests = 0;
+        long totalLatency = 0;
+        for (Worker w : workers) {
+            load += w.getLoad();
+            completedRequests += w.getCompletedRequests();
+            totalLatency += w.getTotalRequestLatency();
+        }
+        double averageLoad = (double) load / workers.size();
+        double averageLatency = completedRequests == lastCompletedRequests ? 0
+                : (double) (totalLatency - lastTotalLatency) / (completedRequests - lastCompletedRequests);
+        lastCompletedRequests = completedRequests;
+        lastTotalLatency = totalLatency;
+        scalingMetrics.recordEvaluation(workers.size());
+
+        int now = system.getCurrentTime();
+        if (now < nextScalingTime) {
+            return;
+        }
+        if ((averageLoad > autoscaling.getScaleUpLoad() || averageLatency > autoscaling.getScaleUpLatency())
+                && workers.size() < autoscaling.getMaxWorkers()) {
+            Worker w = spawnWorker();
+            scalingMetrics.recordDecision(new ScalingMetrics.Decision(
+                    now, Action.GROW, w.getId(), workers.size(), averageLoad, averageLatency));
+            nextScalingTime = now + autoscaling.getCooldown();
+        } else if (averageLoad < autoscaling.getScaleDownLoad() && averageLatency <= autoscaling.getScaleUpLatency()
+                && workers.size() > autoscaling.getMinWorkers()) {
+            Worker w = findIdleWorker();
+            if (w != null) {
+                drain(w);
+                scalingMetrics.recordDecision(new ScalingMetrics.Decision(
+                        now, Action.SHRINK, w.getId(), workers.size(), averageLoad, averageLatency));
+                nextScalingTime = now + autoscaling.getCooldown();
+            }
+        }
+    }
+
+    /**
+     * @return The most recently added worker without messages and ongoing communications, null if there is none.
+     * Workers, which have not published their load since the last communication has been routed to them, are not idle.
+     */
+    private Worker findIdleWorker() {
+        for (int i = workers.size() - 1; i >= 0; i--) {
+            if (workers.get(i).isIdleSince(lastRoutedAt.getOrDefault(workers.get(i).getId(), -1))) {
+                return workers.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes an idle worker from the pool and sends it a stop message, it is stopped
+     * as soon as it acknowledges stopping. As no communication is routed to it anymore
+     * and it has no ongoing communications, no communication fails.
+     *
+     * @param w the idle worker
+     */
+    private void drain(Worker w) {
+        List<Worker> shrunk = new ArrayList<>(workers);
+        shrunk.remove(w);
+        workers = Collections.unmodifiableList(shrunk);
+        lastRoutedAt.remove(w.getId());
+        // the requests of the drained worker are not part of the next evaluation
+        lastCompletedRequests -= w.getCompletedRequests();
+        lastTotalLatency -= w.getTotalRequestLatency();
+        drainingWorkers.add(w.getId());
+        w.tell(new Stop());
     }
 
     /**
@@ -112,7 +400,9 @@ public class Dispatcher extends SimulatedActor {
             acksToCollect.remove(actor.getId());
             system.stop(actor);
             if (acksToCollect.size() == 0) {
-                system.stop(messageStore);
+                for (SimulatedActor store : messageStores.getStores()) {
+                    system.stop(store);
+                }
                 system.stop(this);
             }
         }
@@ -121,12 +411,10 @@ public class Dispatcher extends SimulatedActor {
     /**
      * In normal operation messages are forwarded to workers.
      * A InitCommunication-message is forwarded to one worker,
-     * which is selected based on the communication id set in the message.
-     * The selection scheme is (if workers are numbered from 0 to n - 1)
-     * selected_worker_number = communication % n, where a % b is the non-negative
-     * remainder of the integer division a/b.
+     * which is selected by the routing strategy.
      * If a Stop message is sent, it is broadcast to all workers and the mode
-     * is switched to STOPPING.
+     * is switched to STOPPING, the acknowledgements of workers being drained are
+     * collected as well. A StopAck message of a drained worker stops the worker.
      *
      * @param message message received
      */
@@ -136,15 +424,22 @@ public class Dispatcher extends SimulatedActor {
                 acksToCollect.add(w.getId());
                 w.tell(new Stop());
             }
+            // drained workers have already been sent a stop message
+            acksToCollect.addAll(drainingWorkers);
+            drainingWorkers.clear();
             mode = Mode.STOPPING;
         } else if (message instanceof InitCommunication) {
-            // decide upon id for now, maybe switch to login credentials TODO
             InitCommunication initC = ((InitCommunication) message);
-            Random random = new Random(initC.communicationId);
-            int rnd = random.nextInt();
-            int index = (((rnd % workers.size()) + workers.size()) % workers.size());
-            Worker w = workers.get(index);
+            Worker w = routingStrategy.selectWorker(initC, workers);
             w.tell(message);
+            if (autoscaling != null) {
+                lastRoutedAt.put(w.getId(), system.getCurrentTime());
+            }
+        } else if (message instanceof StopAck) {
+            SimulatedActor actor = ((StopAck) message).sender;
+            if (drainingWorkers.remove(actor.getId())) {
+                system.stop(actor);
+            }
         }
     }
 }
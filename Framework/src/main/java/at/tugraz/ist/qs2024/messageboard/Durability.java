@@ -0,0 +1,73 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+/**
+ * Determines when the mutations written to a {@link WriteAheadLog} are forced to the disk.
+ * <p>
+ * A message store acknowledges a mutation only after it has been forced, so an acknowledged
+ * mutation survives a crash. Forcing after every mutation is the safest and slowest option.
+ * Group commit forces several mutations at once, which amortizes the cost of forcing, but
+ * delays their acknowledgements: with {@link #perMutations(int)} until the given number of
+ * mutations has been logged or the store has no more requests waiting, with
+ * {@link #perTick()} until the end of the time unit.
+ */
+public class Durability {
+
+    /**
+     * Number of mutations forced at once, 0 if the mutations are forced at the end of every time unit
+     */
+    private final int mutationsPerSync;
+
+    private Durability(int mutationsPerSync) {
+        this.mutationsPerSync = mutationsPerSync;
+    }
+
+    /**
+     * @return Durability forcing every mutation before it is acknowledged.
+     */
+    public static Durability perMutation() {
+        return new Durability(1);
+    }
+
+    /**
+     * @param mutations maximum number of mutations forced at once
+     * @return Durability forcing the mutations whenever the given number has been logged or no more
+     * requests are waiting to be processed by the store at the end of a time unit.
+     */
+    public static Durability perMutations(int mutations) {
+        if (mutations <= 0) {
+            throw new IllegalArgumentException("Number of mutations must be positive");
+        }
+        return new Durability(mutations);
+    }
+
+    /**
+     * @return Durability forcing the mutations logged during a time unit at its end.
+     */
+    public static Durability perTick() {
+        return new Durability(0);
+    }
+
+    /**
+     * @param unsyncedMutations the number of mutations logged, but not forced yet
+     * @return true if the mutations have to be forced right away.
+     */
+    boolean syncsAfter(int unsyncedMutations) {
+        return mutationsPerSync > 0 && unsyncedMutations >= mutationsPerSync;
+    }
+
+    /**
+     * @param requestsWaiting true if there are requests waiting to be processed by the store
+     * @return true if the mutations logged so far have to be forced at the end of a time unit.
+     */
+    boolean syncsAtEndOfTick(boolean requestsWaiting) {
+        return mutationsPerSync == 0 || !requestsWaiting;
+    }
+
+    @Override
+    public String toString() {
+        if (mutationsPerSync == 0) {
+            return "per tick";
+        }
+        return mutationsPerSync == 1 ? "per mutation" : "per " + mutationsPerSync + " mutations";
+    }
+}
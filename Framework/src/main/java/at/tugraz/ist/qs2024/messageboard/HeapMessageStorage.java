@@ -0,0 +1,406 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.RemoveLikeOrDislike;
+
+import java.util.*;
+
+/**
+ * Storage of user messages as UserMessage objects on the heap, indexed by author, by author
+ * and text and by the n-grams of their authors and texts.
+ * <p>
+ * Lookups return copies of the stored messages (see {@link UserMessage#copy()}). While a
+ * snapshot is written, a captured message is replaced by a copy before it is changed, so that
+ * the snapshot is not changed.
+ */
+final class HeapMessageStorage implements MessageStorage {
+
+    /**
+     * the length of the n-grams indexed for searches, shorter search texts are
+     * looked up in all messages
+     */
+    private final static int NGRAM_LENGTH = 3;
+
+    /**
+     * All messages stored, the key of the dictionary corresponds to
+     * the message ID of the user message stored as value, ordered by
+     * message ID, so that pages of results can be looked up from a cursor.
+     */
+    private final NavigableMap<Long, UserMessage> messages = new TreeMap<>();
+    /**
+     * Dictionary of the names of the authors and of the people who like, dislike or reacted
+     * to the messages stored, which the IDs of the messages and of the indexes refer to
+     */
+    private final ClientNameDictionary clientNames = new ClientNameDictionary();
+    /**
+     * IDs of the messages stored, the key of the dictionary corresponds to the ID
+     * of an author in <c>clientNames</c> and the value contains the
+     * IDs of the author's messages in ascending order. Maintained by <c>store</c> and <c>remove</c>.
+     */
+    private final ClientIdMap<NavigableSet<Long>> messageIdsByAuthor = new ClientIdMap<>();
+    /**
+     * IDs of the messages stored, the key of the outer dictionary corresponds to the
+     * ID of an author and the key of the inner dictionary to the text of one of the author's
+     * messages, which is unique per author. Used to detect duplicates, maintained by
+     * <c>store</c>, <c>remove</c> and <c>changeText</c>.
+     */
+    private final ClientIdMap<Map<String, Long>> messageIdsByAuthorAndText = new ClientIdMap<>();
+    /**
+     * IDs of the messages stored, the key of the dictionary corresponds to an n-gram
+     * and the value contains the IDs of the messages in ascending order, whose lowercased
+     * author or text contains the n-gram. Used to find candidates for searches, maintained
+     * by <c>store</c>, <c>remove</c> and <c>changeText</c>.
+     */
+    private final Map<String, NavigableSet<Long>> messageIdsByNgram = new HashMap<>();
+
+    /**
+     * true while a snapshot is written
+     */
+    private boolean capturing;
+
+    /**
+     * Messages with smaller IDs have been captured by the running snapshot
+     */
+    private long snapshotIdLimit;
+
+    /**
+     * IDs of the messages captured by the running snapshot, which have been replaced by copies
+     */
+    private final Set<Long> copiedMessageIds = new HashSet<>();
+
+    @Override
+    public ClientNameDictionary getClientNames() {
+        return clientNames;
+    }
+
+    @Override
+    public boolean contains(long messageId) {
+        return messages.containsKey(messageId);
+    }
+
+    @Override
+    public boolean containsMessage(String author, String text) {
+        Map<String, Long> idsByText = messageIdsByAuthorAndText.get(clientNames.lookup(author));
+        return idsByText != null && idsByText.containsKey(text);
+    }
+
+    /**
+     * Adds a message with an assigned ID to the stored messages and to the indexes.
+     *
+     * @param message the user message to be stored
+     */
+    @Override
+    public void store(UserMessage message) {
+        message.useClientNames(clientNames);
+        messages.put(message.getMessageId(), message);
+        messageIdsByAuthor.computeIfAbsent(message.getAuthorId(), author -> new TreeSet<>()).add(message.getMessageId());
+        messageIdsByAuthorAndText.computeIfAbsent(message.getAuthorId(), author -> new HashMap<>())
+                .put(message.getMessage(), message.getMessageId());
+        for (String ngram : ngramsOf(message.getAuthor(), message.getMessage())) {
+            messageIdsByNgram.computeIfAbsent(ngram, key -> new TreeSet<>()).add(message.getMessageId());
+        }
+    }
+
+    /**
+     * Adds messages with assigned IDs. If the storage is empty, the IDs of every author and
+     * n-gram are collected first, so that every set of IDs in the indexes is built at once
+     * instead of being looked up for every message.
+     *
+     * @param restored the user messages to be stored ordered by message ID
+     */
+    @Override
+    public void storeAll(List<UserMessage> restored) {
+        if (!messages.isEmpty()) {
+            restored.forEach(this::store);
+            return;
+        }
+        ClientIdMap<List<Long>> idsByAuthor = new ClientIdMap<>();
+        Map<String, List<Long>> idsByNgram = new HashMap<>();
+        for (UserMessage message : restored) {
+            message.useClientNames(clientNames);
+            messages.put(message.getMessageId(), message);
+            idsByAuthor.computeIfAbsent(message.getAuthorId(), author -> new ArrayList<>()).add(message.getMessageId());
+            messageIdsByAuthorAndText.computeIfAbsent(message.getAuthorId(), author -> new HashMap<>())
+                    .put(message.getMessage(), message.getMessageId());
+            for (String ngram : ngramsOf(message.getAuthor(), message.getMessage())) {
+                idsByNgram.computeIfAbsent(ngram, key -> new ArrayList<>()).add(message.getMessageId());
+            }
+        }
+        for (int author : idsByAuthor.keys()) {
+            messageIdsByAuthor.put(author, new TreeSet<>(idsByAuthor.get(author)));
+        }
+        for (Map.Entry<String, List<Long>> entry : idsByNgram.entrySet()) {
+            messageIdsByNgram.put(entry.getKey(), new TreeSet<>(entry.getValue()));
+        }
+    }
+
+    @Override
+    public List<UserMessage> findByAuthor(String author, long cursor, int limit) {
+        NavigableSet<Long> ids = messageIdsByAuthor.get(clientNames.lookup(author));
+        List<UserMessage> foundMessages = new ArrayList<>();
+        if (ids == null)
+            return foundMessages;
+        for (long id : ids.tailSet(cursor, false)) {
+            if (foundMessages.size() == limit)
+                break;
+            foundMessages.add(messages.get(id).copy());
+        }
+        return foundMessages;
+    }
+
+    /**
+     * Only the messages containing all n-grams of the search text are checked, or all
+     * messages if the search text is shorter than an n-gram.
+     */
+    @Override
+    public List<UserMessage> findByAuthorOrText(String searchText, long cursor, int limit) {
+        String lowercased = searchText.toLowerCase();
+        List<UserMessage> foundMessages = new ArrayList<>();
+        if (lowercased.length() < NGRAM_LENGTH) {
+            for (UserMessage message : messages.tailMap(cursor, false).values()) {
+                if (foundMessages.size() == limit)
+                    break;
+                if (containsText(message, lowercased))
+                    foundMessages.add(message.copy());
+            }
+        } else {
+            List<NavigableSet<Long>> postings = new ArrayList<>();
+            for (String ngram : ngramsOf(lowercased)) {
+                NavigableSet<Long> ids = messageIdsByNgram.get(ngram);
+                if (ids == null)
+                    return foundMessages;
+                postings.add(ids);
+            }
+            // the candidates are the messages containing all n-grams, starting with the rarest n-gram
+            postings.sort(Comparator.comparingInt(Set::size));
+            for (long id : postings.get(0).tailSet(cursor, false)) {
+                if (foundMessages.size() == limit)
+                    break;
+                boolean candidate = true;
+                for (int i = 1; i < postings.size() && candidate; i++) {
+                    candidate = postings.get(i).contains(id);
+                }
+                UserMessage message = messages.get(id);
+                if (candidate && containsText(message, lowercased))
+                    foundMessages.add(message.copy());
+            }
+        }
+        return foundMessages;
+    }
+
+    /**
+     * @param message    a user message
+     * @param lowercased a lowercased search text
+     * @return true if the lowercased author or text of the message contains the search text
+     */
+    private static boolean containsText(UserMessage message, String lowercased) {
+        return message.getAuthor().toLowerCase().contains(lowercased) ||
+                message.getMessage().toLowerCase().contains(lowercased);
+    }
+
+    @Override
+    public boolean addLike(String clientName, long messageId) {
+        if (!messages.containsKey(messageId))
+            return false;
+        UserMessage message = writableMessage(messageId);
+        if (message.getLikes().contains(clientName))
+            return false;
+        if (message.getDislikes().contains(clientName)) // either like or dislike, but not both
+            deleteLikeOrDislike(clientName, messageId, RemoveLikeOrDislike.Type.DISLIKE);
+        message.getLikes().add(clientName);
+        message.setPoints(message.getPoints() + 1);
+        return true;
+    }
+
+    @Override
+    public boolean deleteLikeOrDislike(String clientName, long messageId, RemoveLikeOrDislike.Type type) {
+        if (!messages.containsKey(messageId))
+            return false;
+        UserMessage message = writableMessage(messageId);
+        if (type == RemoveLikeOrDislike.Type.LIKE) {
+            if (!message.getLikes().contains(clientName))
+                return false;
+            message.getLikes().remove(clientName);
+            message.setPoints(message.getPoints() - 1);
+        } else if (type == RemoveLikeOrDislike.Type.DISLIKE) {
+            if (!message.getDislikes().contains(clientName))
+                return false;
+            message.getDislikes().remove(clientName);
+            message.setPoints(message.getPoints() + 1);
+        } else
+            throw new NullPointerException("Unknown delete type.");
+        return true;
+    }
+
+    @Override
+    public boolean addDislike(String clientName, long messageId) {
+        if (!messages.containsKey(messageId))
+            return false;
+        UserMessage message = writableMessage(messageId);
+        if (message.getDislikes().contains(clientName))
+            return false;
+        if (message.getLikes().contains(clientName)) // either like or dislike, but not both
+            deleteLikeOrDislike(clientName, messageId, RemoveLikeOrDislike.Type.LIKE);
+
+        message.getDislikes().add(clientName);
+        message.setPoints(message.getPoints() - 1);
+
+        return true;
+    }
+
+    @Override
+    public boolean addReaction(String clientName, long messageId, Reaction.Emoji reaction) {
+        UserMessage message = writableMessage(messageId);
+        return message != null && message.addReaction(clientName, reaction);
+    }
+
+    @Override
+    public int getPoints(long messageId) {
+        return messages.get(messageId).getPoints();
+    }
+
+    @Override
+    public int[] getReactionCounts(long messageId) {
+        UserMessage message = messages.get(messageId);
+        return message == null ? null : message.getReactionCounts();
+    }
+
+    @Override
+    public boolean editMessage(long messageId, String clientName, String newText) {
+        if (!messages.containsKey(messageId)) {
+            return false;
+        }
+        if (containsMessage(clientName, newText)) {
+            return false;
+        }
+        UserMessage message = messages.get(messageId);
+        if (!clientName.equals(message.getAuthor())) {
+            return false;
+        }
+        changeText(writableMessage(messageId), newText);
+        return true;
+    }
+
+    @Override
+    public boolean deleteMessage(String clientName, long messageId) {
+        if (!messages.containsKey(messageId))
+            return false;
+        UserMessage message = messages.get(messageId);
+        if (!clientName.equals(message.getAuthor()))
+            return false;
+        remove(message);
+        return true;
+    }
+
+    @Override
+    public UserMessage[] startSnapshot() {
+        capturing = true;
+        snapshotIdLimit = messages.isEmpty() ? Long.MIN_VALUE : messages.lastKey() + 1;
+        return messages.values().toArray(new UserMessage[0]);
+    }
+
+    /**
+     * Stops copying messages captured by the snapshot.
+     */
+    @Override
+    public void finishSnapshot() {
+        capturing = false;
+        copiedMessageIds.clear();
+    }
+
+    /**
+     * @return 0, the messages are stored on the heap.
+     */
+    @Override
+    public long getOffHeapBytes() {
+        return 0;
+    }
+
+    /**
+     * Looks up a message, which is changed afterwards. While a snapshot is written, a message
+     * captured by the snapshot is replaced by a copy first, so that the snapshot is not changed.
+     *
+     * @param messageId the ID of the message
+     * @return The stored message, null if there is none.
+     */
+    private UserMessage writableMessage(long messageId) {
+        UserMessage message = messages.get(messageId);
+        if (message != null && capturing && messageId < snapshotIdLimit && copiedMessageIds.add(messageId)) {
+            message = message.copy();
+            messages.put(messageId, message);
+        }
+        return message;
+    }
+
+    /**
+     * Internal helper method removing a message from the stored messages and
+     * from the index of messages by author.
+     *
+     * @param message the stored user message to be removed
+     */
+    private void remove(UserMessage message) {
+        messages.remove(message.getMessageId());
+        NavigableSet<Long> ids = messageIdsByAuthor.get(message.getAuthorId());
+        ids.remove(message.getMessageId());
+        if (ids.isEmpty()) {
+            messageIdsByAuthor.remove(message.getAuthorId());
+        }
+        Map<String, Long> idsByText = messageIdsByAuthorAndText.get(message.getAuthorId());
+        idsByText.remove(message.getMessage());
+        if (idsByText.isEmpty()) {
+            messageIdsByAuthorAndText.remove(message.getAuthorId());
+        }
+        for (String ngram : ngramsOf(message.getAuthor(), message.getMessage())) {
+            removeFromNgram(ngram, message.getMessageId());
+        }
+    }
+
+    /**
+     * Internal helper method changing the text of a stored message and
+     * updating the index of messages by author and text.
+     *
+     * @param message the stored user message to be changed
+     * @param newText the new text, which is not the text of another message of the author
+     */
+    private void changeText(UserMessage message, String newText) {
+        Map<String, Long> idsByText = messageIdsByAuthorAndText.get(message.getAuthorId());
+        idsByText.remove(message.getMessage());
+        Set<String> oldNgrams = ngramsOf(message.getAuthor(), message.getMessage());
+        Set<String> newNgrams = ngramsOf(message.getAuthor(), newText);
+        message.setMessage(newText);
+        idsByText.put(newText, message.getMessageId());
+        for (String ngram : oldNgrams) {
+            if (!newNgrams.contains(ngram)) {
+                removeFromNgram(ngram, message.getMessageId());
+            }
+        }
+        for (String ngram : newNgrams) {
+            if (!oldNgrams.contains(ngram)) {
+                messageIdsByNgram.computeIfAbsent(ngram, key -> new TreeSet<>()).add(message.getMessageId());
+            }
+        }
+    }
+
+    private void removeFromNgram(String ngram, long messageId) {
+        NavigableSet<Long> ids = messageIdsByNgram.get(ngram);
+        ids.remove(messageId);
+        if (ids.isEmpty()) {
+            messageIdsByNgram.remove(ngram);
+        }
+    }
+
+    /**
+     * @param texts texts of a message or a search text
+     * @return all n-grams of the lowercased texts.
+     */
+    private static Set<String> ngramsOf(String... texts) {
+        Set<String> ngrams = new HashSet<>();
+        for (String text : texts) {
+            String lowercased = text.toLowerCase();
+            for (int i = 0; i + NGRAM_LENGTH <= lowercased.length(); i++) {
+                ngrams.add(lowercased.substring(i, i + NGRAM_LENGTH));
+            }
+        }
+        return ngrams;
+    }
+}
@@ -0,0 +1,27 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.InitCommunication;
+
+import java.util.List;
+
+/**
+ * Routing strategy selecting the worker with the lowest load (see {@link Worker#getLoad()}),
+ * the first one of these workers if several workers have the lowest load.
+ * Selecting a worker takes time linear in the number of workers.
+ */
+public class LeastLoadedRoutingStrategy implements WorkerRoutingStrategy {
+
+    @Override
+    public Worker selectWorker(InitCommunication initCommunication, List<Worker> workers) {
+        Worker selected = workers.get(0);
+        int lowestLoad = selected.getLoad();
+        for (int i = 1; i < workers.size() && lowestLoad > 0; i++) {
+            int load = workers.get(i).getLoad();
+            if (load < lowestLoad) {
+                selected = workers.get(i);
+                lowestLoad = load;
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,344 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Messages of an {@link OffHeapMessageStorage} stored column by column in direct byte buffers outside
+ * of the Java heap, so that tens of millions of messages neither fill the heap nor prolong garbage
+ * collections.
+ * <p>
+ * Every message occupies a row, the rows are numbered in the order the messages are added. The ID,
+ * the ID of the author (see {@link ClientNameDictionary}), the points and the position of the text
+ * are stored in one column each. The texts are appended to an arena of chunks, as Latin-1 bytes if
+ * all their characters fit into a byte, otherwise as UTF-16 chars, and are never freed: the old text
+ * of an edited message and the text of a deleted message remain in the arena. A deleted message keeps
+ * its row with the author {@link ClientNameDictionary#UNKNOWN}.
+ * <p>
+ * The rows of the messages are indexed by author and text in a {@link ClientIdTable} on the heap,
+ * which takes five to eleven bytes per message, to detect duplicates.
+ */
+final class MessageColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * the size of the chunks of the text arena, longer texts get a chunk of their own
+     */
+    private static final int CHUNK_SIZE = 1 << 24;
+
+    /**
+     * Lowercase of every Latin-1 character, which is used to search the texts stored as bytes,
+     * null if the lowercase of a Latin-1 character is not a single Latin-1 character in the default locale
+     */
+    private static final byte[] LATIN1_LOWERCASE = latin1Lowercase();
+
+    private ByteBuffer ids;
+    private ByteBuffer authors;
+    private ByteBuffer points;
+
+    /**
+     * Position of the text of every row, the index of the chunk in the upper and
+     * the position within the chunk in the lower 32 bits
+     */
+    private ByteBuffer textPositions;
+
+    /**
+     * Length of the text of every row in characters shifted left by one,
+     * the lowest bit is set if the text is stored as UTF-16 chars
+     */
+    private ByteBuffer textLengths;
+
+    /**
+     * Hash code of the text of every row, used to rehash the index by author and text
+     */
+    private ByteBuffer textHashes;
+
+    /**
+     * Chunks of the text arena, texts are appended to the last chunk
+     */
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    /**
+     * Hash table of the rows of the messages, which have not been deleted, by author and text
+     */
+    private final RowTable rowsByText = new RowTable();
+
+    private int capacity;
+    private int size;
+
+    MessageColumns() {
+        capacity = INITIAL_CAPACITY;
+        ids = column(null, Long.BYTES);
+        authors = column(null, Integer.BYTES);
+        points = column(null, Integer.BYTES);
+        textPositions = column(null, Long.BYTES);
+        textLengths = column(null, Integer.BYTES);
+        textHashes = column(null, Integer.BYTES);
+    }
+
+    /**
+     * @return The number of rows including the rows of deleted messages.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a message in a new row.
+     *
+     * @param id     the ID of the message, which is greater than the IDs of all other rows
+     * @param author the ID of the author
+     * @param text   the text, which is not the text of another message of the author
+     * @return The row of the message.
+     */
+    int add(long id, int author, String text) {
+        if (size == capacity) {
+            capacity *= 2;
+            ids = column(ids, Long.BYTES);
+            authors = column(authors, Integer.BYTES);
+            points = column(points, Integer.BYTES);
+            textPositions = column(textPositions, Long.BYTES);
+            textLengths = column(textLengths, Integer.BYTES);
+            textHashes = column(textHashes, Integer.BYTES);
+        }
+        int row = size++;
+        ids.putLong(row * Long.BYTES, id);
+        authors.putInt(row * Integer.BYTES, author);
+        points.putInt(row * Integer.BYTES, 0);
+        storeText(row, text);
+        rowsByText.insert(row);
+        return row;
+    }
+
+    long getId(int row) {
+        return ids.getLong(row * Long.BYTES);
+    }
+
+    /**
+     * @return The ID of the author of the row, UNKNOWN if the message has been deleted.
+     */
+    int getAuthor(int row) {
+        return authors.getInt(row * Integer.BYTES);
+    }
+
+    int getPoints(int row) {
+        return points.getInt(row * Integer.BYTES);
+    }
+
+    void setPoints(int row, int newPoints) {
+        points.putInt(row * Integer.BYTES, newPoints);
+    }
+
+    String getText(int row) {
+        ByteBuffer chunk = chunkOf(row);
+        int position = positionOf(row);
+        int encodedLength = textLengths.getInt(row * Integer.BYTES);
+        char[] text = new char[encodedLength >>> 1];
+        if ((encodedLength & 1) == 0) {
+            for (int i = 0; i < text.length; i++) {
+                text[i] = (char) (chunk.get(position + i) & 0xFF);
+            }
+        } else {
+            for (int i = 0; i < text.length; i++) {
+                text[i] = chunk.getChar(position + i * Character.BYTES);
+            }
+        }
+        return new String(text);
+    }
+
+    /**
+     * Replaces the text of a row, the old text remains in the arena.
+     *
+     * @param row  the row of a message, which has not been deleted
+     * @param text the new text, which is not the text of another message of the author
+     */
+    void setText(int row, String text) {
+        rowsByText.removeAt(rowsByText.indexOf(row));
+        storeText(row, text);
+        rowsByText.insert(row);
+    }
+
+    /**
+     * Marks the message of a row as deleted.
+     *
+     * @param row the row of a message, which has not been deleted
+     */
+    void delete(int row) {
+        rowsByText.removeAt(rowsByText.indexOf(row));
+        authors.putInt(row * Integer.BYTES, ClientNameDictionary.UNKNOWN);
+    }
+
+    /**
+     * @param author the ID of an author
+     * @param text   a message text
+     * @return The row of the message of the author with the given text, -1 if there is none.
+     */
+    int rowOf(int author, String text) {
+        int[] keys = rowsByText.keys;
+        if (keys == null) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int i = ClientIdTable.slotOf(hashOf(author, text.hashCode()), mask);
+        for (; keys[i] != ClientIdTable.EMPTY; i = (i + 1) & mask) {
+            int row = keys[i];
+            if (getAuthor(row) == author && textEquals(row, text)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param row        a row
+     * @param lowercased a lowercased search text
+     * @param latin1     the search text as Latin-1 bytes (see {@link #latin1Bytes(String)})
+     * @return true if the lowercased text of the row contains the search text. Texts stored as bytes
+     * are searched without creating strings.
+     */
+    boolean textContains(int row, String lowercased, byte[] latin1) {
+        int encodedLength = textLengths.getInt(row * Integer.BYTES);
+        if ((encodedLength & 1) != 0 || LATIN1_LOWERCASE == null) {
+            return getText(row).toLowerCase().contains(lowercased);
+        }
+        if (latin1 == null) {
+            // the lowercase of a text of Latin-1 characters only contains Latin-1 characters
+            return false;
+        }
+        ByteBuffer chunk = chunkOf(row);
+        int position = positionOf(row);
+        int last = position + (encodedLength >>> 1) - latin1.length;
+        for (int start = position; start <= last; start++) {
+            int i = 0;
+            while (i < latin1.length && LATIN1_LOWERCASE[chunk.get(start + i) & 0xFF] == latin1[i]) {
+                i++;
+            }
+            if (i == latin1.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param text a text
+     * @return The characters of the text as bytes, null if the text contains other than Latin-1 characters.
+     */
+    static byte[] latin1Bytes(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = text.charAt(i);
+            if (c > 0xFF) {
+                return null;
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The number of bytes allocated outside of the heap.
+     */
+    long getAllocatedBytes() {
+        long bytes = (long) capacity * (Long.BYTES * 2 + Integer.BYTES * 4);
+        for (ByteBuffer chunk : chunks) {
+            bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+
+    private void storeText(int row, String text) {
+        byte[] latin1 = latin1Bytes(text);
+        int bytes = latin1 != null ? latin1.length : text.length() * Character.BYTES;
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < bytes) {
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, bytes)).order(ByteOrder.nativeOrder());
+            chunks.add(chunk);
+        }
+        int position = chunk.position();
+        if (latin1 != null) {
+            chunk.put(latin1);
+        } else {
+            for (int i = 0; i < text.length(); i++) {
+                chunk.putChar(text.charAt(i));
+            }
+        }
+        textPositions.putLong(row * Long.BYTES, (long) (chunks.size() - 1) << 32 | position);
+        textLengths.putInt(row * Integer.BYTES, text.length() << 1 | (latin1 != null ? 0 : 1));
+        textHashes.putInt(row * Integer.BYTES, text.hashCode());
+    }
+
+    private ByteBuffer chunkOf(int row) {
+        return chunks.get((int) (textPositions.getLong(row * Long.BYTES) >>> 32));
+    }
+
+    private int positionOf(int row) {
+        return (int) textPositions.getLong(row * Long.BYTES);
+    }
+
+    private boolean textEquals(int row, String text) {
+        return textLengths.getInt(row * Integer.BYTES) >>> 1 == text.length()
+                && textHashes.getInt(row * Integer.BYTES) == text.hashCode()
+                && getText(row).equals(text);
+    }
+
+    /**
+     * @param column      a column, null for a new column
+     * @param bytesPerRow the size of the values of the column
+     * @return A column with the current capacity containing the values of the given column.
+     */
+    private ByteBuffer column(ByteBuffer column, int bytesPerRow) {
+        ByteBuffer resized = ByteBuffer.allocateDirect(capacity * bytesPerRow).order(ByteOrder.nativeOrder());
+        if (column != null) {
+            column.clear();
+            resized.put(column);
+            resized.clear();
+        }
+        return resized;
+    }
+
+    private static int hashOf(int author, int textHash) {
+        return author * 31 + textHash;
+    }
+
+    private static byte[] latin1Lowercase() {
+        byte[] lowercase = new byte[256];
+        for (char c = 0; c < 256; c++) {
+            String lowercased = String.valueOf(c).toLowerCase();
+            if (lowercased.length() != 1 || lowercased.charAt(0) > 0xFF) {
+                return null;
+            }
+            lowercase[c] = (byte) lowercased.charAt(0);
+        }
+        return lowercase;
+    }
+
+    /**
+     * Hash table of rows, which hashes a row by its author and the hash code of its text.
+     */
+    private final class RowTable extends ClientIdTable {
+
+        @Override
+        int hashOf(int row) {
+            return MessageColumns.hashOf(getAuthor(row), textHashes.getInt(row * Integer.BYTES));
+        }
+
+        /**
+         * The table has no values.
+         */
+        @Override
+        void resizeValues(int capacity, int[] newIndexes) {
+        }
+
+        @Override
+        void moveValue(int from, int to) {
+        }
+
+        @Override
+        void clearValue(int index) {
+        }
+    }
+}
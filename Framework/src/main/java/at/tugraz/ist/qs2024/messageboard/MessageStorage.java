@@ -0,0 +1,149 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.RemoveLikeOrDislike;
+
+import java.util.List;
+
+/**
+ * Storage of the user messages of a {@link MessageStore}, which the store delegates to, so that
+ * one store serves messages kept on the heap ({@link HeapMessageStorage}) or outside of the heap
+ * ({@link OffHeapMessageStorage}). The store assigns the message IDs, checks bans, replies to its
+ * clients, logs its writes and takes snapshots, the storage looks up and changes the messages.
+ * <p>
+ * Lookups return copies of the stored messages, which are not changed by later writes, so
+ * the messages sent in replies always show the state at the time of the lookup.
+ */
+interface MessageStorage {
+
+    /**
+     * @return The dictionary of the names of the authors and of the people who like, dislike or reacted
+     * to the stored messages, which the IDs of the messages refer to.
+     */
+    ClientNameDictionary getClientNames();
+
+    /**
+     * @param messageId a message ID
+     * @return true if a message with the ID is stored.
+     */
+    boolean contains(long messageId);
+
+    /**
+     * @param author the name of an author
+     * @param text   a message text
+     * @return true if a message of the author with the given text is stored.
+     */
+    boolean containsMessage(String author, String text);
+
+    /**
+     * Adds a message with an assigned ID, which is greater than the IDs of all stored messages.
+     *
+     * @param message the user message to be stored
+     */
+    void store(UserMessage message);
+
+    /**
+     * Adds messages with assigned IDs, e.g. when the store is restored from a snapshot.
+     *
+     * @param restored the user messages to be stored ordered by message ID, with IDs
+     *                 greater than the IDs of all stored messages
+     */
+    void storeAll(List<UserMessage> restored);
+
+    /**
+     * @param author the name of the author of the returned messages
+     * @param cursor the messages with IDs up to the cursor are skipped
+     * @param limit  the maximum number of messages returned
+     * @return copies of the first messages posted by the given author ordered by message ID
+     */
+    List<UserMessage> findByAuthor(String author, long cursor, int limit);
+
+    /**
+     * @param searchText the text to search for in the lowercased authors and texts of the messages
+     * @param cursor     the messages with IDs up to the cursor are skipped
+     * @param limit      the maximum number of messages returned
+     * @return copies of the first messages containing the given Text ordered by message ID
+     */
+    List<UserMessage> findByAuthorOrText(String searchText, long cursor, int limit);
+
+    /**
+     * Adds a like and removes the dislike of the person, if there is one.
+     *
+     * @param clientName the name of the person who likes the message
+     * @param messageId  the id of message to be liked
+     * @return true if successful, false if the message does not exist or the person already likes it
+     */
+    boolean addLike(String clientName, long messageId);
+
+    /**
+     * Adds a dislike and removes the like of the person, if there is one.
+     *
+     * @param clientName the name of the person who dislikes the message
+     * @param messageId  the id of message to be disliked
+     * @return true if successful, false if the message does not exist or the person already dislikes it
+     */
+    boolean addDislike(String clientName, long messageId);
+
+    /**
+     * @param clientName the name of the person who wants to delete like/dislike
+     * @param messageId  the id of the message
+     * @param type       whether the like or the dislike is deleted
+     * @return true if successful, false if the message does not exist or has no such like/dislike of the person
+     */
+    boolean deleteLikeOrDislike(String clientName, long messageId, RemoveLikeOrDislike.Type type);
+
+    /**
+     * @param clientName the name of the person who reacts to the message
+     * @param messageId  the id of message to be reacted to
+     * @param reaction   the reaction
+     * @return true if successful, false if the message does not exist or the person already added the reaction
+     */
+    boolean addReaction(String clientName, long messageId, Reaction.Emoji reaction);
+
+    /**
+     * @param messageId the ID of a stored message
+     * @return The points of the message.
+     */
+    int getPoints(long messageId);
+
+    /**
+     * @param messageId a message ID
+     * @return The number of people who added each reaction to the message, indexed by the ordinal
+     * of the reaction, null if the message is not stored.
+     */
+    int[] getReactionCounts(long messageId);
+
+    /**
+     * @param messageId  the id of the message to be edited
+     * @param clientName the client, which wants to edit message
+     * @param newText    the new message text
+     * @return true if successful, false if the message does not exist, is not a message of the client
+     * or the client already has a message with the new text
+     */
+    boolean editMessage(long messageId, String clientName, String newText);
+
+    /**
+     * @param clientName the name of the person who tries to delete the message
+     * @param messageId  the id of message to be deleted
+     * @return true if successful, false if the message does not exist or is not a message of the person
+     */
+    boolean deleteMessage(String clientName, long messageId);
+
+    /**
+     * Captures the stored messages for a snapshot, which is written in the background. The captured
+     * messages are not changed by the storage until {@link #finishSnapshot()} is called.
+     *
+     * @return The stored messages ordered by message ID.
+     */
+    UserMessage[] startSnapshot();
+
+    /**
+     * Called once the snapshot captured by {@link #startSnapshot()} has been written.
+     */
+    void finishSnapshot();
+
+    /**
+     * @return The number of bytes allocated outside of the heap for the stored messages.
+     */
+    long getOffHeapBytes();
+}
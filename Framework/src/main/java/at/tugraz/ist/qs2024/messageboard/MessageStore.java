@@ -1,15 +1,42 @@
 package at.tugraz.ist.qs2024.messageboard;
 
-import at.tugraz.ist.qs2024.actorsystem.DeterministicChannel;
+import at.tugraz.ist.qs2024.actorsystem.Mailbox;
 import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.OverflowPolicy;
+import at.tugraz.ist.qs2024.actorsystem.RingBufferMailbox;
 import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.actorsystem.TimingWheelChannel;
 import at.tugraz.ist.qs2024.messageboard.clientmessages.*;
 import at.tugraz.ist.qs2024.messageboard.messagestoremessages.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
  * Actor responsible for storage and retrieval of user messages.
+ * <p>
+ * A store may be one of several shards partitioned by author (see {@link MessageStoreRouter}),
+ * it then only stores the messages of its authors, assigns the message IDs congruent to
+ * its index modulo the number of shards and replies to searches with a ShardSearchResult.
+ * <p>
+ * A store may have followers serving queries (see {@link MessageStoreFollower}). It then
+ * numbers all successful writes, wraps their replies into a SequencedReply and sends the
+ * writes to the followers in a ChangeBatch every <c>replicationInterval</c> time units. A follower
+ * is only sent a new batch after it has applied the previous one, so that batches do not pile up
+ * in its mailbox and delay its queries if they are sent faster than it can apply them.
+ * <p>
+ * A store may log its writes to a {@link WriteAheadLog}, which is replayed when it is set, so
+ * that the stored messages and reports survive a restart. The replies to logged writes are held
+ * back until the writes have been forced to the disk according to the {@link Durability} of the log.
+ * With a snapshot file, the store periodically writes a snapshot of its state in the background
+ * (see {@link MessageStoreSnapshot}) and is restored from the latest snapshot and the writes
+ * logged after it.
+ * <p>
+ * The messages are kept in a {@link MessageStorage}, as UserMessage objects on the heap by default
+ * or column by column outside of the heap (see {@link OffHeapMessageStorage}).
  */
 public class MessageStore extends SimulatedActor {
 
@@ -18,33 +45,161 @@ public class MessageStore extends SimulatedActor {
      */
     public final static int USER_BLOCKED_AT_COUNT = 5;
     /**
-     * All reports, the key in the dictionary corresponds to a
-     * client name and the value is a set of client names that
-     * have reported that user.
+     * All reports and bans, which are shared by all shards.
      */
-    private final Map<String, HashSet<String>> reports;
+    private final ReportRegistry reports;
     /**
-     * All messages stored, the key of the dictionary corresponds to
-     * the message ID of the user message stored as value.
+     * Storage of the messages, on the heap or in columns outside of the heap
      */
-    protected Map<Long, UserMessage> messages;
+    private final MessageStorage storage;
     /**
      * integral number which is used to create new message IDs
      */
     private long currentId;
 
+    /**
+     * Index of this store among the shards
+     */
+    private final int shard;
+
+    /**
+     * Number of shards, 1 if the store is not partitioned
+     */
+    private final int numberOfShards;
+
+    /**
+     * Followers applying the writes of this store, empty if the store is not replicated
+     */
+    private final List<MessageStoreFollower> followers = new ArrayList<>();
+
+    /**
+     * Time unit in which the latest change batch has been sent to a follower indexed by follower
+     */
+    private final Map<MessageStoreFollower, Integer> batchSentAt = new HashMap<>();
+
+    /**
+     * Number of time units between two change batches sent to the followers
+     */
+    private int replicationInterval = DEFAULT_REPLICATION_INTERVAL;
+
+    /**
+     * Number of time units passed since the last change batch has been sent
+     */
+    private int ticksSinceReplication = 0;
+
+    /**
+     * Sequence number of the latest successful write
+     */
+    private long sequenceNumber = 0;
+
+    /**
+     * Successful writes, which have not been applied by all followers yet
+     */
+    private List<MessageStoreMessage> unreplicatedChanges = new ArrayList<>();
+
+    /**
+     * Log of the successful writes, null if the writes are not logged
+     */
+    private WriteAheadLog writeAheadLog;
+
+    /**
+     * Clients of the logged writes, which have not been forced to the disk yet, and their replies
+     */
+    private final List<SimulatedActor> unsyncedClients = new ArrayList<>();
+    private final List<Message> unsyncedReplies = new ArrayList<>();
+
+    /**
+     * File of the latest snapshot, null if no snapshots are taken
+     */
+    private Path snapshotFile;
+
+    /**
+     * Number of time units between two snapshots
+     */
+    private int snapshotInterval;
+
+    /**
+     * Number of time units passed since the last snapshot has been taken
+     */
+    private int ticksSinceSnapshot = 0;
+
+    /**
+     * Position in the write-ahead log after the writes contained in the latest snapshot, -1 if there is none
+     */
+    private long snapshotLogPosition = -1;
+
+    /**
+     * Snapshot, which is being written in the background, null if there is none
+     */
+    private MessageStoreSnapshot runningSnapshot;
+
+    /**
+     * the default number of time units between two change batches sent to the followers
+     */
+    public final static int DEFAULT_REPLICATION_INTERVAL = 5;
+
     /**
      * Constructs a new MessageStore object, the channel is set to a
      * deterministic channel with no delay to simulate a good connection to
      * the store.
      */
     public MessageStore() {
-        this.messages = new HashMap<>();
-        this.reports = new HashMap<>();
+        this(Mailbox.UNBOUNDED, OverflowPolicy.REJECT);
+    }
+
+    /**
+     * Constructs a new MessageStore object with a bounded mailbox, the channel
+     * is set to a deterministic channel with no delay to simulate a good
+     * connection to the store.
+     *
+     * @param mailboxCapacity maximum number of requests waiting to be processed
+     * @param overflowPolicy  policy applied to requests arriving while the mailbox is full
+     */
+    public MessageStore(int mailboxCapacity, OverflowPolicy overflowPolicy) {
+        this(mailboxCapacity, overflowPolicy, 0, 1, new ReportRegistry());
+    }
+
+    /**
+     * Constructs a new MessageStore object, which is one of several shards of the store,
+     * usually created by {@link MessageStoreRouter#createShards(int, int, OverflowPolicy)}.
+     *
+     * @param mailboxCapacity maximum number of requests waiting to be processed
+     * @param overflowPolicy  policy applied to requests arriving while the mailbox is full
+     * @param shard           index of this shard
+     * @param numberOfShards  number of shards
+     * @param reports         reports shared by all shards
+     */
+    public MessageStore(int mailboxCapacity, OverflowPolicy overflowPolicy, int shard, int numberOfShards,
+                        ReportRegistry reports) {
+        this(mailboxCapacity, overflowPolicy, shard, numberOfShards, reports, new HeapMessageStorage());
+    }
+
+    /**
+     * Constructs a new MessageStore object, which is one of several shards of the store and
+     * keeps its messages in the given storage, e.g. outside of the heap, usually created by
+     * {@link MessageStoreRouter#createOffHeapShards(int, int, OverflowPolicy)}.
+     *
+     * @param mailboxCapacity maximum number of requests waiting to be processed
+     * @param overflowPolicy  policy applied to requests arriving while the mailbox is full
+     * @param shard           index of this shard
+     * @param numberOfShards  number of shards
+     * @param reports         reports shared by all shards
+     * @param storage         empty storage of the messages
+     */
+    MessageStore(int mailboxCapacity, OverflowPolicy overflowPolicy, int shard, int numberOfShards,
+                 ReportRegistry reports, MessageStorage storage) {
+        if (shard < 0 || shard >= numberOfShards) {
+            throw new IllegalArgumentException("Invalid shard " + shard + " of " + numberOfShards);
+        }
+        this.shard = shard;
+        this.numberOfShards = numberOfShards;
+        this.reports = reports;
+        this.messageBox = new RingBufferMailbox(mailboxCapacity, overflowPolicy);
+        this.storage = storage;
 
         this.currentId = 0;
         // good connection between WorkerHelper and MessageStore -> no delay
-        this.channel = new DeterministicChannel(0);
+        this.channel = new TimingWheelChannel(0);
     }
 
     /**
@@ -52,7 +207,7 @@ public class MessageStore extends SimulatedActor {
      * <p>
      * If the message passed as parameter is of type <c>RetrieveFromStore</c>,
      * all messages of a given author are looked up and sent back to the client of the
-     * store.
+     * store, ordered by message ID.
      * <p>
      * If the message passed as parameter is of type <c>AddLike</c>, a
      * like is added to the given message if the message exists and has not
@@ -70,6 +225,9 @@ public class MessageStore extends SimulatedActor {
      * reaction is added to the given message if the message exists and the reacting user hasn't added the same reaction before.
      * Multiple different reactions by the same user however are fine.
      * <p>
+     * If the message passed as parameter is of type <c>RetrieveReactionCountsFromStore</c>, the
+     * number of reactions of each kind to the given message is sent back, if the message exists.
+     * <p>
      * If the message passed as parameter is of type <c>UpdateMessageStore</c>,
      * a message is stored if the message is new and if the same message has not already
      * been stored by the same author.
@@ -81,7 +239,11 @@ public class MessageStore extends SimulatedActor {
      * <p>
      * If the message passed as parameter is of type <c>SearchInStore</c>,
      * all messages where the search-text is contained in the author name or the message text
-     * are looked up and sent back to the client of the store.
+     * are looked up and sent back to the client of the store ordered by message ID, as
+     * ShardSearchResult if the store is one of several shards.
+     * <p>
+     * If a <c>RetrieveFromStore</c> or <c>SearchInStore</c> message contains a page size,
+     * only the first messages after its cursor are sent back, with the cursor of the following page.
      * <p>
      * If the message passed as parameter is of type <c>EditMessage</c>,
      * the message to edit was previously published by the editing user and she has not already published another message
@@ -97,305 +259,540 @@ public class MessageStore extends SimulatedActor {
      * @param message Non-null message received
      */
     @Override
-    public void receive(Message message) {
+    public void receive(Message message) throws UnknownClientException, UnknownMessageException {
         if (message instanceof RetrieveFromStore) {
-            RetrieveFromStore retrieve = (RetrieveFromStore) message;
-            List<UserMessage> foundMessage = findByAuthor(retrieve.author);
-            retrieve.storeClient.tell(new FoundMessages(foundMessage, retrieve.communicationId));
+            processRetrieveFromStore((RetrieveFromStore) message);
         } else if (message instanceof AddLike) {
-            AddLike addLikeMessage = (AddLike) message;
-            if (isBanned(addLikeMessage.clientName)) {
-                addLikeMessage.storeClient.tell(new UserBanned(addLikeMessage.communicationId));
-            } else if (addLike(addLikeMessage.clientName, addLikeMessage.messageId)) {
-                UserMessage likedMessage = messages.get(addLikeMessage.messageId);
-                addLikeMessage.storeClient.tell(new ReactionResponse(addLikeMessage.communicationId, likedMessage.getPoints()));
-            } else {
-                addLikeMessage.storeClient.tell(new OperationFailed(addLikeMessage.communicationId));
-            }
+            processAddLike((AddLike) message);
         } else if (message instanceof AddDislike) {
-            AddDislike addDislikeMessage = (AddDislike) message;
-            if (isBanned(addDislikeMessage.clientName)) {
-                addDislikeMessage.storeClient.tell(new UserBanned(addDislikeMessage.communicationId));
-            } else if (addDislike(addDislikeMessage.clientName, addDislikeMessage.messageId)) {
-                UserMessage dislikedMessage = messages.get(addDislikeMessage.messageId);
-                addDislikeMessage.storeClient.tell(new ReactionResponse(addDislikeMessage.communicationId, dislikedMessage.getPoints()));
-            } else {
-                addDislikeMessage.storeClient.tell(new OperationFailed(addDislikeMessage.communicationId));
-            }
+            processAddDislike((AddDislike) message);
         } else if (message instanceof DeleteLikeOrDislike) {
-            DeleteLikeOrDislike deleteLikeOrDislikeMessage = (DeleteLikeOrDislike) message;
-            if (isBanned(deleteLikeOrDislikeMessage.clientName)) {
-                deleteLikeOrDislikeMessage.storeClient.tell(new UserBanned(deleteLikeOrDislikeMessage.communicationId));
-            } else if (deleteLikeOrDislike(deleteLikeOrDislikeMessage.clientName, deleteLikeOrDislikeMessage.messageId,
-                    deleteLikeOrDislikeMessage.typeToDelete)) {
-                UserMessage likeOrDislikeMessageDeleted = messages.get(deleteLikeOrDislikeMessage.messageId);
-                deleteLikeOrDislikeMessage.storeClient.tell(new ReactionResponse(deleteLikeOrDislikeMessage.communicationId, likeOrDislikeMessageDeleted.getPoints()));
-            } else {
-                deleteLikeOrDislikeMessage.storeClient.tell(new OperationFailed(deleteLikeOrDislikeMessage.communicationId));
-            }
+            processDeleteLikeOrDislike((DeleteLikeOrDislike) message);
         } else if (message instanceof AddReaction) {
-            AddReaction addReactionMessage = (AddReaction) message;
-            if (isBanned(addReactionMessage.clientName)) {
-                addReactionMessage.storeClient.tell(new UserBanned(addReactionMessage.communicationId));
-            } else if (addReaction(addReactionMessage.clientName, addReactionMessage.messageId, addReactionMessage.reaction)) {
-                addReactionMessage.storeClient.tell(new ReactionResponse(addReactionMessage.communicationId, addReactionMessage.reaction.toString()));
-            } else {
-                addReactionMessage.storeClient.tell(new OperationFailed(addReactionMessage.communicationId));
-            }
+            processAddReaction((AddReaction) message);
         } else if (message instanceof UpdateMessageStore) {
-            UpdateMessageStore updateMessage = (UpdateMessageStore) message;
-            if (isBanned(updateMessage.message.getAuthor())) {
-                updateMessage.storeClient.tell(new UserBanned(updateMessage.communicationId));
-            } else if (update(updateMessage.message)) {
-                updateMessage.storeClient.tell(new OperationAck(updateMessage.communicationId));
-            } else {
-                updateMessage.storeClient.tell(new OperationFailed(updateMessage.communicationId));
-            }
+            processUpdateMessageStore((UpdateMessageStore) message);
         } else if (message instanceof AddReport) {
-            AddReport reportMessage = (AddReport) message;
-            if (isBanned(reportMessage.clientName)) {
-                reportMessage.storeClient.tell(new UserBanned(reportMessage.communicationId));
-            } else if (addReport(reportMessage.clientName, reportMessage.reportedClientName)) {
-                reportMessage.storeClient.tell(new OperationAck(reportMessage.communicationId));
-            } else {
-                reportMessage.storeClient.tell(new OperationFailed(reportMessage.communicationId));
-            }
+            processAddReport((AddReport) message);
         } else if (message instanceof SearchInStore) {
-            SearchInStore searchMessage = (SearchInStore) message;
-            List<UserMessage> foundMessage = findByAuthorOrText(searchMessage.searchText);
-            searchMessage.storeClient.tell(new FoundMessages(foundMessage, searchMessage.communicationId));
+            processSearchInStore((SearchInStore) message);
         } else if (message instanceof EditMessage) {
-            EditMessage editMessage = (EditMessage) message;
-            if (isBanned(editMessage.clientName)) {
-                editMessage.storeClient.tell(new UserBanned(editMessage.communicationId));
-            } else if (editMessage(editMessage.messageId, editMessage.clientName, editMessage.newMessage)) {
-                editMessage.storeClient.tell(new OperationAck(editMessage.communicationId));
-            } else {
-                editMessage.storeClient.tell(new OperationFailed(editMessage.communicationId));
-            }
+            processEditMessage((EditMessage) message);
         } else if (message instanceof DeleteMessage) {
-            DeleteMessage deleteMessage = (DeleteMessage) message;
-            if (isBanned(deleteMessage.clientName)) {
-                deleteMessage.storeClient.tell(new UserBanned(deleteMessage.communicationId));
-            } else if (deleteMessage(deleteMessage.clientName, deleteMessage.messageId)) {
-                deleteMessage.storeClient.tell(new OperationAck(deleteMessage.communicationId));
-            } else {
-                deleteMessage.storeClient.tell(new OperationFailed(deleteMessage.communicationId));
-            }
+            processDeleteMessage((DeleteMessage) message);
+        } else if (message instanceof RetrieveReactionCountsFromStore) {
+            processRetrieveReactionCounts((RetrieveReactionCountsFromStore) message);
         }
     }
 
-    private boolean isBanned(String clientName) {
-        HashSet<String> reporters = reports.getOrDefault(clientName, null);
-        return reporters != null && reporters.size() > USER_BLOCKED_AT_COUNT;
+    protected void processRetrieveFromStore(RetrieveFromStore retrieve) {
+        List<UserMessage> foundMessage = storage.findByAuthor(retrieve.author, retrieve.cursor, resultLimit(retrieve));
+        long nextCursor = truncateToPage(foundMessage, retrieve);
+        retrieve.storeClient.tell(new FoundMessages(foundMessage, retrieve.communicationId, nextCursor));
+    }
+
+    protected void processRetrieveReactionCounts(RetrieveReactionCountsFromStore retrieve) {
+        int[] counts = storage.getReactionCounts(retrieve.messageId);
+        if (counts == null) {
+            retrieve.storeClient.tell(new OperationFailed(retrieve.communicationId));
+        } else {
+            retrieve.storeClient.tell(new ReactionCounts(retrieve.communicationId, counts));
+        }
+    }
+
+    private void processAddLike(AddLike addLikeMessage) {
+        if (isBanned(addLikeMessage.clientName)) {
+            addLikeMessage.storeClient.tell(new UserBanned(addLikeMessage.communicationId));
+        } else if (storage.addLike(addLikeMessage.clientName, addLikeMessage.messageId)) {
+            int points = storage.getPoints(addLikeMessage.messageId);
+            commit(addLikeMessage, new ReactionResponse(addLikeMessage.communicationId, points));
+        } else {
+            addLikeMessage.storeClient.tell(new OperationFailed(addLikeMessage.communicationId));
+        }
+    }
+
+    private void processAddDislike(AddDislike addDislikeMessage) {
+        if (isBanned(addDislikeMessage.clientName)) {
+            addDislikeMessage.storeClient.tell(new UserBanned(addDislikeMessage.communicationId));
+        } else if (storage.addDislike(addDislikeMessage.clientName, addDislikeMessage.messageId)) {
+            int points = storage.getPoints(addDislikeMessage.messageId);
+            commit(addDislikeMessage, new ReactionResponse(addDislikeMessage.communicationId, points));
+        } else {
+            addDislikeMessage.storeClient.tell(new OperationFailed(addDislikeMessage.communicationId));
+        }
+    }
+
+    private void processDeleteLikeOrDislike(DeleteLikeOrDislike deleteLikeOrDislikeMessage) {
+        if (isBanned(deleteLikeOrDislikeMessage.clientName)) {
+            deleteLikeOrDislikeMessage.storeClient.tell(new UserBanned(deleteLikeOrDislikeMessage.communicationId));
+        } else if (storage.deleteLikeOrDislike(deleteLikeOrDislikeMessage.clientName, deleteLikeOrDislikeMessage.messageId,
+                deleteLikeOrDislikeMessage.typeToDelete)) {
+            int points = storage.getPoints(deleteLikeOrDislikeMessage.messageId);
+            commit(deleteLikeOrDislikeMessage, new ReactionResponse(deleteLikeOrDislikeMessage.communicationId, points));
+        } else {
+            deleteLikeOrDislikeMessage.storeClient.tell(new OperationFailed(deleteLikeOrDislikeMessage.communicationId));
+        }
+    }
+
+    private void processAddReaction(AddReaction addReactionMessage) {
+        if (isBanned(addReactionMessage.clientName)) {
+            addReactionMessage.storeClient.tell(new UserBanned(addReactionMessage.communicationId));
+        } else if (storage.addReaction(addReactionMessage.clientName, addReactionMessage.messageId, addReactionMessage.reaction)) {
+            commit(addReactionMessage, new ReactionResponse(addReactionMessage.communicationId, addReactionMessage.reaction.toString()));
+        } else {
+            addReactionMessage.storeClient.tell(new OperationFailed(addReactionMessage.communicationId));
+        }
+    }
+
+    private void processUpdateMessageStore(UpdateMessageStore updateMessage) {
+        if (isBanned(updateMessage.message.getAuthor())) {
+            updateMessage.storeClient.tell(new UserBanned(updateMessage.communicationId));
+        } else if (update(updateMessage.message)) {
+            commit(updateMessage, new OperationAck(updateMessage.communicationId));
+        } else {
+            updateMessage.storeClient.tell(new OperationFailed(updateMessage.communicationId));
+        }
+    }
+
+    private void processAddReport(AddReport reportMessage) {
+        if (isBanned(reportMessage.clientName)) {
+            reportMessage.storeClient.tell(new UserBanned(reportMessage.communicationId));
+        } else if (addReport(reportMessage.clientName, reportMessage.reportedClientName)) {
+            commit(reportMessage, new OperationAck(reportMessage.communicationId));
+        } else {
+            reportMessage.storeClient.tell(new OperationFailed(reportMessage.communicationId));
+        }
+    }
+
+    protected void processSearchInStore(SearchInStore searchMessage) {
+        List<UserMessage> foundMessage = storage.findByAuthorOrText(searchMessage.searchText, searchMessage.cursor,
+                resultLimit(searchMessage));
+        long nextCursor = truncateToPage(foundMessage, searchMessage);
+        if (numberOfShards > 1) {
+            searchMessage.storeClient.tell(new ShardSearchResult(shard, foundMessage, searchMessage.communicationId, nextCursor));
+        } else {
+            searchMessage.storeClient.tell(new FoundMessages(foundMessage, searchMessage.communicationId, nextCursor));
+        }
     }
 
     /**
-     * Internal helper method containing the update logic
+     * @param query a query
+     * @return The maximum number of messages looked up for the query, which is one more
+     * than the page size, so that it is known whether there is a following page.
+     */
+    static int resultLimit(StoreQuery query) {
+        return query.pageSize == 0 ? Integer.MAX_VALUE : query.pageSize + 1;
+    }
+
+    /**
+     * Removes the message looked up beyond the requested page, if there is one.
      *
-     * @param message the user message to be saved
-     * @return true if successful, false otherwise
+     * @param foundMessages the messages looked up for the query ordered by message ID
+     * @param query         the query
+     * @return The cursor of the following page, FoundMessages.NO_CURSOR if there is none.
      */
-    private boolean update(UserMessage message) {
+    static long truncateToPage(List<UserMessage> foundMessages, StoreQuery query) {
+        if (query.pageSize == 0 || foundMessages.size() <= query.pageSize) {
+            return FoundMessages.NO_CURSOR;
+        }
+        foundMessages.remove(foundMessages.size() - 1);
+        return foundMessages.get(foundMessages.size() - 1).getMessageId();
+    }
 
-        if (message.getMessageId() == UserMessage.NEW_ID) {
-            boolean containsSameMessage = false;
-            for (UserMessage m : messages.values()) {
-                if (m.getAuthor().equals(message.getAuthor()) && m.getMessage().equals(message.getMessage())) {
-                    containsSameMessage = true;
-                    break; // added
-                }
-            }
-            if (!containsSameMessage) {
-                message.setMessageId(currentId++);
-                messages.put(message.getMessageId(), message);
-                return true;
-            }
+    private void processEditMessage(EditMessage editMessage) {
+        if (isBanned(editMessage.clientName)) {
+            editMessage.storeClient.tell(new UserBanned(editMessage.communicationId));
+        } else if (storage.editMessage(editMessage.messageId, editMessage.clientName, editMessage.newMessage)) {
+            commit(editMessage, new OperationAck(editMessage.communicationId));
+        } else {
+            editMessage.storeClient.tell(new OperationFailed(editMessage.communicationId));
+        }
+    }
+
+    private void processDeleteMessage(DeleteMessage deleteMessage) {
+        if (isBanned(deleteMessage.clientName)) {
+            deleteMessage.storeClient.tell(new UserBanned(deleteMessage.communicationId));
+        } else if (storage.deleteMessage(deleteMessage.clientName, deleteMessage.messageId)) {
+            commit(deleteMessage, new OperationAck(deleteMessage.communicationId));
+        } else {
+            deleteMessage.storeClient.tell(new OperationFailed(deleteMessage.communicationId));
         }
-        return false;
     }
 
     /**
-     * Internal helper method containing the logic for looking up messages.
+     * Replies to a successful write. If the store has followers, the write is added to the
+     * changes sent to the followers and the reply is wrapped into a SequencedReply, except
+     * for reports, which are shared with the followers. If the store has a write-ahead log,
+     * the write is logged and the reply is sent once the write has been forced to the disk.
      *
-     * @param author the name of the author of the returned messages
-     * @return all messages posted by the given author
+     * @param write the write applied by the store
+     * @param reply the reply to the client of the store
      */
-    private List<UserMessage> findByAuthor(String author) {
-        List<UserMessage> foundMessages = new ArrayList<>();
-        for (UserMessage message : messages.values()) {
-            if (message.getAuthor().equals(author))
-                foundMessages.add(message);
+    private void commit(MessageStoreMessage write, Message reply) {
+        if (writeAheadLog != null) {
+            writeAheadLog.append(write);
+        }
+        if (followers.isEmpty() || write instanceof AddReport) {
+            reply(write.storeClient, reply);
+            return;
         }
-        return foundMessages;
+        if (write instanceof UpdateMessageStore) {
+            // the stored message is changed by later writes, so the followers get a copy of the new message
+            UserMessage stored = ((UpdateMessageStore) write).message;
+            UserMessage copy = new UserMessage(stored.getAuthor(), stored.getMessage());
+            copy.setMessageId(stored.getMessageId());
+            unreplicatedChanges.add(new UpdateMessageStore(copy, write.communicationId));
+        } else {
+            unreplicatedChanges.add(write);
+        }
+        sequenceNumber++;
+        reply(write.storeClient, new SequencedReply(shard, sequenceNumber, reply, write.communicationId));
     }
 
     /**
-     * Internal helper method containing the logic for looking up messages
-     * by Author or by their message text.
-     *
-     * @param searchText the text to search for in the messages
-     * @return all messages containing the given Text
+     * Sends the reply to a logged write once the write has been forced to the disk, i.e. right
+     * away without a write-ahead log, otherwise at the latest when the log is synced.
+     */
+    private void reply(SimulatedActor client, Message reply) {
+        if (writeAheadLog == null) {
+            client.tell(reply);
+            return;
+        }
+        unsyncedClients.add(client);
+        unsyncedReplies.add(reply);
+        if (writeAheadLog.getDurability().syncsAfter(writeAheadLog.getUnsyncedRecords())) {
+            syncWriteAheadLog();
+        }
+    }
+
+    /**
+     * Forces the logged writes to the disk and sends the replies held back until then.
      */
-    private List<UserMessage> findByAuthorOrText(String searchText) {
-        List<UserMessage> foundMessages = new ArrayList<>();
-        for (UserMessage message : messages.values()) {
-            if (message.getAuthor().toLowerCase().contains(searchText.toLowerCase()) ||
-                    message.getMessage().toLowerCase().contains(searchText.toLowerCase()))
-                foundMessages.add(message);
+    private void syncWriteAheadLog() {
+        try {
+            writeAheadLog.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Write-ahead log of shard " + shard + " failed", e);
         }
-        return foundMessages;
+        for (int i = 0; i < unsyncedReplies.size(); i++) {
+            unsyncedClients.get(i).tell(unsyncedReplies.get(i));
+        }
+        unsyncedClients.clear();
+        unsyncedReplies.clear();
     }
 
     /**
-     * Internal helper method containing the logic for adding likes.
+     * Sets the log of the writes of this store and restores the messages and reports logged
+     * before, e.g. by a previous run, only the writes logged after the restored snapshot are
+     * replayed if there is one. Has to be called before the store is spawned and before
+     * any write is processed, the log must not be used by another store.
      *
-     * @param clientName the name of the person who likes the message
-     * @param messageId  the id of message to be liked
-     * @return true if successful, false otherwise
+     * @param writeAheadLog the log, which has not been replayed yet
+     * @return The number of writes replayed.
+     * @throws IOException if the log cannot be read
      */
-    private boolean addLike(String clientName, long messageId) {
-        if (!messages.containsKey(messageId))
-            return false;
-        UserMessage message = messages.get(messageId);
-        if (message.getLikes().contains(clientName))
-            return false;
-        if (message.getDislikes().contains(clientName)) // either like or dislike, but not both
-            deleteLikeOrDislike(clientName, messageId, RemoveLikeOrDislike.Type.DISLIKE);
-        message.getLikes().add(clientName);
-        message.setPoints(message.getPoints() + 1);
-        return true;
+    public long setWriteAheadLog(WriteAheadLog writeAheadLog) throws IOException {
+        long replayed = snapshotLogPosition < 0 ? writeAheadLog.replay(this::replay)
+                : writeAheadLog.replay(snapshotLogPosition, this::replay);
+        this.writeAheadLog = writeAheadLog;
+        return replayed;
     }
 
     /**
-     * Internal helper method containing the logic for deleting likes/dislikes.
+     * Sets the file of the snapshots of this store and restores the snapshot if the file exists.
+     * Snapshots are taken every <c>snapshotInterval</c> time units if writes have been logged
+     * since the previous one. Has to be called before {@link #setWriteAheadLog(WriteAheadLog)},
+     * which replays the writes logged after the snapshot, the file must not be used by another store.
      *
-     * @param clientName the name of the person who wants to delete like/dislike
-     * @param messageId  the id of the message
-     * @return true if successful, false otherwise
+     * @param snapshotFile     the file of the latest snapshot
+     * @param snapshotInterval the number of time units between two snapshots
+     * @throws IOException if the snapshot cannot be read or is not a snapshot of this shard
+     */
+    public void setSnapshotFile(Path snapshotFile, int snapshotInterval) throws IOException {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        if (writeAheadLog != null) {
+            throw new IllegalStateException("Snapshot file has to be set before the write-ahead log");
+        }
+        this.snapshotFile = snapshotFile;
+        this.snapshotInterval = snapshotInterval;
+        if (Files.exists(snapshotFile)) {
+            List<UserMessage> restored = new ArrayList<>();
+            MessageStoreSnapshot snapshot = MessageStoreSnapshot.read(snapshotFile, shard, numberOfShards, storage.getClientNames(), restored::add,
+                    (clientName, reportedClientName) -> reports.addReport(clientName, reportedClientName, Integer.MIN_VALUE));
+            storage.storeAll(restored);
+            currentId = snapshot.getCurrentId();
+            snapshotLogPosition = snapshot.getLogPosition();
+        }
+    }
+
+    /**
+     * Captures the messages and reports and starts writing them to a snapshot in the background.
+     * Only taken while all logged writes have been synced, so that the snapshot does not contain
+     * writes, which may be lost from the log.
+     */
+    private void startSnapshot() {
+        ticksSinceSnapshot = 0;
+        snapshotLogPosition = writeAheadLog.getPosition();
+        runningSnapshot = new MessageStoreSnapshot(snapshotFile, shard, numberOfShards, snapshotLogPosition, currentId,
+                storage.startSnapshot(), reports.copyReports(storage.getClientNames()), storage.getClientNames());
+        runningSnapshot.start();
+    }
+
+    /**
+     * Stops copying messages captured by the running snapshot once it has been written.
      */
-    private boolean deleteLikeOrDislike(String clientName, long messageId, RemoveLikeOrDislike.Type type) {
-        if (!messages.containsKey(messageId))
-            return false;
-        UserMessage message = messages.get(messageId);
-        if (type == RemoveLikeOrDislike.Type.LIKE) {
-            if (!message.getLikes().contains(clientName))
-                return false;
-            message.getLikes().remove(clientName);
-            message.setPoints(message.getPoints() - 1);
-        } else if (type == RemoveLikeOrDislike.Type.DISLIKE) {
-            if (!message.getDislikes().contains(clientName))
-                return false;
-            message.getDislikes().remove(clientName);
-            message.setPoints(message.getPoints() + 1);
-        } else
-            throw new NullPointerException("Unknown delete type.");
-        return true;
-    }
-
-    /**
-     * Internal helper method containing the logic for adding dislikes.
+    private void finishSnapshot() {
+        IOException failure = runningSnapshot.getFailure();
+        runningSnapshot = null;
+        storage.finishSnapshot();
+        if (failure != null) {
+            throw new UncheckedIOException("Snapshot of shard " + shard + " failed", failure);
+        }
+    }
+
+    /**
+     * Applies a logged write during the replay of the write-ahead log. Messages keep their
+     * logged IDs and replayed bans precede all time units.
      *
-     * @param clientName the name of the person who dislikes the message
-     * @param messageId  the id of message to be disliked
-     * @return true if successful, false otherwise
+     * @param write the write
      */
-    private boolean addDislike(String clientName, long messageId) {
-        if (!messages.containsKey(messageId))
-            return false;
-        UserMessage message = messages.get(messageId);
-        if (message.getDislikes().contains(clientName))
-            return false;
-        if (message.getLikes().contains(clientName)) // either like or dislike, but not both
-            deleteLikeOrDislike(clientName, messageId, RemoveLikeOrDislike.Type.LIKE);
+    private void replay(MessageStoreMessage write) {
+        if (write instanceof UpdateMessageStore) {
+            UserMessage message = ((UpdateMessageStore) write).message;
+            storage.store(message);
+            currentId = Math.max(currentId, Math.floorDiv(message.getMessageId(), (long) numberOfShards) + 1);
+        } else if (write instanceof AddReport) {
+            AddReport addReport = (AddReport) write;
+            reports.addReport(addReport.clientName, addReport.reportedClientName, Integer.MIN_VALUE);
+        } else {
+            applyChange(write);
+        }
+    }
 
-        message.getDislikes().add(clientName);
-        message.setPoints(message.getPoints() - 1);
+    /**
+     * Adds a follower, which receives all writes applied by this store from now on.
+     * Followers have to be added before the store is spawned.
+     *
+     * @param follower the follower
+     */
+    public void addFollower(MessageStoreFollower follower) {
+        followers.add(follower);
+    }
+
+    /**
+     * @param replicationInterval the number of time units between two change batches sent to the followers
+     */
+    public void setReplicationInterval(int replicationInterval) {
+        if (replicationInterval <= 0) {
+            throw new IllegalArgumentException("Replication interval must be positive");
+        }
+        this.replicationInterval = replicationInterval;
+    }
 
-        return true;
+    /**
+     * Sends the changes not applied yet to the followers
+     * every <c>replicationInterval</c> time units, syncs the write-ahead log
+     * if its durability requires it at the end of a time unit and takes a
+     * snapshot every <c>snapshotInterval</c> time units.
+     */
+    @Override
+    public void tick() throws UnknownClientException, UnknownMessageException {
+        super.tick();
+        if (!unsyncedReplies.isEmpty()
+                && writeAheadLog.getDurability().syncsAtEndOfTick(!messageBox.isEmpty())) {
+            syncWriteAheadLog();
+        }
+        if (snapshotFile != null && writeAheadLog != null) {
+            if (runningSnapshot != null && runningSnapshot.isDone()) {
+                finishSnapshot();
+            }
+            ticksSinceSnapshot++;
+            if (runningSnapshot == null && ticksSinceSnapshot >= snapshotInterval
+                    && writeAheadLog.getUnsyncedRecords() == 0 && writeAheadLog.getPosition() != snapshotLogPosition) {
+                startSnapshot();
+            }
+        }
+        if (followers.isEmpty()) {
+            return;
+        }
+        ticksSinceReplication++;
+        if (ticksSinceReplication >= replicationInterval) {
+            ticksSinceReplication = 0;
+            replicate();
+        }
     }
 
     /**
-     * Internal helper method containing the logic for reporting users.
+     * Sends the writes not applied yet to every follower, which has applied its previous batch,
+     * and drops the writes applied by all followers.
+     */
+    private void replicate() {
+        long firstSequenceNumber = sequenceNumber - unreplicatedChanges.size() + 1;
+        long appliedByAll = sequenceNumber;
+        for (MessageStoreFollower follower : followers) {
+            Integer sentAt = batchSentAt.get(follower);
+            if (sentAt == null || follower.getSyncedAt() >= sentAt) {
+                long applied = Math.max(follower.getAppliedSequenceNumber(), firstSequenceNumber - 1);
+                List<MessageStoreMessage> changes = new ArrayList<>(
+                        unreplicatedChanges.subList((int) (applied + 1 - firstSequenceNumber), unreplicatedChanges.size()));
+                follower.tell(new ChangeBatch(applied + 1, Collections.unmodifiableList(changes), getTimeSinceSystemStart()));
+                batchSentAt.put(follower, getTimeSinceSystemStart());
+            }
+            appliedByAll = Math.min(appliedByAll, follower.getAppliedSequenceNumber());
+        }
+        if (appliedByAll >= firstSequenceNumber) {
+            unreplicatedChanges.subList(0, (int) (appliedByAll + 1 - firstSequenceNumber)).clear();
+        }
+    }
+
+    @Override
+    public int getIdleTicks() {
+        int idleTicks = super.getIdleTicks();
+        if (!unsyncedReplies.isEmpty()) {
+            // the next tick may sync the write-ahead log
+            return 0;
+        }
+        if (snapshotFile != null && writeAheadLog != null) {
+            if (runningSnapshot != null) {
+                // the next tick may finish the snapshot
+                return 0;
+            }
+            if (writeAheadLog.getPosition() != snapshotLogPosition) {
+                idleTicks = Math.min(idleTicks, Math.max(0, snapshotInterval - ticksSinceSnapshot - 1));
+            }
+        }
+        if (followers.isEmpty()) {
+            return idleTicks;
+        }
+        return Math.min(idleTicks, replicationInterval - ticksSinceReplication - 1);
+    }
+
+    @Override
+    public void skipTicks(int ticks) {
+        super.skipTicks(ticks);
+        ticksSinceSnapshot += ticks;
+        if (!followers.isEmpty()) {
+            ticksSinceReplication += ticks;
+        }
+    }
+
+    /**
+     * Applies a write, which has been applied successfully by the primary store,
+     * used by followers. Reports are shared with the primary, so they are not applied again.
      *
-     * @param clientName         the name of the person who reported the other user
-     * @param reportedClientName the name of the user to be reported
-     * @return true if successful, false otherwise
+     * @param change the write
      */
-    private boolean addReport(String clientName, String reportedClientName) {
+    protected void applyChange(MessageStoreMessage change) {
+        if (change instanceof UpdateMessageStore) {
+            UserMessage applied = ((UpdateMessageStore) change).message;
+            UserMessage copy = new UserMessage(applied.getAuthor(), applied.getMessage());
+            copy.setMessageId(applied.getMessageId());
+            storage.store(copy);
+        } else if (change instanceof AddLike) {
+            AddLike addLike = (AddLike) change;
+            storage.addLike(addLike.clientName, addLike.messageId);
+        } else if (change instanceof AddDislike) {
+            AddDislike addDislike = (AddDislike) change;
+            storage.addDislike(addDislike.clientName, addDislike.messageId);
+        } else if (change instanceof DeleteLikeOrDislike) {
+            DeleteLikeOrDislike delete = (DeleteLikeOrDislike) change;
+            storage.deleteLikeOrDislike(delete.clientName, delete.messageId, delete.typeToDelete);
+        } else if (change instanceof AddReaction) {
+            AddReaction addReaction = (AddReaction) change;
+            storage.addReaction(addReaction.clientName, addReaction.messageId, addReaction.reaction);
+        } else if (change instanceof EditMessage) {
+            EditMessage edit = (EditMessage) change;
+            storage.editMessage(edit.messageId, edit.clientName, edit.newMessage);
+        } else if (change instanceof DeleteMessage) {
+            DeleteMessage delete = (DeleteMessage) change;
+            storage.deleteMessage(delete.clientName, delete.messageId);
+        }
+    }
 
-        HashSet<String> reporters = reports.getOrDefault(reportedClientName, new HashSet<>());
-        if (reporters.add(clientName)) {
-            reports.put(reportedClientName, reporters);
-            return true;
+    /**
+     * @return The index of this store among the shards.
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Replies to requests dropped because the mailbox is full. If the overflow policy is
+     * {@link OverflowPolicy#SIGNAL_SENDER}, a StoreOverloaded message is sent to the client
+     * of the store, which is expected to send the request again later. Otherwise the request
+     * fails and an OperationFailed message is sent.
+     *
+     * @param dropped the message, which is never processed
+     */
+    @Override
+    protected void onMailboxOverflow(Message dropped) {
+        if (!(dropped instanceof MessageStoreMessage)) {
+            return;
+        }
+        MessageStoreMessage request = (MessageStoreMessage) dropped;
+        if (messageBox.getOverflowPolicy() == OverflowPolicy.SIGNAL_SENDER) {
+            request.storeClient.tell(new StoreOverloaded(request.communicationId));
         } else {
-            // reporter already reported the user
-            return false;
+            request.storeClient.tell(new OperationFailed(request.communicationId));
         }
     }
 
+    private boolean isBanned(String clientName) {
+        return reports.isBanned(clientName);
+    }
+
     /**
-     * Internal helper method containing the logic for adding reactions.
-     *
-     * @param clientName the name of the person who reacts to the message
-     * @param messageId  the id of message to be reacted to
-     * @return true if successful, false otherwise
+     * The store may share its reports with other shards.
+     */
+    @Override
+    protected boolean isIsolated() {
+        return false;
+    }
+
+    /**
+     * @return The reports and bans used by this store, which may be shared with other shards.
+     */
+    public ReportRegistry getReportRegistry() {
+        return reports;
+    }
+
+    /**
+     * @return The number of bytes allocated outside of the heap for the stored messages, 0 if
+     * the messages are stored on the heap.
      */
-    private boolean addReaction(String clientName, long messageId, Reaction.Emoji reaction) {
-        if (!messages.containsKey(messageId))
-            return false;
-        UserMessage message = messages.get(messageId);
-        Set<Reaction.Emoji> reactionsSet = new HashSet<>();
-        if (message.getReactions().containsKey(clientName))
-            if (message.getReactions().get(clientName).contains(reaction))
-                return false;
-            else
-                reactionsSet = message.getReactions().get(clientName);
-        reactionsSet.add(reaction);
-        message.getReactions().put(clientName, reactionsSet);
-        return true;
+    public long getOffHeapBytes() {
+        return storage.getOffHeapBytes();
     }
 
     /**
-     * Internal helper method containing the logic for editing existing messages.
+     * Internal helper method containing the update logic
      *
-     * @param messageId  the id of the message to be edited
-     * @param clientName the client, which wants to edit message
-     * @param newMessage the new message
+     * @param message the user message to be saved
      * @return true if successful, false otherwise
      */
-    private boolean editMessage(long messageId, String clientName, String newMessage) {
-        if (!messages.containsKey(messageId)) {
-            return false;
-        }
-        for (UserMessage m : messages.values()) {
-            if (m.getAuthor().equals(clientName) && m.getMessage().equals(newMessage)) {
-                return false;
+    private boolean update(UserMessage message) {
+
+        if (message.getMessageId() == UserMessage.NEW_ID) {
+            if (!storage.containsMessage(message.getAuthor(), message.getMessage())) {
+                message.setMessageId(currentId++ * numberOfShards + shard);
+                storage.store(message);
+                return true;
             }
         }
-        UserMessage message = messages.get(messageId);
-        if (!clientName.equals(message.getAuthor())) {
-            return false;
-        }
-        message.setMessage(newMessage);
-        messages.put(message.getMessageId(), message);
-        return true;
+        return false;
     }
 
     /**
-     * Internal helper method containing the logic for deleting a message.
+     * Internal helper method containing the logic for reporting users.
      *
-     * @param clientName the name of the person who tries to delete the message
-     * @param messageId  the id of message to be deleted
+     * @param clientName         the name of the person who reported the other user
+     * @param reportedClientName the name of the user to be reported
      * @return true if successful, false otherwise
      */
-    private boolean deleteMessage(String clientName, long messageId) {
-        if (!messages.containsKey(messageId))
-            return false;
-        UserMessage message = messages.get(messageId);
-        if (!clientName.equals(message.getAuthor()))
-            return false;
-        messages.remove(messageId);
-        return true;
+    private boolean addReport(String clientName, String reportedClientName) {
+        // false if the reporter already reported the user
+        return reports.addReport(clientName, reportedClientName, getTimeSinceSystemStart());
     }
 }
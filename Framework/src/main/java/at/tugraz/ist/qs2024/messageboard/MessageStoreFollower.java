@@ -0,0 +1,136 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.actorsystem.Mailbox;
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.OverflowPolicy;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.*;
+
+/**
+ * Read replica of a message store (or of a shard of it), which applies the writes of its
+ * primary store asynchronously and answers queries, i.e. RetrieveFromStore and SearchInStore.
+ * <p>
+ * The primary sends the writes it has applied successfully in ChangeBatch messages in the
+ * order it has applied them (see {@link MessageStore#addFollower(MessageStoreFollower)}), so the
+ * state of the follower is always a former state of the primary. A query is only answered
+ * if the follower is consistent enough for it: the follower has to have applied the writes
+ * with the sequence numbers in <c>minSequenceNumbers</c> and its state may be at most
+ * <c>maxStaleness</c> time units older than the state of the primary, measured from the
+ * time the latest batch has been sent. Otherwise the query is forwarded to the primary,
+ * which answers it directly to the client of the store. Writes are forwarded to the primary
+ * as well, so that messages sent to a follower by mistake are not lost.
+ */
+public class MessageStoreFollower extends MessageStore {
+
+    /**
+     * The store, whose writes are applied
+     */
+    private final MessageStore primary;
+
+    /**
+     * Sequence number of the latest write applied
+     */
+    private long appliedSequenceNumber = 0;
+
+    /**
+     * Time unit of the primary in which the latest change batch has been sent
+     */
+    private int syncedAt = 0;
+
+    /**
+     * Constructs a new MessageStoreFollower object and adds it to the followers of the
+     * primary. The primary and the follower share their reports.
+     *
+     * @param primary        the store, whose writes are applied
+     * @param shard          index of the shard of the primary
+     * @param numberOfShards number of shards
+     * @param reports        reports shared with the primary
+     */
+    public MessageStoreFollower(MessageStore primary, int shard, int numberOfShards, ReportRegistry reports) {
+        super(Mailbox.UNBOUNDED, OverflowPolicy.REJECT, shard, numberOfShards, reports);
+        this.primary = primary;
+        primary.addFollower(this);
+    }
+
+    /**
+     * Applies change batches of the primary and answers queries like a {@link MessageStore},
+     * all other messages sent to the store are forwarded to the primary.
+     *
+     * @param message Non-null message received
+     */
+    @Override
+    public void receive(Message message) throws UnknownClientException, UnknownMessageException {
+        if (message instanceof ChangeBatch) {
+            processChangeBatch((ChangeBatch) message);
+        } else if (message instanceof StoreQuery) {
+            super.receive(message);
+        } else if (message instanceof MessageStoreMessage) {
+            primary.tell(message);
+        }
+    }
+
+    private void processChangeBatch(ChangeBatch batch) {
+        long sequenceNumber = batch.firstSequenceNumber;
+        for (MessageStoreMessage change : batch.changes) {
+            // batches arrive in order, changes already applied are skipped
+            if (sequenceNumber > appliedSequenceNumber) {
+                applyChange(change);
+                appliedSequenceNumber = sequenceNumber;
+            }
+            sequenceNumber++;
+        }
+        syncedAt = Math.max(syncedAt, batch.sentAt);
+    }
+
+    @Override
+    protected void processRetrieveFromStore(RetrieveFromStore retrieve) {
+        if (isConsistentFor(retrieve)) {
+            super.processRetrieveFromStore(retrieve);
+        } else {
+            primary.tell(retrieve);
+        }
+    }
+
+    @Override
+    protected void processSearchInStore(SearchInStore search) {
+        if (isConsistentFor(search)) {
+            super.processSearchInStore(search);
+        } else {
+            primary.tell(search);
+        }
+    }
+
+    @Override
+    protected void processRetrieveReactionCounts(RetrieveReactionCountsFromStore retrieve) {
+        if (isConsistentFor(retrieve)) {
+            super.processRetrieveReactionCounts(retrieve);
+        } else {
+            primary.tell(retrieve);
+        }
+    }
+
+    /**
+     * @param query a query
+     * @return true if the follower has applied all writes required by the query
+     * and its state is not older than allowed by the query.
+     */
+    private boolean isConsistentFor(StoreQuery query) {
+        if (query.minSequenceNumbers != null && appliedSequenceNumber < query.minSequenceNumbers[getShard()]) {
+            return false;
+        }
+        return getTimeSinceSystemStart() - syncedAt <= query.maxStaleness;
+    }
+
+    /**
+     * @return The sequence number of the latest write of the primary applied by the follower.
+     */
+    public long getAppliedSequenceNumber() {
+        return appliedSequenceNumber;
+    }
+
+    /**
+     * @return The time unit of the primary in which the latest change batch applied by the follower has been sent.
+     */
+    public int getSyncedAt() {
+        return syncedAt;
+    }
+}
@@ -0,0 +1,303 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.actorsystem.Mailbox;
+import at.tugraz.ist.qs2024.actorsystem.OverflowPolicy;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Routes messages to the shards of a message store, which is partitioned by author.
+ * <p>
+ * All messages of an author are stored by the shard selected by the hash of the author
+ * name. Message IDs are globally unique, as a shard with index <c>i</c> of <c>n</c>
+ * shards assigns the IDs <c>i</c>, <c>i + n</c>, <c>i + 2n</c>, ..., so the shard
+ * storing a message is known from its ID. Messages referring to an author or a
+ * message ID are sent to a single shard, searches are sent to all shards and their
+ * results are gathered by the sender (see {@link WorkerHelper}). Reports are shared
+ * by all shards (see {@link ReportRegistry}).
+ * <p>
+ * A router with a single shard sends all messages to it, which behaves as an
+ * unpartitioned message store.
+ * <p>
+ * Shards may have followers (see {@link MessageStoreFollower}), then queries are sent to
+ * a follower of the shard selected by the communication ID, so that all queries of a
+ * communication are answered by the same follower, and their consistency requirements are
+ * set according to the read consistency of the router (see {@link ReadConsistency}).
+ */
+public class MessageStoreRouter {
+
+    private final SimulatedActor[] shards;
+
+    /**
+     * Followers of the shards indexed by shard, empty arrays for shards without followers
+     */
+    private final SimulatedActor[][] followers;
+
+    /**
+     * Consistency required from followers, null if there are no followers
+     */
+    private final ReadConsistency readConsistency;
+
+    /**
+     * Constructs a new MessageStoreRouter object.
+     *
+     * @param shards the shards, the shard with index <c>i</c> must only assign
+     *               message IDs, which are congruent to <c>i</c> modulo the number of shards
+     */
+    public MessageStoreRouter(SimulatedActor... shards) {
+        if (shards.length == 0) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = shards.clone();
+        this.followers = new SimulatedActor[shards.length][0];
+        this.readConsistency = null;
+    }
+
+    /**
+     * Constructs a new MessageStoreRouter object for shards with followers.
+     *
+     * @param shards          the shards, the shard with index <c>i</c> must only assign
+     *                        message IDs, which are congruent to <c>i</c> modulo the number of shards
+     * @param followers       the followers of the shards indexed by shard
+     * @param readConsistency the consistency required from the followers answering queries
+     */
+    public MessageStoreRouter(SimulatedActor[] shards, SimulatedActor[][] followers, ReadConsistency readConsistency) {
+        if (shards.length == 0) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (followers.length != shards.length) {
+            throw new IllegalArgumentException("Followers must be given for every shard");
+        }
+        this.shards = shards.clone();
+        this.followers = new SimulatedActor[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            this.followers[i] = followers[i].clone();
+        }
+        this.readConsistency = readConsistency;
+    }
+
+    /**
+     * Creates a router with the given number of newly created message stores sharing their reports.
+     *
+     * @param numberOfShards the number of shards
+     * @return The router, the shards have to be spawned before use.
+     */
+    public static MessageStoreRouter createShards(int numberOfShards) {
+        return createShards(numberOfShards, Mailbox.UNBOUNDED, OverflowPolicy.REJECT);
+    }
+
+    /**
+     * Creates a router with the given number of newly created message stores sharing
+     * their reports, each with a bounded mailbox.
+     *
+     * @param numberOfShards  the number of shards
+     * @param mailboxCapacity maximum number of requests waiting to be processed by a shard
+     * @param overflowPolicy  policy applied to requests arriving while the mailbox of a shard is full
+     * @return The router, the shards have to be spawned before use.
+     */
+    public static MessageStoreRouter createShards(int numberOfShards, int mailboxCapacity, OverflowPolicy overflowPolicy) {
+        if (numberOfShards <= 0) {
+            throw new IllegalArgumentException("Number of shards must be positive");
+        }
+        ReportRegistry reports = new ReportRegistry();
+        MessageStore[] stores = new MessageStore[numberOfShards];
+        for (int i = 0; i < numberOfShards; i++) {
+            stores[i] = new MessageStore(mailboxCapacity, overflowPolicy, i, numberOfShards, reports);
+        }
+        return new MessageStoreRouter(stores);
+    }
+
+    /**
+     * Creates a router with the given number of newly created message stores sharing their reports,
+     * which store the messages outside of the heap (see {@link OffHeapMessageStorage}), each with a
+     * bounded mailbox.
+     *
+     * @param numberOfShards  the number of shards
+     * @param mailboxCapacity maximum number of requests waiting to be processed by a shard
+     * @param overflowPolicy  policy applied to requests arriving while the mailbox of a shard is full
+     * @return The router, the shards have to be spawned before use.
+     */
+    public static MessageStoreRouter createOffHeapShards(int numberOfShards, int mailboxCapacity,
+                                                         OverflowPolicy overflowPolicy) {
+        if (numberOfShards <= 0) {
+            throw new IllegalArgumentException("Number of shards must be positive");
+        }
+        ReportRegistry reports = new ReportRegistry();
+        MessageStore[] stores = new MessageStore[numberOfShards];
+        for (int i = 0; i < numberOfShards; i++) {
+            stores[i] = new MessageStore(mailboxCapacity, overflowPolicy, i, numberOfShards, reports,
+                    new OffHeapMessageStorage(i, numberOfShards));
+        }
+        return new MessageStoreRouter(stores);
+    }
+
+    /**
+     * Creates a router with the given number of newly created message stores sharing their
+     * reports, each with the given number of followers.
+     *
+     * @param numberOfShards      the number of shards
+     * @param followersPerShard   the number of followers of every shard
+     * @param readConsistency     the consistency required from the followers answering queries
+     * @param replicationInterval the number of time units between two change batches sent to the followers
+     * @return The router, the shards and followers have to be spawned before use (see {@link #getStores()}).
+     */
+    public static MessageStoreRouter createReplicatedShards(int numberOfShards, int followersPerShard,
+                                                            ReadConsistency readConsistency, int replicationInterval) {
+        if (numberOfShards <= 0) {
+            throw new IllegalArgumentException("Number of shards must be positive");
+        }
+        if (followersPerShard < 0) {
+            throw new IllegalArgumentException("Number of followers must not be negative");
+        }
+        ReportRegistry reports = new ReportRegistry();
+        MessageStore[] stores = new MessageStore[numberOfShards];
+        MessageStoreFollower[][] followers = new MessageStoreFollower[numberOfShards][followersPerShard];
+        for (int i = 0; i < numberOfShards; i++) {
+            stores[i] = new MessageStore(Mailbox.UNBOUNDED, OverflowPolicy.REJECT, i, numberOfShards, reports);
+            stores[i].setReplicationInterval(replicationInterval);
+            for (int j = 0; j < followersPerShard; j++) {
+                followers[i][j] = new MessageStoreFollower(stores[i], i, numberOfShards, reports);
+            }
+        }
+        return new MessageStoreRouter(stores, followers, readConsistency);
+    }
+
+    public int getNumberOfShards() {
+        return shards.length;
+    }
+
+    public SimulatedActor getShard(int index) {
+        return shards[index];
+    }
+
+    /**
+     * @return All shards ordered by their indices.
+     */
+    public List<SimulatedActor> getShards() {
+        return Collections.unmodifiableList(Arrays.asList(shards));
+    }
+
+    /**
+     * @return All shards ordered by their indices followed by the followers of the shards.
+     */
+    public List<SimulatedActor> getStores() {
+        List<SimulatedActor> stores = new ArrayList<>(Arrays.asList(shards));
+        for (SimulatedActor[] followersOfShard : followers) {
+            stores.addAll(Arrays.asList(followersOfShard));
+        }
+        return Collections.unmodifiableList(stores);
+    }
+
+    /**
+     * @return The consistency required from followers answering queries, null if there are no followers.
+     */
+    public ReadConsistency getReadConsistency() {
+        return readConsistency;
+    }
+
+    /**
+     * @return The reports and bans shared by all shards, null if the shards are not message
+     * stores or do not share their reports.
+     */
+    public ReportRegistry getReportRegistry() {
+        ReportRegistry reports = null;
+        for (SimulatedActor shard : shards) {
+            if (!(shard instanceof MessageStore)) {
+                return null;
+            }
+            ReportRegistry reportsOfShard = ((MessageStore) shard).getReportRegistry();
+            if (reports != null && reports != reportsOfShard) {
+                return null;
+            }
+            reports = reportsOfShard;
+        }
+        return reports;
+    }
+
+    /**
+     * @param message a message to the message store
+     * @return true if the message has to be sent to all shards, i.e. if it is a search and there are several shards.
+     */
+    public boolean isScattered(MessageStoreMessage message) {
+        return shards.length > 1 && message instanceof SearchInStore;
+    }
+
+    /**
+     * Selects the shard responsible for a message, which is not scattered.
+     * Reports may be processed by any shard, they are sent to the shard of the reported user.
+     *
+     * @param message a message to the message store
+     * @return The shard, to which the message has to be sent.
+     */
+    public SimulatedActor route(MessageStoreMessage message) {
+        if (shards.length == 1) {
+            return route(message, 0);
+        }
+        return route(message, shardOf(message));
+    }
+
+    /**
+     * Selects the store of a shard, to which a message is sent, which is a follower for queries
+     * if the shard has followers.
+     *
+     * @param message a message to the message store
+     * @param shard   the index of the shard
+     * @return The shard or one of its followers.
+     */
+    public SimulatedActor route(MessageStoreMessage message, int shard) {
+        SimulatedActor[] followersOfShard = followers[shard];
+        if (followersOfShard.length > 0 && message instanceof StoreQuery) {
+            return followersOfShard[(int) Math.floorMod(message.communicationId, (long) followersOfShard.length)];
+        }
+        return shards[shard];
+    }
+
+    private int shardOf(MessageStoreMessage message) {
+        if (message instanceof UpdateMessageStore) {
+            return shardOfAuthor(((UpdateMessageStore) message).message.getAuthor(), shards.length);
+        } else if (message instanceof RetrieveFromStore) {
+            return shardOfAuthor(((RetrieveFromStore) message).author, shards.length);
+        } else if (message instanceof AddReport) {
+            return shardOfAuthor(((AddReport) message).reportedClientName, shards.length);
+        } else if (message instanceof AddLike) {
+            return shardOfMessage(((AddLike) message).messageId, shards.length);
+        } else if (message instanceof AddDislike) {
+            return shardOfMessage(((AddDislike) message).messageId, shards.length);
+        } else if (message instanceof DeleteLikeOrDislike) {
+            return shardOfMessage(((DeleteLikeOrDislike) message).messageId, shards.length);
+        } else if (message instanceof AddReaction) {
+            return shardOfMessage(((AddReaction) message).messageId, shards.length);
+        } else if (message instanceof RetrieveReactionCountsFromStore) {
+            return shardOfMessage(((RetrieveReactionCountsFromStore) message).messageId, shards.length);
+        } else if (message instanceof EditMessage) {
+            return shardOfMessage(((EditMessage) message).messageId, shards.length);
+        } else if (message instanceof DeleteMessage) {
+            return shardOfMessage(((DeleteMessage) message).messageId, shards.length);
+        }
+        return 0;
+    }
+
+    /**
+     * @param author         the name of an author
+     * @param numberOfShards the number of shards
+     * @return The index of the shard storing the messages of the author.
+     */
+    public static int shardOfAuthor(String author, int numberOfShards) {
+        int hash = author.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), numberOfShards);
+    }
+
+    /**
+     * @param messageId      the ID of a message
+     * @param numberOfShards the number of shards
+     * @return The index of the shard, which has assigned the ID.
+     */
+    public static int shardOfMessage(long messageId, int numberOfShards) {
+        return (int) Math.floorMod(messageId, (long) numberOfShards);
+    }
+}
@@ -0,0 +1,420 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Point-in-time snapshot of the state of a message store, i.e. its messages, the reports and
+ * its next message ID, together with the position in the write-ahead log up to which the writes
+ * are contained, so that a store can be restored by replaying only the log after the snapshot
+ * (see {@link MessageStore#setSnapshotFile(Path, int)}).
+ * <p>
+ * The store captures the messages when a snapshot is taken and does not change the captured
+ * messages afterwards, but replaces a message by a copy before changing it (see
+ * {@link UserMessage#copy()}), so the snapshot is written by a background thread while the store
+ * keeps processing requests. The snapshot is written to a temporary memory-mapped file, which
+ * replaces the previous snapshot once it has been forced to the disk.
+ * <p>
+ * The file contains a header with the sizes of the columns followed by the columns, i.e. arrays
+ * of the same field of all messages, reports or names. Clients are referred to by their IDs,
+ * the names of which are contained in the snapshot, strings are stored in arenas of UTF-8 bytes
+ * and referred to by offsets, as well as the likes, dislikes and reactions of the messages. The
+ * columns of 8-byte values precede the columns of 4-byte values, which precede the byte arenas.
+ * A snapshot must not exceed 2 GB.
+ */
+final class MessageStoreSnapshot implements Runnable {
+
+    private static final int MAGIC = 0x4D534E50;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 72;
+
+    private final Path file;
+
+    private final int shard;
+
+    private final int numberOfShards;
+
+    /**
+     * Position in the write-ahead log after the last write contained in the snapshot
+     */
+    private final long logPosition;
+
+    /**
+     * The integral number used to create the next message ID
+     */
+    private final long currentId;
+
+    /**
+     * The captured messages, null if the snapshot has been read
+     */
+    private final UserMessage[] messages;
+
+    /**
+     * The captured reports, see {@link ReportRegistry#copyReports(ClientNameDictionary)}, null if the snapshot has been read
+     */
+    private final int[][] reports;
+
+    /**
+     * The dictionary of the store, which the IDs of the messages and reports refer to
+     */
+    private final ClientNameDictionary clientNames;
+
+    private volatile boolean done = false;
+
+    private volatile IOException failure;
+
+    /**
+     * Constructs a snapshot of captured state, which is written by {@link #start()}.
+     *
+     * @param file           the file of the snapshot
+     * @param shard          index of the shard of the store
+     * @param numberOfShards number of shards
+     * @param logPosition    the position in the write-ahead log after the last write contained in the snapshot
+     * @param currentId      the integral number used by the store to create the next message ID
+     * @param messages       the messages, which must not be changed while the snapshot is written
+     * @param reports        the reports, see {@link ReportRegistry#copyReports(ClientNameDictionary)}
+     * @param clientNames    the dictionary of the store, which the IDs of the messages and reports refer to
+     */
+    MessageStoreSnapshot(Path file, int shard, int numberOfShards, long logPosition, long currentId,
+                         UserMessage[] messages, int[][] reports, ClientNameDictionary clientNames) {
+        this.file = file;
+        this.shard = shard;
+        this.numberOfShards = numberOfShards;
+        this.logPosition = logPosition;
+        this.currentId = currentId;
+        this.messages = messages;
+        this.reports = reports;
+        this.clientNames = clientNames;
+    }
+
+    /**
+     * Starts writing the snapshot by a background thread.
+     */
+    void start() {
+        Thread writer = new Thread(this, "message-store-snapshot-" + shard);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return true once the snapshot has been written or writing has failed.
+     */
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return The reason why the snapshot could not be written, null if it has been written successfully.
+     */
+    IOException getFailure() {
+        return failure;
+    }
+
+    long getLogPosition() {
+        return logPosition;
+    }
+
+    long getCurrentId() {
+        return currentId;
+    }
+
+    /**
+     * Writes the snapshot, runs on the background thread.
+     */
+    @Override
+    public void run() {
+        try {
+            write();
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException("Snapshot could not be written: " + file, e);
+        } finally {
+            done = true;
+        }
+    }
+
+    private void write() throws IOException {
+        int messageCount = messages.length;
+        int nameCount = clientNames.size();
+        long likeCount = 0;
+        long dislikeCount = 0;
+        long reactionCount = 0;
+        long textBytes = 0;
+        for (UserMessage message : messages) {
+            likeCount += message.getLikeCount();
+            dislikeCount += message.getDislikeCount();
+            reactionCount += message.getReactions().size();
+            textBytes += utf8(message.getMessage()).length;
+        }
+        long reporterCount = 0;
+        for (int[] row : reports) {
+            reporterCount += row.length - 1;
+        }
+        long nameBytes = 0;
+        for (int id = 0; id < nameCount; id++) {
+            nameBytes += utf8(clientNames.nameOf(id)).length;
+        }
+        long size = HEADER_SIZE + 8L * messageCount
+                + 4L * (2L * messageCount + 4L * (messageCount + 1) + likeCount + dislikeCount + reactionCount)
+                + 4L * (2L * reports.length + 1 + reporterCount + nameCount + 1)
+                + reactionCount + textBytes + nameBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot exceeds 2 GB: " + file);
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(shard).putInt(numberOfShards)
+                    .putLong(logPosition).putLong(currentId)
+                    .putInt(messageCount).putInt(nameCount).putInt(reports.length)
+                    .putInt((int) likeCount).putInt((int) dislikeCount).putInt((int) reactionCount)
+                    .putInt((int) reporterCount).putInt((int) textBytes).putInt((int) nameBytes);
+
+            Layout layout = new Layout(buffer);
+            for (int i = 0; i < messageCount; i++) {
+                UserMessage message = messages[i];
+                buffer.putLong(layout.ids + 8 * i, message.getMessageId());
+                buffer.putInt(layout.authors + 4 * i, message.getAuthorId());
+                buffer.putInt(layout.points + 4 * i, message.getPoints());
+            }
+            int text = 0;
+            int likes = 0;
+            int dislikes = 0;
+            int reactions = 0;
+            for (int i = 0; i < messageCount; i++) {
+                UserMessage message = messages[i];
+                buffer.putInt(layout.textOffsets + 4 * i, text);
+                buffer.putInt(layout.likeOffsets + 4 * i, likes);
+                buffer.putInt(layout.dislikeOffsets + 4 * i, dislikes);
+                buffer.putInt(layout.reactionOffsets + 4 * i, reactions);
+                byte[] bytes = utf8(message.getMessage());
+                putBytes(buffer, layout.text + text, bytes);
+                text += bytes.length;
+                for (int id : message.getLikeIds()) {
+                    buffer.putInt(layout.likes + 4 * likes++, id);
+                }
+                for (int id : message.getDislikeIds()) {
+                    buffer.putInt(layout.dislikes + 4 * dislikes++, id);
+                }
+                for (int id : message.getReactingIds()) {
+                    buffer.putInt(layout.reactingIds + 4 * reactions, id);
+                    buffer.put(layout.reactionMasks + reactions++, message.getReactionsOf(id));
+                }
+            }
+            buffer.putInt(layout.textOffsets + 4 * messageCount, text);
+            buffer.putInt(layout.likeOffsets + 4 * messageCount, likes);
+            buffer.putInt(layout.dislikeOffsets + 4 * messageCount, dislikes);
+            buffer.putInt(layout.reactionOffsets + 4 * messageCount, reactions);
+
+            int reporters = 0;
+            for (int i = 0; i < reports.length; i++) {
+                buffer.putInt(layout.reported + 4 * i, reports[i][0]);
+                buffer.putInt(layout.reporterOffsets + 4 * i, reporters);
+                for (int j = 1; j < reports[i].length; j++) {
+                    buffer.putInt(layout.reporters + 4 * reporters++, reports[i][j]);
+                }
+            }
+            buffer.putInt(layout.reporterOffsets + 4 * reports.length, reporters);
+
+            int names = 0;
+            for (int id = 0; id < nameCount; id++) {
+                buffer.putInt(layout.nameOffsets + 4 * id, names);
+                byte[] bytes = utf8(clientNames.nameOf(id));
+                putBytes(buffer, layout.names + names, bytes);
+                names += bytes.length;
+            }
+            buffer.putInt(layout.nameOffsets + 4 * nameCount, names);
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot by mapping its file.
+     *
+     * @param file           the file of the snapshot
+     * @param shard          index of the shard of the store, which is restored
+     * @param numberOfShards number of shards
+     * @param clientNames    the dictionary of the store, which the IDs of the messages refer to
+     * @param messages       receives the messages ordered by message ID
+     * @param reports        receives the reports, i.e. the name of the reporting user and the name of the reported user
+     * @return The snapshot without its messages and reports, which have been passed to the consumers.
+     * @throws IOException if the file cannot be read or is not a snapshot of the shard
+     */
+    static MessageStoreSnapshot read(Path file, int shard, int numberOfShards, ClientNameDictionary clientNames,
+                                     Consumer<UserMessage> messages, BiConsumer<String, String> reports) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a message store snapshot: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a message store snapshot: " + file);
+        }
+        if (buffer.getInt() != shard || buffer.getInt() != numberOfShards) {
+            throw new IOException("Snapshot of another shard than shard " + shard + " of " + numberOfShards + ": " + file);
+        }
+        long logPosition = buffer.getLong();
+        long currentId = buffer.getLong();
+        Layout layout = new Layout(buffer);
+        if (layout.end != buffer.capacity()) {
+            throw new IOException("Corrupt message store snapshot: " + file);
+        }
+
+        int[] ids = new int[layout.nameCount];
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < layout.nameCount; i++) {
+            int start = buffer.getInt(layout.nameOffsets + 4 * i);
+            int length = buffer.getInt(layout.nameOffsets + 4 * (i + 1)) - start;
+            scratch = getBytes(buffer, layout.names + start, length, scratch);
+            ids[i] = clientNames.intern(new String(scratch, 0, length, StandardCharsets.UTF_8));
+        }
+
+        for (int i = 0; i < layout.messageCount; i++) {
+            int textStart = buffer.getInt(layout.textOffsets + 4 * i);
+            int textLength = buffer.getInt(layout.textOffsets + 4 * (i + 1)) - textStart;
+            scratch = getBytes(buffer, layout.text + textStart, textLength, scratch);
+            UserMessage message = new UserMessage(clientNames, ids[buffer.getInt(layout.authors + 4 * i)],
+                    new String(scratch, 0, textLength, StandardCharsets.UTF_8), buffer.getLong(layout.ids + 8 * i));
+            message.setPoints(buffer.getInt(layout.points + 4 * i));
+            int end = buffer.getInt(layout.likeOffsets + 4 * (i + 1));
+            for (int j = buffer.getInt(layout.likeOffsets + 4 * i); j < end; j++) {
+                message.addLikeId(ids[buffer.getInt(layout.likes + 4 * j)]);
+            }
+            end = buffer.getInt(layout.dislikeOffsets + 4 * (i + 1));
+            for (int j = buffer.getInt(layout.dislikeOffsets + 4 * i); j < end; j++) {
+                message.addDislikeId(ids[buffer.getInt(layout.dislikes + 4 * j)]);
+            }
+            end = buffer.getInt(layout.reactionOffsets + 4 * (i + 1));
+            for (int j = buffer.getInt(layout.reactionOffsets + 4 * i); j < end; j++) {
+                message.addReactionsOf(ids[buffer.getInt(layout.reactingIds + 4 * j)], buffer.get(layout.reactionMasks + j));
+            }
+            messages.accept(message);
+        }
+
+        for (int i = 0; i < layout.reportedCount; i++) {
+            String reported = clientNames.nameOf(ids[buffer.getInt(layout.reported + 4 * i)]);
+            int end = buffer.getInt(layout.reporterOffsets + 4 * (i + 1));
+            for (int j = buffer.getInt(layout.reporterOffsets + 4 * i); j < end; j++) {
+                reports.accept(clientNames.nameOf(ids[buffer.getInt(layout.reporters + 4 * j)]), reported);
+            }
+        }
+        return new MessageStoreSnapshot(file, shard, numberOfShards, logPosition, currentId, null, null, clientNames);
+    }
+
+    /**
+     * Positions of the columns in the file, computed from the sizes in the header.
+     */
+    private static final class Layout {
+        final int messageCount;
+        final int nameCount;
+        final int reportedCount;
+
+        final int ids;
+        final int authors;
+        final int points;
+        final int textOffsets;
+        final int likeOffsets;
+        final int dislikeOffsets;
+        final int reactionOffsets;
+        final int likes;
+        final int dislikes;
+        final int reactingIds;
+        final int reported;
+        final int reporterOffsets;
+        final int reporters;
+        final int nameOffsets;
+        final int reactionMasks;
+        final int text;
+        final int names;
+
+        /**
+         * Size of the file, which is only valid if it does not exceed the size of the buffer
+         */
+        final long end;
+
+        /**
+         * Position of the next column while the layout is computed
+         */
+        private long position = HEADER_SIZE;
+
+        /**
+         * @param buffer the file
+         */
+        Layout(ByteBuffer buffer) {
+            messageCount = buffer.getInt(32);
+            nameCount = buffer.getInt(36);
+            reportedCount = buffer.getInt(40);
+            int likeCount = buffer.getInt(44);
+            int dislikeCount = buffer.getInt(48);
+            int reactionCount = buffer.getInt(52);
+            int reporterCount = buffer.getInt(56);
+            int textBytes = buffer.getInt(60);
+            int nameBytes = buffer.getInt(64);
+            ids = column(8L * messageCount);
+            authors = column(4L * messageCount);
+            points = column(4L * messageCount);
+            textOffsets = column(4L * (messageCount + 1));
+            likeOffsets = column(4L * (messageCount + 1));
+            dislikeOffsets = column(4L * (messageCount + 1));
+            reactionOffsets = column(4L * (messageCount + 1));
+            likes = column(4L * likeCount);
+            dislikes = column(4L * dislikeCount);
+            reactingIds = column(4L * reactionCount);
+            reported = column(4L * reportedCount);
+            reporterOffsets = column(4L * (reportedCount + 1));
+            reporters = column(4L * reporterCount);
+            nameOffsets = column(4L * (nameCount + 1));
+            reactionMasks = column(reactionCount);
+            text = column(textBytes);
+            names = column(nameBytes);
+            end = position;
+        }
+
+        /**
+         * @return The position of a column of the given size, which is appended to the layout.
+         */
+        private int column(long size) {
+            int start = (int) position;
+            position += Math.max(0, size);
+            return start;
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer buffer, int position, byte[] bytes) {
+        ByteBuffer target = buffer.duplicate();
+        target.position(position);
+        target.put(bytes);
+    }
+
+    /**
+     * @return The given array if it is large enough, otherwise a larger one, containing the bytes at the position.
+     */
+    private static byte[] getBytes(ByteBuffer buffer, int position, int length, byte[] scratch) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        }
+        ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(scratch, 0, length);
+        return scratch;
+    }
+}
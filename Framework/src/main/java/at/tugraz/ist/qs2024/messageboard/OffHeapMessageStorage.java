@@ -0,0 +1,360 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.RemoveLikeOrDislike;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Storage of user messages outside of the Java heap in columns (see {@link MessageColumns}) instead
+ * of as UserMessage objects, for boards with tens of millions of messages, usually used by the shards
+ * created by {@link MessageStoreRouter#createOffHeapShards(int, int, OverflowPolicy)}.
+ * <p>
+ * The ID of a message is determined by its row, the message in row <c>r</c> of shard <c>i</c> of
+ * <c>n</c> shards has the ID <c>r * n + i</c>, so messages are looked up by ID without an index. Rows
+ * skipped by the IDs of stored messages, e.g. of messages deleted before a snapshot, are kept as
+ * deleted rows. Likes, dislikes and reactions are kept on the heap, only for messages which have any.
+ * UserMessage objects are only created for the messages returned by lookups, which are copies.
+ * Lookups by author and searches scan the columns in the order of the message IDs, there are no
+ * indexes by author or n-gram.
+ */
+final class OffHeapMessageStorage implements MessageStorage {
+
+    /**
+     * the number of kinds of reactions
+     */
+    private static final int NUMBER_OF_REACTIONS = Reaction.Emoji.values().length;
+
+    /**
+     * Dictionary of the client names, which the IDs of the columns and votes refer to
+     */
+    private final ClientNameDictionary clientNames = new ClientNameDictionary();
+
+    /**
+     * All messages stored, the rows are ordered by message ID.
+     */
+    private final MessageColumns columns = new MessageColumns();
+
+    /**
+     * Likes, dislikes and reactions of the messages, the key of the dictionary
+     * corresponds to the row of the message. Messages without any are not contained.
+     */
+    private final ClientIdMap<Votes> votes = new ClientIdMap<>();
+
+    /**
+     * Index of the store among the shards
+     */
+    private final int shard;
+
+    /**
+     * Number of shards, 1 if the store is not partitioned
+     */
+    private final int numberOfShards;
+
+    /**
+     * Likes, dislikes and reactions of a message.
+     */
+    private static final class Votes {
+        private final ClientIdSet likes = new ClientIdSet();
+        private final ClientIdSet dislikes = new ClientIdSet();
+
+        /**
+         * Bitmasks of the reactions by the IDs of the names of the people who reacted
+         */
+        private final ClientIdByteMap reactions = new ClientIdByteMap();
+
+        /**
+         * Number of reactions of each kind indexed by the ordinal of the reaction
+         */
+        private final int[] reactionCounts = new int[NUMBER_OF_REACTIONS];
+    }
+
+    /**
+     * @param shard          index of the store among the shards
+     * @param numberOfShards number of shards
+     */
+    OffHeapMessageStorage(int shard, int numberOfShards) {
+        this.shard = shard;
+        this.numberOfShards = numberOfShards;
+    }
+
+    @Override
+    public ClientNameDictionary getClientNames() {
+        return clientNames;
+    }
+
+    @Override
+    public boolean contains(long messageId) {
+        return rowOf(messageId) >= 0;
+    }
+
+    @Override
+    public boolean containsMessage(String author, String text) {
+        int authorId = clientNames.lookup(author);
+        return authorId != ClientNameDictionary.UNKNOWN && columns.rowOf(authorId, text) >= 0;
+    }
+
+    /**
+     * Adds a message to the columns with its points, likes, dislikes and reactions. Rows skipped
+     * by the ID of the message are added as deleted rows.
+     *
+     * @param message the user message to be stored, which is not kept
+     */
+    @Override
+    public void store(UserMessage message) {
+        long row = (message.getMessageId() - shard) / numberOfShards;
+        if (message.getMessageId() < shard || (message.getMessageId() - shard) % numberOfShards != 0
+                || row < columns.size()) {
+            throw new IllegalArgumentException("Invalid ID " + message.getMessageId() + " of shard " + shard
+                    + " with " + columns.size() + " rows");
+        }
+        while (columns.size() < row) {
+            columns.delete(columns.add((long) columns.size() * numberOfShards + shard, ClientNameDictionary.UNKNOWN, ""));
+        }
+        message.useClientNames(clientNames);
+        int added = columns.add(message.getMessageId(), message.getAuthorId(), message.getMessage());
+        columns.setPoints(added, message.getPoints());
+        for (int id : message.getLikeIds()) {
+            votesOf(added).likes.add(id);
+        }
+        for (int id : message.getDislikeIds()) {
+            votesOf(added).dislikes.add(id);
+        }
+        for (int id : message.getReactingIds()) {
+            addReactionsOf(added, id, message.getReactionsOf(id));
+        }
+    }
+
+    @Override
+    public void storeAll(List<UserMessage> restored) {
+        restored.forEach(this::store);
+    }
+
+    @Override
+    public List<UserMessage> findByAuthor(String author, long cursor, int limit) {
+        int authorId = clientNames.lookup(author);
+        List<UserMessage> foundMessages = new ArrayList<>();
+        if (authorId == ClientNameDictionary.UNKNOWN)
+            return foundMessages;
+        for (int row = firstRowAfter(cursor); row < columns.size() && foundMessages.size() < limit; row++) {
+            if (columns.getAuthor(row) == authorId)
+                foundMessages.add(materialize(row));
+        }
+        return foundMessages;
+    }
+
+    /**
+     * Whether the lowercased name of an author contains the search text is only checked once per author.
+     */
+    @Override
+    public List<UserMessage> findByAuthorOrText(String searchText, long cursor, int limit) {
+        String lowercased = searchText.toLowerCase();
+        byte[] latin1 = MessageColumns.latin1Bytes(lowercased);
+        // indexed by author ID: 1 if the name of the author does not contain the search text, 2 if it does,
+        // the authors of the rows have been added to the dictionary before the search
+        byte[] authorMatches = new byte[clientNames.size()];
+        List<UserMessage> foundMessages = new ArrayList<>();
+        for (int row = firstRowAfter(cursor); row < columns.size() && foundMessages.size() < limit; row++) {
+            int author = columns.getAuthor(row);
+            if (author == ClientNameDictionary.UNKNOWN)
+                continue;
+            if (authorMatches[author] == 0) {
+                authorMatches[author] = (byte) (clientNames.nameOf(author).toLowerCase().contains(lowercased) ? 2 : 1);
+            }
+            if (authorMatches[author] == 2 || columns.textContains(row, lowercased, latin1))
+                foundMessages.add(materialize(row));
+        }
+        return foundMessages;
+    }
+
+    @Override
+    public boolean addLike(String clientName, long messageId) {
+        int row = rowOf(messageId);
+        if (row < 0)
+            return false;
+        Votes votesOfMessage = votesOf(row);
+        int id = clientNames.intern(clientName);
+        if (votesOfMessage.likes.contains(id))
+            return false;
+        if (votesOfMessage.dislikes.remove(id)) // either like or dislike, but not both
+            columns.setPoints(row, columns.getPoints(row) + 1);
+        votesOfMessage.likes.add(id);
+        columns.setPoints(row, columns.getPoints(row) + 1);
+        return true;
+    }
+
+    @Override
+    public boolean deleteLikeOrDislike(String clientName, long messageId, RemoveLikeOrDislike.Type type) {
+        int row = rowOf(messageId);
+        if (row < 0)
+            return false;
+        Votes votesOfMessage = votes.get(row);
+        int id = clientNames.lookup(clientName);
+        if (type == RemoveLikeOrDislike.Type.LIKE) {
+            if (votesOfMessage == null || !votesOfMessage.likes.remove(id))
+                return false;
+            columns.setPoints(row, columns.getPoints(row) - 1);
+        } else if (type == RemoveLikeOrDislike.Type.DISLIKE) {
+            if (votesOfMessage == null || !votesOfMessage.dislikes.remove(id))
+                return false;
+            columns.setPoints(row, columns.getPoints(row) + 1);
+        } else
+            throw new NullPointerException("Unknown delete type.");
+        return true;
+    }
+
+    @Override
+    public boolean addDislike(String clientName, long messageId) {
+        int row = rowOf(messageId);
+        if (row < 0)
+            return false;
+        Votes votesOfMessage = votesOf(row);
+        int id = clientNames.intern(clientName);
+        if (votesOfMessage.dislikes.contains(id))
+            return false;
+        if (votesOfMessage.likes.remove(id)) // either like or dislike, but not both
+            columns.setPoints(row, columns.getPoints(row) - 1);
+        votesOfMessage.dislikes.add(id);
+        columns.setPoints(row, columns.getPoints(row) - 1);
+        return true;
+    }
+
+    @Override
+    public boolean addReaction(String clientName, long messageId, Reaction.Emoji reaction) {
+        int row = rowOf(messageId);
+        if (row < 0)
+            return false;
+        int id = clientNames.intern(clientName);
+        Votes votesOfMessage = votes.get(row);
+        byte bit = (byte) (1 << reaction.ordinal());
+        if (votesOfMessage != null && (votesOfMessage.reactions.get(id) & bit) != 0)
+            return false;
+        addReactionsOf(row, id, bit);
+        return true;
+    }
+
+    @Override
+    public int getPoints(long messageId) {
+        return columns.getPoints(rowOf(messageId));
+    }
+
+    @Override
+    public int[] getReactionCounts(long messageId) {
+        int row = rowOf(messageId);
+        if (row < 0)
+            return null;
+        Votes votesOfMessage = votes.get(row);
+        return votesOfMessage == null ? new int[NUMBER_OF_REACTIONS] : votesOfMessage.reactionCounts.clone();
+    }
+
+    @Override
+    public boolean editMessage(long messageId, String clientName, String newText) {
+        int row = rowOf(messageId);
+        if (row < 0)
+            return false;
+        int author = clientNames.lookup(clientName);
+        if (columns.rowOf(author, newText) >= 0 || columns.getAuthor(row) != author)
+            return false;
+        columns.setText(row, newText);
+        return true;
+    }
+
+    @Override
+    public boolean deleteMessage(String clientName, long messageId) {
+        int row = rowOf(messageId);
+        if (row < 0 || columns.getAuthor(row) != clientNames.lookup(clientName))
+            return false;
+        columns.delete(row);
+        votes.remove(row);
+        return true;
+    }
+
+    /**
+     * Creates UserMessage objects of all stored messages, which are not changed by later writes.
+     */
+    @Override
+    public UserMessage[] startSnapshot() {
+        List<UserMessage> captured = new ArrayList<>();
+        for (int row = 0; row < columns.size(); row++) {
+            if (columns.getAuthor(row) != ClientNameDictionary.UNKNOWN)
+                captured.add(materialize(row));
+        }
+        return captured.toArray(new UserMessage[0]);
+    }
+
+    @Override
+    public void finishSnapshot() {
+    }
+
+    @Override
+    public long getOffHeapBytes() {
+        return columns.getAllocatedBytes();
+    }
+
+    /**
+     * @param messageId a message ID
+     * @return The row of the message with the given ID, -1 if it is not stored.
+     */
+    private int rowOf(long messageId) {
+        if (messageId < shard || (messageId - shard) % numberOfShards != 0) {
+            return -1;
+        }
+        long row = (messageId - shard) / numberOfShards;
+        if (row >= columns.size() || columns.getAuthor((int) row) == ClientNameDictionary.UNKNOWN) {
+            return -1;
+        }
+        return (int) row;
+    }
+
+    /**
+     * @param cursor a message ID, FoundMessages.NO_CURSOR for the first page
+     * @return The first row of the messages with IDs greater than the cursor.
+     */
+    private int firstRowAfter(long cursor) {
+        if (cursor < shard) {
+            return 0;
+        }
+        return (int) Math.min(columns.size(), (cursor - shard) / numberOfShards + 1);
+    }
+
+    /**
+     * Creates a UserMessage of a row with its likes, dislikes and reactions to be returned by a lookup.
+     */
+    private UserMessage materialize(int row) {
+        UserMessage message = new UserMessage(clientNames, columns.getAuthor(row), columns.getText(row), columns.getId(row));
+        message.setPoints(columns.getPoints(row));
+        Votes votesOfMessage = votes.get(row);
+        if (votesOfMessage != null) {
+            for (int id : votesOfMessage.likes.toArray()) {
+                message.addLikeId(id);
+            }
+            for (int id : votesOfMessage.dislikes.toArray()) {
+                message.addDislikeId(id);
+            }
+            for (int id : votesOfMessage.reactions.keys()) {
+                message.addReactionsOf(id, votesOfMessage.reactions.get(id));
+            }
+        }
+        return message;
+    }
+
+    private Votes votesOf(int row) {
+        return votes.computeIfAbsent(row, key -> new Votes());
+    }
+
+    /**
+     * Adds reactions of a person to a message and updates the numbers of reactions.
+     *
+     * @param row  the row of the message
+     * @param id   the ID of the name of the person
+     * @param mask the bitmask of the reactions, which the person has not added yet
+     */
+    private void addReactionsOf(int row, int id, byte mask) {
+        Votes votesOfMessage = votesOf(row);
+        votesOfMessage.reactions.put(id, (byte) (votesOfMessage.reactions.get(id) | mask));
+        for (int added = mask & 0xFF; added != 0; added &= added - 1) {
+            votesOfMessage.reactionCounts[Integer.numberOfTrailingZeros(added)]++;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.InitCommunication;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Routing strategy selecting two different pseudo-random workers and choosing the
+ * one with the lower load (see {@link Worker#getLoad()}). It balances the load almost
+ * as well as selecting the least loaded worker, but takes constant time and avoids
+ * sending all new communications to the same worker while the loads are outdated.
+ */
+public class PowerOfTwoChoicesRoutingStrategy implements WorkerRoutingStrategy {
+
+    private final Random random;
+
+    /**
+     * Constructs a new PowerOfTwoChoicesRoutingStrategy object with a fixed seed.
+     */
+    public PowerOfTwoChoicesRoutingStrategy() {
+        this(0);
+    }
+
+    /**
+     * Constructs a new PowerOfTwoChoicesRoutingStrategy object.
+     *
+     * @param seed seed of the pseudo-random numbers used to select the workers
+     */
+    public PowerOfTwoChoicesRoutingStrategy(long seed) {
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public Worker selectWorker(InitCommunication initCommunication, List<Worker> workers) {
+        if (workers.size() == 1) {
+            return workers.get(0);
+        }
+        int first = random.nextInt(workers.size());
+        // the second index is drawn from the other workers
+        int second = (first + 1 + random.nextInt(workers.size() - 1)) % workers.size();
+        Worker firstWorker = workers.get(first);
+        Worker secondWorker = workers.get(second);
+        return secondWorker.getLoad() < firstWorker.getLoad() ? secondWorker : firstWorker;
+    }
+}
@@ -0,0 +1,21 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.InitCommunication;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Routing strategy selecting a pseudo-random worker, which is determined by the
+ * communication ID, regardless of the load of the workers. This is the default strategy.
+ */
+public class RandomRoutingStrategy implements WorkerRoutingStrategy {
+
+    @Override
+    public Worker selectWorker(InitCommunication initCommunication, List<Worker> workers) {
+        Random random = new Random(initCommunication.communicationId);
+        int rnd = random.nextInt();
+        int index = (((rnd % workers.size()) + workers.size()) % workers.size());
+        return workers.get(index);
+    }
+}
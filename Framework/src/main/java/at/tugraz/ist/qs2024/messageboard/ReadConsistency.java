@@ -0,0 +1,69 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.StoreQuery;
+
+/**
+ * Consistency required from followers of the message store (see {@link MessageStoreFollower})
+ * answering queries, queries of followers not consistent enough are answered by the primary.
+ * <p>
+ * With read-your-writes a query sees all writes, which have been sent by the same communication
+ * before and have been acknowledged. With bounded staleness a query sees a state of the store,
+ * which is at most the given number of time units old, but possibly not the own writes.
+ * As the primary sends its writes to the followers every <c>replicationInterval</c> time
+ * units, a bound below that interval sends most queries to the primary.
+ */
+public class ReadConsistency {
+
+    /**
+     * Maximum number of time units a follower may lag behind, Integer.MAX_VALUE if unbounded
+     */
+    private final int maxStaleness;
+
+    /**
+     * True if a query has to see the writes of its communication
+     */
+    private final boolean readYourWrites;
+
+    private ReadConsistency(boolean readYourWrites, int maxStaleness) {
+        this.readYourWrites = readYourWrites;
+        this.maxStaleness = maxStaleness;
+    }
+
+    /**
+     * @return Consistency requiring queries to see the acknowledged writes of their communication.
+     */
+    public static ReadConsistency readYourWrites() {
+        return new ReadConsistency(true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxStaleness maximum number of time units the state seen by a query may lag behind
+     * @return Consistency requiring queries to see a state of the store not older than <c>maxStaleness</c>.
+     */
+    public static ReadConsistency boundedStaleness(int maxStaleness) {
+        if (maxStaleness < 0) {
+            throw new IllegalArgumentException("Maximum staleness must not be negative");
+        }
+        return new ReadConsistency(false, maxStaleness);
+    }
+
+    /**
+     * Sets the requirements of a query.
+     *
+     * @param query                the query
+     * @param writeSequenceNumbers the sequence numbers of the latest writes of the communication
+     *                             of the query indexed by shard, null if there are none
+     */
+    void apply(StoreQuery query, long[] writeSequenceNumbers) {
+        query.maxStaleness = maxStaleness;
+        query.minSequenceNumbers = readYourWrites ? writeSequenceNumbers : null;
+    }
+
+    public boolean isReadYourWrites() {
+        return readYourWrites;
+    }
+
+    public int getMaxStaleness() {
+        return maxStaleness;
+    }
+}
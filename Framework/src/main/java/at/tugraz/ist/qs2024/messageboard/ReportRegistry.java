@@ -0,0 +1,101 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+/**
+ * Reports of users and the resulting bans, which are shared by all shards of a
+ * message store (see {@link MessageStoreRouter}), so that a user reported via one
+ * shard is banned on all shards at once. Reports are added under the lock of the
+ * registry, as shards may process messages at the same time, e.g. in a
+ * {@link at.tugraz.ist.qs2024.actorsystem.ParallelSimulatedActorSystem}.
+ * <p>
+ * Bans are published as immutable {@link BannedClients} sets whenever a user is reported
+ * by more than {@link MessageStore#USER_BLOCKED_AT_COUNT} other users, so checking a ban
+ * needs no lock and workers can reject banned users without asking the message store.
+ */
+public class ReportRegistry {
+
+    /**
+     * All reports, the key in the dictionary corresponds to the ID of a
+     * client name and the value is the set of the IDs of the client names
+     * that have reported that user (see {@link ClientNameDictionary}).
+     */
+    private final ClientIdMap<ClientIdSet> reports = new ClientIdMap<>();
+
+    /**
+     * The dictionary, which the IDs of the reports and bans refer to, shared by all shards using the registry
+     */
+    private final ClientNameDictionary clientNames = new ClientNameDictionary();
+
+    /**
+     * The banned users, replaced by the next version whenever a user is banned
+     */
+    private volatile BannedClients banned = BannedClients.NONE;
+
+    /**
+     * Adds a report to the specified user if they have not already been reported by the same user
+     * and bans the user once they have been reported by enough users.
+     *
+     * @param clientName         the name of the person who reported the other user
+     * @param reportedClientName the name of the user to be reported
+     * @param time               the time unit in which the report is added, see {@link #getBannedClients(int)}
+     * @return true if successful, false otherwise
+     */
+    public synchronized boolean addReport(String clientName, String reportedClientName, int time) {
+        int reportedId = clientNames.intern(reportedClientName);
+        ClientIdSet reporters = reports.computeIfAbsent(reportedId, id -> new ClientIdSet());
+        if (!reporters.add(clientNames.intern(clientName))) {
+            return false;
+        }
+        if (reporters.size() == MessageStore.USER_BLOCKED_AT_COUNT + 1) {
+            banned = banned.with(clientNames, reportedId, time);
+        }
+        return true;
+    }
+
+    /**
+     * @param names the dictionary, which the returned IDs refer to, e.g. the dictionary of a message store
+     * @return A copy of all reports, one row per reported user, which contains the ID of the
+     * name of the reported user followed by the IDs of the names of the users who reported them.
+     */
+    synchronized int[][] copyReports(ClientNameDictionary names) {
+        int[] reported = reports.keys();
+        int[][] rows = new int[reported.length][];
+        for (int i = 0; i < reported.length; i++) {
+            int[] reporters = reports.get(reported[i]).toArray();
+            rows[i] = new int[reporters.length + 1];
+            rows[i][0] = names.intern(clientNames.nameOf(reported[i]));
+            for (int j = 0; j < reporters.length; j++) {
+                rows[i][j + 1] = names.intern(clientNames.nameOf(reporters[j]));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @param clientName the name of the user
+     * @return true if the user has been reported by more than
+     * {@link MessageStore#USER_BLOCKED_AT_COUNT} other users.
+     */
+    public boolean isBanned(String clientName) {
+        return banned.contains(clientName);
+    }
+
+    /**
+     * @return The users banned so far.
+     */
+    public BannedClients getBannedClients() {
+        return banned;
+    }
+
+    /**
+     * Returns the users banned before a time unit, which does not depend on the order, in
+     * which actors are ticked during the time unit, e.g. by a
+     * {@link at.tugraz.ist.qs2024.actorsystem.ParallelSimulatedActorSystem}, so that actors
+     * other than the message stores may use it without making runs nondeterministic.
+     *
+     * @param time a time unit
+     * @return The users banned in earlier time units.
+     */
+    public BannedClients getBannedClients(int time) {
+        return banned.publishedBefore(time);
+    }
+}
@@ -0,0 +1,131 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the evaluations and scaling decisions of an autoscaling dispatcher.
+ */
+public class ScalingMetrics {
+
+    /**
+     * Kind of a scaling decision.
+     */
+    public enum Action {GROW, SHRINK}
+
+    private final List<Decision> decisions = new ArrayList<>();
+    private int evaluations = 0;
+    private int peakWorkers = 0;
+
+    void recordEvaluation(int workers) {
+        evaluations++;
+        peakWorkers = Math.max(peakWorkers, workers);
+    }
+
+    void recordDecision(Decision decision) {
+        decisions.add(decision);
+        peakWorkers = Math.max(peakWorkers, decision.getWorkers());
+    }
+
+    /**
+     * @return The number of times the load of the workers has been evaluated.
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return The maximum number of workers routed to at the same time.
+     */
+    public int getPeakWorkers() {
+        return peakWorkers;
+    }
+
+    /**
+     * @return The scaling decisions in the order they have been made.
+     */
+    public List<Decision> getDecisions() {
+        return Collections.unmodifiableList(decisions);
+    }
+
+    /**
+     * @param action the kind of decisions to be counted
+     * @return The number of decisions of the given kind.
+     */
+    public int count(Action action) {
+        int count = 0;
+        for (Decision decision : decisions) {
+            if (decision.getAction() == action) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Worker added or removed by the dispatcher and the observations it was based on.
+     */
+    public static class Decision {
+        private final int time;
+        private final Action action;
+        private final long workerId;
+        private final int workers;
+        private final double averageLoad;
+        private final double averageLatency;
+
+        Decision(int time, Action action, long workerId, int workers, double averageLoad, double averageLatency) {
+            this.time = time;
+            this.action = action;
+            this.workerId = workerId;
+            this.workers = workers;
+            this.averageLoad = averageLoad;
+            this.averageLatency = averageLatency;
+        }
+
+        /**
+         * @return The time unit in which the decision has been made.
+         */
+        public int getTime() {
+            return time;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        /**
+         * @return The ID of the worker spawned or drained.
+         */
+        public long getWorkerId() {
+            return workerId;
+        }
+
+        /**
+         * @return The number of workers routed to after the decision.
+         */
+        public int getWorkers() {
+            return workers;
+        }
+
+        /**
+         * @return The average load per worker observed before the decision.
+         */
+        public double getAverageLoad() {
+            return averageLoad;
+        }
+
+        /**
+         * @return The average helper latency in time units observed before the decision.
+         */
+        public double getAverageLatency() {
+            return averageLatency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d: %s worker %d to %d workers (load %.2f, latency %.2f)",
+                    time, action, workerId, workers, averageLoad, averageLatency);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package at.tugraz.ist.qs2024.messageboard;
 import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * This class represents actual messages posted by users (do not confuse
@@ -17,9 +16,27 @@ public class UserMessage {
     public final static long NEW_ID = -1;
 
     /**
-     * The author of the message
+     * All kinds of reactions, there are at most 8, so the reactions of a person fit into a byte
      */
-    private final String author;
+    private static final Reaction.Emoji[] EMOJIS = Reaction.Emoji.values();
+
+    /**
+     * The name of the author of the message
+     */
+    private String author;
+
+    /**
+     * The ID of the name of the author in <c>clientNames</c>
+     */
+    private int authorId = ClientNameDictionary.UNKNOWN;
+
+    /**
+     * The dictionary, which the IDs of the author and of the people who like, dislike or
+     * reacted to the message refer to. It is the dictionary of the message store storing
+     * the message, see {@link #useClientNames(ClientNameDictionary)}, and null until
+     * a name is interned, if the message has not been stored yet.
+     */
+    private ClientNameDictionary clientNames;
 
     /**
      * The message posted by the author
@@ -28,15 +45,15 @@ public class UserMessage {
 
     /**
      * Likes for the message (initially empty).
-     * The strings in the list are names of people who like the message.
+     * The IDs in the set are the IDs of the names of people who like the message.
      */
-    private final List<String> likes;
+    private ClientIdSet likes;
 
     /**
      * Dislikes for the message (initially empty).
-     * The strings in the list are names of people who dislike the message.
+     * The IDs in the set are the IDs of the names of people who dislike the message.
      */
-    private final List<String> dislikes;
+    private ClientIdSet dislikes;
 
     /**
      * The points of the message.
@@ -48,9 +65,16 @@ public class UserMessage {
 
     /**
      * Reactions or emojis for the message (initially empty).
-     * The strings in the list are names of people who dislike the message.
+     * The keys are the IDs of the names of people who reacted to the message, the values are
+     * bitmasks of their reactions, which contain the bit <c>1 << ordinal</c> of every reaction.
+     */
+    private ClientIdByteMap reactions;
+
+    /**
+     * Number of reactions of each kind indexed by the ordinal of the reaction,
+     * null until the first reaction has been added.
      */
-    private final Map<String, Set<Reaction.Emoji>> reactions;
+    private int[] reactionCounts;
 
     /**
      * Invariant, only NEW and positive IDs are used.
@@ -69,12 +93,31 @@ public class UserMessage {
     public UserMessage(String author, String message) {
         this.author = author;
         this.message = message;
-        this.likes = new ArrayList<>();
-        this.dislikes = new ArrayList<>();
-        this.reactions = new HashMap<>();
+        this.likes = new ClientIdSet();
+        this.dislikes = new ClientIdSet();
+        this.reactions = new ClientIdByteMap();
         this.messageId = NEW_ID;
     }
 
+    /**
+     * Constructs a new UserMessage object without likes, dislikes and reactions.
+     *
+     * @param clientNames the dictionary, which the IDs of the message refer to
+     * @param author      the ID of the name of the author in the dictionary
+     * @param message     posted message string
+     * @param messageId   the ID of the message
+     */
+    UserMessage(ClientNameDictionary clientNames, int author, String message, long messageId) {
+        this.clientNames = clientNames;
+        this.authorId = author;
+        this.author = clientNames.nameOf(author);
+        this.message = message;
+        this.likes = new ClientIdSet();
+        this.dislikes = new ClientIdSet();
+        this.reactions = new ClientIdByteMap();
+        this.messageId = messageId;
+    }
+
     /**
      * Newly added toString()-method, which returns a string representation
      * of user messages.
@@ -83,9 +126,8 @@ public class UserMessage {
      */
     @Override
     public String toString() {
-        return author + ": " + message + ", liked by : " + likes.stream().sorted().collect(
-                Collectors.joining(",")) + ", disliked by : " + dislikes.stream().sorted().collect(
-                Collectors.joining(","))
+        return getAuthor() + ": " + message + ", liked by : " + String.join(",", getLikes())
+                + ", disliked by : " + String.join(",", getDislikes())
                 + ", points: " + points;
     }
 
@@ -93,6 +135,59 @@ public class UserMessage {
         return author;
     }
 
+    /**
+     * @return The ID of the name of the author in the dictionary of the message (see
+     * {@link #useClientNames(ClientNameDictionary)}).
+     */
+    int getAuthorId() {
+        clientNames();
+        return authorId;
+    }
+
+    /**
+     * Makes the IDs of the message refer to the given dictionary, the IDs of the people who
+     * like, dislike or reacted to the message are translated if they refer to another dictionary.
+     * A message store calls it before storing a message, so that the IDs of all its messages
+     * refer to its dictionary and the messages of an author share the name of the author.
+     *
+     * @param names the dictionary of the message store
+     */
+    void useClientNames(ClientNameDictionary names) {
+        if (clientNames == names) {
+            return;
+        }
+        if (clientNames != null) {
+            likes = translate(likes, names);
+            dislikes = translate(dislikes, names);
+            ClientIdByteMap translated = new ClientIdByteMap();
+            for (int id : reactions.keys()) {
+                translated.put(names.intern(clientNames.nameOf(id)), reactions.get(id));
+            }
+            reactions = translated;
+        }
+        authorId = names.intern(author);
+        author = names.nameOf(authorId);
+        clientNames = names;
+    }
+
+    private ClientIdSet translate(ClientIdSet ids, ClientNameDictionary names) {
+        ClientIdSet translated = new ClientIdSet();
+        for (int id : ids.toArray()) {
+            translated.add(names.intern(clientNames.nameOf(id)));
+        }
+        return translated;
+    }
+
+    /**
+     * @return The dictionary of the message, a new one if the message has none yet.
+     */
+    private ClientNameDictionary clientNames() {
+        if (clientNames == null) {
+            useClientNames(new ClientNameDictionary());
+        }
+        return clientNames;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -101,12 +196,32 @@ public class UserMessage {
         this.message = message;
     }
 
+    /**
+     * @return The names of people who like the message. As the likes are a set, the names
+     * are ordered by name instead of the order in which they have been added, and adding a
+     * name, which is contained, does not change the list. Changes of the list change the
+     * likes of the message.
+     */
     public List<String> getLikes() {
-        return likes;
+        return new ClientNameList(false);
     }
 
+    /**
+     * @return The names of people who dislike the message. As the dislikes are a set, the names
+     * are ordered by name instead of the order in which they have been added, and adding a
+     * name, which is contained, does not change the list. Changes of the list change the
+     * dislikes of the message.
+     */
     public List<String> getDislikes() {
-        return dislikes;
+        return new ClientNameList(true);
+    }
+
+    public int getLikeCount() {
+        return likes.size();
+    }
+
+    public int getDislikeCount() {
+        return dislikes.size();
     }
 
     public int getPoints() {
@@ -117,8 +232,140 @@ public class UserMessage {
         points = newPoints;
     }
 
+    /**
+     * @return The reactions of people to the message by name, ordered by name, changes of
+     * the map change the reactions of the message, the sets of reactions are copies.
+     */
     public Map<String, Set<Reaction.Emoji>> getReactions() {
-        return reactions;
+        return new ClientNameMap();
+    }
+
+    /**
+     * Adds a reaction of a person, if the person has not added the same reaction before.
+     *
+     * @param clientName the name of the person
+     * @param reaction   the reaction
+     * @return true if the reaction has been added
+     */
+    public boolean addReaction(String clientName, Reaction.Emoji reaction) {
+        int id = clientNames().intern(clientName);
+        byte mask = reactions.get(id);
+        byte bit = (byte) (1 << reaction.ordinal());
+        if ((mask & bit) != 0) {
+            return false;
+        }
+        setReactions(id, (byte) (mask | bit));
+        return true;
+    }
+
+    /**
+     * @param reaction a reaction
+     * @return The number of people who added the reaction, which takes constant time.
+     */
+    public int getReactionCount(Reaction.Emoji reaction) {
+        return reactionCounts == null ? 0 : reactionCounts[reaction.ordinal()];
+    }
+
+    /**
+     * @return The number of people who added each reaction, indexed by the ordinal of the reaction.
+     */
+    public int[] getReactionCounts() {
+        return reactionCounts == null ? new int[EMOJIS.length] : reactionCounts.clone();
+    }
+
+    /**
+     * Replaces the reactions of a person and updates the numbers of reactions.
+     *
+     * @param id   the ID of the name of the person
+     * @param mask the bitmask of the new reactions, zero removes all reactions of the person
+     * @return The bitmask of the previous reactions.
+     */
+    private byte setReactions(int id, byte mask) {
+        byte previous = reactions.put(id, mask);
+        int changed = (previous ^ mask) & 0xFF;
+        if (changed != 0 && reactionCounts == null) {
+            reactionCounts = new int[EMOJIS.length];
+        }
+        for (; changed != 0; changed &= changed - 1) {
+            int ordinal = Integer.numberOfTrailingZeros(changed);
+            reactionCounts[ordinal] += (mask & (1 << ordinal)) != 0 ? 1 : -1;
+        }
+        return previous;
+    }
+
+    private static Set<Reaction.Emoji> emojisOf(byte mask) {
+        Set<Reaction.Emoji> emojis = EnumSet.noneOf(Reaction.Emoji.class);
+        for (Reaction.Emoji emoji : EMOJIS) {
+            if ((mask & (1 << emoji.ordinal())) != 0) {
+                emojis.add(emoji);
+            }
+        }
+        return emojis;
+    }
+
+    /**
+     * @return A copy of this message with its own likes, dislikes and reactions, used by a
+     * message store to reply with messages and to change a message, which is being written
+     * to a snapshot.
+     */
+    UserMessage copy() {
+        UserMessage copy = new UserMessage(clientNames(), authorId, message, messageId);
+        for (int id : likes.toArray()) {
+            copy.likes.add(id);
+        }
+        for (int id : dislikes.toArray()) {
+            copy.dislikes.add(id);
+        }
+        for (int id : reactions.keys()) {
+            copy.setReactions(id, reactions.get(id));
+        }
+        copy.points = points;
+        return copy;
+    }
+
+    /**
+     * @return The IDs of the names of people who like the message.
+     */
+    int[] getLikeIds() {
+        return likes.toArray();
+    }
+
+    /**
+     * @return The IDs of the names of people who dislike the message.
+     */
+    int[] getDislikeIds() {
+        return dislikes.toArray();
+    }
+
+    void addLikeId(int id) {
+        likes.add(id);
+    }
+
+    void addDislikeId(int id) {
+        dislikes.add(id);
+    }
+
+    /**
+     * @return The IDs of the names of people who reacted to the message.
+     */
+    int[] getReactingIds() {
+        return reactions.keys();
+    }
+
+    /**
+     * @param id the ID of the name of a person
+     * @return The bitmask of the reactions of the person, zero if there are none.
+     */
+    byte getReactionsOf(int id) {
+        return reactions.get(id);
+    }
+
+    /**
+     * @param id   the ID of the name of a person, who has not reacted to the message yet
+     * @param mask the bitmask of the reactions of the person
+     */
+    void addReactionsOf(int id, byte mask) {
+        setReactions(id, mask);
     }
 
     public long getMessageId() {
@@ -128,4 +375,173 @@ public class UserMessage {
     public void setMessageId(long messageId) {
         this.messageId = messageId;
     }
+
+    /**
+     * Map view of the reactions of the message, which maps the names of the people to copies
+     * of their reactions ordered by name. Looking up, adding and removing names and the size
+     * take constant time, the names are only sorted when the entries are accessed.
+     */
+    private class ClientNameMap extends AbstractMap<String, Set<Reaction.Emoji>> {
+        @Override
+        public int size() {
+            return reactions.size();
+        }
+
+        @Override
+        public boolean containsKey(Object name) {
+            return get(name) != null;
+        }
+
+        @Override
+        public Set<Reaction.Emoji> get(Object name) {
+            if (!(name instanceof String)) {
+                return null;
+            }
+            byte mask = reactions.get(clientNames().lookup((String) name));
+            return mask == 0 ? null : emojisOf(mask);
+        }
+
+        /**
+         * Replaces the reactions of a person, an empty set removes the person.
+         */
+        @Override
+        public Set<Reaction.Emoji> put(String name, Set<Reaction.Emoji> emojis) {
+            byte mask = 0;
+            for (Reaction.Emoji emoji : emojis) {
+                mask |= 1 << emoji.ordinal();
+            }
+            byte previous = setReactions(clientNames().intern(name), mask);
+            return previous == 0 ? null : emojisOf(previous);
+        }
+
+        @Override
+        public Set<Reaction.Emoji> remove(Object name) {
+            if (!(name instanceof String)) {
+                return null;
+            }
+            int id = clientNames().lookup((String) name);
+            byte previous = id < 0 ? 0 : setReactions(id, (byte) 0);
+            return previous == 0 ? null : emojisOf(previous);
+        }
+
+        @Override
+        public Set<Entry<String, Set<Reaction.Emoji>>> entrySet() {
+            return new AbstractSet<Entry<String, Set<Reaction.Emoji>>>() {
+                @Override
+                public int size() {
+                    return reactions.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Set<Reaction.Emoji>>> iterator() {
+                    List<Entry<String, Set<Reaction.Emoji>>> entries = new ArrayList<>(reactions.size());
+                    for (int id : reactions.keys()) {
+                        entries.add(new SimpleImmutableEntry<>(clientNames.nameOf(id), emojisOf(reactions.get(id))));
+                    }
+                    entries.sort(Map.Entry.comparingByKey());
+                    Iterator<Entry<String, Set<Reaction.Emoji>>> sorted = entries.iterator();
+                    return new Iterator<Entry<String, Set<Reaction.Emoji>>>() {
+                        private Entry<String, Set<Reaction.Emoji>> current;
+
+                        @Override
+                        public boolean hasNext() {
+                            return sorted.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Set<Reaction.Emoji>> next() {
+                            current = sorted.next();
+                            return current;
+                        }
+
+                        @Override
+                        public void remove() {
+                            ClientNameMap.this.remove(current.getKey());
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * List view of the likes or dislikes of the message containing the names of the clients
+     * ordered by name. Looking up, adding and removing names and the size take constant time,
+     * the names are only sorted when the list is accessed by index, which includes iterating
+     * over it.
+     */
+    private class ClientNameList extends AbstractList<String> {
+        private final boolean dislikesOnly;
+        private String[] sortedNames;
+        private ClientIdSet sortedIds;
+        private int sortedAt;
+
+        ClientNameList(boolean dislikesOnly) {
+            this.dislikesOnly = dislikesOnly;
+        }
+
+        /**
+         * @return The set of the list, which is replaced if the message changes its dictionary.
+         */
+        private ClientIdSet ids() {
+            return dislikesOnly ? dislikes : likes;
+        }
+
+        @Override
+        public int size() {
+            return ids().size();
+        }
+
+        @Override
+        public boolean contains(Object name) {
+            return name instanceof String && ids().contains(clientNames().lookup((String) name));
+        }
+
+        /**
+         * Adds a name, if it is not contained yet.
+         *
+         * @param name a client name
+         * @return true if the name has been added
+         */
+        @Override
+        public boolean add(String name) {
+            return ids().add(clientNames().intern(name));
+        }
+
+        @Override
+        public boolean remove(Object name) {
+            return name instanceof String && ids().remove(clientNames().lookup((String) name));
+        }
+
+        @Override
+        public String get(int index) {
+            ClientIdSet ids = ids();
+            if (sortedNames == null || sortedIds != ids || sortedAt != ids.getModifications()) {
+                int[] clientIds = ids.toArray();
+                sortedNames = new String[clientIds.length];
+                for (int i = 0; i < clientIds.length; i++) {
+                    sortedNames[i] = clientNames.nameOf(clientIds[i]);
+                }
+                Arrays.sort(sortedNames);
+                sortedIds = ids;
+                sortedAt = ids.getModifications();
+            }
+            return sortedNames[index];
+        }
+
+        @Override
+        public String remove(int index) {
+            String name = get(index);
+            remove(name);
+            return name;
+        }
+
+        @Override
+        public void clear() {
+            ClientIdSet ids = ids();
+            for (int id : ids.toArray()) {
+                ids.remove(id);
+            }
+        }
+    }
 }
@@ -2,7 +2,7 @@ package at.tugraz.ist.qs2024.messageboard;
 
 import at.tugraz.ist.qs2024.actorsystem.Message;
 import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
-import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem;
+import at.tugraz.ist.qs2024.actorsystem.ISimulatedActorSystem;
 import at.tugraz.ist.qs2024.messageboard.clientmessages.*;
 import at.tugraz.ist.qs2024.messageboard.dispatchermessages.Stop;
 import at.tugraz.ist.qs2024.messageboard.dispatchermessages.StopAck;
@@ -13,9 +13,9 @@ import java.util.Map;
 
 public class Worker extends SimulatedActor {
     /**
-     * actor responsible for persistence-related tasks
+     * shards of the message store, the actors responsible for persistence-related tasks
      */
-    private final SimulatedActor messageStore;
+    private final MessageStoreRouter messageStores;
 
     /**
      * the maximum allowed length of a message
@@ -36,13 +36,28 @@ public class Worker extends SimulatedActor {
     /**
      * system used to spawn actors
      */
-    private final SimulatedActorSystem system;
+    private final ISimulatedActorSystem system;
+
+    /**
+     * idle worker helpers, which are reused for new requests
+     */
+    private final WorkerHelperPool helpers;
+
+    /**
+     * reports and bans shared by the shards of the message store, null if they are unknown
+     */
+    private final ReportRegistry reports;
 
     /**
      * flag which is set if the worker is about to be stopped
      */
     private boolean stopping;
 
+    /**
+     * load published after the last tick of this worker, see {@link Worker#getLoad()}
+     */
+    private volatile PublishedLoad publishedLoad = PublishedLoad.NONE;
+
     /**
      * Constructs a new Worker object
      *
@@ -50,14 +65,78 @@ public class Worker extends SimulatedActor {
      * @param messageStore the message store responsible for persistence
      * @param system       the actor system simulation
      */
-    public Worker(SimulatedActor dispatcher, SimulatedActor messageStore, SimulatedActorSystem system) {
+    public Worker(SimulatedActor dispatcher, SimulatedActor messageStore, ISimulatedActorSystem system) {
+        this(dispatcher, new MessageStoreRouter(messageStore), system);
+    }
+
+    /**
+     * Constructs a new Worker object, which sends messages to the shards of a partitioned message store
+     *
+     * @param dispatcher    the dispatcher
+     * @param messageStores the shards of the message store responsible for persistence
+     * @param system        the actor system simulation
+     */
+    public Worker(SimulatedActor dispatcher, MessageStoreRouter messageStores, ISimulatedActorSystem system) {
         this.dispatcher = dispatcher;
-        this.messageStore = messageStore;
+        this.messageStores = messageStores;
         this.ongoingCommunications = new HashMap<>();
         this.system = system;
+        this.helpers = new WorkerHelperPool(messageStores, system);
+        this.reports = messageStores.getReportRegistry();
         this.stopping = false;
     }
 
+    /**
+     * Returns the load published after the last tick of this worker before the current time unit,
+     * so that it does not depend on whether the worker has already been ticked in the current
+     * time unit, e.g. by a {@link at.tugraz.ist.qs2024.actorsystem.ParallelSimulatedActorSystem}.
+     *
+     * @return The number of messages sent to this worker, which have not been processed yet,
+     * plus the number of ongoing communications, used by load-aware routing strategies.
+     */
+    public int getLoad() {
+        return publishedLoad.before(system.getCurrentTime()).load;
+    }
+
+    /**
+     * Tells whether the load published before the current time unit is zero and has been published
+     * in the given time unit or later, so that it contains the messages sent to this worker by actors
+     * with smaller IDs, e.g. by its dispatcher, in that time unit.
+     *
+     * @param time a time unit in which a message has been sent to the worker, -1 if none has been sent
+     * @return true if the worker has no messages to process and no ongoing communications
+     */
+    boolean isIdleSince(int time) {
+        PublishedLoad load = publishedLoad.before(system.getCurrentTime());
+        return load.load == 0 && load.publishedAt >= time;
+    }
+
+    /**
+     * @return The number of requests to the message store answered or failed by the helpers of this
+     * worker before the current time unit.
+     */
+    public long getCompletedRequests() {
+        return helpers.getCompletedRequests();
+    }
+
+    /**
+     * @return The sum of the time units the helpers of this worker needed to answer or fail the requests
+     * before the current time unit.
+     */
+    public long getTotalRequestLatency() {
+        return helpers.getTotalLatency();
+    }
+
+    /**
+     * Publishes the load of this worker, which is read by the dispatcher in later time units.
+     */
+    @Override
+    protected void afterTick() {
+        int load = channel.getMessagesInTransit() + messageBox.size() + (isProcessingMessage() ? 1 : 0)
+                + ongoingCommunications.size();
+        publishedLoad = publishedLoad.with(load, system.getCurrentTime());
+    }
+
     /**
      * Receive method which chooses the actions to perform depending on the message type.
      * Accepts the Stop message from the dispatcher and all ClientMessage messages except
@@ -96,6 +175,8 @@ public class Worker extends SimulatedActor {
             processDeleteLikeOrDislike(message);
         } else if (message instanceof Reaction) {
             processReaction(message);
+        } else if (message instanceof RetrieveReactionCounts) {
+            processRetrieveReactionCounts(message);
         } else if (message instanceof Report) {
             processReport(message);
         } else if (message instanceof SearchMessages) {
@@ -139,20 +220,25 @@ public class Worker extends SimulatedActor {
             throw new UnknownClientException("Unknown communication ID");
         SimulatedActor client = ongoingCommunications.get(finC.communicationId);
         ongoingCommunications.remove(finC.communicationId);
+        helpers.forgetWrites(finC.communicationId);
         client.tell(new FinishAck(finC.communicationId));
     }
 
     /**
-     * Changes into stopping mode and acknowledges stopping to the dispatcher.
+     * Changes into stopping mode, stops the idle worker helpers and acknowledges
+     * stopping to the dispatcher.
      */
     private void processStop() {
+        helpers.close();
         dispatcher.tell(new StopAck(this));
         stopping = true;
     }
 
     /**
-     * Spawns a worker helper which communicates with the message store to retrieve
+     * Lets a worker helper communicate with the message store to retrieve
      * messages of the author given in the message passed as parameter.
+     * If a page size is given, only a page of the messages is retrieved,
+     * a negative page size fails.
      *
      * @param message non-null message of type RetrieveMessages
      * @throws UnknownClientException thrown if communication id of message is unknown
@@ -163,13 +249,17 @@ public class Worker extends SimulatedActor {
             throw new UnknownClientException("Unknown communication ID");
         SimulatedActor client = ongoingCommunications.get(retrMessages.communicationId);
 
-        MessageStoreMessage retrievedMessages = new RetrieveFromStore(retrMessages.author, retrMessages.communicationId);
-        WorkerHelper helper = new WorkerHelper(messageStore, client, retrievedMessages, system);
-        system.spawn(helper);
+        if (retrMessages.pageSize < 0) {
+            client.tell(new OperationFailed(retrMessages.communicationId));
+            return;
+        }
+        MessageStoreMessage retrievedMessages = new RetrieveFromStore(retrMessages.author, retrMessages.communicationId,
+                retrMessages.pageSize, retrMessages.cursor);
+        helpers.submit(client, retrievedMessages);
     }
 
     /**
-     * Spawns a worker helper which communicates with the message store to add a like
+     * Lets a worker helper communicate with the message store to add a like
      * to a user message given in the message passed as parameter.
      *
      * @param message non-null message of type Like
@@ -181,13 +271,12 @@ public class Worker extends SimulatedActor {
             throw new UnknownClientException("Unknown communication ID");
         SimulatedActor client = ongoingCommunications.get(like.communicationId);
         MessageStoreMessage retrievedMessages = new AddLike(like.clientName, like.messageId, like.communicationId);
-        WorkerHelper helper = new WorkerHelper(messageStore, client, retrievedMessages, system);
-        system.spawn(helper);
+        submitUnlessBanned(client, retrievedMessages, like.clientName);
     }
 
     /**
      * message non-null message of type Dislike
-     * Spawns a worker helper which communicates with the message store to add a dislike
+     * Lets a worker helper communicate with the message store to add a dislike
      * to a user message given in the message passed as parameter.
      *
      * @param message The dislike message
@@ -200,12 +289,11 @@ public class Worker extends SimulatedActor {
         SimulatedActor client = ongoingCommunications.get(dislike.communicationId);
         MessageStoreMessage retrievedMessages =
                 new AddDislike(dislike.clientName, dislike.messageId, dislike.communicationId);
-        WorkerHelper helper = new WorkerHelper(messageStore, client, retrievedMessages, system);
-        system.spawn(helper);
+        submitUnlessBanned(client, retrievedMessages, dislike.clientName);
     }
 
     /**
-     * Spawns a worker helper which communicates with the message store to delete a like or dislike
+     * Lets a worker helper communicate with the message store to delete a like or dislike
      * to a user message given in the message passed as parameter.
      *
      * @param message The dislike message
@@ -219,12 +307,11 @@ public class Worker extends SimulatedActor {
         MessageStoreMessage retrievedMessages =
                 new DeleteLikeOrDislike(deleteLikeOrDislike.clientName, deleteLikeOrDislike.communicationId,
                         deleteLikeOrDislike.messageId, deleteLikeOrDislike.typeToDelete);
-        WorkerHelper helper = new WorkerHelper(messageStore, client, retrievedMessages, system);
-        system.spawn(helper);
+        submitUnlessBanned(client, retrievedMessages, deleteLikeOrDislike.clientName);
     }
 
     /**
-     * Spawns a worker helper which communicates with the message store to add a reaction
+     * Lets a worker helper communicate with the message store to add a reaction
      * to a user message given in the message passed as parameter.
      *
      * @param message non-null message of type Reaction
@@ -237,13 +324,28 @@ public class Worker extends SimulatedActor {
         SimulatedActor client = ongoingCommunications.get(reaction.communicationId);
         MessageStoreMessage retrievedMessages = new AddReaction(reaction.clientName, reaction.messageId,
                 reaction.communicationId, reaction.reaction);
-        WorkerHelper helper = new WorkerHelper(messageStore, client, retrievedMessages, system);
-        system.spawn(helper);
+        submitUnlessBanned(client, retrievedMessages, reaction.clientName);
+    }
+
+    /**
+     * Lets a worker helper retrieve the number of reactions of each kind
+     * to a user message given in the message passed as parameter.
+     *
+     * @param message non-null message of type RetrieveReactionCounts
+     * @throws UnknownClientException thrown if communication id of message is unknown
+     */
+    private void processRetrieveReactionCounts(Message message) throws UnknownClientException {
+        RetrieveReactionCounts retrieve = (RetrieveReactionCounts) message;
+        if (!ongoingCommunications.containsKey(retrieve.communicationId))
+            throw new UnknownClientException("Unknown communication ID");
+        SimulatedActor client = ongoingCommunications.get(retrieve.communicationId);
+        MessageStoreMessage retrievedCounts = new RetrieveReactionCountsFromStore(retrieve.messageId, retrieve.communicationId);
+        helpers.submit(client, retrievedCounts);
     }
 
     /**
      * Performs checks on a user message, which should be published. If the
-     * checks are passed, a worker helper is spawned, which communicates with
+     * checks are passed, a worker helper communicates with
      * the message store to store the new user message.
      * New messages must have zero likes, must not have a message ID assigned
      * and must not be (strictly) longer than 10 characters.
@@ -257,18 +359,17 @@ public class Worker extends SimulatedActor {
             throw new UnknownClientException("Unknown communication ID");
         SimulatedActor client = ongoingCommunications.get(publish.communicationId);
         UserMessage userMessage = publish.message;
-        if (userMessage.getLikes().size() > 0 || userMessage.getDislikes().size() > 0 ||
+        if (userMessage.getLikeCount() > 0 || userMessage.getDislikeCount() > 0 ||
                 userMessage.getMessageId() != UserMessage.NEW_ID || userMessage.getMessage().length() > MAX_MESSAGE_LENGTH) {
             client.tell(new OperationFailed(publish.communicationId));
         } else {
             MessageStoreMessage updatedMessages = new UpdateMessageStore(userMessage, publish.communicationId);
-            WorkerHelper helper = new WorkerHelper(messageStore, client, updatedMessages, system);
-            system.spawn(helper);
+            submitUnlessBanned(client, updatedMessages, userMessage.getAuthor());
         }
     }
 
     /**
-     * Spawns a worker helper which communicates with the message store to add a report
+     * Lets a worker helper communicate with the message store to add a report
      * to a user passed as parameter.
      *
      * @param message non-null message of type Report
@@ -280,13 +381,14 @@ public class Worker extends SimulatedActor {
             throw new UnknownClientException("Unknown communication ID");
         SimulatedActor client = ongoingCommunications.get(report.communicationId);
         MessageStoreMessage reportedMessage = new AddReport(report.clientName, report.communicationId, report.reportedClientName);
-        WorkerHelper helper = new WorkerHelper(messageStore, client, reportedMessage, system);
-        system.spawn(helper);
+        submitUnlessBanned(client, reportedMessage, report.clientName);
     }
 
     /**
-     * Spawns a worker helper which communicates with the message store to search
+     * Lets a worker helper communicate with the message store to search
      * messages of the given search query for author or text.
+     * If a page size is given, only a page of the messages is searched,
+     * a negative page size fails.
      *
      * @param message non-null message of type SearchMessages
      * @throws UnknownClientException thrown if communication id of message is unknown
@@ -297,13 +399,17 @@ public class Worker extends SimulatedActor {
             throw new UnknownClientException("Unknown communication ID");
         SimulatedActor client = ongoingCommunications.get(searchMessage.communicationId);
 
-        MessageStoreMessage searchResults = new SearchInStore(searchMessage.searchText, searchMessage.communicationId);
-        WorkerHelper helper = new WorkerHelper(messageStore, client, searchResults, system);
-        system.spawn(helper);
+        if (searchMessage.pageSize < 0) {
+            client.tell(new OperationFailed(searchMessage.communicationId));
+            return;
+        }
+        MessageStoreMessage searchResults = new SearchInStore(searchMessage.searchText, searchMessage.communicationId,
+                searchMessage.pageSize, searchMessage.cursor);
+        helpers.submit(client, searchResults);
     }
 
     /**
-     *  Spawns a worker helper which communicates with the message store to edit
+     *  Lets a worker helper communicate with the message store to edit
      *  a user message, whose id is passed as parameter.
      *
      * @param message non-null message of type Edit
@@ -319,14 +425,13 @@ public class Worker extends SimulatedActor {
         } else {
             MessageStoreMessage editedMessage =
                     new EditMessage(edit.messageId, edit.clientName, edit.newMessage, edit.communicationId);
-            WorkerHelper helper = new WorkerHelper(messageStore, client, editedMessage, system);
-            system.spawn(helper);
+            submitUnlessBanned(client, editedMessage, edit.clientName);
         }
     }
 
 
     /**
-     * Spawns a worker helper which communicates with the message store to delete the user message
+     * Lets a worker helper communicate with the message store to delete the user message
      * given in the message passed as parameter.
      *
      * @param message non-null message of type Delete
@@ -338,7 +443,70 @@ public class Worker extends SimulatedActor {
             throw new UnknownClientException("Unknown communication ID");
         SimulatedActor client = ongoingCommunications.get(delete.communicationId);
         MessageStoreMessage deleteMessage = new DeleteMessage(delete.clientName, delete.messageId, delete.communicationId);
-        WorkerHelper helper = new WorkerHelper(messageStore, client, deleteMessage, system);
-        system.spawn(helper);
+        submitUnlessBanned(client, deleteMessage, delete.clientName);
+    }
+
+    /**
+     * Lets a worker helper send a write to the message store, unless the client
+     * performing it is banned, then UserBanned is sent back to the client at once, as the
+     * message store would reply. Only bans of earlier time units are known (see
+     * {@link ReportRegistry#getBannedClients(int)}), later bans are still checked by the store.
+     *
+     * @param client     client to which the reply is sent
+     * @param message    the write to be sent to the message store
+     * @param clientName the name of the client performing the write
+     */
+    private void submitUnlessBanned(SimulatedActor client, MessageStoreMessage message, String clientName) {
+        if (reports != null && reports.getBannedClients(getTimeSinceSystemStart()).contains(clientName)) {
+            client.tell(new UserBanned(message.communicationId));
+        } else {
+            helpers.submit(client, message);
+        }
+    }
+
+    /**
+     * Load of a worker published in a time unit and the latest load published in an earlier time unit.
+     */
+    private static final class PublishedLoad {
+        private static final PublishedLoad NONE = new PublishedLoad(0, -1, null);
+
+        private final int load;
+        private final int publishedAt;
+
+        /**
+         * The latest load published in an earlier time unit, null if there is none or if this load
+         * is itself the earlier load of another load
+         */
+        private final PublishedLoad earlier;
+
+        private PublishedLoad(int load, int publishedAt, PublishedLoad earlier) {
+            this.load = load;
+            this.publishedAt = publishedAt;
+            this.earlier = earlier;
+        }
+
+        /**
+         * @param load        the load to be published
+         * @param publishedAt the current time unit
+         * @return The published load replacing this one.
+         */
+        PublishedLoad with(int load, int publishedAt) {
+            PublishedLoad latest = before(publishedAt);
+            if (latest.earlier != null) {
+                latest = new PublishedLoad(latest.load, latest.publishedAt, null);
+            }
+            return new PublishedLoad(load, publishedAt, latest);
+        }
+
+        /**
+         * @param time a time unit
+         * @return The latest load published before the time unit.
+         */
+        PublishedLoad before(int time) {
+            if (publishedAt < time) {
+                return this;
+            }
+            return earlier == null ? NONE : earlier;
+        }
     }
 }
@@ -1,11 +1,20 @@
 package at.tugraz.ist.qs2024.messageboard;
 
-import at.tugraz.ist.qs2024.actorsystem.DeterministicChannel;
 import at.tugraz.ist.qs2024.actorsystem.Message;
 import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
-import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem;
+import at.tugraz.ist.qs2024.actorsystem.ISimulatedActorSystem;
+import at.tugraz.ist.qs2024.actorsystem.TimingWheelChannel;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.FoundMessages;
 import at.tugraz.ist.qs2024.messageboard.clientmessages.OperationFailed;
 import at.tugraz.ist.qs2024.messageboard.messagestoremessages.MessageStoreMessage;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.ShardSearchResult;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.SequencedReply;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.StoreOverloaded;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.StoreQuery;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Helper which should only send one message to the message store
@@ -15,6 +24,10 @@ import at.tugraz.ist.qs2024.messageboard.messagestoremessages.MessageStoreMessag
  * this actor will resend messages, if it does not receive a response
  * for a predefined amount of time.
  * <p>
+ * If the message store is partitioned into shards, the message is sent to the shard
+ * responsible for it, searches are sent to all shards and the results are gathered,
+ * resending only to the shards which have not responded yet.
+ * <p>
  * Such simple actors are common in programs using the actor model.
  */
 public class WorkerHelper extends SimulatedActor {
@@ -24,9 +37,41 @@ public class WorkerHelper extends SimulatedActor {
     protected MessageStoreMessage message;
 
     /**
-     * The message store actor
+     * The shards of the message store
      */
-    private final SimulatedActor messageStore;
+    private final MessageStoreRouter messageStores;
+
+    /**
+     * Shards which have responded to a scattered message, null if the message is sent to a single shard
+     */
+    private boolean[] responded;
+
+    /**
+     * Number of shards, which have not responded to a scattered message yet
+     */
+    private int missingResponses;
+
+    /**
+     * Number of shards, which have answered a scattered message with results or by signalling
+     * that they are overloaded, since it has been sent the first time
+     */
+    private int answers;
+
+    /**
+     * Results gathered from the shards, which have responded to a scattered search
+     */
+    private List<UserMessage> gathered;
+
+    /**
+     * Used to mark that a shard has further results than the requested page of a scattered search
+     */
+    private boolean gatheredPartially;
+
+    /**
+     * Used to mark that a scattered message has been resent after backing off, which might
+     * have reached shards that had not been overloaded, so that further responses might arrive
+     */
+    private boolean resentScattered;
 
     /**
      * The client to which the response should be forwarded
@@ -36,7 +81,7 @@ public class WorkerHelper extends SimulatedActor {
     /**
      * The actor system which is used for stopping after forwarding the response
      */
-    private final SimulatedActorSystem system;
+    private final ISimulatedActorSystem system;
 
     /**
      * Counts the number of ticks since the message was sent to the message store
@@ -58,6 +103,55 @@ public class WorkerHelper extends SimulatedActor {
      */
     private final int MAX_RETRIES = 2;
 
+    /**
+     * Count how often the message store signalled that it is overloaded
+     */
+    private int backoffs;
+
+    /**
+     * Maximum number of resends after the message store signalled that it is overloaded
+     */
+    private final int MAX_BACKOFFS = 4;
+
+    /**
+     * Used to mark that the next resend is due to backing off, which does not count as retry,
+     * because the message has not been lost but rejected by the message store
+     */
+    private boolean backingOff;
+
+    /**
+     * Number of ticks without response after which the message is resent
+     */
+    private final int RESEND_TIMEOUT = 3;
+
+    /**
+     * The pool to which the helper returns after forwarding the response, null if the helper stops itself
+     */
+    private final WorkerHelperPool pool;
+
+    /**
+     * Used to mark that the helper has been reused and the system has not yet advanced its time
+     * by the time units it was idle, which must not count as time units without response.
+     * It is cleared by the next tick, as the time of a helper, which has been ready all the
+     * time, is not advanced at all.
+     */
+    private boolean catchingUp;
+
+    /**
+     * Time unit in which the helper has been reused, a new helper would not be ticked in this time unit
+     */
+    private int reusedAt;
+
+    /**
+     * Time unit in which the message has been sent to the message store the first time
+     */
+    private int sentAt;
+
+    /**
+     * Number of ticks the helper backs off per retry if the message store is overloaded
+     */
+    private final int BACKOFF_TICKS = 4;
+
     /**
      * Constructs a new WorkerHelper object.
      *
@@ -66,18 +160,38 @@ public class WorkerHelper extends SimulatedActor {
      * @param message      the message to be sent to the message store
      * @param system       actor system used to stop the helper
      */
-    public WorkerHelper(SimulatedActor messageStore, SimulatedActor client, MessageStoreMessage message, SimulatedActorSystem system) {
+    public WorkerHelper(SimulatedActor messageStore, SimulatedActor client, MessageStoreMessage message, ISimulatedActorSystem system) {
+        this(new MessageStoreRouter(messageStore), client, message, system, null);
+    }
+
+    /**
+     * Constructs a new WorkerHelper object, which returns to a pool after forwarding the response.
+     *
+     * @param messageStores shards of the message store which receive messages from helper
+     * @param client        client to which the message from the store gets forwarded
+     * @param message       the message to be sent to the message store
+     * @param system        actor system used to stop the helper
+     * @param pool          pool to which the helper returns, null if the helper stops itself
+     */
+    WorkerHelper(MessageStoreRouter messageStores, SimulatedActor client, MessageStoreMessage message, ISimulatedActorSystem system,
+                 WorkerHelperPool pool) {
+        this.pool = pool;
+        this.catchingUp = false;
+        this.reusedAt = -1;
         this.message = message;
         this.message.storeClient = this;
-        this.messageStore = messageStore;
+        this.messageStores = messageStores;
         this.client = client;
         this.system = system;
         this.timeSinceLastSent = 0;
         this.stopping = false;
         this.retries = 0;
+        this.backoffs = 0;
+        this.backingOff = false;
+        prepareGathering();
 
         // good connection between WorkerHelper and MessageStore -> no delay
-        this.channel = new DeterministicChannel(0);
+        this.channel = new TimingWheelChannel(0);
     }
 
     /**
@@ -85,21 +199,106 @@ public class WorkerHelper extends SimulatedActor {
      */
     @Override
     public void atStartUp() {
-        messageStore.tell(message);
+        sentAt = system.getCurrentTime();
+        send();
         timeSinceLastSent = 0;
     }
 
     /**
      * We assume that the helper only receives reply messages from the message store,
-     * which it must forward to clients.
+     * which it must forward to clients. If the message store signals that it is overloaded,
+     * the message is resent after backing off, the longer the more often it has been rejected.
+     * If it has been rejected too often, the request fails.
+     * Results of a scattered search are gathered until all shards have responded and then
+     * forwarded as one FoundMessages message, ordered by message ID and limited to the
+     * requested page size. Replies to writes of
+     * a store with followers are unwrapped and their sequence numbers recorded in the pool.
      *
      * @param message Non-null message received
      */
     @Override
     public void receive(Message message) {
+        if (message instanceof SequencedReply) {
+            // reply of a store with followers, the write is recorded for later queries of the communication
+            SequencedReply sequenced = (SequencedReply) message;
+            if (pool != null) {
+                pool.recordWrite(sequenced.communicationId, sequenced.shard, sequenced.sequenceNumber);
+            }
+            message = sequenced.reply;
+        }
+        if (message instanceof StoreOverloaded && responded != null) {
+            answers++;
+        }
+        if (message instanceof ShardSearchResult && responded != null) {
+            ShardSearchResult result = (ShardSearchResult) message;
+            if (responded[result.shard]) {
+                // response to a resent search
+                return;
+            }
+            responded[result.shard] = true;
+            answers++;
+            gathered.addAll(result.messages);
+            gatheredPartially |= result.nextCursor != FoundMessages.NO_CURSOR;
+            if (--missingResponses > 0) {
+                // the shards have not been lost, so the timeout starts again
+                timeSinceLastSent = 0;
+                return;
+            }
+            gathered.sort(Comparator.comparingLong(UserMessage::getMessageId));
+            // the page consists of the first results of all shards, as every shard sent its first results
+            int pageSize = ((StoreQuery) this.message).pageSize;
+            long nextCursor = FoundMessages.NO_CURSOR;
+            if (pageSize > 0 && (gatheredPartially || gathered.size() > pageSize)) {
+                gathered = new ArrayList<>(gathered.subList(0, Math.min(pageSize, gathered.size())));
+                nextCursor = gathered.get(gathered.size() - 1).getMessageId();
+            }
+            message = new FoundMessages(gathered, result.communicationId, nextCursor);
+        } else if (message instanceof StoreOverloaded && backoffs < MAX_BACKOFFS) {
+            // resend once the backoff has passed instead of waiting for the resend timeout,
+            // the backoff is spread by the ID, so that rejected helpers do not resend at once
+            backoffs++;
+            int backoff = BACKOFF_TICKS * backoffs;
+            timeSinceLastSent = RESEND_TIMEOUT - backoff - (int) (getId() % backoff);
+            backingOff = true;
+            return;
+        } else if (message instanceof StoreOverloaded) {
+            message = new OperationFailed(((StoreOverloaded) message).communicationId);
+        }
         client.tell(message);
-        system.stop(this);
+        recordLatency();
         stopping = true; // mark as stopping,
+        // only helpers which did not resend and whose scattered message has been answered by all
+        // shards can be reused, otherwise further responses might arrive and be taken for responses
+        // to the next message
+        if (pool != null && retries == 0 && !resentScattered && (responded == null || answers == responded.length)) {
+            pool.release(this);
+        } else {
+            system.stop(this);
+        }
+    }
+
+    /**
+     * Reuses this idle helper to send another message to the message store,
+     * as if a new helper had been spawned.
+     *
+     * @param client  client to which the message from the store gets forwarded
+     * @param message the message to be sent to the message store
+     */
+    void reuse(SimulatedActor client, MessageStoreMessage message) {
+        this.message = message;
+        this.message.storeClient = this;
+        this.client = client;
+        this.timeSinceLastSent = 0;
+        this.stopping = false;
+        this.retries = 0;
+        this.backoffs = 0;
+        this.backingOff = false;
+        this.catchingUp = true;
+        this.reusedAt = system.getCurrentTime();
+        this.sentAt = reusedAt;
+        prepareGathering();
+        wakeUp();
+        send();
     }
 
     /**
@@ -110,16 +309,91 @@ public class WorkerHelper extends SimulatedActor {
     @Override
     public void tick() throws UnknownClientException, UnknownMessageException {
         super.tick();
+        // the system advances the time of a reused helper before ticking it, if it was idle at all
+        catchingUp = false;
+        if (reusedAt == system.getCurrentTime()) {
+            // the time unit in which the helper is reused does not count, as for a newly spawned helper
+            return;
+        }
         // as all workers share one MessageStore instance, it might happen that messages are dropped
-        if (!stopping && timeSinceLastSent++ >= 3) {
-            if (retries == MAX_RETRIES) {
+        if (!stopping && timeSinceLastSent++ >= RESEND_TIMEOUT) {
+            if (backingOff) {
+                resentScattered = responded != null;
+                send();
+                timeSinceLastSent = 0;
+                backingOff = false;
+            } else if (retries == MAX_RETRIES) {
                 client.tell(new OperationFailed(message.communicationId));
+                recordLatency();
                 system.stop(this);
             } else {
-                messageStore.tell(message);
+                send();
                 timeSinceLastSent = 0;
                 retries++;
             }
         }
     }
+
+    /**
+     * Sends the message to the shard responsible for it, or to all shards
+     * which have not responded yet if it is scattered. Queries are sent to
+     * followers of the shards if there are any.
+     */
+    private void send() {
+        if (responded == null) {
+            messageStores.route(message).tell(message);
+            return;
+        }
+        for (int i = 0; i < responded.length; i++) {
+            if (!responded[i]) {
+                messageStores.route(message, i).tell(message);
+            }
+        }
+    }
+
+    private void prepareGathering() {
+        resentScattered = false;
+        answers = 0;
+        if (messageStores.isScattered(message)) {
+            responded = new boolean[messageStores.getNumberOfShards()];
+            missingResponses = responded.length;
+            gathered = new ArrayList<>();
+            gatheredPartially = false;
+        } else {
+            responded = null;
+            gathered = null;
+        }
+    }
+
+    /**
+     * Records the time units passed since the message was sent the first time in the pool.
+     */
+    private void recordLatency() {
+        if (pool != null) {
+            pool.recordLatency(system.getCurrentTime() - sentAt);
+        }
+    }
+
+    /**
+     * Overridden getIdleTicks()-method, which takes into account that
+     * the message is resent after some time units without response.
+     */
+    @Override
+    public int getIdleTicks() {
+        int idleTicks = super.getIdleTicks();
+        if (!stopping) {
+            idleTicks = Math.min(idleTicks, Math.max(0, RESEND_TIMEOUT - timeSinceLastSent));
+        }
+        return idleTicks;
+    }
+
+    @Override
+    public void skipTicks(int ticks) {
+        super.skipTicks(ticks);
+        if (catchingUp) {
+            catchingUp = false;
+        } else if (!stopping) {
+            timeSinceLastSent += ticks;
+        }
+    }
 }
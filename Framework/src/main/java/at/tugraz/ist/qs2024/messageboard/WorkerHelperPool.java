@@ -0,0 +1,227 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.actorsystem.ISimulatedActorSystem;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.MessageStoreMessage;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.StoreQuery;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Pool of idle worker helpers of a worker. Instead of spawning a new helper for
+ * every request and stopping it after it forwarded the response, helpers are
+ * returned to the pool and reused for later requests, so they keep their IDs
+ * and channels and the system does not have to spawn and stop actors.
+ * <p>
+ * A helper released during a time unit is reused at the earliest in the next
+ * time unit and idle helpers are reused ordered by their release time and ID,
+ * so that the helper chosen does not depend on the order in which actors are
+ * ticked, e.g. by a {@link at.tugraz.ist.qs2024.actorsystem.ParallelSimulatedActorSystem}.
+ * For the same reason the numbers of completed requests and their latencies are read as
+ * they were before the current time unit.
+ * <p>
+ * If the message store has followers, the pool keeps the sequence numbers of the latest
+ * acknowledged writes of every communication and sets the consistency requirements of
+ * queries before they are sent (see {@link ReadConsistency}). As the helpers are spawned after
+ * their worker, the writes they record are only read by the worker in later time units.
+ */
+class WorkerHelperPool {
+
+    /**
+     * Idle helpers, ordered by the time they have been released and their IDs.
+     */
+    private final PriorityQueue<IdleHelper> idleHelpers = new PriorityQueue<>(
+            Comparator.comparingInt((IdleHelper idle) -> idle.releasedAt).thenComparingLong(idle -> idle.helper.getId()));
+
+    private final MessageStoreRouter messageStores;
+
+    private final ISimulatedActorSystem system;
+
+    /**
+     * Set if the worker is stopping, helpers released afterwards are stopped.
+     */
+    private boolean closed = false;
+
+    /**
+     * Number of requests answered or failed by the helpers of this pool.
+     */
+    private long completedRequests = 0;
+
+    /**
+     * Sum of the time units the helpers needed to answer or fail the requests.
+     */
+    private long totalLatency = 0;
+
+    /**
+     * Time unit in which the last request has been completed.
+     */
+    private int completedAt = -1;
+
+    /**
+     * Number of requests completed before the time unit <c>completedAt</c>.
+     */
+    private long completedRequestsBefore = 0;
+
+    /**
+     * Sum of the latencies of the requests completed before the time unit <c>completedAt</c>.
+     */
+    private long totalLatencyBefore = 0;
+
+    /**
+     * Sequence numbers of the latest acknowledged writes indexed by shard, the key
+     * of the dictionary corresponds to the communication ID of the writes.
+     */
+    private final Map<Long, long[]> writeSequenceNumbers = new HashMap<>();
+
+    /**
+     * Constructs a new WorkerHelperPool object
+     *
+     * @param messageStores the shards of the message store to which the helpers send messages
+     * @param system        the actor system used to spawn and stop helpers
+     */
+    WorkerHelperPool(MessageStoreRouter messageStores, ISimulatedActorSystem system) {
+        this.messageStores = messageStores;
+        this.system = system;
+    }
+
+    /**
+     * Sends a message to the message store using an idle helper, or a newly spawned
+     * helper if no helper is idle, which forwards the response to the client.
+     *
+     * @param client  the client to which the response is forwarded
+     * @param message the message to be sent to the message store
+     */
+    void submit(SimulatedActor client, MessageStoreMessage message) {
+        if (message instanceof StoreQuery && messageStores.getReadConsistency() != null) {
+            messageStores.getReadConsistency().apply((StoreQuery) message, getWriteSequenceNumbers(message.communicationId));
+        }
+        WorkerHelper helper = acquire();
+        if (helper != null) {
+            // the idle helper has been spawned after the worker and is ticked one after the other,
+            // so it is only ticked after the worker, also if the worker is ticked in parallel
+            helper.reuse(client, message);
+        } else {
+            system.spawn(new WorkerHelper(messageStores, client, message, system, this));
+        }
+    }
+
+    /**
+     * Returns a helper, which has forwarded the response, to the pool.
+     *
+     * @param helper the helper, which is idle now
+     */
+    void release(WorkerHelper helper) {
+        boolean stop;
+        synchronized (this) {
+            stop = closed;
+            if (!closed) {
+                idleHelpers.add(new IdleHelper(helper, system.getCurrentTime()));
+            }
+        }
+        if (stop) {
+            system.stop(helper);
+        }
+    }
+
+    /**
+     * Stops all idle helpers, helpers released afterwards are stopped immediately.
+     */
+    void close() {
+        IdleHelper[] stopped;
+        synchronized (this) {
+            closed = true;
+            stopped = idleHelpers.toArray(new IdleHelper[0]);
+            idleHelpers.clear();
+        }
+        for (IdleHelper idle : stopped) {
+            system.stop(idle.helper);
+        }
+    }
+
+    /**
+     * Records the number of time units a helper needed to answer or fail a request.
+     *
+     * @param latency time units since the request has been sent to the message store
+     */
+    synchronized void recordLatency(int latency) {
+        int now = system.getCurrentTime();
+        if (completedAt < now) {
+            completedRequestsBefore = completedRequests;
+            totalLatencyBefore = totalLatency;
+            completedAt = now;
+        }
+        completedRequests++;
+        totalLatency += latency;
+    }
+
+    /**
+     * @return The number of requests answered or failed by the helpers of this pool before the current time unit.
+     */
+    synchronized long getCompletedRequests() {
+        return completedAt < system.getCurrentTime() ? completedRequests : completedRequestsBefore;
+    }
+
+    /**
+     * @return The sum of the time units the helpers needed to answer or fail the requests before the current time unit.
+     */
+    synchronized long getTotalLatency() {
+        return completedAt < system.getCurrentTime() ? totalLatency : totalLatencyBefore;
+    }
+
+    /**
+     * Records an acknowledged write of a communication to a store with followers.
+     *
+     * @param communicationId the communication ID of the write
+     * @param shard           the index of the shard, which applied the write
+     * @param sequenceNumber  the sequence number of the write
+     */
+    synchronized void recordWrite(long communicationId, int shard, long sequenceNumber) {
+        long[] sequenceNumbers = writeSequenceNumbers.computeIfAbsent(communicationId,
+                id -> new long[messageStores.getNumberOfShards()]);
+        sequenceNumbers[shard] = Math.max(sequenceNumbers[shard], sequenceNumber);
+    }
+
+    /**
+     * @param communicationId the ID of a communication
+     * @return A copy of the sequence numbers of the latest acknowledged writes of the
+     * communication indexed by shard, null if there are none.
+     */
+    private synchronized long[] getWriteSequenceNumbers(long communicationId) {
+        long[] sequenceNumbers = writeSequenceNumbers.get(communicationId);
+        return sequenceNumbers == null ? null : sequenceNumbers.clone();
+    }
+
+    /**
+     * Forgets the writes of a finished communication.
+     *
+     * @param communicationId the ID of the communication
+     */
+    synchronized void forgetWrites(long communicationId) {
+        writeSequenceNumbers.remove(communicationId);
+    }
+
+    /**
+     * @return A helper released before the current time unit, null if there is none.
+     */
+    private synchronized WorkerHelper acquire() {
+        IdleHelper idle = idleHelpers.peek();
+        if (idle == null || idle.releasedAt >= system.getCurrentTime()) {
+            return null;
+        }
+        idleHelpers.poll();
+        return idle.helper;
+    }
+
+    private static class IdleHelper {
+        private final WorkerHelper helper;
+        private final int releasedAt;
+
+        IdleHelper(WorkerHelper helper, int releasedAt) {
+            this.helper = helper;
+            this.releasedAt = releasedAt;
+        }
+    }
+}
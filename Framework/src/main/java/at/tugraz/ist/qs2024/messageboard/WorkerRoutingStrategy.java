@@ -0,0 +1,26 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.InitCommunication;
+
+import java.util.List;
+
+/**
+ * Strategy used by the dispatcher to select the worker, which handles a new communication.
+ * <p>
+ * Strategies taking the load of workers into account (see {@link Worker#getLoad()}) read
+ * the loads published by the workers before the current time unit, so the selected workers
+ * only depend on the scheduling of threads with a
+ * {@link at.tugraz.ist.qs2024.actorsystem.ConcurrentActorSystem}.
+ */
+public interface WorkerRoutingStrategy {
+
+    /**
+     * Selects the worker for a new communication.
+     *
+     * @param initCommunication the message initiating the communication
+     * @param workers           the non-empty list of workers, which is never modified, but replaced
+     *                          by another list whenever workers are added or removed
+     * @return The selected worker, one of <c>workers</c>.
+     */
+    Worker selectWorker(InitCommunication initCommunication, List<Worker> workers);
+}
@@ -0,0 +1,464 @@
+package at.tugraz.ist.qs2024.messageboard;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.RemoveLikeOrDislike;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the mutations applied by a message store, written to a file through a
+ * {@link FileChannel}, so that the store can be restored after a restart (see
+ * {@link MessageStore#setWriteAheadLog(WriteAheadLog)}). Every store needs its own log.
+ * <p>
+ * Mutations are encoded into a buffer when they are appended and written and forced to the
+ * disk by {@link #sync()}, the store decides when to sync according to the {@link Durability}
+ * of the log. Mutations which have not been synced are lost in a crash.
+ * <p>
+ * The file starts with a header, followed by one record per mutation. A record consists of
+ * the length of its body, the CRC32 checksum of its body and the body, i.e. the type of the
+ * mutation followed by its fields. Integral numbers in the body are written as variable-length
+ * integers, strings as their length followed by their UTF-8 bytes. The communication ID and
+ * client of a mutation are not logged. A torn record at the end of the file, e.g. after a
+ * crash while writing, is detected by its length or checksum and discarded during replay.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final int MAGIC = 0x57414C47;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * Maximum length of the body of a record, longer lengths are treated as torn records
+     */
+    private static final int MAX_RECORD_SIZE = 1 << 24;
+
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private static final int UPDATE_MESSAGE_STORE = 1;
+    private static final int ADD_LIKE = 2;
+    private static final int ADD_DISLIKE = 3;
+    private static final int DELETE_LIKE_OR_DISLIKE = 4;
+    private static final int ADD_REACTION = 5;
+    private static final int ADD_REPORT = 6;
+    private static final int EDIT_MESSAGE = 7;
+    private static final int DELETE_MESSAGE = 8;
+
+    private static final Reaction.Emoji[] EMOJIS = Reaction.Emoji.values();
+    private static final RemoveLikeOrDislike.Type[] TYPES = RemoveLikeOrDislike.Type.values();
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final Durability durability;
+
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * Records appended, but not written yet, the first <c>pendingLength</c> bytes are used.
+     */
+    private byte[] pending = new byte[4096];
+
+    private int pendingLength = 0;
+
+    /**
+     * Number of records appended since the last sync
+     */
+    private int unsyncedRecords = 0;
+
+    /**
+     * Number of syncs forcing records to the disk
+     */
+    private long syncs = 0;
+
+    /**
+     * True once the records in the file have been replayed, records may only be appended afterwards.
+     */
+    private boolean replayed = false;
+
+    /**
+     * Position in the file after the last record written
+     */
+    private long position = HEADER_SIZE;
+
+    /**
+     * Opens a log, the file is created if it does not exist.
+     *
+     * @param file       the file of the log
+     * @param durability determines when appended mutations are forced to the disk
+     * @throws IOException if the file cannot be opened or is not a write-ahead log
+     */
+    public WriteAheadLog(Path file, Durability durability) throws IOException {
+        this.file = file;
+        this.durability = durability;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).put((byte) VERSION).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                channel.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while (header.hasRemaining() && channel.read(header) >= 0) {
+                    // read until the header is complete or the file ends
+                }
+                header.flip();
+                if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.get() != VERSION) {
+                    throw new IOException("Not a write-ahead log: " + file);
+                }
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads all records of the file in the order they have been appended and discards a torn
+     * record at the end of the file. Has to be called once before appending.
+     *
+     * @param consumer receives the logged mutations, without clients and communication IDs
+     * @return The number of mutations replayed.
+     * @throws IOException if the file cannot be read or contains an unknown record
+     */
+    public long replay(Consumer<MessageStoreMessage> consumer) throws IOException {
+        return replay(HEADER_SIZE, consumer);
+    }
+
+    /**
+     * Reads the records of the file starting at a position returned by {@link #getPosition()},
+     * e.g. the records logged after a snapshot, and discards a torn record at the end of the file.
+     * Has to be called once before appending.
+     *
+     * @param start    the position of the first record read
+     * @param consumer receives the logged mutations, without clients and communication IDs
+     * @return The number of mutations replayed.
+     * @throws IOException if the file cannot be read, ends before the position or contains an unknown record
+     */
+    public long replay(long start, Consumer<MessageStoreMessage> consumer) throws IOException {
+        if (replayed) {
+            throw new IllegalStateException("Write-ahead log has already been replayed");
+        }
+        if (start < HEADER_SIZE || start > channel.size()) {
+            throw new IOException("Write-ahead log ends before position " + start + ": " + file);
+        }
+        channel.position(start);
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        buffer.flip();
+        long validEnd = start;
+        long records = 0;
+        while (true) {
+            buffer = fill(buffer, RECORD_HEADER_SIZE);
+            if (buffer == null) {
+                break;
+            }
+            int length = buffer.getInt();
+            int expectedChecksum = buffer.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE) {
+                break;
+            }
+            buffer = fill(buffer, length);
+            if (buffer == null) {
+                break;
+            }
+            checksum.reset();
+            checksum.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            if ((int) checksum.getValue() != expectedChecksum) {
+                break;
+            }
+            int end = buffer.position() + length;
+            MessageStoreMessage mutation = decode(buffer);
+            if (buffer.position() != end) {
+                throw new IOException("Corrupt write-ahead log: " + file);
+            }
+            consumer.accept(mutation);
+            records++;
+            validEnd += RECORD_HEADER_SIZE + length;
+        }
+        if (channel.size() > validEnd) {
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+        position = validEnd;
+        replayed = true;
+        return records;
+    }
+
+    /**
+     * Appends a mutation, which is only written to the disk by the next {@link #sync()}.
+     *
+     * @param mutation a mutation applied successfully by the store
+     */
+    public void append(MessageStoreMessage mutation) {
+        if (!replayed) {
+            throw new IllegalStateException("Write-ahead log has to be replayed before appending");
+        }
+        int start = pendingLength;
+        reserve(RECORD_HEADER_SIZE);
+        pendingLength += RECORD_HEADER_SIZE;
+        encode(mutation);
+        int length = pendingLength - start - RECORD_HEADER_SIZE;
+        checksum.reset();
+        checksum.update(pending, start + RECORD_HEADER_SIZE, length);
+        putInt(start, length);
+        putInt(start + 4, (int) checksum.getValue());
+        unsyncedRecords++;
+    }
+
+    /**
+     * Writes the appended mutations to the file and forces them to the disk.
+     *
+     * @throws IOException if the mutations cannot be written
+     */
+    public void sync() throws IOException {
+        if (unsyncedRecords == 0) {
+            return;
+        }
+        ByteBuffer records = ByteBuffer.wrap(pending, 0, pendingLength);
+        while (records.hasRemaining()) {
+            channel.write(records);
+        }
+        channel.force(false);
+        position += pendingLength;
+        pendingLength = 0;
+        unsyncedRecords = 0;
+        syncs++;
+    }
+
+    /**
+     * @return The position in the file after the last synced mutation.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return The number of mutations appended, but not synced yet.
+     */
+    public int getUnsyncedRecords() {
+        return unsyncedRecords;
+    }
+
+    /**
+     * @return The number of syncs, which have forced mutations to the disk.
+     */
+    public long getSyncs() {
+        return syncs;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Syncs the appended mutations and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (replayed) {
+                sync();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void encode(MessageStoreMessage mutation) {
+        if (mutation instanceof UpdateMessageStore) {
+            UserMessage message = ((UpdateMessageStore) mutation).message;
+            writeByte(UPDATE_MESSAGE_STORE);
+            writeVarLong(message.getMessageId());
+            writeString(message.getAuthor());
+            writeString(message.getMessage());
+        } else if (mutation instanceof AddLike) {
+            AddLike addLike = (AddLike) mutation;
+            writeByte(ADD_LIKE);
+            writeString(addLike.clientName);
+            writeVarLong(addLike.messageId);
+        } else if (mutation instanceof AddDislike) {
+            AddDislike addDislike = (AddDislike) mutation;
+            writeByte(ADD_DISLIKE);
+            writeString(addDislike.clientName);
+            writeVarLong(addDislike.messageId);
+        } else if (mutation instanceof DeleteLikeOrDislike) {
+            DeleteLikeOrDislike delete = (DeleteLikeOrDislike) mutation;
+            writeByte(DELETE_LIKE_OR_DISLIKE);
+            writeString(delete.clientName);
+            writeVarLong(delete.messageId);
+            writeByte(delete.typeToDelete.ordinal());
+        } else if (mutation instanceof AddReaction) {
+            AddReaction addReaction = (AddReaction) mutation;
+            writeByte(ADD_REACTION);
+            writeString(addReaction.clientName);
+            writeVarLong(addReaction.messageId);
+            writeByte(addReaction.reaction.ordinal());
+        } else if (mutation instanceof AddReport) {
+            AddReport addReport = (AddReport) mutation;
+            writeByte(ADD_REPORT);
+            writeString(addReport.clientName);
+            writeString(addReport.reportedClientName);
+        } else if (mutation instanceof EditMessage) {
+            EditMessage edit = (EditMessage) mutation;
+            writeByte(EDIT_MESSAGE);
+            writeVarLong(edit.messageId);
+            writeString(edit.clientName);
+            writeString(edit.newMessage);
+        } else if (mutation instanceof DeleteMessage) {
+            DeleteMessage delete = (DeleteMessage) mutation;
+            writeByte(DELETE_MESSAGE);
+            writeString(delete.clientName);
+            writeVarLong(delete.messageId);
+        } else {
+            throw new IllegalArgumentException("Not a mutation: " + mutation.getClass().getSimpleName());
+        }
+    }
+
+    private MessageStoreMessage decode(ByteBuffer in) throws IOException {
+        int type = in.get();
+        switch (type) {
+            case UPDATE_MESSAGE_STORE: {
+                long messageId = readVarLong(in);
+                UserMessage message = new UserMessage(readString(in), readString(in));
+                message.setMessageId(messageId);
+                return new UpdateMessageStore(message, 0);
+            }
+            case ADD_LIKE:
+                return new AddLike(readString(in), readVarLong(in), 0);
+            case ADD_DISLIKE:
+                return new AddDislike(readString(in), readVarLong(in), 0);
+            case DELETE_LIKE_OR_DISLIKE: {
+                String clientName = readString(in);
+                long messageId = readVarLong(in);
+                return new DeleteLikeOrDislike(clientName, 0, messageId, TYPES[readOrdinal(in, TYPES.length)]);
+            }
+            case ADD_REACTION: {
+                String clientName = readString(in);
+                long messageId = readVarLong(in);
+                return new AddReaction(clientName, messageId, 0, EMOJIS[readOrdinal(in, EMOJIS.length)]);
+            }
+            case ADD_REPORT: {
+                String clientName = readString(in);
+                return new AddReport(clientName, 0, readString(in));
+            }
+            case EDIT_MESSAGE: {
+                long messageId = readVarLong(in);
+                String clientName = readString(in);
+                return new EditMessage(messageId, clientName, readString(in), 0);
+            }
+            case DELETE_MESSAGE:
+                return new DeleteMessage(readString(in), readVarLong(in), 0);
+            default:
+                throw new IOException("Corrupt write-ahead log, unknown record type " + type + ": " + file);
+        }
+    }
+
+    /**
+     * Ensures that the buffer contains at least the given number of bytes after its position,
+     * reading from the file and growing the buffer if necessary.
+     *
+     * @return The buffer, a new buffer if it has grown, null if the file ends before.
+     */
+    private ByteBuffer fill(ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, 2 * buffer.capacity()));
+            larger.put(buffer).flip();
+            buffer = larger;
+        }
+        while (buffer.remaining() < bytes) {
+            buffer.compact();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                return null;
+            }
+        }
+        return buffer;
+    }
+
+    private void reserve(int bytes) {
+        if (pendingLength + bytes > pending.length) {
+            byte[] larger = new byte[Math.max(pendingLength + bytes, 2 * pending.length)];
+            System.arraycopy(pending, 0, larger, 0, pendingLength);
+            pending = larger;
+        }
+    }
+
+    private void putInt(int position, int value) {
+        pending[position] = (byte) (value >>> 24);
+        pending[position + 1] = (byte) (value >>> 16);
+        pending[position + 2] = (byte) (value >>> 8);
+        pending[position + 3] = (byte) value;
+    }
+
+    private void writeByte(int value) {
+        reserve(1);
+        pending[pendingLength++] = (byte) value;
+    }
+
+    /**
+     * Writes a zigzag-encoded integer in groups of 7 bits, so that small numbers take a single byte.
+     */
+    private void writeVarLong(long value) {
+        reserve(10);
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            pending[pendingLength++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        pending[pendingLength++] = (byte) zigzag;
+    }
+
+    private void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        reserve(bytes.length);
+        System.arraycopy(bytes, 0, pending, pendingLength, bytes.length);
+        pendingLength += bytes.length;
+    }
+
+    private long readVarLong(ByteBuffer in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Corrupt write-ahead log, integer too long: " + file);
+    }
+
+    private String readString(ByteBuffer in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Corrupt write-ahead log, invalid string length: " + file);
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), (int) length, StandardCharsets.UTF_8);
+        in.position(in.position() + (int) length);
+        return value;
+    }
+
+    private int readOrdinal(ByteBuffer in, int values) throws IOException {
+        int ordinal = in.get();
+        if (ordinal < 0 || ordinal >= values) {
+            throw new IOException("Corrupt write-ahead log, unknown constant " + ordinal + ": " + file);
+        }
+        return ordinal;
+    }
+}
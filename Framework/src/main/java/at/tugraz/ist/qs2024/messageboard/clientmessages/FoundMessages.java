@@ -7,6 +7,10 @@ import java.util.List;
 /**
  * The response to the {@link RetrieveMessages} message sent from worker to client
  * containing all user messages written by the author defined in the message above.
+ * <p>
+ * If a page size has been requested, the messages are the next page of the results
+ * ordered by message ID and <c>nextCursor</c> is the cursor of the following page,
+ * or {@link #NO_CURSOR} if this is the last page.
  */
 public class FoundMessages extends ClientMessage {
     /**
@@ -14,9 +18,24 @@ public class FoundMessages extends ClientMessage {
      */
     public final List<UserMessage> messages;
 
+    /**
+     * Cursor to request the following page of the results, NO_CURSOR if there are no further results
+     */
+    public final long nextCursor;
+
+    /**
+     * the cursor of the first page in requests and of the page after the last page in responses
+     */
+    public final static long NO_CURSOR = -1;
+
     public FoundMessages(List<UserMessage> messages, long communicationId) {
+        this(messages, communicationId, NO_CURSOR);
+    }
+
+    public FoundMessages(List<UserMessage> messages, long communicationId, long nextCursor) {
         super(communicationId);
         this.messages = messages;
+        this.nextCursor = nextCursor;
     }
 
     @Override
@@ -12,9 +12,20 @@ public class InitCommunication extends ClientMessage {
      */
     public final SimulatedActor client;
 
+    /**
+     * The name of the client, which may be used to route the communication,
+     * null if it is not known
+     */
+    public final String clientName;
+
     public InitCommunication(SimulatedActor client, long communicationId) {
+        this(client, communicationId, null);
+    }
+
+    public InitCommunication(SimulatedActor client, long communicationId, String clientName) {
         super(communicationId);
         this.client = client;
+        this.clientName = clientName;
     }
 
     @Override
@@ -0,0 +1,25 @@
+package at.tugraz.ist.qs2024.messageboard.clientmessages;
+
+/**
+ * The response to the {@link RetrieveReactionCounts} message sent from worker to client
+ * containing the number of reactions of each kind to the user message.
+ */
+public class ReactionCounts extends Reply {
+    /**
+     * The number of people who added each reaction, indexed by the ordinal of the reaction
+     */
+    public final int[] counts;
+
+    public ReactionCounts(long communicationId, int[] counts) {
+        super(communicationId);
+        this.counts = counts;
+    }
+
+    /**
+     * @param reaction a reaction
+     * @return The number of people who added the reaction.
+     */
+    public int getCount(Reaction.Emoji reaction) {
+        return counts[reaction.ordinal()];
+    }
+}
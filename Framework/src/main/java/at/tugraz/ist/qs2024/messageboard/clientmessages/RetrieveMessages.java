@@ -1,7 +1,8 @@
 package at.tugraz.ist.qs2024.messageboard.clientmessages;
 
 /**
- * Message sent from client to worker to retrieve all user messages written by a given author.
+ * Message sent from client to worker to retrieve all user messages written by a given author,
+ * or a page of them if a page size is given.
  */
 public class RetrieveMessages extends ClientMessage {
     /**
@@ -9,9 +10,26 @@ public class RetrieveMessages extends ClientMessage {
      */
     public final String author;
 
+    /**
+     * Maximum number of messages to be returned, 0 if all messages should be returned at once
+     */
+    public final int pageSize;
+
+    /**
+     * The cursor of the requested page, taken from the previous page, or
+     * {@link FoundMessages#NO_CURSOR} for the first page
+     */
+    public final long cursor;
+
     public RetrieveMessages(String author, long communicationId) {
+        this(author, communicationId, 0, FoundMessages.NO_CURSOR);
+    }
+
+    public RetrieveMessages(String author, long communicationId, int pageSize, long cursor) {
         super(communicationId);
         this.author = author;
+        this.pageSize = pageSize;
+        this.cursor = cursor;
     }
 
     @Override
@@ -0,0 +1,21 @@
+package at.tugraz.ist.qs2024.messageboard.clientmessages;
+
+/**
+ * Message sent from client to worker to retrieve the number of reactions of each kind to a given user message.
+ */
+public class RetrieveReactionCounts extends ClientMessage {
+    /**
+     * The user message id of the message whose reactions should be counted
+     */
+    public final long messageId;
+
+    public RetrieveReactionCounts(long communicationId, long mId) {
+        super(communicationId);
+        this.messageId = mId;
+    }
+
+    @Override
+    public int getDuration() {
+        return 1;
+    }
+}
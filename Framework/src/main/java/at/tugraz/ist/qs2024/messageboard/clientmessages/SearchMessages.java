@@ -2,7 +2,8 @@ package at.tugraz.ist.qs2024.messageboard.clientmessages;
 
 /**
  * Message sent from client to worker to search for the given message
- * either in the Author or the Message and return all matching messages
+ * either in the Author or the Message and return all matching messages,
+ * or a page of them if a page size is given
  */
 public class SearchMessages extends ClientMessage {
     /**
@@ -10,9 +11,26 @@ public class SearchMessages extends ClientMessage {
      */
     public final String searchText;
 
+    /**
+     * Maximum number of messages to be returned, 0 if all messages should be returned at once
+     */
+    public final int pageSize;
+
+    /**
+     * The cursor of the requested page, taken from the previous page, or
+     * {@link FoundMessages#NO_CURSOR} for the first page
+     */
+    public final long cursor;
+
     public SearchMessages(String searchText, long communicationId) {
+        this(searchText, communicationId, 0, FoundMessages.NO_CURSOR);
+    }
+
+    public SearchMessages(String searchText, long communicationId, int pageSize, long cursor) {
         super(communicationId);
         this.searchText = searchText;
+        this.pageSize = pageSize;
+        this.cursor = cursor;
     }
 
     @Override
@@ -0,0 +1,36 @@
+package at.tugraz.ist.qs2024.messageboard.messagestoremessages;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+
+import java.util.List;
+
+/**
+ * Message sent periodically from a message store to its followers containing the writes
+ * applied since the last batch in the order they have been applied. An empty batch
+ * signals that the followers are up to date.
+ */
+public class ChangeBatch implements Message {
+    /**
+     * Sequence number of the first write in the batch, writes are numbered consecutively starting at 1
+     */
+    public final long firstSequenceNumber;
+    /**
+     * The writes, which have been applied successfully by the store
+     */
+    public final List<MessageStoreMessage> changes;
+    /**
+     * Time unit of the store in which the batch has been sent
+     */
+    public final int sentAt;
+
+    public ChangeBatch(long firstSequenceNumber, List<MessageStoreMessage> changes, int sentAt) {
+        this.firstSequenceNumber = firstSequenceNumber;
+        this.changes = changes;
+        this.sentAt = sentAt;
+    }
+
+    @Override
+    public int getDuration() {
+        return 1;
+    }
+}
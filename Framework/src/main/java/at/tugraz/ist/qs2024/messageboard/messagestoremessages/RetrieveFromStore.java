@@ -3,7 +3,7 @@ package at.tugraz.ist.qs2024.messageboard.messagestoremessages;
 /**
  * Message used to signal that messages should be retrieved from the store.
  */
-public class RetrieveFromStore extends MessageStoreMessage {
+public class RetrieveFromStore extends StoreQuery {
     /**
      * The author of the message which should be looked up
      */
@@ -13,4 +13,10 @@ public class RetrieveFromStore extends MessageStoreMessage {
         this.author = author;
         this.communicationId = commId;
     }
+
+    public RetrieveFromStore(String author, long commId, int pageSize, long cursor) {
+        this(author, commId);
+        this.pageSize = pageSize;
+        this.cursor = cursor;
+    }
 }
@@ -0,0 +1,16 @@
+package at.tugraz.ist.qs2024.messageboard.messagestoremessages;
+
+/**
+ * Message used to signal that the number of reactions of each kind to a message should be retrieved from the store.
+ */
+public class RetrieveReactionCountsFromStore extends StoreQuery {
+    /**
+     * User message id of the user message whose reactions should be counted
+     */
+    public final long messageId;
+
+    public RetrieveReactionCountsFromStore(long messageId, long commId) {
+        this.messageId = messageId;
+        this.communicationId = commId;
+    }
+}
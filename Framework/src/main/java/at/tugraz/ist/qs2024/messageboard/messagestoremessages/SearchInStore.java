@@ -4,7 +4,7 @@ package at.tugraz.ist.qs2024.messageboard.messagestoremessages;
  * Message used to signal that it should be searched for the given message
  * either in the Author or the Message and return all matching messages.
  */
-public class SearchInStore extends MessageStoreMessage {
+public class SearchInStore extends StoreQuery {
     /**
      * The author of the message which should be looked up
      */
@@ -14,4 +14,10 @@ public class SearchInStore extends MessageStoreMessage {
         this.searchText = searchText;
         this.communicationId = commId;
     }
+
+    public SearchInStore(String searchText, long commId, int pageSize, long cursor) {
+        this(searchText, commId);
+        this.pageSize = pageSize;
+        this.cursor = cursor;
+    }
 }
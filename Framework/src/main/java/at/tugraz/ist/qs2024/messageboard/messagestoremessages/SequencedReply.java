@@ -0,0 +1,39 @@
+package at.tugraz.ist.qs2024.messageboard.messagestoremessages;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+
+/**
+ * Reply of a message store with followers to a write, which contains the sequence number
+ * of the latest write applied by the store, so that later queries of the communication
+ * can require followers to have applied it.
+ */
+public class SequencedReply implements Message {
+    /**
+     * Index of the shard, which applied the write
+     */
+    public final int shard;
+    /**
+     * Sequence number of the latest write applied by the store
+     */
+    public final long sequenceNumber;
+    /**
+     * The reply to be forwarded to the client
+     */
+    public final Message reply;
+    /**
+     * The id of the communication during which the write was sent
+     */
+    public final long communicationId;
+
+    public SequencedReply(int shard, long sequenceNumber, Message reply, long communicationId) {
+        this.shard = shard;
+        this.sequenceNumber = sequenceNumber;
+        this.reply = reply;
+        this.communicationId = communicationId;
+    }
+
+    @Override
+    public int getDuration() {
+        return 1;
+    }
+}
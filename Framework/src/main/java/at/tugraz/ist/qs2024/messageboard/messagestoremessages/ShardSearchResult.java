@@ -0,0 +1,42 @@
+package at.tugraz.ist.qs2024.messageboard.messagestoremessages;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+
+import java.util.List;
+
+/**
+ * Message sent from a shard of the message store to its client in response to
+ * a search sent to all shards, the client gathers the results of all shards.
+ * If a page size has been requested, the messages are the first page of the shard's results.
+ */
+public class ShardSearchResult implements Message {
+    /**
+     * Index of the shard, which sent the result
+     */
+    public final int shard;
+    /**
+     * User messages of the shard matching the search
+     */
+    public final List<UserMessage> messages;
+    /**
+     * The id of the communication during which the search was sent
+     */
+    public final long communicationId;
+    /**
+     * Cursor of the following page of the results of the shard, FoundMessages.NO_CURSOR if there is none
+     */
+    public final long nextCursor;
+
+    public ShardSearchResult(int shard, List<UserMessage> messages, long communicationId, long nextCursor) {
+        this.shard = shard;
+        this.messages = messages;
+        this.communicationId = communicationId;
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public int getDuration() {
+        return 1;
+    }
+}
@@ -0,0 +1,24 @@
+package at.tugraz.ist.qs2024.messageboard.messagestoremessages;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+
+/**
+ * Message sent from the message store to its client if a request has been
+ * dropped, because the mailbox of the store is full. The client is expected
+ * to back off and send the request again later.
+ */
+public class StoreOverloaded implements Message {
+    /**
+     * The id of the communication during which the dropped request was sent
+     */
+    public final long communicationId;
+
+    public StoreOverloaded(long communicationId) {
+        this.communicationId = communicationId;
+    }
+
+    @Override
+    public int getDuration() {
+        return 1;
+    }
+}
@@ -0,0 +1,31 @@
+package at.tugraz.ist.qs2024.messageboard.messagestoremessages;
+
+import at.tugraz.ist.qs2024.messageboard.clientmessages.FoundMessages;
+
+/**
+ * Base class for read-only messages sent to the message store, which may be
+ * answered by a follower of the store (see {@link at.tugraz.ist.qs2024.messageboard.MessageStoreFollower})
+ * if it fulfills the consistency requirements of the query.
+ * <p>
+ * Results are ordered by message ID. If a page size is given, only the first <c>pageSize</c>
+ * results with IDs greater than the cursor are returned, so the store keeps no state per cursor.
+ */
+public abstract class StoreQuery extends MessageStoreMessage {
+    /**
+     * The sequence numbers of the latest writes of the communication, indexed by shard,
+     * which a follower must have applied to answer the query, null if there are none
+     */
+    public long[] minSequenceNumbers = null;
+    /**
+     * The maximum number of time units the state of a follower may lag behind the state of its primary
+     */
+    public int maxStaleness = Integer.MAX_VALUE;
+    /**
+     * Maximum number of messages to be returned, 0 if all messages should be returned at once
+     */
+    public int pageSize = 0;
+    /**
+     * The ID of the last message of the previous page, FoundMessages.NO_CURSOR for the first page
+     */
+    public long cursor = FoundMessages.NO_CURSOR;
+}
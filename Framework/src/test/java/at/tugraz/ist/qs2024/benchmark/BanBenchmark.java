@@ -0,0 +1,133 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Mailbox;
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.OverflowPolicy;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem;
+import at.tugraz.ist.qs2024.messageboard.*;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmark measuring the effect of banned clients on the message board.
+ * <p>
+ * {@link #BANNED_CLIENTS} of the {@link #NUMBER_OF_CLIENTS} clients are banned before the run.
+ * Every client publishes a new message as soon as it receives a reply, so banned clients
+ * keep sending requests, which are rejected, and other requests fail only if they time out.
+ * The replies per time unit, the share of failed requests and the
+ * median latency in ticks are printed for banned and for other clients, as well as the number of
+ * requests processed by the message store.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.BanBenchmark</c>.
+ */
+public class BanBenchmark {
+
+    private static final int NUMBER_OF_WORKERS = 8;
+    private static final int NUMBER_OF_CLIENTS = 4;
+    private static final int BANNED_CLIENTS = 2;
+    private static final int WARMUP_TICKS = 1_000;
+    private static final int MEASURED_TICKS = 10_000;
+
+    private static SimulatedActorSystem system;
+
+    /**
+     * Message store counting the requests it processes.
+     */
+    private static class CountingStore extends MessageStore {
+        private int processed = 0;
+
+        CountingStore(ReportRegistry reports) {
+            super(Mailbox.UNBOUNDED, OverflowPolicy.REJECT, 0, 1, reports);
+        }
+
+        @Override
+        public void receive(Message message) throws UnknownClientException, UnknownMessageException {
+            processed++;
+            super.receive(message);
+        }
+    }
+
+    /**
+     * Client sending requests within a single communication, one request at a time.
+     */
+    private static class BenchmarkClient extends SimulatedActor {
+        private final String name;
+        private final SimulatedActor dispatcher;
+        private final long communicationId;
+        private final List<Integer> latencies = new ArrayList<>();
+        private int failures = 0;
+        private SimulatedActor worker;
+        private int published = 0;
+        private int sentAt = 0;
+
+        BenchmarkClient(String name, SimulatedActor dispatcher, long communicationId) {
+            this.name = name;
+            this.dispatcher = dispatcher;
+            this.communicationId = communicationId;
+        }
+
+        @Override
+        public void atStartUp() {
+            dispatcher.tell(new InitCommunication(this, communicationId, name));
+        }
+
+        @Override
+        public void receive(Message message) {
+            if (message instanceof InitAck) {
+                worker = ((InitAck) message).worker;
+            } else if (system.getCurrentTime() >= WARMUP_TICKS) {
+                if (message instanceof OperationFailed) {
+                    failures++;
+                } else {
+                    latencies.add(getTimeSinceSystemStart() - sentAt);
+                }
+            }
+            sentAt = getTimeSinceSystemStart();
+            worker.tell(new Publish(new UserMessage(name, "m" + published++), communicationId));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        system = new SimulatedActorSystem(true);
+        ReportRegistry reports = new ReportRegistry();
+        for (int i = 0; i < BANNED_CLIENTS; i++) {
+            for (int j = 0; j <= MessageStore.USER_BLOCKED_AT_COUNT; j++) {
+                reports.addReport("reporter" + j, "client" + i, 0);
+            }
+        }
+        CountingStore store = new CountingStore(reports);
+        MessageStoreRouter stores = new MessageStoreRouter(store);
+        Dispatcher dispatcher = new Dispatcher(system, NUMBER_OF_WORKERS, stores, new RandomRoutingStrategy());
+        system.spawn(dispatcher);
+        List<BenchmarkClient> clients = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_CLIENTS; i++) {
+            BenchmarkClient client = new BenchmarkClient("client" + i, dispatcher, i);
+            clients.add(client);
+            system.spawn(client);
+        }
+        system.runFor(WARMUP_TICKS + MEASURED_TICKS);
+
+        System.out.println("clients  replies/tick  failed    p50");
+        print("banned", clients.subList(0, BANNED_CLIENTS));
+        print("other", clients.subList(BANNED_CLIENTS, NUMBER_OF_CLIENTS));
+        System.out.printf("store processed %d requests%n", store.processed);
+    }
+
+    private static void print(String name, List<BenchmarkClient> clients) {
+        List<Integer> latencies = new ArrayList<>();
+        int failures = 0;
+        for (BenchmarkClient client : clients) {
+            latencies.addAll(client.latencies);
+            failures += client.failures;
+        }
+        int[] sorted = latencies.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(sorted);
+        System.out.printf("%-7s %13.3f %6.1f%% %6d%n", name, (double) sorted.length / MEASURED_TICKS,
+                100.0 * failures / Math.max(1, failures + sorted.length),
+                sorted.length == 0 ? 0 : sorted[(sorted.length - 1) / 2]);
+    }
+}
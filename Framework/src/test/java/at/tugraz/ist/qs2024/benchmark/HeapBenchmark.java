@@ -0,0 +1,100 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.MessageStore;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.AddDislike;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.AddLike;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.AddReaction;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.AddReport;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.MessageStoreMessage;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.UpdateMessageStore;
+
+import java.util.Random;
+
+/**
+ * Benchmark measuring the heap used by a message store, which stores many messages.
+ * <p>
+ * The store is filled with {@link #STORED_MESSAGES} short messages of {@link #NUMBER_OF_USERS}
+ * users, each message is liked by {@link #LIKES_PER_MESSAGE} random users, disliked by one
+ * and reacted to by one, and every user reports another one. Client names are created anew
+ * for every message, like names received from clients. The messages are passed to the store
+ * directly, without an actor system. The heap used after a garbage collection and the number
+ * of successful operations, which must not depend on the implementation, are printed.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.HeapBenchmark</c>.
+ */
+public class HeapBenchmark {
+
+    private static final int STORED_MESSAGES = 1_000_000;
+    private static final int NUMBER_OF_USERS = 100_000;
+    private static final int LIKES_PER_MESSAGE = 4;
+
+    /**
+     * Client of the store, which counts the replies.
+     */
+    private static class CountingClient extends SimulatedActor {
+        private int replies = 0;
+
+        @Override
+        public void tell(Message message) {
+            replies++;
+        }
+
+        @Override
+        public void receive(Message message) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long before = usedHeap();
+        MessageStore store = new MessageStore();
+        CountingClient client = new CountingClient();
+        Random random = new Random(42);
+        Reaction.Emoji[] emojis = Reaction.Emoji.values();
+        long commId = 0;
+        for (int i = 0; i < STORED_MESSAGES; i++) {
+            UserMessage message = new UserMessage(user(i % NUMBER_OF_USERS), "message " + i);
+            send(store, client, new UpdateMessageStore(message, commId++));
+            long id = message.getMessageId();
+            for (int j = 0; j < LIKES_PER_MESSAGE; j++) {
+                send(store, client, new AddLike(user(random.nextInt(NUMBER_OF_USERS)), id, commId++));
+            }
+            send(store, client, new AddDislike(user(random.nextInt(NUMBER_OF_USERS)), id, commId++));
+            send(store, client, new AddReaction(user(random.nextInt(NUMBER_OF_USERS)), id, commId++,
+                    emojis[random.nextInt(emojis.length)]));
+        }
+        for (int i = 0; i < NUMBER_OF_USERS; i++) {
+            send(store, client, new AddReport(user(i), commId++, user(random.nextInt(NUMBER_OF_USERS))));
+        }
+        long after = usedHeap();
+
+        System.out.printf("heap %8.1f MB, %6.1f bytes/message, %d replies%n",
+                (after - before) / 1e6, (after - before) / (double) STORED_MESSAGES, client.replies);
+        // keep the store reachable until the heap has been measured
+        System.out.println(store.getClass().getSimpleName() + " filled");
+    }
+
+    /**
+     * @return A new string containing the name of a user.
+     */
+    private static String user(int index) {
+        return "user" + index;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void send(MessageStore store, SimulatedActor client, MessageStoreMessage message) throws Exception {
+        message.storeClient = client;
+        store.receive(message);
+    }
+}
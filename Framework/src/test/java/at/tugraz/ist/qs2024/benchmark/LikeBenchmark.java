@@ -0,0 +1,83 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.MessageStore;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.ReactionResponse;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.AddDislike;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.AddLike;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.MessageStoreMessage;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.UpdateMessageStore;
+
+/**
+ * Benchmark measuring the cost of likes and dislikes of a message, which is already
+ * liked by many clients.
+ * <p>
+ * A single message is liked by {@link #LIKES} clients, then further clients like it and
+ * clients, who like it, dislike it instead, which removes their likes. The messages are
+ * passed to the store directly, without an actor system. The time per operation, the
+ * number of successful operations and the points of the message, which must not depend
+ * on the implementation, are printed.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.LikeBenchmark</c>.
+ */
+public class LikeBenchmark {
+
+    private static final int LIKES = 100_000;
+    private static final int MEASURED_OPERATIONS = 10_000;
+
+    /**
+     * Client of the store, which counts the successful operations and keeps the latest points.
+     */
+    private static class CountingClient extends SimulatedActor {
+        private int successful = 0;
+        private int points;
+
+        @Override
+        public void tell(Message message) {
+            if (message instanceof ReactionResponse) {
+                successful++;
+                points = ((ReactionResponse) message).points;
+            }
+        }
+
+        @Override
+        public void receive(Message message) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        MessageStore store = new MessageStore();
+        CountingClient client = new CountingClient();
+        UserMessage viral = new UserMessage("author", "viral");
+        send(store, client, new UpdateMessageStore(viral, 0));
+        long id = viral.getMessageId();
+        for (int i = 0; i < LIKES; i++) {
+            send(store, client, new AddLike("client" + i, id, i));
+        }
+
+        client.successful = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+            send(store, client, new AddLike("client" + (LIKES + i), id, i));
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("like    %8.2f us/operation, %d successful, points %d%n",
+                elapsed / 1_000.0 / MEASURED_OPERATIONS, client.successful, client.points);
+
+        client.successful = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+            send(store, client, new AddDislike("client" + i * 7, id, i));
+        }
+        elapsed = System.nanoTime() - start;
+        System.out.printf("dislike %8.2f us/operation, %d successful, points %d%n",
+                elapsed / 1_000.0 / MEASURED_OPERATIONS, client.successful, client.points);
+    }
+
+    private static void send(MessageStore store, SimulatedActor client, MessageStoreMessage message) throws Exception {
+        message.storeClient = client;
+        store.receive(message);
+    }
+}
@@ -0,0 +1,121 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Mailbox;
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.OverflowPolicy;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.MessageStore;
+import at.tugraz.ist.qs2024.messageboard.MessageStoreRouter;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.FoundMessages;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.*;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Benchmark comparing a message store keeping UserMessage objects with a store keeping the
+ * messages outside of the heap (see {@link MessageStoreRouter#createOffHeapShards(int, int, OverflowPolicy)}).
+ * <p>
+ * Each store is filled with {@link #STORED_MESSAGES} short messages of {@link #NUMBER_OF_USERS}
+ * users, each message is liked by one random user and every tenth message is reacted to by one.
+ * The messages are passed to the stores directly, without an actor system. The time to fill the
+ * store, the time spent in garbage collections meanwhile, the heap used after a garbage collection
+ * and the memory allocated outside of the heap are printed, as well as the time to retrieve the
+ * first page of {@link #PAGE_SIZE} messages of an author and to search for a text in all messages.
+ * The numbers of messages found, which must not depend on the store, are printed as well.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.OffHeapBenchmark</c>.
+ */
+public class OffHeapBenchmark {
+
+    private static final int STORED_MESSAGES = 1_000_000;
+    private static final int NUMBER_OF_USERS = 100_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int QUERIES = 20;
+
+    /**
+     * Client of the store, which counts the messages found.
+     */
+    private static class CountingClient extends SimulatedActor {
+        private long found = 0;
+
+        @Override
+        public void tell(Message message) {
+            if (message instanceof FoundMessages) {
+                found += ((FoundMessages) message).messages.size();
+            }
+        }
+
+        @Override
+        public void receive(Message message) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("store                   fill ms   gc ms  heap MB  off-heap MB  retrieve ms  search ms  found");
+        run("MessageStore", new MessageStore());
+        run("OffHeapMessageStore", (MessageStore) MessageStoreRouter.createOffHeapShards(1, Mailbox.UNBOUNDED,
+                OverflowPolicy.REJECT).getShard(0));
+    }
+
+    private static void run(String name, MessageStore store) throws Exception {
+        long before = usedHeap();
+        CountingClient client = new CountingClient();
+        Random random = new Random(42);
+        Reaction.Emoji[] emojis = Reaction.Emoji.values();
+        long gcBefore = gcMillis();
+        long start = System.nanoTime();
+        for (int i = 0; i < STORED_MESSAGES; i++) {
+            UserMessage message = new UserMessage("user" + random.nextInt(NUMBER_OF_USERS), "message text " + i);
+            send(store, client, new UpdateMessageStore(message, i));
+            send(store, client, new AddLike("user" + random.nextInt(NUMBER_OF_USERS), message.getMessageId(), i));
+            if (i % 10 == 0) {
+                send(store, client, new AddReaction("user" + random.nextInt(NUMBER_OF_USERS), message.getMessageId(), i,
+                        emojis[random.nextInt(emojis.length)]));
+            }
+        }
+        long fill = System.nanoTime() - start;
+        long gc = gcMillis() - gcBefore;
+        long heap = usedHeap() - before;
+        long offHeap = store.getOffHeapBytes();
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            send(store, client, new RetrieveFromStore("user" + random.nextInt(NUMBER_OF_USERS), i, PAGE_SIZE,
+                    FoundMessages.NO_CURSOR));
+        }
+        long retrieve = (System.nanoTime() - start) / QUERIES;
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            send(store, client, new SearchInStore("TEXT " + random.nextInt(STORED_MESSAGES) + "7", i));
+        }
+        long search = (System.nanoTime() - start) / QUERIES;
+        System.out.printf("%-20s %10d %7d %8.1f %12.1f %12.3f %10.2f %6d%n", name,
+                fill / 1_000_000, gc, heap / 1e6, offHeap / 1e6, retrieve / 1e6, search / 1e6, client.found);
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void send(SimulatedActor store, SimulatedActor client, MessageStoreMessage message) throws Exception {
+        message.storeClient = client;
+        store.receive(message);
+    }
+}
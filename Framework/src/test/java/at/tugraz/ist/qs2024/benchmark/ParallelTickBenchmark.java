@@ -0,0 +1,127 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.ParallelSimulatedActorSystem;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem;
+import at.tugraz.ist.qs2024.messageboard.Dispatcher;
+import at.tugraz.ist.qs2024.messageboard.LeastLoadedRoutingStrategy;
+import at.tugraz.ist.qs2024.messageboard.MessageStoreRouter;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark comparing the sequential {@link SimulatedActorSystem} with the
+ * {@link ParallelSimulatedActorSystem} for increasing numbers of threads.
+ * <p>
+ * The load is bound by the message board: the clients only send their next request when they
+ * receive a reply, while the workers, which are routed to by their published loads, forward
+ * publishes, likes, retrievals and searches sent to all shards of a sharded message store.
+ * The workers and the clients are ticked in parallel, the helpers and the shards receive their
+ * messages without delay and are ticked one after the other. For every system the wall-clock time
+ * per tick, the speedup over the sequential system and a checksum of all messages received by the
+ * clients are printed, the checksum must be the same for all systems.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.ParallelTickBenchmark</c>.
+ */
+public class ParallelTickBenchmark {
+
+    private static final int NUMBER_OF_WORKERS = 2_000;
+    private static final int NUMBER_OF_CLIENTS = 10_000;
+    private static final int NUMBER_OF_SHARDS = 16;
+    private static final int[] NUMBERS_OF_THREADS = {1, 2, 4, 8, 16};
+    private static final int WARMUP_TICKS = 200;
+    private static final int MEASURED_TICKS = 1_000;
+
+    /**
+     * Client which sends a new request whenever it receives a reply.
+     */
+    private static class BenchmarkClient extends SimulatedActor {
+        private final long communicationId;
+        private final String name;
+        private final Random random;
+        private SimulatedActor worker;
+        private int requests = 0;
+        private long checksum = 0;
+
+        BenchmarkClient(long communicationId) {
+            this.communicationId = communicationId;
+            this.name = "client" + communicationId;
+            this.random = new Random(communicationId);
+        }
+
+        @Override
+        public void receive(Message message) {
+            checksum = checksum * 31 + message.getClass().getSimpleName().hashCode() + getTimeSinceSystemStart();
+            if (message instanceof FoundMessages) {
+                checksum = checksum * 31 + ((FoundMessages) message).messages.size();
+            }
+            if (message instanceof InitAck) {
+                worker = ((InitAck) message).worker;
+            }
+            requests++;
+            switch (random.nextInt(4)) {
+                case 0:
+                    worker.tell(new Publish(new UserMessage(name, "message " + requests + " of " + name), communicationId));
+                    break;
+                case 1:
+                    worker.tell(new Like(name, communicationId, random.nextInt(NUMBER_OF_CLIENTS)));
+                    break;
+                case 2:
+                    worker.tell(new RetrieveMessages(name, communicationId));
+                    break;
+                default:
+                    worker.tell(new SearchMessages("of client" + random.nextInt(NUMBER_OF_CLIENTS), communicationId));
+                    break;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        double sequential = run("sequential", new SimulatedActorSystem(), 0);
+        for (int threads : NUMBERS_OF_THREADS) {
+            ParallelSimulatedActorSystem system = new ParallelSimulatedActorSystem(threads);
+            try {
+                run("parallel(" + threads + ")", system, sequential);
+            } finally {
+                system.shutdown();
+            }
+        }
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors available");
+    }
+
+    /**
+     * @param sequential the time per tick of the sequential system, zero if it is measured
+     * @return The time per tick in microseconds.
+     */
+    private static double run(String name, SimulatedActorSystem system, double sequential) throws Exception {
+        Dispatcher dispatcher = new Dispatcher(system, NUMBER_OF_WORKERS, MessageStoreRouter.createShards(NUMBER_OF_SHARDS),
+                new LeastLoadedRoutingStrategy());
+        system.spawn(dispatcher);
+        List<BenchmarkClient> clients = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_CLIENTS; i++) {
+            BenchmarkClient client = new BenchmarkClient(i);
+            system.spawn(client);
+            clients.add(client);
+            dispatcher.tell(new InitCommunication(client, i));
+        }
+
+        system.runFor(WARMUP_TICKS);
+        long start = System.nanoTime();
+        system.runFor(MEASURED_TICKS);
+        long elapsed = System.nanoTime() - start;
+
+        long checksum = 0;
+        for (BenchmarkClient client : clients) {
+            checksum = checksum * 31 + client.checksum;
+        }
+        double perTick = elapsed / 1000.0 / MEASURED_TICKS;
+        System.out.printf("%-14s %8.1f us/tick   speedup %5.2f   checksum %016x%n", name, perTick,
+                sequential == 0 ? 1 : sequential / perTick, checksum);
+        return perTick;
+    }
+}
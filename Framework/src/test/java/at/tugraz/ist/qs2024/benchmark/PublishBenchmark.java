@@ -0,0 +1,85 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.MessageStore;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.OperationAck;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.EditMessage;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.MessageStoreMessage;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.UpdateMessageStore;
+
+/**
+ * Benchmark measuring the cost of publishing and editing messages in a message store,
+ * which already stores many messages, dominated by the detection of duplicates.
+ * <p>
+ * The store is filled with {@link #STORED_MESSAGES} messages of {@link #NUMBER_OF_AUTHORS}
+ * authors, then new messages are published and stored messages are edited, half of them
+ * duplicates, which fail. The messages are passed to the store directly, without an actor
+ * system, and the replies are only counted. The time per publish and per edit and the
+ * number of successful operations, which must not depend on the implementation, are printed.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.PublishBenchmark</c>.
+ */
+public class PublishBenchmark {
+
+    private static final int STORED_MESSAGES = 1_000_000;
+    private static final int NUMBER_OF_AUTHORS = 1_000;
+    private static final int MEASURED_OPERATIONS = 2_000;
+
+    /**
+     * Client of the store, which counts the acknowledged operations instead of receiving the replies.
+     */
+    private static class CountingClient extends SimulatedActor {
+        private int acks = 0;
+
+        @Override
+        public void tell(Message message) {
+            if (message instanceof OperationAck) {
+                acks++;
+            }
+        }
+
+        @Override
+        public void receive(Message message) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        MessageStore store = new MessageStore();
+        CountingClient client = new CountingClient();
+        for (int i = 0; i < STORED_MESSAGES; i++) {
+            send(store, client, new UpdateMessageStore(new UserMessage(author(i), "text" + i), i));
+        }
+
+        client.acks = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+            // every other message is a duplicate of a stored message
+            int text = i % 2 == 0 ? STORED_MESSAGES + i : i;
+            send(store, client, new UpdateMessageStore(new UserMessage(author(i), "text" + text), i));
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("publish %10.1f us/operation, %d stored%n", elapsed / 1_000.0 / MEASURED_OPERATIONS, client.acks);
+
+        client.acks = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+            // messages are edited by their authors, every other message to the text of another message
+            long id = (long) i * 499;
+            int text = i % 2 == 0 ? 2 * STORED_MESSAGES + i : (int) id + NUMBER_OF_AUTHORS;
+            send(store, client, new EditMessage(id, author((int) id), "text" + text, i));
+        }
+        elapsed = System.nanoTime() - start;
+        System.out.printf("edit    %10.1f us/operation, %d edited%n", elapsed / 1_000.0 / MEASURED_OPERATIONS, client.acks);
+    }
+
+    private static String author(int message) {
+        return "author" + message % NUMBER_OF_AUTHORS;
+    }
+
+    private static void send(MessageStore store, SimulatedActor client, MessageStoreMessage message) throws Exception {
+        message.storeClient = client;
+        store.receive(message);
+    }
+}
@@ -0,0 +1,110 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.MessageStore;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.ReactionCounts;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.ReactionResponse;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.AddReaction;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.MessageStoreMessage;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.RetrieveReactionCountsFromStore;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.UpdateMessageStore;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmark measuring the cost of reactions to a message, which many clients reacted to,
+ * and of counting its reactions.
+ * <p>
+ * A single message receives {@link #REACTIONS} random reactions of {@link #NUMBER_OF_CLIENTS}
+ * clients, then further reactions are measured, as well as retrieving the number of
+ * reactions of each kind from the store and, for comparison, counting them by walking the
+ * reactions of all clients. The messages are passed to the store directly, without an actor
+ * system. The time per operation and the counts, which must not depend on the implementation,
+ * are printed.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.ReactionBenchmark</c>.
+ */
+public class ReactionBenchmark {
+
+    private static final int REACTIONS = 200_000;
+    private static final int NUMBER_OF_CLIENTS = 100_000;
+    private static final int MEASURED_REACTIONS = 100_000;
+    private static final int MEASURED_COUNTS = 100;
+
+    /**
+     * Client of the store, which counts the successful reactions and keeps the latest counts.
+     */
+    private static class CountingClient extends SimulatedActor {
+        private int successful = 0;
+        private int[] counts;
+
+        @Override
+        public void tell(Message message) {
+            if (message instanceof ReactionResponse) {
+                successful++;
+            } else if (message instanceof ReactionCounts) {
+                counts = ((ReactionCounts) message).counts;
+            }
+        }
+
+        @Override
+        public void receive(Message message) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        MessageStore store = new MessageStore();
+        CountingClient client = new CountingClient();
+        Random random = new Random(42);
+        Reaction.Emoji[] emojis = Reaction.Emoji.values();
+        UserMessage viral = new UserMessage("author", "viral");
+        send(store, client, new UpdateMessageStore(viral, 0));
+        long id = viral.getMessageId();
+        for (int i = 0; i < REACTIONS; i++) {
+            send(store, client, new AddReaction("client" + random.nextInt(NUMBER_OF_CLIENTS), id, i,
+                    emojis[random.nextInt(emojis.length)]));
+        }
+
+        client.successful = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_REACTIONS; i++) {
+            send(store, client, new AddReaction("client" + random.nextInt(2 * NUMBER_OF_CLIENTS), id, i,
+                    emojis[random.nextInt(emojis.length)]));
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("reaction %10.2f us/operation, %d successful%n",
+                elapsed / 1_000.0 / MEASURED_REACTIONS, client.successful);
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_COUNTS; i++) {
+            send(store, client, new RetrieveReactionCountsFromStore(id, i));
+        }
+        elapsed = System.nanoTime() - start;
+        System.out.printf("count    %10.2f us/operation, counts %s%n",
+                elapsed / 1_000.0 / MEASURED_COUNTS, Arrays.toString(client.counts));
+
+        int[] counts = new int[emojis.length];
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_COUNTS; i++) {
+            counts = new int[emojis.length];
+            for (Set<Reaction.Emoji> reactions : viral.getReactions().values()) {
+                for (Reaction.Emoji reaction : reactions) {
+                    counts[reaction.ordinal()]++;
+                }
+            }
+        }
+        elapsed = System.nanoTime() - start;
+        System.out.printf("walk     %10.2f us/operation, counts %s%n",
+                elapsed / 1_000.0 / MEASURED_COUNTS, Arrays.toString(counts));
+    }
+
+    private static void send(MessageStore store, SimulatedActor client, MessageStoreMessage message) throws Exception {
+        message.storeClient = client;
+        store.receive(message);
+    }
+}
@@ -0,0 +1,138 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem;
+import at.tugraz.ist.qs2024.messageboard.*;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark comparing the throughput of the message board for different numbers
+ * of followers of a single message store and read consistencies.
+ * <p>
+ * Every client sends its next request as soon as it receives a reply. Most requests are
+ * retrievals of the client's own messages and searches, which may be answered by followers,
+ * the others are publishes of new messages, which are only applied by the primary store.
+ * Retrievals see the own publishes with read-your-writes, so they are answered by the
+ * primary while the followers have not applied them yet. With bounded staleness queries are
+ * answered by the primary if the latest change batch is older than the bound. For every
+ * configuration the successful requests per time unit, the share of failed requests and
+ * the percentiles of the latencies of successful requests in ticks are printed.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.ReplicaBenchmark</c>.
+ */
+public class ReplicaBenchmark {
+
+    private static final int NUMBER_OF_WORKERS = 16;
+    private static final int NUMBER_OF_CLIENTS = 4;
+    private static final int WARMUP_TICKS = 1_000;
+    private static final int MEASURED_TICKS = 10_000;
+    private static final int REPLICATION_INTERVAL = 5;
+
+    /**
+     * Latencies of the requests answered successfully after the warm-up, in ticks.
+     */
+    private static final List<Integer> latencies = new ArrayList<>();
+
+    /**
+     * Number of requests failed after the warm-up.
+     */
+    private static int failures = 0;
+
+    private static SimulatedActorSystem system;
+
+    /**
+     * Client sending requests within a single communication, one request at a time.
+     */
+    private static class BenchmarkClient extends SimulatedActor {
+        private final String name;
+        private final SimulatedActor dispatcher;
+        private final Random random;
+        private final long communicationId;
+        private SimulatedActor worker;
+        private int published = 0;
+        private int sentAt = 0;
+
+        BenchmarkClient(String name, SimulatedActor dispatcher, long seed) {
+            this.name = name;
+            this.dispatcher = dispatcher;
+            this.random = new Random(seed);
+            this.communicationId = seed;
+        }
+
+        @Override
+        public void atStartUp() {
+            dispatcher.tell(new InitCommunication(this, communicationId, name));
+        }
+
+        @Override
+        public void receive(Message message) {
+            if (message instanceof InitAck) {
+                worker = ((InitAck) message).worker;
+            } else {
+                if (system.getCurrentTime() >= WARMUP_TICKS) {
+                    if (message instanceof OperationFailed) {
+                        failures++;
+                    } else {
+                        latencies.add(getTimeSinceSystemStart() - sentAt);
+                    }
+                }
+            }
+            sendRequest();
+        }
+
+        private void sendRequest() {
+            sentAt = getTimeSinceSystemStart();
+            int kind = random.nextInt(10);
+            if (kind < 2) {
+                worker.tell(new Publish(new UserMessage(name, "m" + published++), communicationId));
+            } else if (kind < 9) {
+                worker.tell(new RetrieveMessages(name, communicationId));
+            } else {
+                worker.tell(new SearchMessages("m1", communicationId));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("followers  consistency        successful/tick  failed    p50    p90    p99    max");
+        for (int followers : new int[]{0, 1, 2, 4, 8}) {
+            run(followers, ReadConsistency.readYourWrites(), "read-your-writes");
+            if (followers > 0) {
+                run(followers, ReadConsistency.boundedStaleness(REPLICATION_INTERVAL * 2), "staleness " + REPLICATION_INTERVAL * 2);
+            }
+        }
+    }
+
+    private static void run(int followers, ReadConsistency consistency, String label) throws Exception {
+        latencies.clear();
+        failures = 0;
+        system = new SimulatedActorSystem(true);
+        Dispatcher dispatcher = new Dispatcher(system, NUMBER_OF_WORKERS, MessageStoreRouter.createReplicatedShards(1, followers, consistency, REPLICATION_INTERVAL),
+                new RandomRoutingStrategy());
+        system.spawn(dispatcher);
+        for (int i = 0; i < NUMBER_OF_CLIENTS; i++) {
+            system.spawn(new BenchmarkClient("client" + i, dispatcher, i));
+        }
+        system.runFor(WARMUP_TICKS + MEASURED_TICKS);
+
+        int[] sorted = latencies.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(sorted);
+        if (sorted.length == 0) {
+            System.out.printf("%9d  %-17s %16.3f %6.1f%%%n", followers, label, 0.0, 100.0);
+            return;
+        }
+        System.out.printf("%9d  %-17s %16.3f %6.1f%% %6d %6d %6d %6d%n", followers, label, (double) sorted.length / MEASURED_TICKS,
+                100.0 * failures / (failures + sorted.length), percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted[sorted.length - 1]);
+    }
+
+    private static int percentile(int[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
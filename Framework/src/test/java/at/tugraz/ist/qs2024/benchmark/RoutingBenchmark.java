@@ -0,0 +1,160 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem;
+import at.tugraz.ist.qs2024.messageboard.*;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark comparing the tail latencies of requests for the routing strategies
+ * of the dispatcher under a skewed workload.
+ * <p>
+ * A few hot clients send their next request as soon as they receive a reply, all
+ * other clients think for a while between requests. Every client initiates a new
+ * communication after a fixed number of requests, so it is routed again. Most
+ * requests are rejected by the validation of the worker, so that the workers and
+ * not the single message store limit the throughput. For every strategy the
+ * percentiles of the request latencies in ticks are printed.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.RoutingBenchmark</c>.
+ */
+public class RoutingBenchmark {
+
+    private static final int NUMBER_OF_WORKERS = 8;
+    private static final int NUMBER_OF_HOT_CLIENTS = 12;
+    private static final int NUMBER_OF_COLD_CLIENTS = 200;
+    private static final int REQUESTS_PER_COMMUNICATION = 10;
+    private static final int MIN_THINK_TICKS = 50;
+    private static final int MAX_THINK_TICKS = 250;
+    private static final int WARMUP_TICKS = 2_000;
+    private static final int MEASURED_TICKS = 20_000;
+
+    /**
+     * Latencies of the requests answered after the warm-up, in ticks.
+     */
+    private static final List<Integer> latencies = new ArrayList<>();
+
+    private static SimulatedActorSystem system;
+
+    /**
+     * Client sending requests in communications of a fixed length, which waits
+     * for the think time after every reply before sending the next request.
+     */
+    private static class BenchmarkClient extends SimulatedActor {
+        private final String name;
+        private final SimulatedActor dispatcher;
+        private final Random random;
+        private final boolean hot;
+        private long communicationId;
+        private SimulatedActor worker;
+        private int requests = 0;
+        private int sentAt = 0;
+        private int thinkTicks = 0;
+
+        BenchmarkClient(String name, SimulatedActor dispatcher, long seed, boolean hot) {
+            this.name = name;
+            this.dispatcher = dispatcher;
+            this.random = new Random(seed);
+            this.hot = hot;
+        }
+
+        @Override
+        public void atStartUp() {
+            communicationId = random.nextLong();
+            dispatcher.tell(new InitCommunication(this, communicationId, name));
+        }
+
+        @Override
+        public void receive(Message message) {
+            if (message instanceof InitAck) {
+                worker = ((InitAck) message).worker;
+                sendRequest();
+            } else if (message instanceof FinishAck) {
+                communicationId = random.nextLong();
+                dispatcher.tell(new InitCommunication(this, communicationId, name));
+            } else {
+                if (system.getCurrentTime() >= WARMUP_TICKS) {
+                    latencies.add(getTimeSinceSystemStart() - sentAt);
+                }
+                if (requests == REQUESTS_PER_COMMUNICATION) {
+                    requests = 0;
+                    worker.tell(new FinishCommunication(communicationId));
+                } else if (hot) {
+                    sendRequest();
+                } else {
+                    thinkTicks = MIN_THINK_TICKS + random.nextInt(MAX_THINK_TICKS - MIN_THINK_TICKS);
+                }
+            }
+        }
+
+        @Override
+        public void tick() throws UnknownClientException, UnknownMessageException {
+            super.tick();
+            if (thinkTicks > 0 && --thinkTicks == 0) {
+                sendRequest();
+            }
+        }
+
+        @Override
+        public int getIdleTicks() {
+            return thinkTicks > 0 ? Math.min(super.getIdleTicks(), thinkTicks - 1) : super.getIdleTicks();
+        }
+
+        @Override
+        public void skipTicks(int ticks) {
+            super.skipTicks(ticks);
+            thinkTicks = Math.max(0, thinkTicks - ticks);
+        }
+
+        private void sendRequest() {
+            requests++;
+            sentAt = getTimeSinceSystemStart();
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                worker.tell(new Like(name, communicationId, random.nextInt(100)));
+            } else if (kind < 6) {
+                // too long, rejected by the worker
+                worker.tell(new Publish(new UserMessage(name, "a message which is too long"), communicationId));
+            } else {
+                worker.tell(new Edit(random.nextInt(100), name, "an edit which is too long", communicationId));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("strategy              requests    p50    p90    p99  p99.9    max");
+        run("random", RandomRoutingStrategy::new);
+        run("least loaded", LeastLoadedRoutingStrategy::new);
+        run("power of two choices", PowerOfTwoChoicesRoutingStrategy::new);
+        run("consistent hash", ConsistentHashRoutingStrategy::new);
+    }
+
+    private static void run(String name, Supplier<WorkerRoutingStrategy> strategy) throws Exception {
+        latencies.clear();
+        system = new SimulatedActorSystem(true);
+        Dispatcher dispatcher = new Dispatcher(system, NUMBER_OF_WORKERS, strategy.get());
+        system.spawn(dispatcher);
+        for (int i = 0; i < NUMBER_OF_HOT_CLIENTS + NUMBER_OF_COLD_CLIENTS; i++) {
+            system.spawn(new BenchmarkClient("client" + i, dispatcher, i, i < NUMBER_OF_HOT_CLIENTS));
+        }
+        system.runFor(WARMUP_TICKS + MEASURED_TICKS);
+
+        int[] sorted = latencies.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(sorted);
+        System.out.printf("%-20s %9d %6d %6d %6d %6d %6d%n", name, sorted.length,
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                percentile(sorted, 99.9), sorted[sorted.length - 1]);
+    }
+
+    private static int percentile(int[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
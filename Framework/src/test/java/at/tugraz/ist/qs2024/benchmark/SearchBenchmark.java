@@ -0,0 +1,102 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.MessageStore;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.FoundMessages;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.MessageStoreMessage;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.SearchInStore;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.UpdateMessageStore;
+
+import java.util.Random;
+
+/**
+ * Benchmark measuring the cost of searches in a message store, which stores many messages.
+ * <p>
+ * The store is filled with {@link #STORED_MESSAGES} messages of {@link #NUMBER_OF_AUTHORS}
+ * authors, each consisting of random words. Then searches for a word, for a rare combination
+ * of words, for an author and for a text shorter than the indexed n-grams, which is looked
+ * up in all messages, are measured, as well as a search for all messages and the first
+ * pages of {@link #PAGE_SIZE} messages of some searches. The messages are passed to the
+ * store directly, without an actor system. The time per search and the number of messages
+ * found, which must not depend on the implementation, are printed.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.SearchBenchmark</c>.
+ */
+public class SearchBenchmark {
+
+    private static final int STORED_MESSAGES = 1_000_000;
+    private static final int NUMBER_OF_AUTHORS = 10_000;
+    private static final int NUMBER_OF_WORDS = 5_000;
+    private static final int WORDS_PER_MESSAGE = 5;
+    private static final int MEASURED_SEARCHES = 20;
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * Client of the store, which keeps the number of messages found by the latest search.
+     */
+    private static class CountingClient extends SimulatedActor {
+        private int found = 0;
+
+        @Override
+        public void tell(Message message) {
+            if (message instanceof FoundMessages) {
+                found = ((FoundMessages) message).messages.size();
+            }
+        }
+
+        @Override
+        public void receive(Message message) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        MessageStore store = new MessageStore();
+        CountingClient client = new CountingClient();
+        Random random = new Random(42);
+        for (int i = 0; i < STORED_MESSAGES; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < WORDS_PER_MESSAGE; j++) {
+                text.append(j == 0 ? "" : " ").append(word(random.nextInt(NUMBER_OF_WORDS)));
+            }
+            text.append(' ').append(i);
+            send(store, client, new UpdateMessageStore(new UserMessage("author" + i % NUMBER_OF_AUTHORS, text.toString()), i));
+        }
+
+        measure(store, client, "word", word(1234), 0);
+        measure(store, client, "rare words", word(1234) + " " + word(42), 0);
+        measure(store, client, "author", "AUTHOR4711", 0);
+        measure(store, client, "short text", "qz", 0);
+        measure(store, client, "all", "", 0);
+        measure(store, client, "all, page", "", PAGE_SIZE);
+        measure(store, client, "word, page", word(1234), PAGE_SIZE);
+    }
+
+    private static void measure(MessageStore store, CountingClient client, String name, String searchText, int pageSize)
+            throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_SEARCHES; i++) {
+            send(store, client, new SearchInStore(searchText, i, pageSize, FoundMessages.NO_CURSOR));
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-12s %10.1f us/search, %d found%n", name, elapsed / 1_000.0 / MEASURED_SEARCHES, client.found);
+    }
+
+    /**
+     * @return A word of lowercase letters distinct for every index.
+     */
+    private static String word(int index) {
+        StringBuilder word = new StringBuilder("w");
+        do {
+            word.append((char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return word.toString();
+    }
+
+    private static void send(MessageStore store, SimulatedActor client, MessageStoreMessage message) throws Exception {
+        message.storeClient = client;
+        store.receive(message);
+    }
+}
@@ -0,0 +1,137 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.Durability;
+import at.tugraz.ist.qs2024.messageboard.MessageStore;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+import at.tugraz.ist.qs2024.messageboard.WriteAheadLog;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.FoundMessages;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark comparing the restart of a message store by replaying its whole write-ahead log with
+ * the restart from a snapshot and the writes logged after it.
+ * <p>
+ * A store logs {@link #NUMBER_OF_MESSAGES} messages, each with {@link #LIKES_PER_MESSAGE} likes and a
+ * reaction. A second store replays the whole log and takes a snapshot, then
+ * {@link #WRITES_AFTER_SNAPSHOT} further writes are logged and a third store is restored from the
+ * snapshot and the writes after it. The messages are passed to the stores directly, without an
+ * actor system. The time of both restarts, the time the store is paused while taking the snapshot
+ * and the time the snapshot is written in the background are printed, as well as the number of
+ * messages of an author, which must be the same after both restarts.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.SnapshotBenchmark</c>.
+ */
+public class SnapshotBenchmark {
+
+    private static final int NUMBER_OF_MESSAGES = 200_000;
+    private static final int NUMBER_OF_USERS = 10_000;
+    private static final int LIKES_PER_MESSAGE = 4;
+    private static final int WRITES_AFTER_SNAPSHOT = 10_000;
+    private static final int WRITES_PER_TICK = 1_000;
+
+    /**
+     * Client of the store, which keeps the latest messages found.
+     */
+    private static class CountingClient extends SimulatedActor {
+        private List<UserMessage> found;
+
+        @Override
+        public void tell(Message message) {
+            if (message instanceof FoundMessages) {
+                found = ((FoundMessages) message).messages;
+            }
+        }
+
+        @Override
+        public void receive(Message message) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("snapshot-benchmark");
+        Path logFile = directory.resolve("store.wal");
+        Path snapshotFile = directory.resolve("store.snapshot");
+        try {
+            CountingClient client = new CountingClient();
+            Random random = new Random(42);
+            Reaction.Emoji[] emojis = Reaction.Emoji.values();
+            MessageStore store = new MessageStore();
+            long writes = 0;
+            try (WriteAheadLog log = new WriteAheadLog(logFile, Durability.perTick())) {
+                store.setWriteAheadLog(log);
+                for (int i = 0; i < NUMBER_OF_MESSAGES; i++) {
+                    UserMessage message = new UserMessage("user" + random.nextInt(NUMBER_OF_USERS), "message " + i);
+                    send(store, client, new UpdateMessageStore(message, i));
+                    for (int j = 0; j < LIKES_PER_MESSAGE; j++) {
+                        send(store, client, new AddLike("user" + random.nextInt(NUMBER_OF_USERS), message.getMessageId(), i));
+                    }
+                    send(store, client, new AddReaction("user" + random.nextInt(NUMBER_OF_USERS), message.getMessageId(), i,
+                            emojis[random.nextInt(emojis.length)]));
+                    writes += LIKES_PER_MESSAGE + 2;
+                    if (i % (WRITES_PER_TICK / (LIKES_PER_MESSAGE + 2)) == 0) {
+                        store.tick();
+                    }
+                }
+            }
+            System.out.printf("logged %d writes, %.1f MB%n", writes, Files.size(logFile) / 1e6);
+
+            MessageStore replayed = new MessageStore();
+            replayed.setSnapshotFile(snapshotFile, 1);
+            long start = System.nanoTime();
+            try (WriteAheadLog log = new WriteAheadLog(logFile, Durability.perTick())) {
+                long replayedWrites = replayed.setWriteAheadLog(log);
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("restart from log                %8d ms, %d writes replayed%n",
+                        elapsed / 1_000_000, replayedWrites);
+
+                start = System.nanoTime();
+                replayed.tick();
+                long paused = System.nanoTime() - start;
+                while (!Files.exists(snapshotFile)) {
+                    Thread.sleep(1);
+                }
+                elapsed = System.nanoTime() - start;
+                System.out.printf("snapshot: store paused %.2f ms, written in %d ms, %.1f MB%n",
+                        paused / 1e6, elapsed / 1_000_000, Files.size(snapshotFile) / 1e6);
+
+                for (int i = 0; i < WRITES_AFTER_SNAPSHOT; i++) {
+                    send(replayed, client, new AddLike("user" + random.nextInt(NUMBER_OF_USERS),
+                            random.nextInt(NUMBER_OF_MESSAGES), i));
+                }
+            }
+            send(replayed, client, new RetrieveFromStore("user0", 0));
+            int messagesBefore = client.found.size();
+
+            MessageStore restored = new MessageStore();
+            start = System.nanoTime();
+            restored.setSnapshotFile(snapshotFile, 1);
+            try (WriteAheadLog log = new WriteAheadLog(logFile, Durability.perTick())) {
+                long replayedWrites = restored.setWriteAheadLog(log);
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("restart from snapshot and log   %8d ms, %d writes replayed%n",
+                        elapsed / 1_000_000, replayedWrites);
+            }
+            send(restored, client, new RetrieveFromStore("user0", 0));
+            System.out.printf("messages of user0 before %d, after restart %d%n", messagesBefore, client.found.size());
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void send(MessageStore store, SimulatedActor client, MessageStoreMessage message) throws Exception {
+        message.storeClient = client;
+        store.receive(message);
+    }
+}
@@ -0,0 +1,181 @@
+package at.tugraz.ist.qs2024.benchmark;
+
+import at.tugraz.ist.qs2024.actorsystem.Message;
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActor;
+import at.tugraz.ist.qs2024.messageboard.Durability;
+import at.tugraz.ist.qs2024.messageboard.MessageStore;
+import at.tugraz.ist.qs2024.messageboard.UserMessage;
+import at.tugraz.ist.qs2024.messageboard.WriteAheadLog;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.FoundMessages;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.OperationFailed;
+import at.tugraz.ist.qs2024.messageboard.clientmessages.Reaction;
+import at.tugraz.ist.qs2024.messageboard.messagestoremessages.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark measuring the cost of logging the writes of a message store to a write-ahead log
+ * with different durabilities and the speed of replaying the log on startup.
+ * <p>
+ * A mix of publishing, liking, reacting, reporting, editing and deleting is sent to a store,
+ * {@link #WRITES_PER_TICK} writes per time unit, without a log and with a log forcing every
+ * write, every {@link #GROUP_SIZE} writes or every time unit. The messages are passed to the
+ * store directly, without an actor system. Then a log of {@link #REPLAYED_WRITES} writes is
+ * read without applying the writes and replayed by a new store. The time per write, the number
+ * of syncs and the number of replies, which must not depend on the durability, are printed,
+ * as well as the speed of reading and replaying the log.
+ * <p>
+ * Run it using <c>gradle benchmark -PbenchmarkClass=at.tugraz.ist.qs2024.benchmark.WriteAheadLogBenchmark</c>.
+ */
+public class WriteAheadLogBenchmark {
+
+    private static final int WRITES = 20_000;
+    private static final int WRITES_PER_TICK = 100;
+    private static final int GROUP_SIZE = 32;
+    private static final int REPLAYED_WRITES = 2_000_000;
+    private static final int NUMBER_OF_CLIENTS = 10_000;
+
+    /**
+     * Client of the store, which counts the replies and keeps the latest messages found.
+     */
+    private static class CountingClient extends SimulatedActor {
+        private int replies = 0;
+        private int failures = 0;
+        private List<UserMessage> found;
+
+        @Override
+        public void tell(Message message) {
+            replies++;
+            if (message instanceof OperationFailed) {
+                failures++;
+            } else if (message instanceof FoundMessages) {
+                found = ((FoundMessages) message).messages;
+            }
+        }
+
+        @Override
+        public void receive(Message message) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("wal-benchmark");
+        try {
+            // warm up
+            write(new MessageStore(), new CountingClient(), WRITES, new Random(42));
+            System.out.println("durability          us/write      syncs  replies  failed");
+            run(directory, null);
+            run(directory, Durability.perMutation());
+            run(directory, Durability.perMutations(GROUP_SIZE));
+            run(directory, Durability.perTick());
+            replay(directory);
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void run(Path directory, Durability durability) throws Exception {
+        MessageStore store = new MessageStore();
+        CountingClient client = new CountingClient();
+        WriteAheadLog log = null;
+        if (durability != null) {
+            log = new WriteAheadLog(directory.resolve("run.wal"), durability);
+            store.setWriteAheadLog(log);
+        }
+        long start = System.nanoTime();
+        write(store, client, WRITES, new Random(42));
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-16s %11.2f %10d %8d %7d%n", durability == null ? "none" : durability,
+                elapsed / 1_000.0 / WRITES, log == null ? 0 : log.getSyncs(), client.replies, client.failures);
+        if (log != null) {
+            log.close();
+            Files.delete(directory.resolve("run.wal"));
+        }
+    }
+
+    private static void replay(Path directory) throws Exception {
+        Path file = directory.resolve("replay.wal");
+        MessageStore store = new MessageStore();
+        CountingClient client = new CountingClient();
+        try (WriteAheadLog log = new WriteAheadLog(file, Durability.perTick())) {
+            store.setWriteAheadLog(log);
+            write(store, client, REPLAYED_WRITES, new Random(42));
+        }
+        send(store, client, new RetrieveFromStore("client0", 0));
+        int messagesBefore = client.found.size();
+
+        long bytes = Files.size(file);
+        long start = System.nanoTime();
+        long read;
+        try (WriteAheadLog log = new WriteAheadLog(file, Durability.perTick())) {
+            read = log.replay(write -> {
+            });
+        }
+        print("read", read, bytes, System.nanoTime() - start);
+
+        MessageStore restarted = new MessageStore();
+        start = System.nanoTime();
+        long replayed;
+        try (WriteAheadLog log = new WriteAheadLog(file, Durability.perTick())) {
+            replayed = restarted.setWriteAheadLog(log);
+        }
+        print("replay", replayed, bytes, System.nanoTime() - start);
+        send(restarted, client, new RetrieveFromStore("client0", 0));
+        System.out.printf("messages of client0 before %d, after replay %d%n", messagesBefore, client.found.size());
+    }
+
+    private static void print(String name, long writes, long bytes, long elapsed) {
+        System.out.printf("%-6s %d writes (%.1f bytes/write) in %d ms, %.2f us/write, %.1f MB/s%n",
+                name, writes, (double) bytes / writes, elapsed / 1_000_000, elapsed / 1_000.0 / writes,
+                bytes / 1e6 / (elapsed / 1e9));
+    }
+
+    /**
+     * Sends a mix of writes to the store and ticks it after every {@link #WRITES_PER_TICK} writes.
+     */
+    private static void write(MessageStore store, CountingClient client, int writes, Random random) throws Exception {
+        Reaction.Emoji[] emojis = Reaction.Emoji.values();
+        List<UserMessage> published = new ArrayList<>();
+        for (int i = 0; i < writes; i++) {
+            int kind = published.isEmpty() ? 0 : random.nextInt(20);
+            String clientName = "client" + random.nextInt(NUMBER_OF_CLIENTS);
+            if (kind < 8) {
+                UserMessage message = new UserMessage(clientName, "message " + i);
+                send(store, client, new UpdateMessageStore(message, i));
+                published.add(message);
+            } else {
+                UserMessage message = published.get(random.nextInt(published.size()));
+                if (kind < 13) {
+                    send(store, client, new AddLike(clientName, message.getMessageId(), i));
+                } else if (kind < 17) {
+                    send(store, client, new AddReaction(clientName, message.getMessageId(), i,
+                            emojis[random.nextInt(emojis.length)]));
+                } else if (kind < 18) {
+                    send(store, client, new AddReport(clientName, i, message.getAuthor()));
+                } else if (kind < 19) {
+                    send(store, client, new EditMessage(message.getMessageId(), message.getAuthor(),
+                            "edited " + i, i));
+                } else {
+                    send(store, client, new DeleteMessage(message.getAuthor(), message.getMessageId(), i));
+                }
+            }
+            if ((i + 1) % WRITES_PER_TICK == 0) {
+                store.tick();
+            }
+        }
+        store.tick();
+    }
+
+    private static void send(MessageStore store, SimulatedActor client, MessageStoreMessage message) throws Exception {
+        message.storeClient = client;
+        store.receive(message);
+    }
+}
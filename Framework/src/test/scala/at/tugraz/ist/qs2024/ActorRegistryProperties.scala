@@ -0,0 +1,72 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.{ActorRegistry, Message, SimulatedActor, SimulatedActorSystem}
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class ActorRegistryProperties extends Properties("ActorRegistryProperties") {
+
+  private class SilentActor extends SimulatedActor {
+    override def receive(message: Message): Unit = {}
+  }
+
+  // an operation either adds a new actor (None) or removes the actor at an index of the added actors
+  private val operationGen: Gen[Option[Int]] = Gen.frequency((2, Gen.const(None)), (1, Gen.choose(0, 1000).map(Some(_))))
+
+  property("registry behaves like a list ordered by IDs") = forAll(Gen.listOf(operationGen)) { (operations: List[Option[Int]]) =>
+    val registry = new ActorRegistry
+    var added = Vector[SimulatedActor]()
+    var model = Vector[SimulatedActor]()
+    operations.forall {
+      case None =>
+        val actor = new SilentActor
+        actor.setId(added.size)
+        added :+= actor
+        model :+= actor
+        registry.add(actor)
+        true
+      case Some(index) =>
+        val actor = if (added.isEmpty) new SilentActor else added(index % added.size)
+        val removed = registry.remove(actor)
+        val wasPresent = model.contains(actor)
+        model = model.filterNot(_ eq actor)
+        removed == wasPresent
+    } && registry.size == model.size &&
+      registry.toList.asScala == model &&
+      added.forall(actor => (registry.get(actor.getId) eq actor) == model.contains(actor)) &&
+      registry.get(added.size) == null
+  }
+
+  property("actors of the system are a snapshot, which can be looked up by ID") =
+    forAll(Gen.listOf(operationGen), Gen.oneOf(false, true)) { (operations: List[Option[Int]], ticking: Boolean) =>
+      val system = new SimulatedActorSystem
+      var spawned = Vector[SimulatedActor]()
+      var alive = Vector[SimulatedActor]()
+      for (operation <- operations) {
+        operation match {
+          case None =>
+            val actor = new SilentActor
+            system.spawn(actor)
+            spawned :+= actor
+            alive :+= actor
+          case Some(index) if spawned.nonEmpty =>
+            val actor = spawned(index % spawned.size)
+            system.stop(actor)
+            alive = alive.filterNot(_ eq actor)
+          case _ =>
+        }
+        if (ticking) {
+          system.tick()
+        }
+      }
+      val snapshot = system.getActors
+      val lookedUp = spawned.forall(actor => (system.getActor(actor.getId) eq actor) == alive.contains(actor))
+      spawned.foreach(system.stop)
+      snapshot.asScala == alive && lookedUp &&
+        system.getActors.isEmpty
+    }
+}
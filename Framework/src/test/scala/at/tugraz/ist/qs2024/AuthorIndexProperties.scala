@@ -0,0 +1,55 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import at.tugraz.ist.qs2024.messageboard.{Dispatcher, UserMessage}
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class AuthorIndexProperties extends Properties("AuthorIndexProperties") {
+
+  private val names = IndexedSeq("alice", "bob", "carol")
+  private val texts = IndexedSeq("a", "b", "ab", "A")
+
+  // an operation publishes (0), edits (1) or deletes (2) a message, it has a client, the index of the
+  // message concerned among the stored messages and a text
+  private val operationGen: Gen[(Int, Int, Int, Int)] = for {
+    kind <- Gen.choose(0, 2)
+    client <- Gen.choose(0, names.size - 1)
+    target <- Gen.choose(0, 7)
+    text <- Gen.choose(0, texts.size - 1)
+  } yield (kind, client, target, text)
+
+  property("retrieved messages are the messages of the author ordered by ID") =
+    forAll(Gen.listOf(operationGen), Gen.oneOf(false, true)) { (operations: List[(Int, Int, Int, Int)], eventDriven: Boolean) =>
+      val system = new SimulatedActorSystem(eventDriven)
+      val board = new MessageBoardHarness(system, new Dispatcher(system, 2), 1)
+      // stored messages ordered by ID with their authors and texts
+      var model = Vector[(Long, String, String)]()
+      operations.forall { case (kind, client, target, text) =>
+        val name = names(client)
+        val entry = if (model.isEmpty) None else Some(model(target % model.size))
+        val id = entry.map(_._1).getOrElse(12345L)
+        val author = entry.filter(_ => kind != 0).map(_._2).getOrElse(name)
+        val acknowledged = (kind match {
+          case 0 => board.request(0, new Publish(new UserMessage(name, texts(text)), _))
+          case 1 => board.request(0, new Edit(id, name, texts(text), _))
+          case _ => board.request(0, new Delete(id, name, _))
+        }).isInstanceOf[OperationAck]
+        val found = board.request(0, new RetrieveMessages(author, _)).asInstanceOf[FoundMessages].messages.asScala.toVector
+        if (acknowledged) {
+          model = kind match {
+            // IDs are assigned in ascending order
+            case 0 => model :+ ((found.map(_.getMessageId).max, name, texts(text)))
+            case 1 => model.map(stored => if (stored._1 == id) (id, stored._2, texts(text)) else stored)
+            case _ => model.filterNot(_._1 == id)
+          }
+        }
+        found.map(message => (message.getMessageId, message.getAuthor, message.getMessage)) == model.filter(_._2 == author)
+      }
+    }
+}
@@ -0,0 +1,113 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.{Message, SimulatedActor, SimulatedActorSystem}
+import at.tugraz.ist.qs2024.messageboard.ScalingMetrics.Action
+import at.tugraz.ist.qs2024.messageboard._
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import at.tugraz.ist.qs2024.messageboard.dispatchermessages.Stop
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.collection.mutable.ListBuffer
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class AutoscalingProperties extends Properties("AutoscalingProperties") {
+
+  // client which publishes the given number of messages one after the other and then finishes its communication
+  private class PublishingClient(val communicationId: Long, publications: Int) extends SimulatedActor {
+    val received: ListBuffer[Message] = ListBuffer()
+    private var worker: SimulatedActor = _
+    private var left = publications
+
+    override def receive(message: Message): Unit = {
+      received += message
+      message match {
+        case initAck: InitAck =>
+          worker = initAck.worker
+          next()
+        case _: OperationAck | _: OperationFailed => next()
+        case _ =>
+      }
+    }
+
+    private def next(): Unit = {
+      if (left > 0) {
+        left -= 1
+        worker.tell(new Publish(new UserMessage("author" + communicationId, "message" + left), communicationId))
+      } else {
+        worker.tell(new FinishCommunication(communicationId))
+      }
+    }
+
+    def isFinished: Boolean = received.lastOption.exists(_.isInstanceOf[FinishAck])
+
+    def isAnswered: Boolean = received.count(reply => reply.isInstanceOf[OperationAck] || reply.isInstanceOf[OperationFailed]) == publications &&
+      received.count(_.isInstanceOf[FinishAck]) == 1
+  }
+
+  private val policyGen: Gen[AutoscalingPolicy] = for {
+    minWorkers <- Gen.choose(1, 2)
+    maxWorkers <- Gen.choose(minWorkers, minWorkers + 3)
+    scaleDownLoad <- Gen.choose(0, 1)
+    scaleUpLoad <- Gen.choose(scaleDownLoad + 1, scaleDownLoad + 4)
+    scaleUpLatency <- Gen.choose(2, 9)
+    evaluationInterval <- Gen.choose(1, 10)
+    cooldown <- Gen.choose(0, 29)
+  } yield new AutoscalingPolicy(minWorkers, maxWorkers, scaleUpLoad, scaleDownLoad, scaleUpLatency, evaluationInterval, cooldown)
+
+  // a burst waits for the given number of ticks and then starts clients, which publish the given numbers of messages
+  private val burstGen: Gen[(Int, List[Int])] = for {
+    gap <- Gen.choose(0, 39)
+    clients <- Gen.listOfN(8, Gen.choose(0, 3)).flatMap(Gen.someOf(_)).map(_.toList)
+  } yield (gap, clients)
+
+  property("worker pool stays within its bounds and drains workers without failing communications") =
+    forAll(policyGen, Gen.listOf(burstGen), Gen.oneOf(false, true)) {
+      (policy: AutoscalingPolicy, bursts: List[(Int, List[Int])], eventDriven: Boolean) =>
+        val system = new SimulatedActorSystem(eventDriven)
+        val dispatcher = new Dispatcher(system, new MessageStore(), new RandomRoutingStrategy, policy)
+        system.spawn(dispatcher)
+        var withinBounds = true
+        def checkBounds(): Unit = withinBounds &&=
+          dispatcher.getNumberOfWorkers >= policy.getMinWorkers && dispatcher.getNumberOfWorkers <= policy.getMaxWorkers
+
+        val clients = ListBuffer[PublishingClient]()
+        for ((gap, publications) <- bursts) {
+          system.runFor(gap)
+          for (count <- publications) {
+            val client = new PublishingClient(clients.size + 1, count)
+            clients += client
+            system.spawn(client)
+            dispatcher.tell(new InitCommunication(client, client.communicationId))
+          }
+          checkBounds()
+        }
+        var ticks = 0
+        while (!clients.forall(_.isFinished) && ticks < 3000) {
+          system.runFor(1)
+          checkBounds()
+          ticks += 1
+        }
+
+        val decisions = dispatcher.getScalingMetrics.getDecisions.asScala.toList
+        val workersAfterDecisions = decisions.scanLeft(policy.getMinWorkers) { (workers, decision) =>
+          if (decision.getAction == Action.GROW) workers + 1 else workers - 1
+        }
+        val consistentDecisions = decisions.zip(workersAfterDecisions.tail).forall { case (decision, workers) =>
+          decision.getWorkers == workers && (decision.getAction match {
+            case Action.GROW => decision.getAverageLoad > policy.getScaleUpLoad || decision.getAverageLatency > policy.getScaleUpLatency
+            case Action.SHRINK => decision.getAverageLoad < policy.getScaleDownLoad && decision.getAverageLatency <= policy.getScaleUpLatency
+          })
+        } && workersAfterDecisions.last == dispatcher.getNumberOfWorkers
+        val cooledDown = decisions.zip(decisions.drop(1)).forall { case (first, second) =>
+          second.getTime - first.getTime >= policy.getCooldown
+        }
+
+        dispatcher.tell(new Stop())
+        system.runFor(300)
+        withinBounds && consistentDecisions && cooledDown && clients.forall(_.isAnswered) &&
+          !system.getActors.asScala.exists(actor => actor.isInstanceOf[Worker] || actor.isInstanceOf[WorkerHelper] || actor == dispatcher)
+    }
+}
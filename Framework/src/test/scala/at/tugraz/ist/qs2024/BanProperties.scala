@@ -0,0 +1,67 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem
+import at.tugraz.ist.qs2024.messageboard.MessageStore.USER_BLOCKED_AT_COUNT
+import at.tugraz.ist.qs2024.messageboard._
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class BanProperties extends Properties("BanProperties") {
+
+  private val numberOfClients = 8
+
+  // a report of another client, client0 is reported most often, so that it is banned in many runs
+  private val reportGen: Gen[(String, String)] = for {
+    reported <- Gen.frequency((2, Gen.const(0)), (1, Gen.choose(0, numberOfClients - 1)))
+    offset <- Gen.choose(1, numberOfClients - 1)
+  } yield ("client" + (reported + offset) % numberOfClients, "client" + reported)
+
+  property("bans are published in the time unit after the report that bans the client") =
+    forAll(Gen.listOf(Gen.zip(reportGen, Gen.choose(0, 1)))) { (reports: List[((String, String), Int)]) =>
+      val registry = new ReportRegistry
+      var reporters = Map[String, Set[String]]().withDefaultValue(Set())
+      var bannedAt = Map[String, Int]()
+      var time = 0
+      reports.forall { case ((reporter, reported), elapsed) =>
+        time += elapsed
+        val added = !reporters(reported).contains(reporter)
+        reporters = reporters.updated(reported, reporters(reported) + reporter)
+        if (added && reporters(reported).size == USER_BLOCKED_AT_COUNT + 1) {
+          bannedAt = bannedAt.updated(reported, time)
+        }
+        registry.addReport(reporter, reported, time) == added &&
+          (0 until numberOfClients).map("client" + _).forall(name =>
+            registry.isBanned(name) == bannedAt.contains(name) &&
+              registry.getBannedClients(time).contains(name) == bannedAt.get(name).exists(_ < time) &&
+              registry.getBannedClients(time + 1).contains(name) == bannedAt.contains(name)) &&
+          registry.getBannedClients().size == bannedAt.size && registry.getBannedClients().getVersion == bannedAt.size
+      }
+    }
+
+  property("writes of banned clients are rejected with UserBanned on every shard") =
+    forAll(Gen.choose(1, 3), Gen.listOf(Gen.zip(Gen.oneOf(false, true), reportGen)), Gen.oneOf(false, true)) {
+      (numberOfShards: Int, operations: List[(Boolean, (String, String))], eventDriven: Boolean) =>
+        val system = new SimulatedActorSystem(eventDriven)
+        val board = new MessageBoardHarness(system, new Dispatcher(system, 2, MessageStoreRouter.createShards(numberOfShards), new RandomRoutingStrategy), 1)
+        var reporters = Map[String, Set[String]]().withDefaultValue(Set())
+        operations.zipWithIndex.forall { case ((publish, (client, reported)), index) =>
+          val banned = reporters(client).size > USER_BLOCKED_AT_COUNT
+          if (publish) {
+            val reply = board.request(0, new Publish(new UserMessage(client, "m" + index), _))
+            if (banned) reply.isInstanceOf[UserBanned] else reply.isInstanceOf[OperationAck]
+          } else {
+            val reply = board.request(0, new Report(client, _, reported))
+            if (banned) {
+              reply.isInstanceOf[UserBanned]
+            } else {
+              val added = !reporters(reported).contains(client)
+              reporters = reporters.updated(reported, reporters(reported) + client)
+              if (added) reply.isInstanceOf[OperationAck] else reply.isInstanceOf[OperationFailed]
+            }
+          }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.{DeterministicChannel, ICommunicationChannel, Message, TimingWheelChannel}
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class CommunicationChannelProperties extends Properties("CommunicationChannelProperties") {
+
+  // simple message which is only identified by its index in the sequence of sent messages
+  private case class IndexedMessage(index: Int) extends Message {
+    override def getDuration: Int = 1
+  }
+
+  // a step is either sending some messages (Some(count)) or a tick (None)
+  private val stepsGen: Gen[List[Option[Int]]] = Gen.listOf(Gen.option(Gen.choose(1, 3)))
+
+  private def run(channel: ICommunicationChannel, steps: List[Option[Int]]): List[List[Message]] = {
+    var index = 0
+    steps.flatMap {
+      case Some(count) =>
+        for (_ <- 1 to count) {
+          channel.send(IndexedMessage(index))
+          index += 1
+        }
+        None
+      case None => Some(channel.tick().asScala.toList)
+    } ++ (0 to 10).map(_ => channel.tick().asScala.toList)
+  }
+
+  property("timing wheel delivers like deterministic channel") =
+    forAll(Gen.choose(0, 5), stepsGen) { (delay: Int, steps: List[Option[Int]]) =>
+      run(new TimingWheelChannel(delay), steps) == run(new DeterministicChannel(delay), steps)
+    }
+
+  property("timing wheel delivers after delay + 1 ticks") = forAll(Gen.choose(0, 5)) { (delay: Int) =>
+    val channel = new TimingWheelChannel(delay)
+    channel.send(IndexedMessage(0))
+    val deliveries = (0 to delay).map(_ => channel.tick().size())
+    deliveries.init.forall(_ == 0) && deliveries.last == 1
+  }
+}
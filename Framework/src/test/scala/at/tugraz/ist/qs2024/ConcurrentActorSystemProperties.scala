@@ -0,0 +1,95 @@
+package at.tugraz.ist.qs2024
+
+import java.util.concurrent.{ConcurrentLinkedQueue, CountDownLatch, Executors, TimeUnit}
+
+import at.tugraz.ist.qs2024.actorsystem.{ConcurrentActorSystem, Message, SimulatedActor}
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import at.tugraz.ist.qs2024.messageboard.dispatchermessages.Stop
+import at.tugraz.ist.qs2024.messageboard.{Dispatcher, MessageStoreRouter, RandomRoutingStrategy, UserMessage}
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class ConcurrentActorSystemProperties extends Properties("ConcurrentActorSystemProperties") {
+
+  private def newSystem(): ConcurrentActorSystem =
+    new ConcurrentActorSystem(Executors.newFixedThreadPool(2), TimeUnit.MILLISECONDS.toNanos(1), false)
+
+  // message store which never answers, as if all requests or replies were lost
+  private class SilentStore extends SimulatedActor {
+    override def receive(message: Message): Unit = {}
+  }
+
+  // client which publishes a message and finishes the communication when the request fails
+  private class PublishingClient(communicationId: Long, finished: CountDownLatch) extends SimulatedActor {
+    val received: ConcurrentLinkedQueue[String] = new ConcurrentLinkedQueue[String]()
+    private var worker: SimulatedActor = _
+
+    override def receive(message: Message): Unit = {
+      received.add(message.getClass.getSimpleName)
+      message match {
+        case initAck: InitAck =>
+          worker = initAck.worker
+          worker.tell(new Publish(new UserMessage("client" + communicationId, "message"), communicationId))
+        case _: OperationFailed => worker.tell(new FinishCommunication(communicationId))
+        case _: FinishAck => finished.countDown()
+        case _ =>
+      }
+    }
+  }
+
+  private case class Work(fail: Boolean) extends Message {
+    override def getDuration: Int = 0
+  }
+
+  // actor which throws an exception for failing work and stops itself when it receives a stop message
+  private class WorkingActor(system: ConcurrentActorSystem, processed: CountDownLatch) extends SimulatedActor {
+    override def receive(message: Message): Unit = message match {
+      case _: Stop => system.stop(this)
+      case Work(fail) =>
+        try {
+          if (fail) {
+            throw new IllegalStateException("work failed")
+          }
+        } finally {
+          processed.countDown()
+        }
+      case _ =>
+    }
+  }
+
+  property("requests fail after resend timeouts if the message store never answers") =
+    forAll(Gen.choose(1, 4), Gen.choose(1, 8)) { (workers: Int, clients: Int) =>
+      val system = newSystem()
+      val dispatcher = new Dispatcher(system, workers, new MessageStoreRouter(new SilentStore), new RandomRoutingStrategy)
+      system.spawn(dispatcher)
+      val finished = new CountDownLatch(clients)
+      val spawned = (1 to clients).map { i =>
+        val client = new PublishingClient(i, finished)
+        system.spawn(client)
+        dispatcher.tell(new InitCommunication(client, i.toLong))
+        client
+      }
+      val allFinished = finished.await(5, TimeUnit.SECONDS)
+      val stopped = system.shutdown(dispatcher, new Stop(), 5000)
+      allFinished && stopped &&
+        spawned.forall(_.received.asScala.toList == List("InitAck", "OperationFailed", "FinishAck"))
+    }
+
+  property("exceptions are recorded and later messages are processed") =
+    forAll(Gen.listOf(Gen.oneOf(true, false))) { (work: List[Boolean]) =>
+      val system = newSystem()
+      val processed = new CountDownLatch(work.size)
+      val actor = new WorkingActor(system, processed)
+      system.spawn(actor)
+      work.foreach(fail => actor.tell(Work(fail)))
+      val allProcessed = processed.await(5, TimeUnit.SECONDS)
+      val stopped = system.shutdown(actor, new Stop(), 5000)
+      val failures = system.getFailures.asScala
+      allProcessed && stopped && failures.size == work.count(fail => fail) &&
+        failures.forall(_.isInstanceOf[IllegalStateException])
+    }
+}
@@ -0,0 +1,60 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import at.tugraz.ist.qs2024.messageboard.{Dispatcher, UserMessage}
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class DuplicateProperties extends Properties("DuplicateProperties") {
+
+  private val names = IndexedSeq("alice", "bob")
+  private val texts = IndexedSeq("a", "b", "ab", "A")
+
+  // an operation publishes (0), edits (1) or deletes (2) a message, it has an author, the text of
+  // the message concerned and a new text
+  private val operationGen: Gen[(Int, Int, Int, Int)] = for {
+    kind <- Gen.choose(0, 2)
+    author <- Gen.choose(0, names.size - 1)
+    text <- Gen.choose(0, texts.size - 1)
+    newText <- Gen.choose(0, texts.size - 1)
+  } yield (kind, author, text, newText)
+
+  property("writes are rejected exactly if the author has already posted the text") =
+    forAll(Gen.listOf(operationGen), Gen.oneOf(false, true)) { (operations: List[(Int, Int, Int, Int)], eventDriven: Boolean) =>
+      val system = new SimulatedActorSystem(eventDriven)
+      val board = new MessageBoardHarness(system, new Dispatcher(system, 2), 1)
+      // authors with the texts of their stored messages
+      var posted = Set[(String, String)]()
+      def messageId(author: String, text: String): Long =
+        board.request(0, new RetrieveMessages(author, _)).asInstanceOf[FoundMessages].messages.asScala
+          .find(_.getMessage == text).map(_.getMessageId).getOrElse(12345L)
+      operations.forall { case (kind, author, text, newText) =>
+        val name = names(author)
+        val stored = posted.contains((name, texts(text)))
+        kind match {
+          case 0 =>
+            val acknowledged = board.request(0, new Publish(new UserMessage(name, texts(text)), _)).isInstanceOf[OperationAck]
+            posted += ((name, texts(text)))
+            acknowledged == !stored
+          case 1 =>
+            val id = messageId(name, texts(text))
+            val acknowledged = board.request(0, new Edit(id, name, texts(newText), _)).isInstanceOf[OperationAck]
+            val expected = stored && !posted.contains((name, texts(newText)))
+            if (expected) {
+              posted = posted - ((name, texts(text))) + ((name, texts(newText)))
+            }
+            acknowledged == expected
+          case _ =>
+            val id = messageId(name, texts(text))
+            val acknowledged = board.request(0, new Delete(id, name, _)).isInstanceOf[OperationAck]
+            posted -= ((name, texts(text)))
+            acknowledged == stored
+        }
+      }
+    }
+}
@@ -0,0 +1,57 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem
+import at.tugraz.ist.qs2024.messageboard._
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class FollowerProperties extends Properties("FollowerProperties") {
+
+  import BoardScript.operationGen
+
+  property("replicated store with read-your-writes answers like a single store") =
+    forAll(Gen.choose(1, 4), Gen.choose(1, 3), Gen.choose(1, 10), Gen.listOf(operationGen)) {
+      (numberOfShards: Int, followers: Int, replicationInterval: Int, operations: List[(Int, Int, Int, Int, Int)]) =>
+        val router = MessageStoreRouter.createReplicatedShards(numberOfShards, followers, ReadConsistency.readYourWrites(), replicationInterval)
+        BoardScript.run(router, operations) == BoardScript.run(MessageStoreRouter.createShards(1), operations)
+    }
+
+  // an operation publishes a message (0), retrieves the messages (1) or waits for the given number of time units (2)
+  private val operationWithWaitGen: Gen[(Int, Int)] = Gen.zip(Gen.choose(0, 2), Gen.choose(0, 14))
+
+  property("followers answer queries with states not older than the staleness bound") =
+    forAll(Gen.choose(0, 9), Gen.choose(1, 3), Gen.choose(1, 2), Gen.choose(1, 10), Gen.oneOf(false, true), Gen.listOf(operationWithWaitGen)) {
+      (maxStaleness: Int, numberOfShards: Int, followers: Int, replicationInterval: Int, eventDriven: Boolean, operations: List[(Int, Int)]) =>
+        val system = new SimulatedActorSystem(eventDriven)
+        val router = MessageStoreRouter.createReplicatedShards(numberOfShards, followers, ReadConsistency.boundedStaleness(maxStaleness), replicationInterval)
+        val board = new MessageBoardHarness(system, new Dispatcher(system, 2, router, new RandomRoutingStrategy), 1)
+        // acknowledged messages with the time unit of their acknowledgement
+        var acknowledged = Map[String, Int]()
+        operations.zipWithIndex.forall {
+          case ((0, _), index) =>
+            val text = "message" + index
+            if (board.request(0, new Publish(new UserMessage("author", text), _)).isInstanceOf[OperationAck]) {
+              acknowledged += text -> system.getCurrentTime
+            }
+            true
+          case ((1, _), _) =>
+            val sentAt = system.getCurrentTime
+            board.request(0, new RetrieveMessages("author", _)) match {
+              case found: FoundMessages =>
+                val texts = found.messages.asScala.map(_.getMessage).toSet
+                texts.subsetOf(acknowledged.keySet) && acknowledged.forall { case (text, ackedAt) =>
+                  ackedAt + maxStaleness > sentAt || texts.contains(text)
+                }
+              case _ => false
+            }
+          case ((_, ticks), _) =>
+            system.runFor(ticks)
+            true
+        }
+    }
+}
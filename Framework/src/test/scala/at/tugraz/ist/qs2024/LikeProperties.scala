@@ -0,0 +1,105 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem
+import at.tugraz.ist.qs2024.messageboard._
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.collection.immutable.TreeSet
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class LikeProperties extends Properties("LikeProperties") {
+
+  // an operation adds (true) or removes (false) a range of names to the likes or dislikes (true) of a message,
+  // ranges are large, so that sets exceed the size, above which they are stored as bitmaps
+  private val rangeGen: Gen[(Boolean, Boolean, Int, Int)] = for {
+    dislikes <- Gen.oneOf(false, true)
+    add <- Gen.frequency((2, Gen.const(true)), (1, Gen.const(false)))
+    from <- Gen.choose(0, 9999)
+    count <- Gen.choose(0, 3000)
+  } yield (dislikes, add, from, count)
+
+  property("likes and dislikes of a message behave like sets ordered by name") =
+    forAll(Gen.listOf(rangeGen)) { (operations: List[(Boolean, Boolean, Int, Int)]) =>
+      val message = new UserMessage("author", "text")
+      var likes = TreeSet[String]()
+      var dislikes = TreeSet[String]()
+      operations.forall { case (ofDislikes, add, from, count) =>
+        val list = if (ofDislikes) message.getDislikes else message.getLikes
+        val model = if (ofDislikes) dislikes else likes
+        val names = (from until from + count).map("client" + _)
+        val changed = names.map(name => if (add) list.add(name) else list.remove(name))
+        val changedModel = if (add) model ++ names else model -- names
+        if (ofDislikes) dislikes = changedModel else likes = changedModel
+        changed == names.map(name => model.contains(name) != add) &&
+          message.getLikes.asScala == likes.toList && message.getDislikes.asScala == dislikes.toList &&
+          message.getLikeCount == likes.size && message.getDislikeCount == dislikes.size &&
+          message.getLikes.contains("client" + from) == likes.contains("client" + from)
+      }
+    }
+
+  // an operation of a client likes (0), dislikes (1), removes the like (2) or removes the dislike (3) of the message
+  private val voteGen: Gen[(Int, Int)] = Gen.zip(Gen.choose(0, 3), Gen.choose(0, 5))
+
+  property("stored message is liked or disliked at most once by every client") =
+    forAll(Gen.listOf(voteGen), Gen.oneOf(false, true)) { (votes: List[(Int, Int)], eventDriven: Boolean) =>
+      val system = new SimulatedActorSystem(eventDriven)
+      val board = new MessageBoardHarness(system, new Dispatcher(system, 2), 1)
+      board.request(0, new Publish(new UserMessage("author", "text"), _))
+      def stored: UserMessage = board.request(0, new RetrieveMessages("author", _)).asInstanceOf[FoundMessages].messages.get(0)
+      val id = stored.getMessageId
+      var likes = TreeSet[String]()
+      var dislikes = TreeSet[String]()
+      votes.forall { case (kind, client) =>
+        val name = "client" + client
+        val expected = kind match {
+          case 0 => !likes.contains(name)
+          case 1 => !dislikes.contains(name)
+          case 2 => likes.contains(name)
+          case _ => dislikes.contains(name)
+        }
+        val reply = kind match {
+          case 0 => board.request(0, new Like(name, _, id))
+          case 1 => board.request(0, new Dislike(name, _, id))
+          case 2 => board.request(0, new RemoveLikeOrDislike(name, _, id, RemoveLikeOrDislike.Type.LIKE))
+          case _ => board.request(0, new RemoveLikeOrDislike(name, _, id, RemoveLikeOrDislike.Type.DISLIKE))
+        }
+        if (expected) {
+          kind match {
+            case 0 =>
+              likes += name
+              dislikes -= name
+            case 1 =>
+              dislikes += name
+              likes -= name
+            case 2 => likes -= name
+            case _ => dislikes -= name
+          }
+        }
+        val message = stored
+        reply.isInstanceOf[OperationFailed] != expected &&
+          message.getLikes.asScala == likes.toList && message.getDislikes.asScala == dislikes.toList &&
+          message.getPoints == likes.size - dislikes.size
+      }
+    }
+
+  private val reactionGen: Gen[(Int, Reaction.Emoji)] = Gen.zip(Gen.choose(0, 29), Gen.oneOf(Reaction.Emoji.values.toSeq))
+
+  property("reactions added before publishing are kept by the store") =
+    forAll(Gen.choose(1, 3), Gen.listOf(reactionGen)) { (numberOfShards: Int, reactions: List[(Int, Reaction.Emoji)]) =>
+      val system = new SimulatedActorSystem()
+      val board = new MessageBoardHarness(system, new Dispatcher(system, 2, MessageStoreRouter.createShards(numberOfShards), new RandomRoutingStrategy), 1)
+      val message = new UserMessage("author", "text")
+      for ((client, emoji) <- reactions) {
+        message.addReaction("client" + client, emoji)
+      }
+      board.request(0, new Publish(message, _))
+      val stored = board.request(0, new RetrieveMessages("author", _)).asInstanceOf[FoundMessages].messages.get(0)
+      stored.getAuthor == "author" &&
+        stored.getReactions.asScala.map { case (name, emojis) => (name, emojis.asScala.toSet) } ==
+          reactions.groupBy("client" + _._1).map { case (name, reacted) => (name, reacted.map(_._2).toSet) }
+    }
+}
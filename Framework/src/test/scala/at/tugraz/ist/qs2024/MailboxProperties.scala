@@ -0,0 +1,97 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem._
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import at.tugraz.ist.qs2024.messageboard.{Dispatcher, MessageStore, UserMessage}
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.collection.immutable.Queue
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class MailboxProperties extends Properties("MailboxProperties") {
+
+  private case class IndexedMessage(index: Int) extends Message {
+    override def getDuration: Int = 1
+  }
+
+  // an operation is either offering a message (true) or polling one (false)
+  private val operationsGen: Gen[List[Boolean]] = Gen.listOf(Gen.frequency((3, true), (2, false)))
+
+  // results of the operations applied to a mailbox, the dropped messages of offers and the polled messages
+  private def run(mailbox: Mailbox, operations: List[Boolean]): List[Option[Message]] =
+    operations.zipWithIndex.map {
+      case (true, index) => Option(mailbox.offer(IndexedMessage(index)))
+      case (false, _) => Option(mailbox.poll())
+    } :+ Some(IndexedMessage(mailbox.size()))
+
+  // results of the operations applied to a queue bounded by the capacity
+  private def model(capacity: Int, policy: OverflowPolicy, operations: List[Boolean]): List[Option[Message]] = {
+    var queue = Queue[Message]()
+    operations.zipWithIndex.map {
+      case (true, index) if queue.size < capacity =>
+        queue = queue.enqueue(IndexedMessage(index))
+        None
+      case (true, index) if policy == OverflowPolicy.DROP_OLDEST =>
+        val (oldest, rest) = queue.dequeue
+        queue = rest.enqueue(IndexedMessage(index))
+        Some(oldest)
+      case (true, index) => Some(IndexedMessage(index))
+      case (false, _) if queue.isEmpty => None
+      case (false, _) =>
+        val (oldest, rest) = queue.dequeue
+        queue = rest
+        Some(oldest)
+    } :+ Some(IndexedMessage(queue.size))
+  }
+
+  property("ring buffer mailbox applies its overflow policy") =
+    forAll(Gen.choose(1, 5), Gen.oneOf(OverflowPolicy.values.toSeq), operationsGen) {
+      (capacity: Int, policy: OverflowPolicy, operations: List[Boolean]) =>
+        run(new RingBufferMailbox(capacity, policy), operations) == model(capacity, policy, operations)
+    }
+
+  property("unbounded ring buffer mailbox never drops messages") = forAll(operationsGen) { (operations: List[Boolean]) =>
+    run(new RingBufferMailbox(), operations) == model(Int.MaxValue, OverflowPolicy.REJECT, operations)
+  }
+
+  property("MPSC mailbox applies its overflow policy") =
+    forAll(Gen.choose(1, 5), Gen.oneOf(OverflowPolicy.REJECT, OverflowPolicy.SIGNAL_SENDER), operationsGen) {
+      (capacity: Int, policy: OverflowPolicy, operations: List[Boolean]) =>
+        run(new MpscMailbox(capacity, policy), operations) == model(capacity, policy, operations)
+    }
+
+  property("bounded message store answers every request once and stores acknowledged messages") =
+    forAll(Gen.choose(1, 4), Gen.oneOf(OverflowPolicy.values.toSeq), Gen.choose(1, 12)) {
+      (capacity: Int, policy: OverflowPolicy, numberOfClients: Int) =>
+        val system = new SimulatedActorSystem()
+        val store = new MessageStore(capacity, policy)
+        val board = new MessageBoardHarness(system, new Dispatcher(system, 2, store), numberOfClients)
+        var maxMailboxSize = 0
+        def mailboxSizeRecorded(condition: => Boolean): Boolean = {
+          maxMailboxSize = math.max(maxMailboxSize, store.getMessageBox.size)
+          condition
+        }
+
+        // all clients publish at once, so that the mailbox of the store overflows
+        for (client <- board.clients) {
+          client.worker.tell(new Publish(new UserMessage("author", "message" + client.communicationId), client.communicationId))
+        }
+        board.runUntil(mailboxSizeRecorded(board.clients.forall(_.replies.nonEmpty)))
+        // late replies, e.g. to resent requests, must not be forwarded to the clients
+        board.runUntil(mailboxSizeRecorded(false), 50)
+        val replies = board.clients.map(_.replies.toList)
+        board.clients.foreach(_.replies.clear())
+
+        val acknowledged = board.clients.zip(replies).collect {
+          case (client, List(_: OperationAck)) => "message" + client.communicationId
+        }
+        val stored = board.request(0, new RetrieveMessages("author", _)).asInstanceOf[FoundMessages]
+          .messages.asScala.map(_.getMessage).toSet
+        maxMailboxSize <= capacity &&
+          replies.forall(reply => reply.size == 1 && (reply.head.isInstanceOf[OperationAck] || reply.head.isInstanceOf[OperationFailed])) &&
+          acknowledged.forall(stored.contains)
+    }
+}
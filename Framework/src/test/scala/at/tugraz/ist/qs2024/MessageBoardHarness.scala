@@ -0,0 +1,111 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.{Message, SimulatedActor, SimulatedActorSystem}
+import at.tugraz.ist.qs2024.messageboard.{Dispatcher, MessageStoreRouter, RandomRoutingStrategy, UserMessage}
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import org.scalacheck.Gen
+
+import scala.collection.mutable
+import scala.jdk.CollectionConverters._
+
+// client of the message board, which records the replies it receives from its worker
+class BoardClient(val communicationId: Long) extends SimulatedActor {
+  val replies: mutable.Queue[Message] = mutable.Queue()
+  var worker: SimulatedActor = _
+
+  override def receive(message: Message): Unit = message match {
+    case initAck: InitAck => worker = initAck.worker
+    case _ => replies.enqueue(message)
+  }
+}
+
+// message board with the given number of clients, which have already initiated their communications
+class MessageBoardHarness(val system: SimulatedActorSystem, val dispatcher: Dispatcher, numberOfClients: Int) {
+  val clients: IndexedSeq[BoardClient] = (1 to numberOfClients).map(i => new BoardClient(i))
+
+  system.spawn(dispatcher)
+  for (client <- clients) {
+    system.spawn(client)
+    dispatcher.tell(new InitCommunication(client, client.communicationId))
+  }
+  runUntil(clients.forall(_.worker != null))
+
+  // runs the system until the condition holds, but at most for the given number of time units
+  def runUntil(condition: => Boolean, maxTicks: Int = 10000): Boolean = {
+    var ticks = 0
+    while (!condition && ticks < maxTicks) {
+      system.runFor(1)
+      ticks += 1
+    }
+    condition
+  }
+
+  // sends a request, which is created for the communication ID of a client, and returns the reply
+  def request(client: Int, request: Long => Message): Message = {
+    val sender = clients(client)
+    sender.worker.tell(request(sender.communicationId))
+    runUntil(sender.replies.nonEmpty)
+    sender.replies.dequeue()
+  }
+}
+
+// script of operations performed one after the other by a single client of the message board
+object BoardScript {
+  val names: IndexedSeq[String] = IndexedSeq("alice", "bob", "carol", "dave")
+  val texts: IndexedSeq[String] = IndexedSeq("a", "b", "ab", "ba", "c")
+
+  // an operation has a kind, the client performing it, the author of the message concerned,
+  // the index of the message among the messages of the author and a text
+  val operationGen: Gen[(Int, Int, Int, Int, Int)] = for {
+    kind <- Gen.choose(0, 9)
+    client <- Gen.choose(0, names.size - 1)
+    author <- Gen.choose(0, names.size - 1)
+    index <- Gen.choose(0, 3)
+    text <- Gen.choose(0, texts.size - 1)
+  } yield (kind, client, author, index, text)
+
+  // replies without message IDs, which differ depending on the number of shards
+  def normalize(reply: Message): String = reply match {
+    case found: FoundMessages =>
+      found.messages.asScala.map(message => (message.getAuthor, message.getMessage, message.getPoints,
+        message.getLikes.asScala.toSet, message.getDislikes.asScala.toSet, message.getReactions.asScala.toMap)).toList.sortBy(_.toString).toString
+    case response: ReactionResponse => "ReactionResponse " + response.points
+    case _ => reply.getClass.getSimpleName
+  }
+
+  // performs the operations on a message board using the stores of the router and returns the normalized replies
+  def run(router: MessageStoreRouter, operations: List[(Int, Int, Int, Int, Int)]): List[String] = {
+    val system = new SimulatedActorSystem()
+    val board = new MessageBoardHarness(system, new Dispatcher(system, 2, router, new RandomRoutingStrategy), 1)
+    // messages of an author are stored on one shard, which assigns ascending IDs
+    def messageId(author: String, index: Int): Long = {
+      val found = board.request(0, new RetrieveMessages(author, _)).asInstanceOf[FoundMessages].messages.asScala
+      if (found.isEmpty) Long.MaxValue else found.map(_.getMessageId).sorted.apply(index % found.size)
+    }
+    operations.map { case (kind, client, author, index, text) =>
+      val name = names(client)
+      val of = names(author)
+      normalize(kind match {
+        case 0 | 1 => board.request(0, new Publish(new UserMessage(name, texts(text) + index), _))
+        case 2 => board.request(0, new RetrieveMessages(of, _))
+        case 3 => board.request(0, new SearchMessages(texts(text), _))
+        case 4 =>
+          val id = messageId(of, index)
+          board.request(0, new Like(name, _, id))
+        case 5 =>
+          val id = messageId(of, index)
+          board.request(0, new Dislike(name, _, id))
+        case 6 =>
+          val id = messageId(of, index)
+          board.request(0, new Reaction(name, _, id, Reaction.Emoji.SMILEY))
+        case 7 =>
+          val id = messageId(of, index)
+          board.request(0, new Edit(id, name, texts(text), _))
+        case 8 =>
+          val id = messageId(of, index)
+          board.request(0, new Delete(id, name, _))
+        case _ => board.request(0, new Report(name, _, of))
+      })
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package at.tugraz.ist.qs2024
+
+import java.nio.file.Files
+
+import at.tugraz.ist.qs2024.actorsystem._
+import at.tugraz.ist.qs2024.messageboard.clientmessages.RetrieveMessages
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class MessageLogProperties extends Properties("MessageLogProperties") {
+
+  private class SilentActor extends SimulatedActor {
+    override def receive(message: Message): Unit = {}
+  }
+
+  // a message has an author, a communication ID, a page size and a cursor
+  private val messageGen: Gen[RetrieveMessages] = for {
+    author <- Gen.alphaStr
+    communicationId <- Gen.choose(-1000L, 1000L)
+    pageSize <- Gen.choose(0, 100)
+    cursor <- Gen.choose(Long.MinValue, Long.MaxValue)
+  } yield new RetrieveMessages(author, communicationId, pageSize, cursor)
+
+  // sends the messages to an actor using the message log and returns the logged messages
+  private def logged(messageLog: MessageLog, messages: List[Message]): List[Message] = {
+    val actor = new SilentActor
+    actor.setMessageLog(messageLog)
+    messages.foreach(actor.tell)
+    actor.getMessageLog.asScala.toList
+  }
+
+  property("unbounded message log retains all messages") = forAll(Gen.listOf(messageGen)) { (messages: List[RetrieveMessages]) =>
+    logged(new UnboundedMessageLog, messages) == messages
+  }
+
+  property("disabled message log retains no messages") = forAll(Gen.listOf(messageGen)) { (messages: List[RetrieveMessages]) =>
+    logged(new DisabledMessageLog, messages).isEmpty
+  }
+
+  property("ring buffer message log retains the most recent messages") =
+    forAll(Gen.choose(1, 10), Gen.listOf(messageGen)) { (capacity: Int, messages: List[RetrieveMessages]) =>
+      logged(new RingBufferMessageLog(capacity), messages) == messages.takeRight(capacity)
+    }
+
+  property("sampling message log retains every n-th message") =
+    forAll(Gen.choose(1, 10), Gen.listOf(messageGen)) { (interval: Int, messages: List[RetrieveMessages]) =>
+      logged(new SamplingMessageLog(interval), messages) == messages.zipWithIndex.collect {
+        case (message, index) if index % interval == 0 => message
+      }
+    }
+
+  property("binary file message log can be read back") =
+    forAll(Gen.nonEmptyListOf(Gen.zip(Gen.choose(0, 3), messageGen))) { (messages: List[(Int, RetrieveMessages)]) =>
+      val file = Files.createTempFile("messages", ".log")
+      try {
+        val messageLog = new BinaryFileMessageLog(file)
+        val actors = IndexedSeq.fill(4)(new SilentActor)
+        actors.zipWithIndex.foreach { case (actor, id) =>
+          actor.setId(id)
+          actor.setMessageLog(messageLog)
+        }
+        for ((receiver, message) <- messages) {
+          actors(receiver).tell(message)
+        }
+        messageLog.close()
+        val entries = BinaryFileMessageLog.read(file).asScala.toList
+        entries.size == messages.size && entries.zip(messages).forall { case (entry, (receiver, message)) =>
+          entry.getReceiverId == receiver &&
+            entry.getType == classOf[RetrieveMessages].getName &&
+            entry.getFields.asScala.toMap == Map[String, Any](
+              "author" -> message.author,
+              "communicationId" -> message.communicationId.longValue,
+              "pageSize" -> message.pageSize.toLong,
+              "cursor" -> message.cursor)
+        } && actors.forall(_.getMessageLog.isEmpty)
+      } finally {
+        Files.delete(file)
+      }
+    }
+}
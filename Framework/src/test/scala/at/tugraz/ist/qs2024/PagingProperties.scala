@@ -0,0 +1,41 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem
+import at.tugraz.ist.qs2024.messageboard._
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class PagingProperties extends Properties("PagingProperties") {
+
+  private val texts = IndexedSeq("a", "b", "ab", "ba", "c")
+
+  // a message has an author and a text
+  private val messageGen: Gen[(Int, Int)] = Gen.zip(Gen.choose(0, 2), Gen.choose(0, texts.size - 1))
+
+  property("pages of a query concatenate to its single-shot result") =
+    forAll(Gen.choose(1, 4), Gen.listOf(messageGen), Gen.choose(1, 5), Gen.oneOf(false, true), Gen.choose(0, texts.size - 1)) {
+      (numberOfShards: Int, messages: List[(Int, Int)], pageSize: Int, search: Boolean, query: Int) =>
+        val system = new SimulatedActorSystem()
+        val board = new MessageBoardHarness(system, new Dispatcher(system, 2, MessageStoreRouter.createShards(numberOfShards), new RandomRoutingStrategy), 1)
+        for (((author, text), index) <- messages.zipWithIndex) {
+          board.request(0, new Publish(new UserMessage("author" + author, texts(text) + index), _))
+        }
+        def page(size: Int, cursor: Long): FoundMessages = board.request(0, communicationId =>
+          if (search) new SearchMessages(texts(query), communicationId, size, cursor)
+          else new RetrieveMessages("author" + query % 3, communicationId, size, cursor)).asInstanceOf[FoundMessages]
+
+        val all = page(0, FoundMessages.NO_CURSOR)
+        val pages = Iterator.iterate(page(pageSize, FoundMessages.NO_CURSOR))(previous => page(pageSize, previous.nextCursor))
+          .take(messages.size + 1).span(_.nextCursor != FoundMessages.NO_CURSOR) match {
+          case (fullPages, rest) => fullPages.toList ++ rest.take(1)
+        }
+        all.nextCursor == FoundMessages.NO_CURSOR &&
+          pages.init.forall(_.messages.size == pageSize) && pages.last.messages.size <= pageSize &&
+          pages.flatMap(_.messages.asScala.map(_.getMessageId)) == all.messages.asScala.map(_.getMessageId)
+    }
+}
@@ -0,0 +1,85 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem._
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.collection.mutable.ListBuffer
+import scala.util.Random
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class ParallelSimulatedActorSystemProperties extends Properties("ParallelSimulatedActorSystemProperties") {
+
+  private case class Ping(hops: Int, duration: Int) extends Message {
+    override def getDuration(): Int = duration
+  }
+
+  // counter shared by all actors, which are not isolated
+  private class SharedCounter {
+    var value: Int = 0
+  }
+
+  // actor which records the pings it receives and forwards them to random peers
+  private class PingActor(delay: Int, isolated: Boolean, seed: Long, counter: SharedCounter) extends SimulatedActor {
+    channel = new TimingWheelChannel(delay)
+    private val random = new Random(seed)
+    var peers: IndexedSeq[SimulatedActor] = IndexedSeq()
+    val received: ListBuffer[(Int, Int, Int)] = ListBuffer()
+
+    override def receive(message: Message): Unit = message match {
+      case Ping(hops, _) =>
+        if (!isolated) {
+          counter.value += 1
+        }
+        received += ((getTimeSinceSystemStart, hops, if (isolated) 0 else counter.value))
+        if (hops > 0) {
+          for (_ <- 0 to random.nextInt(2)) {
+            peers(random.nextInt(peers.size)).tell(Ping(hops - 1, random.nextInt(3)))
+          }
+        }
+      case _ =>
+    }
+
+    override protected def isIsolated(): Boolean = isolated
+  }
+
+  // an actor has a channel delay and is isolated or not
+  private val actorGen: Gen[(Int, Boolean)] = for {
+    delay <- Gen.choose(0, 2)
+    isolated <- Gen.oneOf(true, false)
+  } yield (delay, isolated)
+
+  // a ping waits for the given number of ticks and then sends a ping with the given hops to an actor
+  private val pingGen: Gen[(Int, Int, Int)] = for {
+    gap <- Gen.choose(0, 5)
+    target <- Gen.choose(0, 100)
+    hops <- Gen.choose(0, 8)
+  } yield (gap, target, hops)
+
+  private def run(system: SimulatedActorSystem, actors: List[(Int, Boolean)], pings: List[(Int, Int, Int)]): List[Any] = {
+    val counter = new SharedCounter
+    val spawned = actors.zipWithIndex.map { case ((delay, isolated), i) =>
+      new PingActor(delay, isolated, i, counter)
+    }.toIndexedSeq
+    spawned.foreach(actor => system.spawn(actor))
+    spawned.foreach(actor => actor.peers = spawned)
+    for ((gap, target, hops) <- pings) {
+      system.runFor(gap)
+      spawned(target % spawned.size).tell(Ping(hops, 0))
+    }
+    system.runFor(200)
+    spawned.map(actor => (actor.received.toList, actor.getTimeSinceSystemStart)).toList :+ system.getCurrentTime
+  }
+
+  property("parallel system behaves like the sequential system") =
+    forAll(Gen.nonEmptyListOf(actorGen), Gen.listOf(pingGen), Gen.choose(1, 4), Gen.oneOf(false, true)) {
+      (actors: List[(Int, Boolean)], pings: List[(Int, Int, Int)], parallelism: Int, eventDriven: Boolean) =>
+        val parallel = new ParallelSimulatedActorSystem(parallelism, eventDriven)
+        try {
+          run(parallel, actors, pings) == run(new SimulatedActorSystem(eventDriven), actors, pings)
+        } finally {
+          parallel.shutdown()
+        }
+    }
+}
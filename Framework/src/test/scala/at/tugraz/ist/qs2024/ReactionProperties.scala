@@ -0,0 +1,75 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem
+import at.tugraz.ist.qs2024.messageboard._
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class ReactionProperties extends Properties("ReactionProperties") {
+
+  private val emojiGen: Gen[Reaction.Emoji] = Gen.oneOf(Reaction.Emoji.values.toSeq)
+
+  // an operation of a client adds a reaction (0), replaces its reactions via the map view (1) or removes them (2)
+  private val operationGen: Gen[(Int, Int, Reaction.Emoji, Set[Reaction.Emoji])] = for {
+    kind <- Gen.choose(0, 2)
+    client <- Gen.choose(0, 9)
+    emoji <- emojiGen
+    emojis <- Gen.containerOf[Set, Reaction.Emoji](emojiGen)
+  } yield (kind, client, emoji, emojis)
+
+  private def countsOf(reactions: Map[String, Set[Reaction.Emoji]]): Seq[Int] =
+    Reaction.Emoji.values.toSeq.map(emoji => reactions.values.count(_.contains(emoji)))
+
+  property("reaction counts of a message equal the numbers of clients with each reaction") =
+    forAll(Gen.listOf(operationGen)) { (operations: List[(Int, Int, Reaction.Emoji, Set[Reaction.Emoji])]) =>
+      val message = new UserMessage("author", "text")
+      var reactions = Map[String, Set[Reaction.Emoji]]()
+      operations.forall { case (kind, client, emoji, emojis) =>
+        val name = "client" + client
+        val added = kind match {
+          case 0 => message.addReaction(name, emoji) != reactions.getOrElse(name, Set()).contains(emoji)
+          case 1 =>
+            message.getReactions.put(name, emojis.asJava)
+            true
+          case _ =>
+            message.getReactions.remove(name)
+            true
+        }
+        reactions = kind match {
+          case 0 => reactions.updated(name, reactions.getOrElse(name, Set()) + emoji)
+          case 1 if emojis.nonEmpty => reactions.updated(name, emojis)
+          case _ => reactions - name
+        }
+        added &&
+          message.getReactions.asScala.toList.map { case (name, emojis) => (name, emojis.asScala.toSet) } == reactions.toList.sortBy(_._1) &&
+          Reaction.Emoji.values.toSeq.map(message.getReactionCount) == countsOf(reactions) &&
+          message.getReactionCounts.toSeq == countsOf(reactions)
+      }
+    }
+
+  property("store replies with the counts of the reactions added to a message") =
+    forAll(Gen.choose(1, 3), Gen.listOf(Gen.zip(Gen.choose(0, 4), emojiGen)), Gen.oneOf(false, true)) {
+      (numberOfShards: Int, reactionsOfClients: List[(Int, Reaction.Emoji)], eventDriven: Boolean) =>
+        val system = new SimulatedActorSystem(eventDriven)
+        val board = new MessageBoardHarness(system, new Dispatcher(system, 2, MessageStoreRouter.createShards(numberOfShards), new RandomRoutingStrategy), 1)
+        board.request(0, new Publish(new UserMessage("author", "text"), _))
+        val id = board.request(0, new RetrieveMessages("author", _)).asInstanceOf[FoundMessages].messages.get(0).getMessageId
+        var reactions = Map[String, Set[Reaction.Emoji]]()
+        reactionsOfClients.forall { case (client, emoji) =>
+          val name = "client" + client
+          val expected = !reactions.getOrElse(name, Set()).contains(emoji)
+          val reply = board.request(0, new Reaction(name, _, id, emoji))
+          reactions = reactions.updated(name, reactions.getOrElse(name, Set()) + emoji)
+          reply.isInstanceOf[ReactionResponse] == expected &&
+            (board.request(0, new RetrieveReactionCounts(_, id)) match {
+              case counts: ReactionCounts => counts.counts.toSeq == countsOf(reactions)
+              case _ => false
+            })
+        } && board.request(0, new RetrieveReactionCounts(_, id + 1)).isInstanceOf[OperationFailed]
+    }
+}
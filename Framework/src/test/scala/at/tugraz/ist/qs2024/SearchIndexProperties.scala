@@ -0,0 +1,69 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem
+import at.tugraz.ist.qs2024.messageboard.Worker.MAX_MESSAGE_LENGTH
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import at.tugraz.ist.qs2024.messageboard.{Dispatcher, UserMessage}
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class SearchIndexProperties extends Properties("SearchIndexProperties") {
+
+  // few characters, so that texts share n-grams, including characters with special lowercase mappings
+  private def textGen(maxLength: Int): Gen[String] =
+    Gen.choose(0, maxLength).flatMap(Gen.listOfN(_, Gen.oneOf("aAbB İıΣσς"))).map(_.mkString)
+
+  // an operation publishes (0), edits (1), deletes (2) or searches (3), it has an author, the index of the
+  // message concerned among the messages of the author and a text, which is the search text of searches
+  private val operationGen: Gen[(Int, Int, Int, String)] = for {
+    kind <- Gen.choose(0, 3)
+    author <- Gen.choose(0, 2)
+    index <- Gen.choose(0, 7)
+    text <- if (kind == 3) textGen(5) else textGen(MAX_MESSAGE_LENGTH)
+  } yield (kind, author, index, text)
+
+  property("search finds the same messages as a scan of all messages") =
+    forAll(Gen.listOfN(3, textGen(6)), Gen.listOf(operationGen), Gen.oneOf(false, true)) {
+      (authors: List[String], operations: List[(Int, Int, Int, String)], eventDriven: Boolean) =>
+        val system = new SimulatedActorSystem(eventDriven)
+        val board = new MessageBoardHarness(system, new Dispatcher(system, 2), 1)
+        // authors with the texts of their stored messages
+        var stored = Set[(String, String)]()
+        operations.forall { case (kind, author, index, text) =>
+          val name = authors(author)
+          kind match {
+            case 0 =>
+              if (board.request(0, new Publish(new UserMessage(name, text), _)).isInstanceOf[OperationAck]) {
+                stored += ((name, text))
+              }
+              true
+            case 3 =>
+              val found = board.request(0, new SearchMessages(text, _)).asInstanceOf[FoundMessages].messages.asScala.toList
+              val lowercased = text.toLowerCase
+              val scanned = stored.filter { case (author, message) =>
+                author.toLowerCase.contains(lowercased) || message.toLowerCase.contains(lowercased)
+              }
+              found.map(message => (message.getAuthor, message.getMessage)).toSet == scanned &&
+                found.size == scanned.size &&
+                found.map(_.getMessageId) == found.map(_.getMessageId).sorted
+            case _ =>
+              val messages = board.request(0, new RetrieveMessages(name, _)).asInstanceOf[FoundMessages].messages.asScala
+              if (messages.nonEmpty) {
+                val message = messages(index % messages.size)
+                // the text is read before the request, as the store may change the message
+                val oldText = message.getMessage
+                if (kind == 1 && board.request(0, new Edit(message.getMessageId, name, text, _)).isInstanceOf[OperationAck]) {
+                  stored = stored - ((name, oldText)) + ((name, text))
+                } else if (kind == 2 && board.request(0, new Delete(message.getMessageId, name, _)).isInstanceOf[OperationAck]) {
+                  stored -= ((name, oldText))
+                }
+              }
+              true
+          }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.{Message, OverflowPolicy, SimulatedActor, SimulatedActorSystem}
+import at.tugraz.ist.qs2024.messageboard._
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+import scala.util.Random
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class ShardingProperties extends Properties("ShardingProperties") {
+
+  import BoardScript.{operationGen, texts}
+
+  property("sharded store answers like a single store") =
+    forAll(Gen.choose(2, 7), Gen.listOf(operationGen)) { (numberOfShards: Int, operations: List[(Int, Int, Int, Int, Int)]) =>
+      BoardScript.run(MessageStoreRouter.createShards(numberOfShards), operations) ==
+        BoardScript.run(MessageStoreRouter.createShards(1), operations)
+    }
+
+  // client which publishes messages and searches texts one after the other, checking the search results
+  private class SearchingClient(val communicationId: Long, requests: Int, seed: Long) extends SimulatedActor {
+    private val random = new Random(seed)
+    private var worker: SimulatedActor = _
+    private var searchText: Option[String] = None
+    var sent = 0
+    var replies = 0
+    var wrongReplies = 0
+
+    override def receive(message: Message): Unit = {
+      message match {
+        case initAck: InitAck => worker = initAck.worker
+        case found: FoundMessages if searchText.isDefined =>
+          replies += 1
+          wrongReplies += found.messages.asScala.count(message =>
+            !(message.getAuthor + " " + message.getMessage).toLowerCase.contains(searchText.get))
+        case _: OperationFailed => replies += 1
+        case _: OperationAck if searchText.isEmpty => replies += 1
+        case _ =>
+          replies += 1
+          wrongReplies += 1
+      }
+      if (sent < requests) {
+        sent += 1
+        if (random.nextBoolean()) {
+          searchText = None
+          worker.tell(new Publish(new UserMessage("author" + communicationId, texts(random.nextInt(texts.size)) + sent), communicationId))
+        } else {
+          searchText = Some(texts(random.nextInt(texts.size)))
+          worker.tell(new SearchMessages(searchText.get, communicationId))
+        }
+      }
+    }
+  }
+
+  // a client sends the given number of requests chosen randomly using the given seed
+  private val clientsGen: Gen[List[(Int, Long)]] =
+    Gen.choose(1, 30).flatMap(Gen.listOfN(_, Gen.zip(Gen.choose(1, 10), Gen.choose(Long.MinValue, Long.MaxValue))))
+
+  property("overloaded shards answer every search once with matching messages") =
+    forAll(Gen.choose(2, 9), Gen.choose(1, 3), Gen.choose(1, 3), clientsGen) {
+      (numberOfShards: Int, mailboxCapacity: Int, workers: Int, clientRequests: List[(Int, Long)]) =>
+        val system = new SimulatedActorSystem()
+        val router = MessageStoreRouter.createShards(numberOfShards, mailboxCapacity, OverflowPolicy.SIGNAL_SENDER)
+        val dispatcher = new Dispatcher(system, workers, router, new RandomRoutingStrategy)
+        system.spawn(dispatcher)
+        val clients = clientRequests.zipWithIndex.map { case ((requests, seed), i) =>
+          val client = new SearchingClient(i + 1, requests, seed)
+          system.spawn(client)
+          dispatcher.tell(new InitCommunication(client, client.communicationId))
+          (client, requests)
+        }
+        system.runFor(2000)
+        clients.forall { case (client, requests) =>
+          client.sent == requests && client.replies == requests && client.wrongReplies == 0
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.{Message, SimulatedActor, SimulatedActorSystem}
+import at.tugraz.ist.qs2024.messageboard.{Dispatcher, UserMessage}
+import at.tugraz.ist.qs2024.messageboard.clientmessages._
+import at.tugraz.ist.qs2024.messageboard.dispatchermessages.Stop
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.collection.mutable.ListBuffer
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class SimulatedActorSystemProperties extends Properties("SimulatedActorSystemProperties") {
+
+  // client which records the time and type of all received messages
+  private class RecordingClient extends SimulatedActor {
+    val received: ListBuffer[(Int, String)] = ListBuffer()
+    var worker: Option[SimulatedActor] = None
+
+    override def receive(message: Message): Unit = {
+      received += ((getTimeSinceSystemStart, message.getClass.getSimpleName))
+      message match {
+        case initAck: InitAck => worker = Some(initAck.worker)
+        case _ =>
+      }
+    }
+  }
+
+  // a step waits for the given number of ticks and then sends a request to the worker
+  private val stepGen: Gen[(Int, Int, Int)] = for {
+    gap <- Gen.choose(0, 60)
+    operation <- Gen.choose(0, 5)
+    messageId <- Gen.choose(0, 3)
+  } yield (gap, operation, messageId)
+
+  private def request(operation: Int, messageId: Int, commId: Long): Message = operation match {
+    case 0 => new Publish(new UserMessage("author", "message" + messageId), commId)
+    case 1 => new Like("liker", commId, messageId)
+    case 2 => new Dislike("disliker", commId, messageId)
+    case 3 => new SearchMessages("mess", commId)
+    case 4 => new RetrieveMessages("author", commId)
+    case _ => new Delete(messageId, "author", commId)
+  }
+
+  private def run(system: SimulatedActorSystem, steps: List[(Int, Int, Int)]): List[(Int, String)] = {
+    val dispatcher = new Dispatcher(system, 2)
+    val client = new RecordingClient
+    system.spawn(dispatcher)
+    system.spawn(client)
+    dispatcher.tell(new InitCommunication(client, 1))
+    for ((gap, operation, messageId) <- steps) {
+      system.runFor(gap)
+      client.worker.foreach(_.tell(request(operation, messageId, 1)))
+    }
+    dispatcher.tell(new Stop())
+    system.runFor(200)
+    client.received.toList :+ ((system.getCurrentTime, "end"))
+  }
+
+  property("event-driven system behaves like ticking every time unit") =
+    forAll(Gen.listOf(stepGen)) { (steps: List[(Int, Int, Int)]) =>
+      run(new SimulatedActorSystem(true), steps) == run(new SimulatedActorSystem(), steps)
+    }
+
+  property("ticking only ready actors behaves like ticking all actors") =
+    forAll(Gen.listOf(stepGen), Gen.oneOf(false, true)) { (steps: List[(Int, Int, Int)], eventDriven: Boolean) =>
+      run(new SimulatedActorSystem(eventDriven), steps) == run(new SimulatedActorSystem(eventDriven, true), steps)
+    }
+}
@@ -0,0 +1,52 @@
+package at.tugraz.ist.qs2024
+
+import at.tugraz.ist.qs2024.actorsystem.SimulatedActorSystem
+import at.tugraz.ist.qs2024.messageboard.clientmessages.{OperationAck, OperationFailed, Publish}
+import at.tugraz.ist.qs2024.messageboard.dispatchermessages.Stop
+import at.tugraz.ist.qs2024.messageboard.{Dispatcher, UserMessage, Worker, WorkerHelper}
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class WorkerHelperPoolProperties extends Properties("WorkerHelperPoolProperties") {
+
+  private def helperIds(system: SimulatedActorSystem): Set[Long] =
+    system.getActors.asScala.collect { case helper: WorkerHelper => helper.getId }.toSet
+
+  property("helpers are reused for later requests and stopped with their workers") =
+    forAll(Gen.choose(1, 3), Gen.choose(1, 6), Gen.choose(1, 10), Gen.oneOf(false, true)) {
+      (workers: Int, numberOfClients: Int, rounds: Int, eventDriven: Boolean) =>
+        val system = new SimulatedActorSystem(eventDriven)
+        val board = new MessageBoardHarness(system, new Dispatcher(system, workers), numberOfClients)
+        var maxHelpers = 0
+        def helpersRecorded(condition: => Boolean): Boolean = {
+          maxHelpers = math.max(maxHelpers, helperIds(system).size)
+          condition
+        }
+
+        // in every round, all clients publish a message at once and wait for the replies
+        val roundsPassed = (1 to rounds).map { round =>
+          for (client <- board.clients) {
+            client.worker.tell(new Publish(new UserMessage("author" + client.communicationId, "message" + round), client.communicationId))
+          }
+          board.runUntil(helpersRecorded(board.clients.forall(_.replies.nonEmpty)))
+          board.runUntil(helpersRecorded(false), 30)
+          val replies = board.clients.map(_.replies.toList)
+          board.clients.foreach(_.replies.clear())
+          val singleReplies = replies.forall(reply =>
+            reply.size == 1 && (reply.head.isInstanceOf[OperationAck] || reply.head.isInstanceOf[OperationFailed]))
+          (singleReplies, helperIds(system))
+        }
+
+        board.dispatcher.tell(new Stop())
+        system.runFor(200)
+        roundsPassed.forall(_._1) &&
+          roundsPassed.forall(_._2.subsetOf(roundsPassed.head._2)) &&
+          maxHelpers <= numberOfClients &&
+          helperIds(system).isEmpty &&
+          !system.getActors.asScala.exists(_.isInstanceOf[Worker])
+    }
+}
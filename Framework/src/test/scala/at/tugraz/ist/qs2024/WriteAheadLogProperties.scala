@@ -0,0 +1,59 @@
+package at.tugraz.ist.qs2024
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.{Files, Path, StandardOpenOption}
+
+import at.tugraz.ist.qs2024.messageboard.{Durability, MessageStore, MessageStoreRouter, WriteAheadLog}
+import org.junit.runner.RunWith
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Properties}
+
+import scala.jdk.CollectionConverters._
+
+@RunWith(classOf[ScalaCheckJUnitPropertiesRunner])
+class WriteAheadLogProperties extends Properties("WriteAheadLogProperties") {
+
+  private val durabilityGen: Gen[Durability] =
+    Gen.oneOf(Gen.const(Durability.perMutation()), Gen.choose(1, 5).map(Durability.perMutations), Gen.const(Durability.perTick()))
+
+  // retrieves the messages of every author and searches every text
+  private val queries: List[(Int, Int, Int, Int, Int)] =
+    BoardScript.names.indices.map((2, 0, _, 0, 0)).toList ++ BoardScript.texts.indices.map((3, 0, 0, 0, _))
+
+  // shards, which log their writes to one file per shard in the directory and replay the files written before
+  private def shardsWithLogs(numberOfShards: Int, directory: Path, durability: Durability): (MessageStoreRouter, Seq[WriteAheadLog]) = {
+    val router = MessageStoreRouter.createShards(numberOfShards)
+    val logs = router.getStores.asScala.toSeq.zipWithIndex.map { case (store, shard) =>
+      val log = new WriteAheadLog(directory.resolve("shard" + shard + ".wal"), durability)
+      store.asInstanceOf[MessageStore].setWriteAheadLog(log)
+      log
+    }
+    (router, logs)
+  }
+
+  property("stores replaying their logs answer queries like the stores that wrote them") =
+    forAll(Gen.choose(1, 3), Gen.listOf(BoardScript.operationGen), durabilityGen, durabilityGen, Gen.oneOf(false, true)) {
+      (numberOfShards: Int, operations: List[(Int, Int, Int, Int, Int)], durability: Durability, restoredDurability: Durability, torn: Boolean) =>
+        val directory = Files.createTempDirectory("wal")
+        try {
+          val (router, logs) = shardsWithLogs(numberOfShards, directory, durability)
+          val replies = BoardScript.run(router, operations ++ queries).drop(operations.size)
+          logs.foreach(_.close())
+          if (torn) {
+            // a record cut off by a crash at the end of every log, which is discarded by the replay
+            for (shard <- 0 until numberOfShards) {
+              val channel = FileChannel.open(directory.resolve("shard" + shard + ".wal"), StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+              try channel.write(ByteBuffer.wrap(Array[Byte](0, 0, 0, 20, 1, 2, 3))) finally channel.close()
+            }
+          }
+          val (restoredRouter, restoredLogs) = shardsWithLogs(numberOfShards, directory, restoredDurability)
+          val restoredReplies = BoardScript.run(restoredRouter, queries)
+          restoredLogs.foreach(_.close())
+          restoredReplies == replies
+        } finally {
+          Files.list(directory).iterator.asScala.foreach(Files.delete)
+          Files.delete(directory)
+        }
+    }
+}